@@ -0,0 +1,93 @@
+package com.epam.training.gen.ai.examples.semantic.benchmark;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.PrimitiveVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.SimilarityFunction;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResults;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to answer a batch of queries with one search per query versus one blocked pass over the corpus.
+ * <p>
+ * Both variants return the same results; the difference is how often each stored vector is read from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BatchVectorSearchBenchmark {
+
+    @Param({"10000", "50000"})
+    private int corpusSize;
+
+    @Param({"1536"})
+    private int dimensions;
+
+    @Param({"16", "256"})
+    private int queryCount;
+
+    @Param({"10"})
+    private int top;
+
+    private PrimitiveVectorStoreRecordCollection collection;
+    private List<List<Float>> queries;
+    private VectorSearchOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        collection = new PrimitiveVectorStoreRecordCollection("benchmark", dimensions, SimilarityFunction.COSINE);
+        collection.createCollectionIfNotExistsAsync().block();
+
+        var random = new SplittableRandom(42);
+        var batch = new ArrayList<DummyRecord>(1000);
+        for (int i = 0; i < corpusSize; i++) {
+            batch.add(new DummyRecord("record-" + i, VectorSearchBenchmark.randomUnitVector(random, dimensions)));
+            if (batch.size() == 1000) {
+                collection.upsertBatchAsync(batch, null).block();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            collection.upsertBatchAsync(batch, null).block();
+        }
+
+        queries = new ArrayList<>(queryCount);
+        for (int i = 0; i < queryCount; i++) {
+            queries.add(VectorSearchBenchmark.randomUnitVector(random, dimensions));
+        }
+        options = VectorSearchOptions.builder().withTop(top).build();
+    }
+
+    @Benchmark
+    public List<VectorSearchResults<DummyRecord>> perQuery() {
+        var results = new ArrayList<VectorSearchResults<DummyRecord>>(queries.size());
+        for (List<Float> query : queries) {
+            results.add(collection.searchAsync(query, options).block());
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<VectorSearchResults<DummyRecord>> batch() {
+        return collection.searchBatchAsync(queries, options).block();
+    }
+}
@@ -0,0 +1,89 @@
+package com.epam.training.gen.ai.examples.semantic.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning chat answers into the {@code /chat} response body.
+ * <p>
+ * {@code convertChatMessagesToJson} mirrors the controller, which encodes each answer list to a JSON string that
+ * is then encoded again inside the response map. The alternatives reuse a typed writer, or put the lists in the
+ * map so that the body is encoded once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatResponseSerializationBenchmark {
+
+    @Param({"64", "2048"})
+    private int answerLength;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectWriter messagesWriter;
+    private String input;
+    private List<String> response;
+    private List<String> creativeResponse;
+
+    @Setup
+    public void setUp() {
+        messagesWriter = objectMapper.writerFor(new TypeReference<List<String>>() {
+        });
+        input = "What is the capital of France?";
+        response = List.of(answer('a'));
+        creativeResponse = List.of(answer('b'));
+    }
+
+    @Benchmark
+    public String convertChatMessagesToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(response);
+    }
+
+    @Benchmark
+    public String reusedWriter() throws JsonProcessingException {
+        return messagesWriter.writeValueAsString(response);
+    }
+
+    @Benchmark
+    public String chatResponseBody() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(Map.of("input t=0.1", input,
+                "response t=0.1", objectMapper.writeValueAsString(response),
+                "input t=1.0", input,
+                "response t=1.0", objectMapper.writeValueAsString(creativeResponse)));
+    }
+
+    @Benchmark
+    public String chatResponseBodyEncodedOnce() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(Map.of("input t=0.1", input,
+                "response t=0.1", response,
+                "input t=1.0", input,
+                "response t=1.0", creativeResponse));
+    }
+
+    private String answer(char letter) {
+        var text = new StringBuilder(answerLength);
+        for (int i = 0; i < answerLength; i++) {
+            text.append(i % 12 == 11 ? ' ' : i % 97 == 0 ? '"' : letter);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.epam.training.gen.ai.examples.semantic.benchmark;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.FloatListView;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.VectorMath;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building a {@link DummyRecord} from an embedding, with the vector boxed as a {@code List<Float>}
+ * or kept in a primitive {@code float[]} behind a {@link FloatListView}, and of the conversions around it.
+ * <p>
+ * Run with {@code -prof gc} to compare the bytes allocated per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DummyRecordBenchmark {
+
+    @Param({"384", "1536"})
+    private int dimensions;
+
+    private float[] vector;
+    private List<Float> boxed;
+    private String json;
+    private ObjectReader recordReader;
+
+    @Setup
+    public void setUp() throws IOException {
+        var random = new SplittableRandom(42);
+        vector = new float[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        boxed = new ArrayList<>(dimensions);
+        for (float value : vector) {
+            boxed.add(value);
+        }
+        var objectMapper = new ObjectMapper();
+        json = objectMapper.writeValueAsString(new DummyRecord("record", boxed));
+        recordReader = objectMapper.readerFor(DummyRecord.class);
+    }
+
+    @Benchmark
+    public DummyRecord boxedList() {
+        var embedding = new ArrayList<Float>(vector.length);
+        for (float value : vector) {
+            embedding.add(value);
+        }
+        return new DummyRecord("record", embedding);
+    }
+
+    @Benchmark
+    public DummyRecord primitiveArray() {
+        return new DummyRecord("record", new FloatListView(vector.clone()));
+    }
+
+    @Benchmark
+    public float[] boxedToPrimitive() {
+        return VectorMath.toArray(boxed);
+    }
+
+    @Benchmark
+    public DummyRecord deserialize() throws IOException {
+        return recordReader.readValue(json);
+    }
+}
@@ -0,0 +1,90 @@
+package com.epam.training.gen.ai.examples.semantic.benchmark;
+
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentLimiters;
+import com.epam.training.gen.ai.examples.semantic.tokenizer.BpeTokenizer;
+import com.epam.training.gen.ai.examples.semantic.tokenizer.Encoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of counting the tokens of a prompt locally, per call of {@code textBytes} of mixed prose, code, numbers
+ * and non-ASCII text.
+ * <p>
+ * {@code count} is what the limiters and chat sessions charge per request, {@code encode} also materializes the
+ * token ids, and {@code estimate} is the four characters per token estimate it replaces. Run with
+ * {@code -prof gc} to see the allocation per call. The encodings are read from {@code tokenizer/} on the
+ * classpath, where the build downloads them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    private static final String[] WORDS = {"the", "model", "returns", "a", "response", "tokenizer", "budget",
+            "deployment", "Kubernetes", "latency", "p99", "embedding", "vector", "search", "naïve", "café",
+            "Überprüfung", "données", "東京", "токен", "😀", "don't", "we'll", "I'm", "42", "3.14159", "2024-06-01",
+            "HTTP/1.1", "user@example.com", "https://example.com/a?b=c", "{", "}", "();", "=>", "    ", "\n", "\n\n"};
+
+    @Param({"cl100k_base", "o200k_base"})
+    private String encoding;
+
+    @Param({"1024", "16384"})
+    private int textBytes;
+
+    private BpeTokenizer tokenizer;
+    private String text;
+
+    @Setup
+    public void setUp() throws IOException {
+        Encoding selected = Encoding.of(encoding);
+        try (InputStream in = TokenizerBenchmark.class.getResourceAsStream("/tokenizer/" + selected.fileName())) {
+            if (in == null) {
+                throw new IllegalStateException("tokenizer/" + selected.fileName() + " is not on the classpath, "
+                        + "run mvn generate-resources with network access once");
+            }
+            tokenizer = BpeTokenizer.load(selected, in);
+        }
+        var random = new Random(42);
+        var builder = new StringBuilder(textBytes + 64);
+        while (builder.length() < textBytes) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (builder.length() > 0 && !word.isBlank() && random.nextInt(4) != 0) {
+                builder.append(' ');
+            }
+            builder.append(word);
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public int count() {
+        return tokenizer.count(text);
+    }
+
+    @Benchmark
+    public int[] encode() {
+        return tokenizer.encode(text);
+    }
+
+    @Benchmark
+    public long estimate() {
+        return DeploymentLimiters.estimateTokens(text);
+    }
+}
@@ -0,0 +1,134 @@
+package com.epam.training.gen.ai.examples.semantic.benchmark;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.HnswVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.PrimitiveVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.QuantizationType;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.QuantizedVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.SimilarityFunction;
+import com.microsoft.semantickernel.data.VolatileVectorStore;
+import com.microsoft.semantickernel.data.VolatileVectorStoreRecordCollectionOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResults;
+import com.microsoft.semantickernel.data.vectorstorage.VectorStoreRecordCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-k search latency of the in-process vector stores across corpus sizes and dimensions.
+ * <p>
+ * Every store holds the same random unit vectors and is queried with the same rotating set of queries.
+ * Vectors are boxed {@code List<Float>} as the embedding API returns them. The {@code volatile} store is the
+ * Semantic Kernel baseline the others replace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class VectorSearchBenchmark {
+
+    private static final int QUERY_COUNT = 64;
+
+    @Param({"volatile", "primitive", "hnsw", "int8", "binary"})
+    private String store;
+
+    @Param({"1000", "10000", "50000"})
+    private int corpusSize;
+
+    @Param({"384", "1536"})
+    private int dimensions;
+
+    @Param({"10"})
+    private int top;
+
+    private VectorStoreRecordCollection<String, DummyRecord> collection;
+    private List<List<Float>> queries;
+    private VectorSearchOptions options;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        collection = switch (store) {
+            case "volatile" -> new VolatileVectorStore().getCollection("benchmark",
+                    VolatileVectorStoreRecordCollectionOptions.<DummyRecord>builder()
+                            .withRecordClass(DummyRecord.class)
+                            .build());
+            case "primitive" -> new PrimitiveVectorStoreRecordCollection("benchmark", dimensions,
+                    SimilarityFunction.COSINE);
+            case "hnsw" -> new HnswVectorStoreRecordCollection("benchmark", dimensions, SimilarityFunction.COSINE,
+                    16, 200, 64, 0.25, Schedulers.boundedElastic());
+            case "int8", "binary" -> new QuantizedVectorStoreRecordCollection(
+                    new PrimitiveVectorStoreRecordCollection("benchmark", dimensions, SimilarityFunction.COSINE),
+                    dimensions, QuantizationType.valueOf(store.toUpperCase()), 4);
+            default -> throw new IllegalArgumentException("Unknown store " + store);
+        };
+        collection.createCollectionIfNotExistsAsync().block();
+
+        var random = new SplittableRandom(42);
+        var batch = new ArrayList<DummyRecord>(1000);
+        for (int i = 0; i < corpusSize; i++) {
+            batch.add(new DummyRecord("record-" + i, randomUnitVector(random, dimensions)));
+            if (batch.size() == 1000) {
+                collection.upsertBatchAsync(batch, null).block();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            collection.upsertBatchAsync(batch, null).block();
+        }
+
+        queries = new ArrayList<>(QUERY_COUNT);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries.add(randomUnitVector(random, dimensions));
+        }
+        options = VectorSearchOptions.builder().withTop(top).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (collection instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Benchmark
+    public VectorSearchResults<DummyRecord> search() {
+        List<Float> query = queries.get(next);
+        next = (next + 1) % QUERY_COUNT;
+        return collection.searchAsync(query, options).block();
+    }
+
+    static List<Float> randomUnitVector(SplittableRandom random, int dimensions) {
+        float[] vector = new float[dimensions];
+        double norm = 0;
+        for (int d = 0; d < dimensions; d++) {
+            vector[d] = (float) random.nextGaussian();
+            norm += vector[d] * vector[d];
+        }
+        float inverse = (float) (1 / Math.sqrt(norm));
+        var boxed = new ArrayList<Float>(dimensions);
+        for (int d = 0; d < dimensions; d++) {
+            boxed.add(vector[d] * inverse);
+        }
+        return boxed;
+    }
+}
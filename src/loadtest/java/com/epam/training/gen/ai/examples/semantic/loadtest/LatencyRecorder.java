@@ -0,0 +1,80 @@
+package com.epam.training.gen.ai.examples.semantic.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies and outcomes of one scenario for the {@link LoadDriver} report.
+ * <p>
+ * Every latency is kept, so percentiles are exact; a run of a few minutes stays within a few megabytes.
+ */
+public class LatencyRecorder {
+
+    private long[] latenciesMicros = new long[1024];
+    private int count;
+    private long errors;
+    private long missedStarts;
+
+    /**
+     * Records a completed call.
+     *
+     * @param latencyNanos the time from the intended start of the call to its response
+     * @param succeeded    whether the response had a {@code 2xx} status
+     */
+    public synchronized void record(long latencyNanos, boolean succeeded) {
+        if (count == latenciesMicros.length) {
+            latenciesMicros = Arrays.copyOf(latenciesMicros, count * 2);
+        }
+        latenciesMicros[count++] = latencyNanos / 1000;
+        if (!succeeded) {
+            errors++;
+        }
+    }
+
+    /**
+     * Counts a call that was due to start at a fixed rate but could not because too many calls were outstanding.
+     */
+    public synchronized void recordMissedStart() {
+        missedStarts++;
+    }
+
+    /**
+     * Summarizes the recorded calls.
+     *
+     * @param scenario      the scenario name
+     * @param elapsedMillis the measured duration
+     * @return the summary
+     */
+    public synchronized Summary summarize(String scenario, long elapsedMillis) {
+        long[] sorted = Arrays.copyOf(latenciesMicros, count);
+        Arrays.sort(sorted);
+        return new Summary(scenario, count, errors, missedStarts,
+                elapsedMillis == 0 ? 0 : count * 1000.0 / elapsedMillis,
+                percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.95), percentileMillis(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000.0);
+    }
+
+    private static double percentileMillis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+
+    /**
+     * Latency summary of one scenario.
+     *
+     * @param scenario     the scenario name
+     * @param requests     the completed calls
+     * @param errors       the calls that failed or returned a non-{@code 2xx} status
+     * @param missedStarts the calls not started because too many were outstanding
+     * @param throughput   the completed calls per second
+     * @param p50Millis    the median latency
+     * @param p95Millis    the 95th percentile latency
+     * @param p99Millis    the 99th percentile latency
+     * @param maxMillis    the highest latency
+     */
+    public record Summary(String scenario, long requests, long errors, long missedStarts, double throughput,
+                          double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+    }
+}
@@ -0,0 +1,240 @@
+package com.epam.training.gen.ai.examples.semantic.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a weighted mix of calls against the running application and reports throughput and latency
+ * percentiles per scenario.
+ * <p>
+ * In the closed model ({@code load.rate=0}) a fixed number of callers each send their next call when the previous
+ * one returns. In the open model calls start at a fixed rate whatever the response times, up to
+ * {@code load.concurrency} outstanding calls, and latency is measured from the intended start so that a stalled
+ * server is not hidden by the driver slowing down. Calls of the warm-up period are not recorded.
+ * <p>
+ * Run it with {@code mvn -Ploadtest compile exec:java -Dloadtest.main=...LoadDriver}; settings are read from
+ * {@code load.*} system properties, see {@link LoadSettings}.
+ */
+@Slf4j
+public class LoadDriver {
+
+    private static final List<String> PROMPTS = List.of(
+            "What is the capital of France?",
+            "Summarize the plot of Hamlet in two sentences.",
+            "Explain vector search to a new engineer.",
+            "Write a haiku about latency.",
+            "List three ways to reduce garbage collection pauses.",
+            "How does HNSW trade recall for speed?",
+            "Translate 'good morning' into Spanish, German and Lithuanian.",
+            "What is the difference between p95 and p99 latency?");
+
+    private final LoadSettings settings;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final List<String> weightedScenarios = new ArrayList<>();
+    private volatile boolean recording;
+
+    public LoadDriver(LoadSettings settings) {
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                .build();
+        settings.mix().forEach((scenario, weight) -> {
+            recorders.put(scenario, new LatencyRecorder());
+            for (int i = 0; i < weight; i++) {
+                weightedScenarios.add(scenario);
+            }
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        var settings = LoadSettings.fromSystemProperties();
+        log.info("Driving {} with {}", settings.target(), settings);
+        var summaries = new LoadDriver(settings).run();
+        System.out.println(report(summaries));
+        if (!settings.reportFile().isBlank()) {
+            Path file = Path.of(settings.reportFile());
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), summaries);
+            log.info("Report written to {}", file.toAbsolutePath());
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Runs the warm-up and the measured period.
+     *
+     * @return the summary of every scenario of the mix
+     * @throws InterruptedException when interrupted while waiting for the run to end
+     */
+    public List<LatencyRecorder.Summary> run() throws InterruptedException {
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.warmupSeconds());
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(settings.durationSeconds());
+        var outstanding = new Semaphore(settings.concurrency());
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        timer.schedule(() -> recording = true, warmupEnd - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+        if (settings.rate() > 0) {
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / settings.rate());
+            long intended = System.nanoTime();
+            while (intended < end) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                if (outstanding.tryAcquire()) {
+                    send(nextScenario(), intended).whenComplete((ignored, error) -> outstanding.release());
+                } else if (recording) {
+                    recorders.get(nextScenario()).recordMissedStart();
+                }
+                intended += intervalNanos;
+            }
+        } else {
+            for (int caller = 0; caller < settings.concurrency(); caller++) {
+                outstanding.acquire();
+                callUntil(end).whenComplete((ignored, error) -> outstanding.release());
+            }
+        }
+        outstanding.acquire(settings.concurrency());
+        timer.shutdownNow();
+
+        long measuredMillis = TimeUnit.SECONDS.toMillis(settings.durationSeconds());
+        var summaries = new ArrayList<LatencyRecorder.Summary>();
+        recorders.forEach((scenario, recorder) -> summaries.add(recorder.summarize(scenario, measuredMillis)));
+        return summaries;
+    }
+
+    private CompletableFuture<Void> callUntil(long end) {
+        if (System.nanoTime() >= end) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return send(nextScenario(), System.nanoTime()).thenCompose(ignored -> callUntil(end));
+    }
+
+    private CompletableFuture<Void> send(String scenario, long intendedStart) {
+        HttpRequest request;
+        try {
+            request = request(scenario);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (recording) {
+                        boolean succeeded = error == null && response.statusCode() / 100 == 2;
+                        recorders.get(scenario).record(System.nanoTime() - intendedStart, succeeded);
+                    }
+                    if (error != null) {
+                        log.debug("{} call failed: {}", scenario, error.toString());
+                    }
+                    return null;
+                });
+    }
+
+    private HttpRequest request(String scenario) throws IOException {
+        String prompt = PROMPTS.get(ThreadLocalRandom.current().nextInt(PROMPTS.size()));
+        String query = URLEncoder.encode(prompt, StandardCharsets.UTF_8);
+        return switch (scenario) {
+            case "chat" -> get("/chat?input=" + query);
+            case "chat-stream" -> get("/chat/stream?input=" + query);
+            case "mmchat" -> get("/mmchat?input=" + query);
+            case "embeddings-generate" -> post("/api/embeddings/generate", Map.of("input", prompt));
+            case "embeddings-save" -> post("/api/embeddings/generateAndSave", Map.of("input", prompt));
+            case "embeddings-search" -> post("/api/embeddings/search", Map.of("input", prompt));
+            case "image" -> get("/image?prompt=" + query);
+            default -> throw new IllegalArgumentException("Unknown scenario " + scenario);
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(settings.target() + path))
+                .timeout(Duration.ofSeconds(settings.timeoutSeconds()))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(URI.create(settings.target() + path))
+                .timeout(Duration.ofSeconds(settings.timeoutSeconds()))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private String nextScenario() {
+        return weightedScenarios.get(ThreadLocalRandom.current().nextInt(weightedScenarios.size()));
+    }
+
+    private static String report(List<LatencyRecorder.Summary> summaries) {
+        var text = new StringBuilder(String.format("%-20s %9s %7s %7s %9s %9s %9s %9s %9s%n",
+                "scenario", "requests", "errors", "missed", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (LatencyRecorder.Summary summary : summaries) {
+            text.append(String.format("%-20s %9d %7d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    summary.scenario(), summary.requests(), summary.errors(), summary.missedStarts(),
+                    summary.throughput(),
+                    summary.p50Millis(), summary.p95Millis(), summary.p99Millis(), summary.maxMillis()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Load to apply, read from {@code load.*} system properties.
+     *
+     * @param target          the application base URL ({@code load.target})
+     * @param concurrency     the callers, or the cap on outstanding calls at a fixed rate ({@code load.concurrency})
+     * @param rate            the calls started per second, {@code 0} for the closed model ({@code load.rate})
+     * @param warmupSeconds   the unrecorded warm-up ({@code load.warmup-seconds})
+     * @param durationSeconds the measured period ({@code load.duration-seconds})
+     * @param timeoutSeconds  the timeout of one call ({@code load.timeout-seconds})
+     * @param mix             the scenarios and their weights, as {@code name:weight,...} ({@code load.mix})
+     * @param reportFile      where to write the JSON report, blank for none ({@code load.report-file})
+     */
+    public record LoadSettings(String target, int concurrency, double rate, long warmupSeconds,
+                               long durationSeconds, long timeoutSeconds, Map<String, Integer> mix,
+                               String reportFile) {
+
+        public static LoadSettings fromSystemProperties() {
+            var mix = new LinkedHashMap<String, Integer>();
+            String mixProperty = System.getProperty("load.mix",
+                    "chat:4,mmchat:1,embeddings-generate:2,embeddings-save:1,embeddings-search:3,image:1");
+            for (String entry : mixProperty.split(",")) {
+                String[] parts = entry.trim().split(":");
+                mix.put(parts[0], parts.length > 1 ? Integer.parseInt(parts[1]) : 1);
+            }
+            return new LoadSettings(
+                    System.getProperty("load.target", "http://localhost:8080"),
+                    Integer.getInteger("load.concurrency", 16),
+                    Double.parseDouble(System.getProperty("load.rate", "0")),
+                    Long.getLong("load.warmup-seconds", 10),
+                    Long.getLong("load.duration-seconds", 60),
+                    Long.getLong("load.timeout-seconds", 120),
+                    mix,
+                    System.getProperty("load.report-file", "target/loadtest-report.json"));
+        }
+    }
+}
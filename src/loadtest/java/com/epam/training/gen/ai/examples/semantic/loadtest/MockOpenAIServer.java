@@ -0,0 +1,358 @@
+package com.epam.training.gen.ai.examples.semantic.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the Azure OpenAI endpoints the application calls, so that it can be load tested without quota.
+ * <p>
+ * Serves chat completions (plain and streamed), embeddings, image generations and the deployments list under the
+ * same paths as the real service, and the generated images under {@code /images}. Every call waits for a log-normally distributed latency; completions then emit
+ * their tokens at a fixed rate. A share of the calls, and every call beyond the concurrency cap, is answered with
+ * {@code 429} and a {@code Retry-After}. Embeddings are derived from a hash of the input, so equal texts get equal
+ * vectors and searches return stable results.
+ * <p>
+ * Start it with {@code mvn -Ploadtest compile exec:java} and run the application with the {@code mock} profile.
+ * Settings are read from system properties prefixed with {@code mock.}, see {@link MockSettings}.
+ */
+@Slf4j
+public class MockOpenAIServer {
+
+    private static final Pattern DEPLOYMENT_CALL = Pattern.compile("/openai/deployments/([^/]+)/(.+)");
+    private static final String DEPLOYMENTS_ETAG = "\"mock-deployments-1\"";
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private final MockSettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MockOpenAIServer(MockSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws IOException {
+        var settings = MockSettings.fromSystemProperties();
+        var mock = new MockOpenAIServer(settings);
+        mock.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(mock::stop));
+        log.info("Mock OpenAI server listening on http://localhost:{} with {}", settings.port(), settings);
+    }
+
+    /**
+     * Starts serving on the configured port.
+     *
+     * @throws IOException when the port cannot be bound
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(settings.port()), 1024);
+        // calls spend most of their time sleeping, so each gets its own thread
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/openai/deployments", this::handle);
+        server.createContext("/images", this::image);
+        server.start();
+    }
+
+    /**
+     * Stops serving and logs the call counters.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        log.info("Mock OpenAI server served {} calls, {} throttled", calls.get(), throttled.get());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        calls.incrementAndGet();
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/openai/deployments") || path.equals("/openai/deployments/")) {
+                deployments(exchange);
+                return;
+            }
+            Matcher call = DEPLOYMENT_CALL.matcher(path);
+            if (!call.matches() || !"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 404, "NotFound", "Unknown operation " + exchange.getRequestMethod() + " " + path);
+                return;
+            }
+            String deployment = call.group(1);
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            int concurrent = inFlight.incrementAndGet();
+            try {
+                if (concurrent > settings.maxConcurrency()
+                        || ThreadLocalRandom.current().nextDouble() < settings.throttleRate()) {
+                    throttled.incrementAndGet();
+                    exchange.getResponseHeaders().add("retry-after-ms", String.valueOf(settings.retryAfterMillis()));
+                    exchange.getResponseHeaders().add("Retry-After",
+                            String.valueOf(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(settings.retryAfterMillis()))));
+                    sendError(exchange, 429, "429", "Requests to " + deployment + " have exceeded the rate limit");
+                    return;
+                }
+                sleep(latencyMillis());
+                switch (call.group(2)) {
+                    case "chat/completions" -> {
+                        if (request.path("stream").asBoolean()) {
+                            streamChatCompletion(exchange, deployment, request);
+                        } else {
+                            chatCompletion(exchange, deployment, request);
+                        }
+                    }
+                    case "embeddings" -> embeddings(exchange, deployment, request);
+                    case "images/generations" -> imageGeneration(exchange, request);
+                    default -> sendError(exchange, 404, "NotFound", "Unknown operation " + call.group(2));
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        } catch (IOException e) {
+            // the client hung up, typically a cancelled stream
+            log.debug("Call {} aborted: {}", exchange.getRequestURI(), e.toString());
+        }
+    }
+
+    private void deployments(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("ETag", DEPLOYMENTS_ETAG);
+        if (DEPLOYMENTS_ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        var data = new ArrayList<Map<String, Object>>();
+        for (String deployment : settings.chatDeployments()) {
+            var model = new LinkedHashMap<String, Object>();
+            model.put("id", deployment);
+            model.put("model", deployment);
+            model.put("display_name", deployment);
+            model.put("object", "deployment");
+            model.put("status", "succeeded");
+            model.put("features", Map.of("streaming", true, "system_prompt", true));
+            model.put("capabilities", Map.of("chat_completion", true, "embeddings", false));
+            model.put("max_retry_attempts", 3);
+            model.put("lifecycle_status", "generally-available");
+            data.add(model);
+        }
+        sendJson(exchange, 200, Map.of("data", data));
+    }
+
+    private void chatCompletion(HttpExchange exchange, String deployment, JsonNode request) throws IOException {
+        int promptTokens = promptTokens(request);
+        List<String> tokens = completionTokens(request);
+        sleep(tokens.size() * 1000L / settings.tokensPerSecond());
+        var message = Map.of("role", "assistant", "content", String.join("", tokens));
+        sendJson(exchange, 200, Map.of(
+                "id", "chatcmpl-" + UUID.randomUUID(),
+                "object", "chat.completion",
+                "created", System.currentTimeMillis() / 1000,
+                "model", deployment,
+                "choices", List.of(Map.of("index", 0, "message", message, "finish_reason", "stop")),
+                "usage", usage(promptTokens, tokens.size())));
+    }
+
+    private void streamChatCompletion(HttpExchange exchange, String deployment, JsonNode request) throws IOException {
+        String id = "chatcmpl-" + UUID.randomUUID();
+        long created = System.currentTimeMillis() / 1000;
+        List<String> tokens = completionTokens(request);
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        long tokenInterval = 1000L / settings.tokensPerSecond();
+        for (int i = 0; i <= tokens.size(); i++) {
+            boolean last = i == tokens.size();
+            var delta = last ? Map.of() : Map.of("role", "assistant", "content", tokens.get(i));
+            var choice = new LinkedHashMap<String, Object>();
+            choice.put("index", 0);
+            choice.put("delta", delta);
+            choice.put("finish_reason", last ? "stop" : null);
+            var chunk = new LinkedHashMap<String, Object>();
+            chunk.put("id", id);
+            chunk.put("object", "chat.completion.chunk");
+            chunk.put("created", created);
+            chunk.put("model", deployment);
+            chunk.put("choices", List.of(choice));
+            if (last) {
+                chunk.put("usage", usage(promptTokens(request), tokens.size()));
+            }
+            body.write(("data: " + objectMapper.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+            body.flush();
+            if (!last) {
+                sleep(tokenInterval);
+            }
+        }
+        body.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private void embeddings(HttpExchange exchange, String deployment, JsonNode request) throws IOException {
+        int dimensions = request.path("dimensions").asInt(settings.embeddingDimensions());
+        var data = new ArrayList<Map<String, Object>>();
+        int promptTokens = 0;
+        JsonNode input = request.path("input");
+        for (int i = 0; i < input.size(); i++) {
+            String text = input.get(i).asText();
+            promptTokens += estimateTokens(text);
+            data.add(Map.of("object", "embedding", "index", i, "embedding", embed(text, dimensions)));
+        }
+        sendJson(exchange, 200, Map.of(
+                "object", "list",
+                "model", deployment,
+                "data", data,
+                "usage", Map.of("prompt_tokens", promptTokens, "total_tokens", promptTokens)));
+    }
+
+    private void imageGeneration(HttpExchange exchange, JsonNode request) throws IOException {
+        String prompt = request.path("prompt").asText();
+        var image = Map.of(
+                "url", "http://localhost:" + settings.port() + "/images/" + Integer.toHexString(prompt.hashCode())
+                        + ".png",
+                "revised_prompt", prompt);
+        sendJson(exchange, 200, Map.of("created", System.currentTimeMillis() / 1000, "data", List.of(image)));
+    }
+
+    /**
+     * Serves a generated image: a PNG signature followed by bytes derived from the file name, so that the same
+     * URL always returns the same content.
+     */
+    private void image(HttpExchange exchange) throws IOException {
+        byte[] bytes = new byte[64 * 1024];
+        new SplittableRandom(exchange.getRequestURI().getPath().hashCode()).nextBytes(bytes);
+        System.arraycopy(PNG_SIGNATURE, 0, bytes, 0, PNG_SIGNATURE.length);
+        exchange.getResponseHeaders().add("Content-Type", "image/png");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private List<String> completionTokens(JsonNode request) {
+        int maxTokens = request.path("max_tokens").asInt(settings.completionTokens());
+        int count = Math.max(1, Math.min(maxTokens, settings.completionTokens()));
+        var tokens = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(i == 0 ? "Mock" : " token" + i);
+        }
+        return tokens;
+    }
+
+    private int promptTokens(JsonNode request) {
+        int tokens = 0;
+        for (JsonNode message : request.path("messages")) {
+            tokens += estimateTokens(message.path("content").asText());
+        }
+        return tokens;
+    }
+
+    private static int estimateTokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+
+    private static Map<String, Object> usage(int promptTokens, int completionTokens) {
+        return Map.of("prompt_tokens", promptTokens,
+                "completion_tokens", completionTokens,
+                "total_tokens", promptTokens + completionTokens);
+    }
+
+    private static float[] embed(String text, int dimensions) {
+        var random = new SplittableRandom(text.hashCode());
+        float[] vector = new float[dimensions];
+        double norm = 0;
+        for (int d = 0; d < dimensions; d++) {
+            vector[d] = (float) random.nextGaussian();
+            norm += vector[d] * vector[d];
+        }
+        float inverse = (float) (1 / Math.sqrt(norm));
+        for (int d = 0; d < dimensions; d++) {
+            vector[d] *= inverse;
+        }
+        return vector;
+    }
+
+    /**
+     * Draws a latency from a log-normal distribution with the configured median and shape.
+     */
+    private long latencyMillis() {
+        double gaussian = ThreadLocalRandom.current().nextGaussian();
+        return Math.round(settings.latencyMedianMillis() * Math.exp(settings.latencySigma() * gaussian));
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        sendJson(exchange, status, Map.of("error", Map.of("code", code, "message", message)));
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Behaviour of the mock, read from {@code mock.*} system properties.
+     *
+     * @param port                the listening port ({@code mock.port})
+     * @param latencyMedianMillis the median latency before the first token ({@code mock.latency-median-millis})
+     * @param latencySigma        the log-normal shape; {@code 0} for a constant latency ({@code mock.latency-sigma})
+     * @param tokensPerSecond     the completion token rate ({@code mock.tokens-per-second})
+     * @param completionTokens    the tokens of every completion ({@code mock.completion-tokens})
+     * @param throttleRate        the share of calls answered with {@code 429} ({@code mock.throttle-rate})
+     * @param maxConcurrency      the calls served at once before answering {@code 429} ({@code mock.max-concurrency})
+     * @param retryAfterMillis    the {@code Retry-After} of a {@code 429} ({@code mock.retry-after-millis})
+     * @param embeddingDimensions the dimensions of embeddings when not requested ({@code mock.embedding-dimensions})
+     * @param chatDeployments     the deployments listed by the catalog ({@code mock.chat-deployments})
+     */
+    public record MockSettings(int port, long latencyMedianMillis, double latencySigma, int tokensPerSecond,
+                               int completionTokens, double throttleRate, int maxConcurrency, long retryAfterMillis,
+                               int embeddingDimensions, List<String> chatDeployments) {
+
+        public static MockSettings fromSystemProperties() {
+            return new MockSettings(
+                    Integer.getInteger("mock.port", 8089),
+                    Long.getLong("mock.latency-median-millis", 300),
+                    Double.parseDouble(System.getProperty("mock.latency-sigma", "0.5")),
+                    Math.max(1, Integer.getInteger("mock.tokens-per-second", 80)),
+                    Integer.getInteger("mock.completion-tokens", 40),
+                    Double.parseDouble(System.getProperty("mock.throttle-rate", "0")),
+                    Integer.getInteger("mock.max-concurrency", Integer.MAX_VALUE),
+                    Long.getLong("mock.retry-after-millis", 1000),
+                    Integer.getInteger("mock.embedding-dimensions", 1536),
+                    Arrays.asList(System.getProperty("mock.chat-deployments", "gpt-4o,gpt-4o-mini,gpt-35-turbo")
+                            .split(","))
+            );
+        }
+    }
+}
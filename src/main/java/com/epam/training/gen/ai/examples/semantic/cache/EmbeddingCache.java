@@ -0,0 +1,323 @@
+package com.epam.training.gen.ai.examples.semantic.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of embedding vectors.
+ * <p>
+ * Entries are keyed by model, dimensions and the SHA-256 of the normalized input text. The memory tier is an
+ * LRU map bounded by the bytes held by its vectors; the optional disk tier stores one small binary file per
+ * entry so that embeddings survive restarts. The disk tier is bounded by the total size of its files and deletes
+ * the least recently read ones beyond it; files already in the directory are indexed at startup, oldest first.
+ * Each file is read or written with a single buffer through a {@link FileChannel}, on the blocking scheduler.
+ */
+@Slf4j
+public class EmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+    private static final String EXTENSION = ".vec";
+
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final Scheduler diskScheduler;
+    private final LinkedHashMap<String, float[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+
+    /**
+     * Creates a cache and indexes the entries already in its directory.
+     *
+     * @param maxMemoryBytes the byte budget of the memory tier
+     * @param directory      the directory of the disk tier, or {@code null} to keep entries in memory only
+     * @param maxDiskBytes   the total size of the disk tier files kept before evicting
+     * @param diskScheduler  the scheduler of the disk reads and writes
+     */
+    public EmbeddingCache(long maxMemoryBytes, Path directory, long maxDiskBytes, Scheduler diskScheduler) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.diskScheduler = diskScheduler;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(directory, 2)) {
+                    files = walk.filter(Files::isRegularFile).toList();
+                }
+                for (Path file : files) {
+                    if (file.getFileName().toString().endsWith(".tmp")) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                files = files.stream()
+                        .filter(file -> file.getFileName().toString().endsWith(EXTENSION))
+                        .sorted(Comparator.comparing(EmbeddingCache::lastModified))
+                        .toList();
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    String key = name.substring(0, name.length() - EXTENSION.length());
+                    List<String> evicted;
+                    synchronized (disk) {
+                        evicted = indexOnDisk(key, Files.size(file));
+                    }
+                    deleteFromDisk(evicted);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open embedding cache directory " + directory, e);
+            }
+            log.info("Embedding cache {} holds {} entries, {} bytes on disk", directory, disk.size(), diskBytes);
+        }
+    }
+
+    /**
+     * Builds the cache key of an input.
+     *
+     * @param model      the embedding model or deployment
+     * @param dimensions the requested dimensions, {@code 0} for the model default
+     * @param text       the raw input text
+     * @return the hex encoded key
+     */
+    public static String key(String model, int dimensions, String text) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Integer.toString(dimensions).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalize(text).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Normalizes text so that inputs differing only in Unicode composition or whitespace share an entry.
+     *
+     * @param text the raw text
+     * @return the normalized text
+     */
+    public static String normalize(String text) {
+        return WHITESPACE.matcher(Normalizer.normalize(text, Normalizer.Form.NFC)).replaceAll(" ").strip();
+    }
+
+    /**
+     * Looks an entry up in memory, then on disk.
+     *
+     * @param key the entry key
+     * @return the cached vector, or an empty {@link Mono} on a miss
+     */
+    public Mono<float[]> get(String key) {
+        float[] cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return Mono.just(cached);
+        }
+        boolean onDisk;
+        synchronized (disk) {
+            onDisk = disk.get(key) != null;
+        }
+        if (!onDisk) {
+            misses.incrementAndGet();
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> readFromDisk(key))
+                .subscribeOn(diskScheduler)
+                .doOnNext(vector -> {
+                    diskHits.incrementAndGet();
+                    putInMemory(key, vector);
+                })
+                .switchIfEmpty(Mono.fromRunnable(misses::incrementAndGet));
+    }
+
+    /**
+     * Stores an entry in memory and, asynchronously, on disk.
+     *
+     * @param key    the entry key
+     * @param vector the embedding vector
+     */
+    public void put(String key, float[] vector) {
+        putInMemory(key, vector);
+        if (directory != null) {
+            Mono.fromRunnable(() -> writeToDisk(key, vector))
+                    .subscribeOn(diskScheduler)
+                    .subscribe(null, e -> log.warn("Failed to persist embedding {}", key, e));
+        }
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return the cache statistics
+     */
+    public EmbeddingCacheStats stats() {
+        synchronized (memory) {
+            synchronized (disk) {
+                return new EmbeddingCacheStats(memoryHits.get(), diskHits.get(), misses.get(), evictions.get(),
+                        memory.size(), memoryBytes, diskEvictions.get(), disk.size(), diskBytes);
+            }
+        }
+    }
+
+    private void putInMemory(String key, float[] vector) {
+        long size = sizeOf(vector);
+        if (size > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            float[] previous = memory.put(key, vector);
+            if (previous != null) {
+                memoryBytes -= sizeOf(previous);
+            }
+            memoryBytes += size;
+            var iterator = memory.entrySet().iterator();
+            while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+                Map.Entry<String, float[]> eldest = iterator.next();
+                memoryBytes -= sizeOf(eldest.getValue());
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Reads an entry file: a big-endian {@code int} length followed by the {@code float} values.
+     */
+    private float[] readFromDisk(String key) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathOf(key), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Truncated embedding cache entry " + key);
+                }
+            }
+            buffer.flip();
+            int length = buffer.getInt();
+            if (buffer.remaining() != (long) length * Float.BYTES) {
+                throw new IOException("Truncated embedding cache entry " + key);
+            }
+            float[] vector = new float[length];
+            buffer.asFloatBuffer().get(vector);
+            return vector;
+        } catch (NoSuchFileException e) {
+            synchronized (disk) {
+                Long size = disk.remove(key);
+                if (size != null) {
+                    diskBytes -= size;
+                }
+            }
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, float[] vector) {
+        Path target = pathOf(key);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temporary = Files.createTempFile(target.getParent(), key, ".tmp");
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + vector.length * Float.BYTES);
+            buffer.putInt(vector.length);
+            buffer.asFloatBuffer().put(vector);
+            buffer.rewind();
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            List<String> evicted;
+            synchronized (disk) {
+                evicted = indexOnDisk(key, buffer.capacity());
+            }
+            deleteFromDisk(evicted);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds a disk entry to the index and removes the least recently read ones beyond the size budget, always
+     * keeping the newest. Must hold the disk index lock.
+     *
+     * @return the keys of the evicted entries, whose files the caller deletes
+     */
+    private List<String> indexOnDisk(String key, long size) {
+        Long previous = disk.put(key, size);
+        if (previous != null) {
+            diskBytes -= previous;
+        }
+        diskBytes += size;
+        List<String> evicted = new ArrayList<>();
+        var eldest = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && disk.size() > 1 && eldest.hasNext()) {
+            Map.Entry<String, Long> old = eldest.next();
+            if (old.getKey().equals(key)) {
+                continue;
+            }
+            eldest.remove();
+            diskBytes -= old.getValue();
+            diskEvictions.incrementAndGet();
+            evicted.add(old.getKey());
+        }
+        return evicted;
+    }
+
+    private void deleteFromDisk(List<String> keys) throws IOException {
+        for (String key : keys) {
+            Files.deleteIfExists(pathOf(key));
+        }
+    }
+
+    private Path pathOf(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + EXTENSION);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long sizeOf(float[] vector) {
+        return (long) vector.length * Float.BYTES + ENTRY_OVERHEAD_BYTES;
+    }
+}
@@ -0,0 +1,29 @@
+package com.epam.training.gen.ai.examples.semantic.cache;
+
+/**
+ * Snapshot of {@link EmbeddingCache} counters.
+ *
+ * @param memoryHits  lookups answered by the memory tier
+ * @param diskHits    lookups answered by the disk tier
+ * @param misses      lookups that had to call the embedding model
+ * @param evictions   entries evicted from the memory tier
+ * @param entries     entries currently held in memory
+ * @param memoryBytes approximate bytes currently held in memory
+ * @param diskEvictions entries whose files were deleted from the disk tier
+ * @param diskEntries entries currently held on disk
+ * @param diskBytes   bytes currently held by the disk tier files
+ */
+public record EmbeddingCacheStats(long memoryHits, long diskHits, long misses, long evictions,
+                                  int entries, long memoryBytes, long diskEvictions, int diskEntries,
+                                  long diskBytes) {
+
+    /**
+     * Returns the fraction of lookups answered by either tier.
+     *
+     * @return the hit ratio, {@code 0} before the first lookup
+     */
+    public double getHitRatio() {
+        long lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0 : (double) (memoryHits + diskHits) / lookups;
+    }
+}
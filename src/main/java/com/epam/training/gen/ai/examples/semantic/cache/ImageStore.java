@@ -0,0 +1,265 @@
+package com.epam.training.gen.ai.examples.semantic.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store of generated images on local disk.
+ * <p>
+ * Each image is kept once, in a file named by the SHA-256 of its bytes, so the id doubles as a strong
+ * {@code ETag}. The store is bounded by the total size of its files and evicts the least recently served ones
+ * beyond it. Files already in the directory are picked up at startup, oldest first, and interrupted downloads
+ * are deleted. Hashing, moving and deleting files run on the blocking scheduler; lookups only touch the
+ * in-memory index.
+ */
+@Slf4j
+public class ImageStore {
+
+    private static final Pattern ID = Pattern.compile("[0-9a-f]{64}");
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/png", "png",
+            "image/jpeg", "jpg",
+            "image/webp", "webp",
+            "image/gif", "gif");
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Scheduler diskScheduler;
+    private final LinkedHashMap<String, StoredImage> images = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a store and indexes the images already in its directory.
+     *
+     * @param directory     the directory of the image files
+     * @param maxBytes      the total size of the files kept before evicting
+     * @param diskScheduler the scheduler of the disk writes
+     */
+    public ImageStore(Path directory, long maxBytes, Scheduler diskScheduler) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.diskScheduler = diskScheduler;
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(directory, 2)) {
+                files = walk.filter(Files::isRegularFile).toList();
+            }
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            files = files.stream()
+                    .filter(file -> ID.matcher(idOf(file)).matches())
+                    .sorted(Comparator.comparing(ImageStore::lastModified))
+                    .toList();
+            for (Path file : files) {
+                List<StoredImage> evicted;
+                synchronized (images) {
+                    evicted = index(new StoredImage(idOf(file), file, Files.size(file), mediaTypeOf(file)));
+                }
+                for (StoredImage old : evicted) {
+                    Files.deleteIfExists(old.path());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open image store directory " + directory, e);
+        }
+        log.info("Image store {} holds {} images, {} bytes", directory, images.size(), bytes);
+    }
+
+    /**
+     * Creates an empty file in the store directory to download an image into before {@link #put storing} it.
+     *
+     * @return the temporary file
+     * @throws IOException when the file cannot be created
+     */
+    public Path createTemporaryFile() throws IOException {
+        return Files.createTempFile(directory, "download", ".tmp");
+    }
+
+    /**
+     * Stores a downloaded image under the hash of its content, or drops it when the same image is already stored.
+     *
+     * @param temporary the downloaded file, moved or deleted by this call
+     * @param mediaType the media type of the image
+     * @return the stored image
+     */
+    public Mono<StoredImage> put(Path temporary, String mediaType) {
+        return Mono.fromCallable(() -> {
+                    String id = hash(temporary);
+                    synchronized (images) {
+                        StoredImage existing = images.get(id);
+                        if (existing != null) {
+                            Files.deleteIfExists(temporary);
+                            return existing;
+                        }
+                    }
+                    Path target = directory.resolve(id.substring(0, 2))
+                            .resolve(id + "." + EXTENSIONS.getOrDefault(mediaType, "bin"));
+                    Files.createDirectories(target.getParent());
+                    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    var image = new StoredImage(id, target, Files.size(target), mediaTypeOf(target));
+                    List<StoredImage> evicted;
+                    synchronized (images) {
+                        evicted = index(image);
+                    }
+                    stored.incrementAndGet();
+                    for (StoredImage old : evicted) {
+                        Files.deleteIfExists(old.path());
+                    }
+                    return image;
+                })
+                .subscribeOn(diskScheduler)
+                .doOnError(e -> {
+                    try {
+                        Files.deleteIfExists(temporary);
+                    } catch (IOException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                });
+    }
+
+    /**
+     * Looks an image up and marks it as recently served.
+     *
+     * @param id the SHA-256 of the image
+     * @return the stored image, or {@code null} when it is unknown or was evicted
+     */
+    public StoredImage get(String id) {
+        StoredImage image;
+        synchronized (images) {
+            image = images.get(id);
+        }
+        (image == null ? misses : hits).incrementAndGet();
+        return image;
+    }
+
+    /**
+     * Tells whether an image is still stored, without counting a lookup.
+     *
+     * @param id the SHA-256 of the image
+     * @return {@code true} when the image can be served
+     */
+    public boolean contains(String id) {
+        synchronized (images) {
+            return images.containsKey(id);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the store counters.
+     *
+     * @return the store statistics
+     */
+    public ImageStoreStats stats() {
+        synchronized (images) {
+            return new ImageStoreStats(hits.get(), misses.get(), stored.get(), evictions.get(), images.size(), bytes);
+        }
+    }
+
+    /**
+     * Adds an image to the index and removes the least recently served ones beyond the size budget, always
+     * keeping the newest. Must hold the index lock.
+     *
+     * @return the evicted images, whose files the caller deletes
+     */
+    private List<StoredImage> index(StoredImage image) {
+        StoredImage previous = images.put(image.id(), image);
+        if (previous != null) {
+            bytes -= previous.size();
+        }
+        bytes += image.size();
+        List<StoredImage> evicted = new ArrayList<>();
+        var eldest = images.values().iterator();
+        while (bytes > maxBytes && images.size() > 1 && eldest.hasNext()) {
+            StoredImage old = eldest.next();
+            if (old == image) {
+                continue;
+            }
+            eldest.remove();
+            bytes -= old.size();
+            evictions.incrementAndGet();
+            evicted.add(old);
+        }
+        return evicted;
+    }
+
+    private static String hash(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String idOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    private static String mediaTypeOf(Path file) {
+        String name = file.getFileName().toString();
+        String extension = name.substring(name.lastIndexOf('.') + 1);
+        return EXTENSIONS.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(extension))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse("application/octet-stream");
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * An image held by the store.
+     *
+     * @param id        the SHA-256 of the image bytes
+     * @param path      the image file
+     * @param size      the file size in bytes
+     * @param mediaType the media type of the image
+     */
+    public record StoredImage(String id, Path path, long size, String mediaType) {
+    }
+}
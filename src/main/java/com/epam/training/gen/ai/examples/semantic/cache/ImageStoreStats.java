@@ -0,0 +1,14 @@
+package com.epam.training.gen.ai.examples.semantic.cache;
+
+/**
+ * Snapshot of {@link ImageStore} counters.
+ *
+ * @param hits      lookups of a stored image
+ * @param misses    lookups of an unknown or evicted image
+ * @param stored    images added to the store
+ * @param evictions images evicted to stay within the size budget
+ * @param images    images currently stored
+ * @param bytes     total size of the stored images
+ */
+public record ImageStoreStats(long hits, long misses, long stored, long evictions, int images, long bytes) {
+}
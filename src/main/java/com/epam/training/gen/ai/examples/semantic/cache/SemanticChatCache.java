@@ -0,0 +1,157 @@
+package com.epam.training.gen.ai.examples.semantic.cache;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.PrimitiveVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.SimilarityFunction;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of chat completions looked up by the similarity of the prompt embedding.
+ * <p>
+ * Prompts are partitioned by model and temperature; each partition is an in-process vector index searched for
+ * the single closest prompt, which is a hit when its cosine similarity reaches the threshold. Entries expire
+ * after a time to live and the least recently used ones are evicted beyond the entry limit.
+ */
+@Slf4j
+public class SemanticChatCache {
+
+    private static final VectorSearchOptions CLOSEST = VectorSearchOptions.builder().withTop(1).build();
+
+    private final int dimensions;
+    private final double threshold;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, PrimitiveVectorStoreRecordCollection> partitions = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, CachedCompletion> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Creates a cache.
+     *
+     * @param dimensions the prompt embedding dimensions
+     * @param threshold  the minimum cosine similarity of a hit
+     * @param maxEntries the number of completions kept before evicting
+     * @param ttl        how long a completion may be served
+     */
+    public SemanticChatCache(int dimensions, double threshold, int maxEntries, Duration ttl) {
+        this.dimensions = dimensions;
+        this.threshold = threshold;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Builds the partition name of a model and temperature.
+     *
+     * @param model       the model or deployment
+     * @param temperature the sampling temperature
+     * @return the partition name
+     */
+    public static String partition(String model, double temperature) {
+        return model + "@" + temperature;
+    }
+
+    /**
+     * Looks up the completion of the most similar cached prompt.
+     *
+     * @param partition the model and temperature partition
+     * @param embedding the prompt embedding
+     * @return the cached message contents, or empty on a miss
+     */
+    public Mono<List<String>> lookup(String partition, List<Float> embedding) {
+        var index = partitions.get(partition);
+        if (index == null) {
+            misses.incrementAndGet();
+            return Mono.empty();
+        }
+        return index.searchAsync(embedding, CLOSEST)
+                .mapNotNull(results -> {
+                    var best = results.getResults().isEmpty() ? null : results.getResults().get(0);
+                    List<String> cached = best == null || best.getScore() < threshold
+                            ? null
+                            : fresh(best.getRecord().getId());
+                    (cached == null ? misses : hits).incrementAndGet();
+                    return cached;
+                });
+    }
+
+    /**
+     * Caches a completion under its prompt embedding.
+     *
+     * @param partition the model and temperature partition
+     * @param embedding the prompt embedding
+     * @param messages  the message contents of the completion
+     * @return completes once the entry is indexed
+     */
+    public Mono<Void> put(String partition, List<Float> embedding, List<String> messages) {
+        String id = UUID.randomUUID().toString();
+        var index = partitions.computeIfAbsent(partition,
+                name -> new PrimitiveVectorStoreRecordCollection(name, dimensions, SimilarityFunction.COSINE));
+        return index.upsertAsync(new DummyRecord(id, embedding), null)
+                .doOnNext(key -> {
+                    synchronized (entries) {
+                        entries.put(id, new CachedCompletion(partition, messages, System.nanoTime() + ttlNanos));
+                        var eldest = entries.entrySet().iterator();
+                        while (entries.size() > maxEntries && eldest.hasNext()) {
+                            var evicted = eldest.next();
+                            eldest.remove();
+                            remove(evicted.getKey(), evicted.getValue());
+                            evictions.incrementAndGet();
+                        }
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return the cache statistics
+     */
+    public SemanticChatCacheStats stats() {
+        synchronized (entries) {
+            return new SemanticChatCacheStats(hits.get(), misses.get(), evictions.get(), expirations.get(),
+                    entries.size());
+        }
+    }
+
+    private List<String> fresh(String id) {
+        synchronized (entries) {
+            CachedCompletion completion = entries.get(id);
+            if (completion == null) {
+                return null;
+            }
+            if (System.nanoTime() - completion.expiresAt() > 0) {
+                entries.remove(id);
+                remove(id, completion);
+                expirations.incrementAndGet();
+                return null;
+            }
+            return completion.messages();
+        }
+    }
+
+    private void remove(String id, CachedCompletion completion) {
+        var index = partitions.get(completion.partition());
+        if (index != null) {
+            index.deleteAsync(id, null).subscribe();
+        }
+    }
+
+    private record CachedCompletion(String partition, List<String> messages, long expiresAt) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.epam.training.gen.ai.examples.semantic.cache;
+
+/**
+ * Snapshot of {@link SemanticChatCache} counters.
+ *
+ * @param hits        lookups answered from a similar cached prompt
+ * @param misses      lookups that had to call the model
+ * @param evictions   entries evicted as least recently used
+ * @param expirations entries dropped because their time to live had passed
+ * @param entries     entries currently cached
+ */
+public record SemanticChatCacheStats(long hits, long misses, long evictions, long expirations, int entries) {
+
+    /**
+     * Returns the fraction of lookups answered from the cache.
+     *
+     * @return the hit ratio, {@code 0} before the first lookup
+     */
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
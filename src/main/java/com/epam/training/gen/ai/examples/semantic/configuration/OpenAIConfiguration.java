@@ -3,10 +3,18 @@ package com.epam.training.gen.ai.examples.semantic.configuration;
 import com.azure.ai.openai.OpenAIAsyncClient;
 import com.azure.ai.openai.OpenAIClientBuilder;
 import com.azure.core.credential.AzureKeyCredential;
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.policy.AddHeadersPolicy;
+import com.azure.core.http.policy.FixedDelayOptions;
+import com.azure.core.http.policy.RetryOptions;
+import com.epam.training.gen.ai.examples.semantic.metrics.HttpObservationPolicy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * Configuration class for setting up the Azure OpenAI Async Client.
  * <p>
@@ -17,17 +25,33 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class OpenAIConfiguration {
 
+    private static final HttpHeaderName API_KEY = HttpHeaderName.fromString("api-key");
+
     /**
      * Creates an {@link OpenAIAsyncClient} bean for interacting with Azure OpenAI Service asynchronously.
+     * <p>
+     * The client does not retry by itself; retries are scheduled by the deployment limiters, which honour
+     * {@code Retry-After} and queue the retry behind the calls already waiting. Every HTTP attempt is observed
+     * by the {@link HttpObservationPolicy}, which also propagates the trace context to the service.
+     * <p>
+     * The key credential refuses to send the key over plain HTTP, so for an {@code http://} endpoint, such as the
+     * mock server of the load tests, the key is sent as an {@code api-key} header instead.
      *
      * @return an instance of {@link OpenAIAsyncClient}
      */
     @Bean
     public OpenAIAsyncClient openAIAsyncClient(@Value("${client-azureopenai-key}") String openaiKey,
-                                               @Value("${client-azureopenai-endpoint}") String openaiEndpoint) {
-        return new OpenAIClientBuilder()
-                .credential(new AzureKeyCredential(openaiKey))
+                                               @Value("${client-azureopenai-endpoint}") String openaiEndpoint,
+                                               HttpObservationPolicy httpObservationPolicy) {
+        var builder = new OpenAIClientBuilder()
                 .endpoint(openaiEndpoint)
-                .buildAsyncClient();
+                .retryOptions(new RetryOptions(new FixedDelayOptions(0, Duration.ZERO)))
+                .addPolicy(httpObservationPolicy);
+        if (openaiEndpoint.startsWith("http://")) {
+            builder.addPolicy(new AddHeadersPolicy(new HttpHeaders().set(API_KEY, openaiKey)));
+        } else {
+            builder.credential(new AzureKeyCredential(openaiKey));
+        }
+        return builder.buildAsyncClient();
     }
 }
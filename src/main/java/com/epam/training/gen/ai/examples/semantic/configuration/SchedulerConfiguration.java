@@ -0,0 +1,49 @@
+package com.epam.training.gen.ai.examples.semantic.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration class for the scheduler that runs the remaining blocking work.
+ * <p>
+ * Controllers return {@code Mono}/{@code Flux} and never block a request thread; file I/O, stream reading and
+ * CPU heavy reports are moved onto this scheduler instead. With {@code spring.threads.virtual.enabled} the work
+ * runs on one virtual thread per task, which requires Java 21 at runtime.
+ */
+@Configuration
+public class SchedulerConfiguration {
+
+    /**
+     * Creates the {@link Scheduler} for blocking work.
+     *
+     * @param virtualThreads whether to run each task on its own virtual thread
+     * @param maxThreads     the platform thread cap of the bounded elastic pool, {@code 0} for the Reactor default
+     * @return an instance of {@link Scheduler}
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                       @Value("${blocking-scheduler-max-threads:0}") int maxThreads) {
+        if (virtualThreads) {
+            return Schedulers.fromExecutorService(newVirtualThreadPerTaskExecutor(), "blocking-virtual");
+        }
+        return Schedulers.newBoundedElastic(
+                maxThreads > 0 ? maxThreads : Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE,
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE,
+                "blocking", 60, true);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        // the project targets Java 17, so the Java 21 factory is looked up at runtime
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer", e);
+        }
+    }
+}
@@ -3,11 +3,24 @@ package com.epam.training.gen.ai.examples.semantic.configuration;
 import com.azure.ai.openai.OpenAIAsyncClient;
 import com.azure.core.credential.AzureKeyCredential;
 import com.azure.core.util.ClientOptions;
-import com.azure.core.util.MetricsOptions;
-import com.azure.core.util.TracingOptions;
 import com.azure.search.documents.indexes.SearchIndexAsyncClient;
 import com.azure.search.documents.indexes.SearchIndexClientBuilder;
+import com.epam.training.gen.ai.examples.semantic.cache.EmbeddingCache;
+import com.epam.training.gen.ai.examples.semantic.cache.ImageStore;
+import com.epam.training.gen.ai.examples.semantic.cache.SemanticChatCache;
+import com.epam.training.gen.ai.examples.semantic.metrics.CallObservations;
+import com.epam.training.gen.ai.examples.semantic.metrics.HttpObservationPolicy;
 import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentLimiters;
+import com.epam.training.gen.ai.examples.semantic.service.EmbeddingBatcher;
+import com.epam.training.gen.ai.examples.semantic.tokenizer.TokenCounter;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.HnswVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.MappedVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.PrimitiveVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.QdrantVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.QuantizationType;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.QuantizedVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.SimilarityFunction;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.semantickernel.Kernel;
 import com.microsoft.semantickernel.aiservices.openai.chatcompletion.OpenAIChatCompletion;
@@ -18,18 +31,18 @@ import com.microsoft.semantickernel.data.vectorstorage.VectorStoreRecordCollecti
 import com.microsoft.semantickernel.orchestration.InvocationContext;
 import com.microsoft.semantickernel.orchestration.PromptExecutionSettings;
 import com.microsoft.semantickernel.services.chatcompletion.ChatCompletionService;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.QdrantGrpcClient;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
 
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -45,13 +58,11 @@ import java.util.Map;
 public class SemanticKernelConfiguration {
 
     private static final int EMBEDDING_DIMENSIONS = 0;
+    private static final String COLLECTION_NAME = "testDataStore";
 
     @Autowired
     private ObjectMapper objectMapper;
 
-    @Autowired
-    private  HttpClient httpClient;
-
     /**
      * Creates a {@link ChatCompletionService} bean for handling chat completions using Azure OpenAI.
      *
@@ -109,17 +120,6 @@ public class SemanticKernelConfiguration {
                 .build());
     }
 
-    @Bean
-    public List<Model> deployedModels(@Value("${client-azureopenai-endpoint-model-list}") String modelListUrl, @Value("${client-azureopenai-key}") String accessToken) throws IOException, InterruptedException {
-        var request = HttpRequest.newBuilder()
-                .uri(URI.create(modelListUrl))
-                .header("Content-Type", "application/json")
-                .header("Api-Key", accessToken)
-                .build();
-        var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        return objectMapper.readValue(response.body(), ModelListResponse.class).getData();
-    }
-
     @Data
     public static class ModelListResponse {
         List<Model> data;
@@ -139,6 +139,7 @@ public class SemanticKernelConfiguration {
         long created_at;
         long updated_at;
         Map<String, Boolean> features;
+        Map<String, Object> capabilities;
         Map<String, Object> defaults;
         List<String> description_keywords;
         int max_retry_attempts;
@@ -156,27 +157,193 @@ public class SemanticKernelConfiguration {
                 .build();
     }
 
+    /**
+     * Creates the {@link EmbeddingCache} shared by all embedding lookups.
+     *
+     * @param maxMemoryBytes the byte budget of the in-memory tier
+     * @param directory      the directory of the on-disk tier, blank to disable it
+     * @param maxDiskBytes   the total size of the on-disk tier files kept before evicting
+     * @param blockingScheduler the scheduler of the on-disk reads and writes
+     * @return an instance of {@link EmbeddingCache}
+     */
+    @Bean
+    public EmbeddingCache embeddingCache(@Value("${embedding-cache-max-memory-bytes:67108864}") long maxMemoryBytes,
+                                         @Value("${embedding-cache-directory:}") String directory,
+                                         @Value("${embedding-cache-max-disk-bytes:1073741824}") long maxDiskBytes,
+                                         Scheduler blockingScheduler) {
+        return new EmbeddingCache(maxMemoryBytes, directory.isBlank() ? null : Path.of(directory), maxDiskBytes,
+                blockingScheduler);
+    }
+
+    /**
+     * Creates the {@link SemanticChatCache} that answers near-duplicate prompts without calling the model.
+     *
+     * @param dimensions the requested embedding dimensions, {@code 0} for the model default
+     * @param threshold  the minimum cosine similarity of a hit
+     * @param maxEntries the number of completions kept before evicting the least recently used
+     * @param ttlMinutes how long a completion may be served
+     * @return an instance of {@link SemanticChatCache}
+     */
+    @Bean
+    public SemanticChatCache semanticChatCache(@Value("${embedding-dimensions:0}") int dimensions,
+                                               @Value("${chat-semantic-cache-threshold:0.95}") double threshold,
+                                               @Value("${chat-semantic-cache-max-entries:10000}") int maxEntries,
+                                               @Value("${chat-semantic-cache-ttl-minutes:60}") long ttlMinutes) {
+        return new SemanticChatCache(dimensions > 0 ? dimensions : DummyRecord.EMBEDDING_DIMENSIONS,
+                threshold, maxEntries, Duration.ofMinutes(ttlMinutes));
+    }
+
+    /**
+     * Creates the {@link ImageStore} that keeps generated images on local disk.
+     *
+     * @param directory         the directory of the image files
+     * @param maxBytes          the total size of the files kept before evicting the least recently served
+     * @param blockingScheduler the scheduler of the disk writes
+     * @return an instance of {@link ImageStore}
+     */
+    @Bean
+    public ImageStore imageStore(@Value("${image-store-directory:data/images}") String directory,
+                                 @Value("${image-store-max-bytes:1073741824}") long maxBytes,
+                                 Scheduler blockingScheduler) {
+        return new ImageStore(Path.of(directory), maxBytes, blockingScheduler);
+    }
+
+    /**
+     * Creates the {@link EmbeddingBatcher} that coalesces concurrent embedding requests.
+     *
+     * @param deploymentOrModelName the Azure OpenAI embedding deployment
+     * @param dimensions            the requested embedding dimensions, {@code 0} for the model default
+     * @param windowMillis          how long a batch collects requests
+     * @param maxBatchSize          the number of requests that closes a batch early
+     * @param maxInputTokens        the most tokens the deployment accepts per text
+     * @param openAIAsyncClient     the {@link OpenAIAsyncClient} to communicate with Azure OpenAI
+     * @param deploymentLimiters    the limiters that admit the batched calls
+     * @param callObservations      the observations recording the batched calls
+     * @param tokenCounter          counts the tokens of the texts
+     * @return an instance of {@link EmbeddingBatcher}
+     */
+    @Bean
+    public EmbeddingBatcher embeddingBatcher(@Value("${client-azureopenai-deployment-name}") String deploymentOrModelName,
+                                             @Value("${embedding-dimensions:0}") int dimensions,
+                                             @Value("${embedding-batch-window-millis:10}") long windowMillis,
+                                             @Value("${embedding-batch-max-size:64}") int maxBatchSize,
+                                             @Value("${embedding-max-input-tokens:8191}") long maxInputTokens,
+                                             OpenAIAsyncClient openAIAsyncClient,
+                                             DeploymentLimiters deploymentLimiters,
+                                             CallObservations callObservations,
+                                             TokenCounter tokenCounter) {
+        return new EmbeddingBatcher(openAIAsyncClient, deploymentLimiters, callObservations, tokenCounter,
+                deploymentOrModelName, dimensions, Duration.ofMillis(windowMillis), maxBatchSize, maxInputTokens);
+    }
+
+    /**
+     * Creates the Azure AI Search index client.
+     * <p>
+     * Its requests are observed by the {@link HttpObservationPolicy} instead of the Azure SDK's own tracing and
+     * metrics, which need an OpenTelemetry plugin on the classpath and would otherwise record nothing.
+     *
+     * @param openaiKey             the service key
+     * @param openaiEndpoint        the service endpoint
+     * @param httpObservationPolicy the policy observing each request
+     * @return an instance of {@link SearchIndexAsyncClient}
+     */
     @Bean
     public SearchIndexAsyncClient searchClient(@Value("${client-azureopenai-key}") String openaiKey,
-                                               @Value("${client-azureopenai-endpoint}") String openaiEndpoint){
+                                               @Value("${client-azureopenai-endpoint}") String openaiEndpoint,
+                                               HttpObservationPolicy httpObservationPolicy){
         return new SearchIndexClientBuilder()
                 .endpoint(openaiEndpoint)
                 .credential(new AzureKeyCredential(openaiKey))
-                .clientOptions(new ClientOptions()
-                        .setTracingOptions(new TracingOptions())
-                        .setMetricsOptions(new MetricsOptions())
-                        .setApplicationId("Semantic-Kernel"))
+                .clientOptions(new ClientOptions().setApplicationId("Semantic-Kernel"))
+                .addPolicy(httpObservationPolicy)
                 .buildAsyncClient();
     }
 
+    /**
+     * Creates the {@link VectorStoreRecordCollection} backing the embedding endpoints.
+     * <p>
+     * {@code primitive} keeps vectors in packed {@code float[]} pages and scans them in parallel,
+     * {@code hnsw} adds an HNSW graph on top of the same storage for approximate search,
+     * {@code mapped} persists vectors in a memory-mapped segment under {@code vector-store-directory},
+     * {@code qdrant} stores records in the Qdrant server configured by {@code vector-store-qdrant-*},
+     * {@code volatile} falls back to the Semantic Kernel {@link VolatileVectorStore}.
+     * Unless {@code vector-store-quantization} is {@code none}, the store is wrapped so that searches scan
+     * {@code int8} or {@code binary} codes in memory and rerank the candidates against the full-precision store;
+     * the codes only save heap over the {@code mapped} store, the other in-process stores keep their floats on the
+     * heap as well. Qdrant applies the same settings server side instead.
+     *
+     * @param vectorStoreType    the store implementation to use
+     * @param hnswM              the HNSW links per node
+     * @param hnswEfConstruction the HNSW candidate list size while inserting
+     * @param hnswEfSearch       the HNSW candidate list size while searching
+     * @param hnswRebuildRatio   the share of dead HNSW nodes that triggers a graph rebuild
+     * @param directory          the directory of the {@code mapped} store
+     * @param snapshotSeconds    how often the {@code mapped} store folds its log into a snapshot
+     * @param logSyncMillis      how often the {@code mapped} store forces its log to disk, {@code 0} on every write
+     * @param quantization       {@code none}, {@code int8} or {@code binary}
+     * @param rerankFactor       the candidates per requested result reranked at full precision
+     * @param qdrantHost         the Qdrant gRPC host
+     * @param qdrantPort         the Qdrant gRPC port
+     * @param qdrantUseTls       whether the Qdrant channel uses TLS
+     * @param qdrantApiKey       the Qdrant API key, blank for none
+     * @param qdrantTimeout      the Qdrant call timeout in seconds
+     * @param qdrantBatchSize    the number of points sent per Qdrant upsert call
+     * @param dimensions         the requested embedding dimensions, {@code 0} for the model default
+     * @param blockingScheduler  the scheduler the HNSW graph is rebuilt on
+     * @return the record collection
+     */
     @Bean
-    public VectorStoreRecordCollection<String, DummyRecord> vectorStoreRecordCollection(){
-        var volatileVectorStore = new VolatileVectorStore();
-        String collectionName = "testDataStore";
-        return volatileVectorStore.getCollection(collectionName,
-                VolatileVectorStoreRecordCollectionOptions.<DummyRecord>builder()
-                        .withRecordClass(DummyRecord.class)
-                        .build());
+    public VectorStoreRecordCollection<String, DummyRecord> vectorStoreRecordCollection(
+            @Value("${vector-store-type:primitive}") String vectorStoreType,
+            @Value("${vector-store-hnsw-m:16}") int hnswM,
+            @Value("${vector-store-hnsw-ef-construction:200}") int hnswEfConstruction,
+            @Value("${vector-store-hnsw-ef-search:64}") int hnswEfSearch,
+            @Value("${vector-store-hnsw-rebuild-dead-ratio:0.25}") double hnswRebuildRatio,
+            @Value("${vector-store-directory:data/vector-store}") String directory,
+            @Value("${vector-store-snapshot-interval-seconds:60}") long snapshotSeconds,
+            @Value("${vector-store-log-sync-millis:200}") long logSyncMillis,
+            @Value("${vector-store-quantization:none}") String quantization,
+            @Value("${vector-store-quantization-rerank-factor:4}") int rerankFactor,
+            @Value("${vector-store-qdrant-host:localhost}") String qdrantHost,
+            @Value("${vector-store-qdrant-port:6334}") int qdrantPort,
+            @Value("${vector-store-qdrant-use-tls:false}") boolean qdrantUseTls,
+            @Value("${vector-store-qdrant-api-key:}") String qdrantApiKey,
+            @Value("${vector-store-qdrant-timeout-seconds:30}") long qdrantTimeout,
+            @Value("${vector-store-qdrant-upsert-batch-size:256}") int qdrantBatchSize,
+            @Value("${embedding-dimensions:0}") int dimensions,
+            Scheduler blockingScheduler) {
+        int storeDimensions = dimensions > 0 ? dimensions : DummyRecord.EMBEDDING_DIMENSIONS;
+        if ("qdrant".equals(vectorStoreType)) {
+            var grpcClient = QdrantGrpcClient.newBuilder(qdrantHost, qdrantPort, qdrantUseTls)
+                    .withTimeout(Duration.ofSeconds(qdrantTimeout));
+            if (!qdrantApiKey.isBlank()) {
+                grpcClient.withApiKey(qdrantApiKey);
+            }
+            return new QdrantVectorStoreRecordCollection(new QdrantClient(grpcClient.build()), COLLECTION_NAME,
+                    storeDimensions, objectMapper,
+                    new QdrantVectorStoreRecordCollection.QdrantSettings(hnswM, hnswEfConstruction, hnswEfSearch,
+                            quantization, rerankFactor, qdrantBatchSize));
+        }
+        VectorStoreRecordCollection<String, DummyRecord> collection = switch (vectorStoreType) {
+            case "volatile" -> new VolatileVectorStore().getCollection(COLLECTION_NAME,
+                    VolatileVectorStoreRecordCollectionOptions.<DummyRecord>builder()
+                            .withRecordClass(DummyRecord.class)
+                            .build());
+            case "primitive" -> new PrimitiveVectorStoreRecordCollection(COLLECTION_NAME,
+                    storeDimensions, SimilarityFunction.COSINE);
+            case "hnsw" -> new HnswVectorStoreRecordCollection(COLLECTION_NAME,
+                    storeDimensions, SimilarityFunction.COSINE,
+                    hnswM, hnswEfConstruction, hnswEfSearch, hnswRebuildRatio, blockingScheduler);
+            case "mapped" -> new MappedVectorStoreRecordCollection(COLLECTION_NAME,
+                    storeDimensions, SimilarityFunction.COSINE, Path.of(directory),
+                    Duration.ofSeconds(snapshotSeconds), Duration.ofMillis(logSyncMillis), objectMapper);
+            default -> throw new IllegalArgumentException("Unknown vector-store-type: " + vectorStoreType);
+        };
+        if ("none".equals(quantization)) {
+            return collection;
+        }
+        return new QuantizedVectorStoreRecordCollection(collection, storeDimensions,
+                QuantizationType.valueOf(quantization.toUpperCase()), rerankFactor);
     }
 }
 
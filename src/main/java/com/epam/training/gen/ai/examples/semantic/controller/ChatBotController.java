@@ -1,19 +1,40 @@
 package com.epam.training.gen.ai.examples.semantic.controller;
 
+import com.azure.ai.openai.models.ChatRequestAssistantMessage;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.ChatRequestUserMessage;
+import com.epam.training.gen.ai.examples.semantic.cache.SemanticChatCacheStats;
+import com.epam.training.gen.ai.examples.semantic.model.ChatSessionMessage;
+import com.epam.training.gen.ai.examples.semantic.model.ChatSessionReply;
+import com.epam.training.gen.ai.examples.semantic.model.ChatStreamEvent;
+import com.epam.training.gen.ai.examples.semantic.service.CachingChatService;
+import com.epam.training.gen.ai.examples.semantic.service.ChatSessionService;
+import com.epam.training.gen.ai.examples.semantic.service.ChatStreamingService;
+import com.epam.training.gen.ai.examples.semantic.session.ChatSession;
+import com.epam.training.gen.ai.examples.semantic.session.ChatSessionNotFoundException;
+import com.epam.training.gen.ai.examples.semantic.session.ChatSessionStats;
+import com.epam.training.gen.ai.examples.semantic.session.ChatSessionStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.microsoft.semantickernel.Kernel;
-import com.microsoft.semantickernel.orchestration.InvocationContext;
-import com.microsoft.semantickernel.orchestration.PromptExecutionSettings;
-import com.microsoft.semantickernel.services.chatcompletion.ChatCompletionService;
 import com.microsoft.semantickernel.services.chatcompletion.ChatHistory;
-import com.microsoft.semantickernel.services.chatcompletion.ChatMessageContent;
-import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -22,49 +43,69 @@ import java.util.Map;
 public class ChatBotController {
 
     @Autowired
-    private ChatCompletionService chatCompletionService;
+    private CachingChatService cachingChatService;
 
     @Autowired
-    private Kernel kernel;
+    private ObjectMapper objectMapper;
 
     @Autowired
-    private InvocationContext invocationContext;
+    private ChatStreamingService chatStreamingService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private ChatSessionStore chatSessionStore;
+
+    @Value("${client-azureopenai-deployment-name}")
+    private String deploymentName;
+
+    @Value("${chat-session-temperature:0.7}")
+    private double defaultTemperature;
 
+    /**
+     * Answers the input at t=0.1 and then asks the same question again at t=1.0.
+     * <p>
+     * Both completions are chained without blocking, so the request thread is released while the model answers.
+     *
+     * @param input the user message
+     * @return both answers, emitted when the second completes
+     */
     @GetMapping
-    public Map<String, String> getChatbotResponse(@RequestParam String input) {
+    public Mono<Map<String, String>> getChatbotResponse(@RequestParam String input) {
         ChatHistory history = new ChatHistory();
 
         history.addUserMessage(input);
-        List<ChatMessageContent<?>> response = chatCompletionService.getChatMessageContentsAsync(
-                history,
-                kernel,
-                InvocationContext.builder()
-                        .withPromptExecutionSettings(PromptExecutionSettings.builder()
-                                .withTemperature(0.1)
-                                .build())
-                        .build()
-        ).block();
-        history.addAll(response);
+        return cachingChatService.complete(history, 0.1)
+                .flatMap(response -> {
+                    history.addUserMessage(input);
+                    return cachingChatService.complete(history, 1.0)
+                            .map(creativeResponse -> Map.of("input t=0.1", input,
+                                    "response t=0.1", convertChatMessagesToJson(response),
+                                    "input t=1.0", input,
+                                    "response t=1.0", convertChatMessagesToJson(creativeResponse)));
+                });
+    }
 
-        history.addUserMessage(input);
-        List<ChatMessageContent<?>> creativeResponse = chatCompletionService.getChatMessageContentsAsync(
-                history,
-                kernel,
-                InvocationContext.builder()
-                        .withPromptExecutionSettings(PromptExecutionSettings.builder()
-                                .withTemperature(1.0)
-                                .build())
-                        .build()
-        ).block();
-        history.addAll(creativeResponse);
-
-        return Map.of("input t=0.1", input,
-                "response t=0.1", convertChatMessagesToJson(response),
-                "input t=1.0", input,
-                "response t=1.0", convertChatMessagesToJson(creativeResponse));
+    /**
+     * Streaming variant of {@link #getChatbotResponse(String)}: relays the t=0.1 answer and then the t=1.0 answer
+     * token by token, each followed by a closing event with its timings.
+     *
+     * @param input the user message
+     * @return server-sent events, or NDJSON when requested with {@code Accept: application/x-ndjson}
+     */
+    @GetMapping(value = "/stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<ChatStreamEvent> streamChatbotResponse(@RequestParam String input) {
+        List<ChatRequestMessage> messages = new ArrayList<>();
+        messages.add(new ChatRequestUserMessage(input));
+        return chatStreamingService.stream(deploymentName, messages, 0.1, "t=0.1")
+                .concatWith(Flux.defer(() -> chatStreamingService.stream(deploymentName, messages, 1.0, "t=1.0")))
+                .doOnNext(event -> {
+                    if (event.isDone() && messages.size() == 1) {
+                        messages.add(new ChatRequestAssistantMessage(event.content()));
+                        messages.add(new ChatRequestUserMessage(input));
+                    }
+                });
     }
 
 //    {
@@ -74,9 +115,71 @@ public class ChatBotController {
 //            "input t=0.1": "what the weather today in krakow"
 //    }
 
-    private String convertChatMessagesToJson(List<ChatMessageContent<?>> messages) {
+    /**
+     * Starts a conversation kept on the server, so that later messages are answered in its context.
+     *
+     * @return the new, empty session
+     */
+    @PostMapping("/sessions")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ChatSession.State createSession() {
+        return chatSessionStore.create().state();
+    }
+
+    /**
+     * Answers a message in the context of a session. Older turns are trimmed or summarized beforehand when the
+     * conversation would exceed the prompt token budget.
+     *
+     * @param id      the session id
+     * @param message the user message and optional temperature
+     * @return the answer; {@code 404} for an unknown session, {@code 409} while it answers another message
+     */
+    @PostMapping("/sessions/{id}/messages")
+    public Mono<ChatSessionReply> sendMessage(@PathVariable String id, @RequestBody ChatSessionMessage message) {
+        if (message.input() == null || message.input().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The input is required");
+        }
+        return chatSessionService.reply(id, message.input(),
+                message.temperature() == null ? defaultTemperature : message.temperature());
+    }
+
+    /**
+     * Returns the summary and turns a session keeps.
+     *
+     * @param id the session id
+     * @return the session state
+     */
+    @GetMapping("/sessions/{id}")
+    public Mono<ChatSession.State> session(@PathVariable String id) {
+        return chatSessionStore.find(id)
+                .map(ChatSession::state)
+                .switchIfEmpty(Mono.error(() -> new ChatSessionNotFoundException(id)));
+    }
+
+    @DeleteMapping("/sessions/{id}")
+    public Mono<ResponseEntity<Void>> deleteSession(@PathVariable String id) {
+        return chatSessionStore.delete(id)
+                .map(deleted -> deleted ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/sessions/stats")
+    public ChatSessionStats sessionStats() {
+        return chatSessionStore.stats();
+    }
+
+    /**
+     * Reports how many prompts were answered by the semantic response cache.
+     *
+     * @return the cache statistics
+     */
+    @GetMapping("/cache/stats")
+    public SemanticChatCacheStats cacheStats() {
+        return cachingChatService.cacheStats();
+    }
+
+    private String convertChatMessagesToJson(List<String> messages) {
         try {
-            return objectMapper.writeValueAsString(messages.stream().map(msg -> msg.getContent()).toList());
+            return objectMapper.writeValueAsString(messages);
         } catch (Exception e) {
             throw new RuntimeException("Error converting messages to JSON", e);
         }
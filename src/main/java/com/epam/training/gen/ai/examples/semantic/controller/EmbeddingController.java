@@ -1,24 +1,50 @@
 package com.epam.training.gen.ai.examples.semantic.controller;
 
-import com.azure.ai.openai.OpenAIAsyncClient;
-import com.azure.ai.openai.models.Embeddings;
-import com.azure.ai.openai.models.EmbeddingsOptions;
+import com.epam.training.gen.ai.examples.semantic.cache.EmbeddingCacheStats;
+import com.epam.training.gen.ai.examples.semantic.metrics.CallObservations;
+import com.epam.training.gen.ai.examples.semantic.model.BatchSearchRequest;
 import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
-import com.microsoft.semantickernel.aiservices.openai.textembedding.OpenAITextEmbeddingGenerationService;
+import com.epam.training.gen.ai.examples.semantic.model.IngestProgress;
+import com.epam.training.gen.ai.examples.semantic.model.RecordFilter;
+import com.epam.training.gen.ai.examples.semantic.service.DocumentChunker;
+import com.epam.training.gen.ai.examples.semantic.service.EmbeddingBatcherStats;
+import com.epam.training.gen.ai.examples.semantic.service.EmbeddingService;
+import com.epam.training.gen.ai.examples.semantic.service.IngestService;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.BatchVectorSearch;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.HnswVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.PrimitiveVectorStoreRecordCollection;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.QuantizedVectorStoreRecordCollection;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchFilter;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
 import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResults;
 import com.microsoft.semantickernel.data.vectorstorage.VectorStoreRecordCollection;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 
 @Slf4j
 @RestController
@@ -26,17 +52,46 @@ import java.util.concurrent.ExecutionException;
 public class EmbeddingController {
 
     @Autowired
-    private OpenAIAsyncClient openAIClient;
+    private VectorStoreRecordCollection<String, DummyRecord> vectorStoreRecordCollection;
 
     @Autowired
-    private VectorStoreRecordCollection<String, DummyRecord> vectorStoreRecordCollection;
+    private EmbeddingService embeddingService;
+
+    @Autowired
+    private IngestService ingestService;
 
     @Autowired
-    private OpenAITextEmbeddingGenerationService embeddingGeneration;
+    private DocumentChunker documentChunker;
+
+    @Autowired
+    private Scheduler blockingScheduler;
+
+    @Autowired
+    private CallObservations callObservations;
+
+    @Value("${vector-store-type:primitive}")
+    private String vectorStoreType;
+
+    @Value("${chunk-search-overfetch:4}")
+    private int chunkSearchOverfetch;
+
+    @Value("${search-batch-max-queries:2048}")
+    private int searchBatchMaxQueries;
+
+    @Value("${search-max-top:100}")
+    private int searchMaxTop;
+
+    @Value("${search-max-rerank-factor:32}")
+    private int searchMaxRerankFactor;
 
-    @Value("${client-azureopenai-deployment-name}")
-    private String deploymentName;
+    @Value("${report-max-queries:1000}")
+    private int reportMaxQueries;
 
+    @Value("${report-max-settings:16}")
+    private int reportMaxSettings;
+
+    @Value("${report-max-ef-search:1024}")
+    private int reportMaxEfSearch;
 
 
     /**
@@ -46,82 +101,361 @@ public class EmbeddingController {
      * @return A JSON response with the embedding vector.
      */
     @PostMapping("/generate")
-    public Map<String, Object> generateEmbedding(@RequestBody Map<String, String> requestBody) {
+    public Mono<Map<String, Object>> generateEmbedding(@RequestBody Map<String, String> requestBody) {
         String inputText = requestBody.get("input");
         if (inputText == null || inputText.isBlank()) {
-            return Map.of("error", "Input text cannot be null or empty");
+            return Mono.just(Map.of("error", "Input text cannot be null or empty"));
         }
 
-        try {
-            // Options for embedding generation
-            EmbeddingsOptions options = new EmbeddingsOptions(List.of(inputText));
-
-            // Use Azure OpenAI to generate embedding
-            Embeddings embeddings = openAIClient.getEmbeddings(deploymentName, options).block();
-
-            // Extract embedding vector (first element in response)
-            List<Float> embedding = embeddings.getData().get(0).getEmbedding();
-            return Map.of(
-                    "input", inputText,
-                    "embedding", embedding
-            );
-        } catch (Exception e) {
-            throw new RuntimeException("Error while generating embedding: " + e.getMessage(), e);
-        }
+        // Cached embeddings are served locally, misses go to Azure OpenAI
+        return embeddingService.embed(inputText)
+                .<Map<String, Object>>map(embedding -> Map.of(
+                        "input", inputText,
+                        "embedding", embedding
+                ))
+                .onErrorMap(e -> new RuntimeException("Error while generating embedding: " + e.getMessage(), e));
     }
 
     /**
-     * Endpoint to generate embeddings for a provided text and saves it.
+     * Endpoint to generate embeddings for a provided text and saves it under an id derived from the hash of the
+     * text. A text longer than one chunk is saved as chunks of that document. The optional {@code tenant},
+     * {@code source}, {@code date} and comma separated {@code tags} fields are saved as the payload searches can
+     * filter on.
      *
      * @param input The input text for which an embedding should be generated.
-     * @return A JSON response with the embedding vector.
+     * @return A JSON response with the document id and the number of saved chunks.
      */
     @PostMapping("/generateAndSave")
-    public Map<String, String> generateAndSaveEmbedding(@RequestBody Map<String, String> requestBody) {
+    public Mono<Map<String, String>> generateAndSaveEmbedding(@RequestBody Map<String, String> requestBody) {
         var inputText = requestBody.get("input");
         if (inputText == null || inputText.isBlank()) {
-            return Map.of("error", "Input text cannot be null or empty");
+            return Mono.just(Map.of("error", "Input text cannot be null or empty"));
+        }
+        DummyRecord payload;
+        try {
+            payload = payload(requestBody);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(Map.of("error", e.getMessage()));
         }
 
-        // Options for embedding generation
-        var options = new EmbeddingsOptions(List.of(inputText));
-        // Use Azure OpenAI to generate embedding
-
-        vectorStoreRecordCollection.createCollectionIfNotExistsAsync()
-                .then(embeddingGeneration.generateEmbeddingAsync(inputText)
+        List<String> chunks = documentChunker.split(inputText);
+        String documentId = DocumentChunker.documentIdOf(inputText);
+        if (chunks.size() > 1) {
+            return vectorStoreRecordCollection.createCollectionIfNotExistsAsync()
+                    .then(embeddingService.embedAll(chunks))
+                    .flatMap(embeddings -> {
+                        var records = new ArrayList<DummyRecord>(chunks.size());
+                        for (int i = 0; i < chunks.size(); i++) {
+                            records.add(new DummyRecord(DocumentChunker.chunkId(documentId, i), embeddings.get(i))
+                                    .withPayload(payload)
+                                    .withDocument(documentId));
+                        }
+                        return vectorStoreRecordCollection.upsertBatchAsync(records, null)
+                                .subscribeOn(blockingScheduler);
+                    })
+                    .thenReturn(Map.of("id", documentId, "chunks", Integer.toString(chunks.size())));
+        }
+        return vectorStoreRecordCollection.createCollectionIfNotExistsAsync()
+                .then(embeddingService.embed(inputText)
                         .flatMap(embedding -> vectorStoreRecordCollection.upsertAsync(
-                                new DummyRecord(
-                                        inputText, //DummyRecord.encodeId(inputText),
-                                        embedding.getVector()
-                                ), null
-                        ))).block();
-        return Map.of("Saved input", inputText);
+                                new DummyRecord(documentId, embedding)
+                                        .withPayload(payload)
+                                        .withDocument(documentId), null
+                        ).subscribeOn(blockingScheduler)))
+                .thenReturn(Map.of("id", documentId, "chunks", "1"));
     }
 
+    /**
+     * Endpoint to save a plain-text document of any length. The body is read as it is split into overlapping
+     * chunks, which are embedded in parallel batches and saved with ids linking them to the document.
+     *
+     * @param id      the document id
+     * @param params  the optional {@code tenant}, {@code source}, {@code date} and comma separated {@code tags}
+     *                payload fields saved with every chunk
+     * @param request the request whose body is streamed into the vector store
+     * @return A JSON response with the number of saved chunks.
+     */
+    @PostMapping(value = "/documents/{id}", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public Mono<Map<String, Object>> saveDocument(@PathVariable String id, @RequestParam Map<String, String> params,
+                                                  HttpServletRequest request) throws IOException {
+        DummyRecord payload;
+        try {
+            payload = payload(params);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(Map.of("error", e.getMessage()));
+        }
+        Charset charset = request.getCharacterEncoding() == null
+                ? StandardCharsets.UTF_8
+                : Charset.forName(request.getCharacterEncoding());
+        return ingestService.ingestDocument(id, payload, new InputStreamReader(request.getInputStream(), charset))
+                .map(chunks -> Map.of("Saved document", id, "chunks", chunks));
+    }
+
+    /**
+     * Endpoint to bulk-load documents from an NDJSON body, one {@code {"id": ..., "input": ...}} object per line.
+     *
+     * @param request the request whose body is streamed into the vector store
+     * @return An NDJSON stream of progress snapshots, the last one marked as done.
+     */
+    @PostMapping(value = "/ingest", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<IngestProgress> ingest(HttpServletRequest request) throws IOException {
+        return ingestService.ingest(request.getInputStream());
+    }
+
+    /**
+     * Endpoint to search the stored embeddings closest to a provided text.
+     *
+     * @param requestBody the request with the {@code input} text, an optional {@code top} result count up to
+     *                    {@code search-max-top}, optional {@code tenant}, {@code source}, {@code date} and
+     *                    {@code tag} filters and, for quantized stores, an optional {@code rerankFactor} up to
+     *                    {@code search-max-rerank-factor}
+     * @return A JSON response with the closest documents, the score and index of their best chunk, best first.
+     * @throws ResponseStatusException with status 400 when {@code top} or {@code rerankFactor} is invalid
+     */
     @PostMapping("/search")
-    public Map<String, String> search(@RequestBody Map<String, String> requestBody) throws ExecutionException, InterruptedException {
+    public Mono<Map<String, Object>> search(@RequestBody Map<String, String> requestBody) {
         var inputText = requestBody.get("input");
         if (inputText == null || inputText.isBlank()) {
-            return Map.of("error", "Input text cannot be null or empty");
+            return Mono.just(Map.of("error", "Input text cannot be null or empty"));
+        }
+        int top = intParameter(requestBody, "top", PrimitiveVectorStoreRecordCollection.DEFAULT_TOP, 1,
+                searchMaxTop);
+        VectorSearchFilter filter;
+        try {
+            filter = RecordFilter.of(requestBody).toVectorSearchFilter();
+        } catch (IllegalArgumentException e) {
+            return Mono.just(Map.of("error", e.getMessage()));
+        }
+        var options = VectorSearchOptions.builder()
+                .withTop(fetchedResults(top))
+                .withVectorSearchFilter(filter)
+                .build();
+        var results = requestBody.containsKey("rerankFactor")
+                && vectorStoreRecordCollection instanceof QuantizedVectorStoreRecordCollection quantized
+                ? searchReranked(quantized, inputText, options,
+                        intParameter(requestBody, "rerankFactor", 0, 0, searchMaxRerankFactor))
+                : search(inputText, options, vectorStoreRecordCollection, embeddingService);
+
+        return results
+                .filter(found -> !found.getResults().isEmpty())
+                .<Map<String, Object>>map(found -> Map.of("input", inputText, "results", documents(found, top)))
+                .defaultIfEmpty(Map.of("No search results found.", inputText));
+    }
+
+    /**
+     * Endpoint to search the stored embeddings closest to many texts at once. The texts are embedded together,
+     * sharing batched upstream calls, and the in-process stores score them all in one pass over their vectors.
+     *
+     * @param request the search texts, an optional {@code top} result count per text and an optional filter
+     *                applied to every text
+     * @return A JSON response with the closest documents of each text, in input order.
+     */
+    @PostMapping("/search/batch")
+    public Mono<Map<String, Object>> searchBatch(@RequestBody BatchSearchRequest request) {
+        var inputs = request.inputs();
+        if (inputs == null || inputs.isEmpty() || inputs.stream().anyMatch(input -> input == null || input.isBlank())) {
+            return Mono.just(Map.of("error", "Input texts cannot be null or empty"));
+        }
+        if (inputs.size() > searchBatchMaxQueries) {
+            return Mono.just(Map.of("error", "At most " + searchBatchMaxQueries + " input texts are allowed"));
+        }
+        int top = request.top() == null ? PrimitiveVectorStoreRecordCollection.DEFAULT_TOP : request.top();
+        if (top < 1 || top > searchMaxTop) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "top must be between 1 and " + searchMaxTop);
+        }
+        VectorSearchFilter filter;
+        try {
+            filter = request.filter() == null ? null : request.filter().toVectorSearchFilter();
+        } catch (IllegalArgumentException e) {
+            return Mono.just(Map.of("error", e.getMessage()));
         }
-        // Search for results
-        // Volatile store executes an exhaustive search, for approximate search use Azure AI Search, Redis or JDBC with PostgreSQL
-        var results = search(inputText, vectorStoreRecordCollection, embeddingGeneration).block();
+        var options = VectorSearchOptions.builder()
+                .withTop(fetchedResults(top))
+                .withVectorSearchFilter(filter)
+                .build();
+        return embeddingService.embedAll(inputs)
+                .flatMap(vectors -> callObservations.observeSearch(vectorStoreType,
+                        (vectorStoreRecordCollection instanceof BatchVectorSearch batch
+                                ? batch.searchBatchAsync(vectors, options)
+                                : Flux.fromIterable(vectors)
+                                        .flatMapSequential(vector ->
+                                                vectorStoreRecordCollection.searchAsync(vector, options))
+                                        .collectList())
+                                .subscribeOn(blockingScheduler)))
+                .map(found -> {
+                    var results = new ArrayList<Map<String, Object>>(inputs.size());
+                    for (int i = 0; i < inputs.size(); i++) {
+                        results.add(Map.of("input", inputs.get(i), "results", documents(found.get(i), top)));
+                    }
+                    return Map.of("results", results);
+                });
+    }
 
-        if (results == null || results.getTotalCount() == 0) {
-            return Map.of("No search results found.", inputText);
+    /**
+     * Endpoint to measure recall@k and latency of the HNSW index against an exact scan.
+     *
+     * @param queries  the number of sampled queries
+     * @param k        the result count to compare
+     * @param efSearch the comma separated efSearch values to measure
+     * @return A JSON response with the live and dead node counts, the number of graph rebuilds and one entry per
+     * measured setting.
+     * @throws ResponseStatusException with status 400 when a parameter is out of range
+     */
+    @GetMapping("/index/report")
+    public Mono<Map<String, Object>> indexReport(@RequestParam(defaultValue = "100") int queries,
+                                                 @RequestParam(defaultValue = "10") int k,
+                                                 @RequestParam(defaultValue = "16,32,64,128,256") int[] efSearch) {
+        if (!(vectorStoreRecordCollection instanceof HnswVectorStoreRecordCollection hnsw)) {
+            return Mono.just(Map.of("error", "Vector store is not HNSW indexed"));
         }
-        var searchResult = results.getResults().get(0);
-        return Map.of(inputText, String.format("Search result with score: %f.%n Link: %s",
-                searchResult.getScore(), searchResult.getRecord().getId()));
+        requireRange("queries", queries, 1, reportMaxQueries);
+        requireRange("k", k, 1, searchMaxTop);
+        requireRange("efSearch count", efSearch.length, 1, reportMaxSettings);
+        for (int ef : efSearch) {
+            requireRange("efSearch", ef, 1, reportMaxEfSearch);
+        }
+        return Mono.<Map<String, Object>>fromCallable(
+                        () -> Map.of("size", hnsw.size(), "deadNodes", hnsw.deadNodes(), "rebuilds", hnsw.rebuilds(),
+                                "report", hnsw.recallReport(queries, k, efSearch)))
+                .subscribeOn(blockingScheduler);
+    }
+
+    /**
+     * Endpoint to measure the memory saved by quantization and its recall@k cost against full precision.
+     *
+     * @param queries       the number of sampled queries
+     * @param k             the result count to compare
+     * @param rerankFactors the comma separated rerank factors to measure, {@code 0} for no rerank
+     * @return A JSON response with the footprint and one entry per measured factor.
+     * @throws ResponseStatusException with status 400 when a parameter is out of range
+     */
+    @GetMapping("/quantization/report")
+    public Mono<Object> quantizationReport(@RequestParam(defaultValue = "100") int queries,
+                                           @RequestParam(defaultValue = "10") int k,
+                                           @RequestParam(defaultValue = "0,1,2,4,8") int[] rerankFactors) {
+        if (!(vectorStoreRecordCollection instanceof QuantizedVectorStoreRecordCollection quantized)) {
+            return Mono.just(Map.of("error", "Vector store is not quantized"));
+        }
+        requireRange("queries", queries, 1, reportMaxQueries);
+        requireRange("k", k, 1, searchMaxTop);
+        requireRange("rerankFactors count", rerankFactors.length, 1, reportMaxSettings);
+        for (int factor : rerankFactors) {
+            requireRange("rerankFactor", factor, 0, searchMaxRerankFactor);
+        }
+        return Mono.<Object>fromCallable(() -> quantized.quantizationReport(queries, k, rerankFactors))
+                .subscribeOn(blockingScheduler);
+    }
+
+    /**
+     * Endpoint to report embedding cache hit and miss counters.
+     *
+     * @return the cache statistics
+     */
+    @GetMapping("/cache/stats")
+    public EmbeddingCacheStats cacheStats() {
+        return embeddingService.cacheStats();
+    }
+
+    /**
+     * Endpoint to report how many caller requests were coalesced into each upstream embedding call.
+     *
+     * @return the batcher statistics
+     */
+    @GetMapping("/batcher/stats")
+    public EmbeddingBatcherStats batcherStats() {
+        return embeddingService.batcherStats();
+    }
+
+    /**
+     * Collapses chunk results to their documents. Results come best first, so the first chunk seen of each
+     * document is its best.
+     */
+    private static List<Map<String, Object>> documents(VectorSearchResults<DummyRecord> found, int top) {
+        var documents = new LinkedHashMap<String, Map<String, Object>>();
+        for (var result : found.getResults()) {
+            DummyRecord record = result.getRecord();
+            if (documents.size() == top) {
+                break;
+            }
+            String documentId = DocumentChunker.documentId(record);
+            documents.putIfAbsent(documentId, Map.of(
+                    "id", documentId,
+                    "score", result.getScore(),
+                    "chunk", DocumentChunker.chunkIndex(record)));
+        }
+        return List.copyOf(documents.values());
+    }
+
+    /**
+     * Reads the payload fields of a record to save from request fields, with comma separated tags.
+     *
+     * @return a record holding the payload fields, {@code null} when none is set
+     */
+    private static DummyRecord payload(Map<String, String> fields) {
+        String tags = fields.get(DummyRecord.TAGS);
+        var payload = new DummyRecord(null, null, fields.get(DummyRecord.TENANT), fields.get(DummyRecord.SOURCE),
+                fields.get(DummyRecord.DATE), tags == null
+                        ? null
+                        : Arrays.stream(tags.split(",")).map(String::strip).filter(tag -> !tag.isEmpty()).toList());
+        return payload.getTenant() == null && payload.getSource() == null && payload.getDate() == null
+                && payload.getTags() == null ? null : payload;
+    }
+
+    /**
+     * Reads an optional integer request field.
+     *
+     * @throws ResponseStatusException with status 400 when the field is not an integer in {@code [min, max]}
+     */
+    private static int intParameter(Map<String, String> fields, String name, int defaultValue, int min, int max) {
+        String value = fields.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, name + " must be an integer", e);
+        }
+        requireRange(name, parsed, min, max);
+        return parsed;
+    }
+
+    /**
+     * @throws ResponseStatusException with status 400 when {@code value} is not in {@code [min, max]}
+     */
+    private static void requireRange(String name, int value, int min, int max) {
+        if (value < min || value > max) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    name + " must be between " + min + " and " + max);
+        }
+    }
+
+    /**
+     * Returns the number of chunks to fetch for {@code top} documents; chunks of one document crowd each other
+     * out, so more of them are fetched than documents were asked for.
+     */
+    private int fetchedResults(int top) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) top * Math.max(1, chunkSearchOverfetch));
+    }
+
+    private Mono<VectorSearchResults<DummyRecord>> searchReranked(QuantizedVectorStoreRecordCollection quantized,
+                                                                  String searchText, VectorSearchOptions options,
+                                                                  int rerankFactor) {
+        return embeddingService.embed(searchText)
+                .flatMap(vector -> callObservations.observeSearch(vectorStoreType,
+                        quantized.searchAsync(vector, options, rerankFactor).subscribeOn(blockingScheduler)));
     }
 
-    private static Mono<VectorSearchResults<DummyRecord>> search(
+    private Mono<VectorSearchResults<DummyRecord>> search(
             String searchText,
+            VectorSearchOptions options,
             VectorStoreRecordCollection<String, DummyRecord> recordCollection,
-            OpenAITextEmbeddingGenerationService embeddingGeneration) {
+            EmbeddingService embeddingService) {
         // Generate embeddings for the search text and search for the closest records
-        return embeddingGeneration.generateEmbeddingAsync(searchText)
-                .flatMap(r -> recordCollection.searchAsync(r.getVector(), null));
+        return embeddingService.embed(searchText)
+                .flatMap(vector -> callObservations.observeSearch(vectorStoreType,
+                        recordCollection.searchAsync(vector, options).subscribeOn(blockingScheduler)));
     }
 }
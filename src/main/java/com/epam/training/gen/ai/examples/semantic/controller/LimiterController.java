@@ -0,0 +1,47 @@
+package com.epam.training.gen.ai.examples.semantic.controller;
+
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentLimiterStats;
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentLimiters;
+import com.epam.training.gen.ai.examples.semantic.tokenizer.TokenCount;
+import com.epam.training.gen.ai.examples.semantic.tokenizer.TokenCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/limits")
+public class LimiterController {
+
+    @Autowired
+    private DeploymentLimiters deploymentLimiters;
+
+    @Autowired
+    private TokenCounter tokenCounter;
+
+    /**
+     * Reports the concurrency limit, queue depth, token budget and rejection counters of every deployment.
+     *
+     * @return the per-deployment limiter statistics
+     */
+    @GetMapping
+    public List<DeploymentLimiterStats> limits() {
+        return deploymentLimiters.stats();
+    }
+
+    /**
+     * Counts the tokens of a text as the limiters charge them, without calling a model.
+     *
+     * @param requestBody the request with the {@code input} text
+     * @return the token count and the encoding it was counted with
+     */
+    @PostMapping("/tokens")
+    public TokenCount countTokens(@RequestBody Map<String, String> requestBody) {
+        return tokenCounter.measure(requestBody.get("input"));
+    }
+}
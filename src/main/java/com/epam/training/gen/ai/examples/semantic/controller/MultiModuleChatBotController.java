@@ -1,89 +1,109 @@
 package com.epam.training.gen.ai.examples.semantic.controller;
 
-import com.azure.ai.openai.OpenAIAsyncClient;
-import com.epam.training.gen.ai.examples.semantic.configuration.SemanticKernelConfiguration;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.microsoft.semantickernel.Kernel;
-import com.microsoft.semantickernel.aiservices.openai.chatcompletion.OpenAIChatCompletion;
-import com.microsoft.semantickernel.orchestration.InvocationContext;
-import com.microsoft.semantickernel.orchestration.PromptExecutionSettings;
-import com.microsoft.semantickernel.services.chatcompletion.ChatCompletionService;
-import com.microsoft.semantickernel.services.chatcompletion.ChatHistory;
-import com.microsoft.semantickernel.services.chatcompletion.ChatMessageContent;
+import com.azure.ai.openai.models.ChatRequestAssistantMessage;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.ChatRequestUserMessage;
+import com.epam.training.gen.ai.examples.semantic.model.ChatStreamEvent;
+import com.epam.training.gen.ai.examples.semantic.model.FanOutMode;
+import com.epam.training.gen.ai.examples.semantic.model.ModelRouteStats;
+import com.epam.training.gen.ai.examples.semantic.service.ChatSessionService;
+import com.epam.training.gen.ai.examples.semantic.service.ChatStreamingService;
+import com.epam.training.gen.ai.examples.semantic.service.ModelRouter;
+import com.epam.training.gen.ai.examples.semantic.service.MultiModelChatService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/mmchat")
 public class MultiModuleChatBotController {
 
     @Autowired
-    private Kernel kernel;
+    private ChatStreamingService chatStreamingService;
 
     @Autowired
-    private InvocationContext invocationContext;
+    private ModelRouter modelRouter;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private MultiModelChatService multiModelChatService;
 
     @Autowired
-    private List<SemanticKernelConfiguration.Model> deployedModels;
-
-    @Autowired
-    private OpenAIAsyncClient openAIAsyncClient;
-
+    private ChatSessionService chatSessionService;
+
+    /**
+     * Sends the input to several deployed models concurrently.
+     *
+     * @param input          the user message
+     * @param mode           return after all models, after the first success or at the deadline
+     * @param models         how many deployed models to query, chosen by the {@link ModelRouter}
+     * @param deadlineMillis the deadline in {@link FanOutMode#DEADLINE} mode
+     * @param sessionId      a session created with {@code POST /chat/sessions} to send the input within; the
+     *                       first successful answer is recorded in it
+     * @return the responses in completion order together with the fan-out latency
+     */
     @GetMapping
-    public Map<String, String> getMMChatbotResponse(@RequestParam String input) {
-        ChatHistory history = new ChatHistory();
-
-        SemanticKernelConfiguration.Model model1 = deployedModels.get(getRandomIndex(deployedModels.size() - 1));
-        history.addUserMessage(input);
-        List<ChatMessageContent<?>> response1 = getChatMessageContents(model1.getId(), history);
-        history.addAll(response1);
-
-        SemanticKernelConfiguration.Model model2 = deployedModels.get(getRandomIndex(deployedModels.size() - 1));
-        history.addUserMessage(input);
-        List<ChatMessageContent<?>> response2 = getChatMessageContents(model2.getId(), history);
-        history.addAll(response2);
-
-        return Map.of("input of " + model1.getId(), input,
-                "response of " + model1.getId(), convertChatMessagesToJson(response1),
-                "input of " + model2.getId(), input,
-                "response of " + model2.getId(), convertChatMessagesToJson(response2));
-    }
-
-    private List<ChatMessageContent<?>> getChatMessageContents(String modelId, ChatHistory chatHistory){
-        OpenAIChatCompletion openAIChatCompletion = OpenAIChatCompletion.builder()
-                .withModelId(modelId)
-                .withOpenAIAsyncClient(openAIAsyncClient)
-                .build();
-        return OpenAIChatCompletion.builder()
-                .withModelId(modelId)
-                .withOpenAIAsyncClient(openAIAsyncClient)
-                .build().getChatMessageContentsAsync(
-                        chatHistory,
-                        kernel.toBuilder().withAIService(ChatCompletionService.class, openAIChatCompletion).build(),
-                        invocationContext
-                ).block();
+    public Mono<Map<String, Object>> getMMChatbotResponse(@RequestParam String input,
+                                                          @RequestParam(defaultValue = "ALL") FanOutMode mode,
+                                                          @RequestParam(defaultValue = "2") int models,
+                                                          @RequestParam(defaultValue = "10000") long deadlineMillis,
+                                                          @RequestParam(required = false) String sessionId) {
+        var modelIds = modelRouter.choose(models, Set.of(ModelRouter.CHAT_COMPLETION));
+        var deadline = Duration.ofMillis(deadlineMillis);
+        long started = System.nanoTime();
+        return (sessionId == null
+                ? multiModelChatService.fanOut(input, modelIds, mode, deadline)
+                : chatSessionService.fanOut(sessionId, input, modelIds, mode, deadline))
+                .map(responses -> Map.of("input", input,
+                        "mode", mode,
+                        "latencyMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                        "responses", responses));
     }
 
-    private int getRandomIndex(int maxIndex) {
-        return new Random().ints(0, maxIndex).findFirst().getAsInt();
+    /**
+     * Streaming variant of {@link #getMMChatbotResponse}: relays the answers of two distinct deployed models one
+     * after the other, token by token, each followed by a closing event with its timings. With a single chat
+     * model deployed, it answers twice.
+     *
+     * @param input the user message
+     * @return server-sent events, or NDJSON when requested with {@code Accept: application/x-ndjson}
+     */
+    @GetMapping(value = "/stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<ChatStreamEvent> streamMMChatbotResponse(@RequestParam String input) {
+        List<String> chosen = modelRouter.choose(2, Set.of(ModelRouter.CHAT_COMPLETION));
+        String model1 = chosen.get(0);
+        String model2 = chosen.get(chosen.size() - 1);
+        List<ChatRequestMessage> messages = new ArrayList<>();
+        messages.add(new ChatRequestUserMessage(input));
+        return modelRouter.track(model1, chatStreamingService.stream(model1, messages, 1.0, model1))
+                .concatWith(Flux.defer(() -> modelRouter.track(model2,
+                        chatStreamingService.stream(model2, messages, 1.0, model2))))
+                .doOnNext(event -> {
+                    if (event.isDone() && messages.size() == 1) {
+                        messages.add(new ChatRequestAssistantMessage(event.content()));
+                        messages.add(new ChatRequestUserMessage(input));
+                    }
+                });
     }
 
-
-    private String convertChatMessagesToJson(List<ChatMessageContent<?>> messages) {
-        try {
-            return objectMapper.writeValueAsString(messages.stream().map(msg -> msg.getContent()).toList());
-        } catch (Exception e) {
-            throw new RuntimeException("Error converting messages to JSON", e);
-        }
+    /**
+     * Reports the latency, error rate, load and ejection state the router keeps per model.
+     *
+     * @return the per-model routing statistics
+     */
+    @GetMapping("/routes")
+    public List<ModelRouteStats> routes() {
+        return modelRouter.stats();
     }
 }
@@ -1,35 +1,155 @@
 package com.epam.training.gen.ai.examples.semantic.controller;
 
-import com.azure.ai.openai.OpenAIAsyncClient;
-import com.azure.ai.openai.models.ImageGenerationData;
-import com.azure.ai.openai.models.ImageGenerationOptions;
-import com.azure.ai.openai.models.ImageGenerations;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.epam.training.gen.ai.examples.semantic.cache.ImageStore;
+import com.epam.training.gen.ai.examples.semantic.cache.ImageStoreStats;
+import com.epam.training.gen.ai.examples.semantic.model.ImageBackend;
+import com.epam.training.gen.ai.examples.semantic.model.ImageJob;
+import com.epam.training.gen.ai.examples.semantic.model.ImageJobRequest;
+import com.epam.training.gen.ai.examples.semantic.model.ImageJobStats;
+import com.epam.training.gen.ai.examples.semantic.service.ImageJobService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/image")
 public class TextToImageController {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final List<String> CONDITIONAL_HEADERS = List.of(HttpHeaders.RANGE, HttpHeaders.IF_NONE_MATCH,
+            HttpHeaders.IF_MATCH, HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.IF_UNMODIFIED_SINCE);
+
     @Autowired
-    private OpenAIAsyncClient openAIAsyncClient;
+    private ImageJobService imageJobService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private ImageStore imageStore;
 
+    /**
+     * Generates an image and answers once it is ready. Goes through the job queue, so identical prompts share a
+     * generation and recent ones are answered from the result cache.
+     *
+     * @param prompt the image description
+     * @return the image URL
+     */
     @GetMapping
-    public Map<String, String> generateImage(@RequestParam String prompt) throws IOException, InterruptedException {
-        ImageGenerations images = openAIAsyncClient.getImageGenerations("dall-e-3", new ImageGenerationOptions(prompt)).block();
-        for (ImageGenerationData imageGenerationData : images.getData()) {
-            return Map.of("imgUrl:", imageGenerationData.getUrl());
+    public Mono<Map<String, String>> generateImage(@RequestParam String prompt) {
+        String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().toUriString();
+        var job = imageJobService.submit(ImageJobRequest.of(prompt), ImageBackend.IMAGES_API);
+        return imageJobService.await(job.id())
+                .map(result -> Map.of("imgUrl:", result.absoluteImageUrl(baseUrl)))
+                .defaultIfEmpty(Map.of());
+    }
+
+    /**
+     * Submits an image generation without waiting for it.
+     *
+     * @param request the prompt and options
+     * @param backend how to generate the image
+     * @return the new job, or the queued, running or cached job for the same prompt and options
+     */
+    @PostMapping("/jobs")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ImageJob submitJob(@RequestBody ImageJobRequest request,
+                              @RequestParam(defaultValue = "IMAGES_API") ImageBackend backend) {
+        if (request.prompt() == null || request.prompt().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The prompt is required");
+        }
+        return imageJobService.submit(request, backend);
+    }
+
+    /**
+     * Polls a job.
+     *
+     * @param id the job id
+     * @return the current state of the job
+     */
+    @GetMapping("/jobs/{id}")
+    public ImageJob job(@PathVariable String id) {
+        ImageJob job = imageJobService.get(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown image job " + id);
+        }
+        return job;
+    }
+
+    /**
+     * Streams the state changes of a job as server-sent events, ending after it succeeds or fails.
+     *
+     * @param id the job id
+     * @return the job states
+     */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ImageJob> jobEvents(@PathVariable String id) {
+        job(id);
+        return imageJobService.watch(id);
+    }
+
+    @GetMapping("/jobs/stats")
+    public ImageJobStats jobStats() {
+        return imageJobService.stats();
+    }
+
+    /**
+     * Serves a stored image. The id is the SHA-256 of the content, so it is the strong {@code ETag} and the
+     * response may be cached forever.
+     * <p>
+     * Conditional and range requests are answered by Spring from the file resource. A plain {@code GET} is handed
+     * to Tomcat's sendfile when the connector supports it, so the bytes go from the page cache to the socket
+     * without passing through the heap.
+     *
+     * @param id      the image id
+     * @param request the servlet request, to detect sendfile support
+     * @return the image
+     */
+    @GetMapping("/files/{id}")
+    public ResponseEntity<Resource> file(@PathVariable String id, HttpServletRequest request) {
+        ImageStore.StoredImage image = imageStore.get(id);
+        if (image == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown image " + id);
+        }
+        var response = ResponseEntity.ok()
+                .eTag(image.id())
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .contentType(MediaType.parseMediaType(image.mediaType()));
+        if ("GET".equals(request.getMethod())
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))
+                && CONDITIONAL_HEADERS.stream().noneMatch(header -> request.getHeader(header) != null)) {
+            request.setAttribute(SENDFILE_FILENAME, image.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, image.size());
+            return response.contentLength(image.size()).build();
         }
-        return Map.of();
+        return response.body(new FileSystemResource(image.path()));
+    }
+
+    @GetMapping("/files/stats")
+    public ImageStoreStats fileStats() {
+        return imageStore.stats();
     }
 }
@@ -0,0 +1,155 @@
+package com.epam.training.gen.ai.examples.semantic.metrics;
+
+import com.epam.training.gen.ai.examples.semantic.cache.EmbeddingCache;
+import com.epam.training.gen.ai.examples.semantic.cache.ImageStore;
+import com.epam.training.gen.ai.examples.semantic.cache.SemanticChatCache;
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.service.EmbeddingBatcher;
+import com.epam.training.gen.ai.examples.semantic.service.ImageJobService;
+import com.epam.training.gen.ai.examples.semantic.session.ChatSessionStore;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.SearchStatistics;
+import com.microsoft.semantickernel.data.vectorstorage.VectorStoreRecordCollection;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exports the counters the caches, the embedding batcher, the image queue and store, the chat sessions and the
+ * vector store keep.
+ * <p>
+ * Counters are read when the registry is scraped, so the hot paths only pay for the increments they did before.
+ * The vector store counters are only exported for the in-process stores that implement {@link SearchStatistics}.
+ */
+@Component
+public class ApplicationMetrics implements MeterBinder {
+
+    @Autowired
+    private EmbeddingCache embeddingCache;
+
+    @Autowired
+    private SemanticChatCache semanticChatCache;
+
+    @Autowired
+    private EmbeddingBatcher embeddingBatcher;
+
+    @Autowired
+    private ImageJobService imageJobService;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ChatSessionStore chatSessionStore;
+
+    @Autowired
+    private VectorStoreRecordCollection<String, DummyRecord> vectorStoreRecordCollection;
+
+    @Value("${vector-store-type:primitive}")
+    private String vectorStoreType;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("embedding.cache.requests", embeddingCache, cache -> cache.stats().memoryHits())
+                .tag("result", "memory-hit")
+                .register(registry);
+        FunctionCounter.builder("embedding.cache.requests", embeddingCache, cache -> cache.stats().diskHits())
+                .tag("result", "disk-hit")
+                .register(registry);
+        FunctionCounter.builder("embedding.cache.requests", embeddingCache, cache -> cache.stats().misses())
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("embedding.cache.evictions", embeddingCache, cache -> cache.stats().evictions())
+                .register(registry);
+        Gauge.builder("embedding.cache.hit.ratio", embeddingCache, cache -> cache.stats().getHitRatio())
+                .register(registry);
+        Gauge.builder("embedding.cache.size", embeddingCache, cache -> cache.stats().memoryBytes())
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("embedding.cache.disk.evictions", embeddingCache,
+                        cache -> cache.stats().diskEvictions())
+                .register(registry);
+        Gauge.builder("embedding.cache.disk.size", embeddingCache, cache -> cache.stats().diskBytes())
+                .baseUnit("bytes")
+                .register(registry);
+
+        FunctionCounter.builder("chat.cache.requests", semanticChatCache, cache -> cache.stats().hits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("chat.cache.requests", semanticChatCache, cache -> cache.stats().misses())
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("chat.cache.hit.ratio", semanticChatCache, cache -> cache.stats().getHitRatio())
+                .register(registry);
+        Gauge.builder("chat.cache.entries", semanticChatCache, cache -> cache.stats().entries())
+                .register(registry);
+
+        FunctionCounter.builder("embedding.batcher.requests", embeddingBatcher, batcher -> batcher.stats().requests())
+                .register(registry);
+        FunctionCounter.builder("embedding.batcher.batches", embeddingBatcher, batcher -> batcher.stats().batches())
+                .register(registry);
+        FunctionCounter.builder("embedding.batcher.failed.batches", embeddingBatcher,
+                        batcher -> batcher.stats().failedBatches())
+                .register(registry);
+
+        FunctionCounter.builder("image.jobs.submitted", imageJobService, service -> service.stats().submitted())
+                .register(registry);
+        FunctionCounter.builder("image.jobs.completed", imageJobService, service -> service.stats().generated())
+                .tag("result", "generated")
+                .register(registry);
+        FunctionCounter.builder("image.jobs.completed", imageJobService, service -> service.stats().failed())
+                .tag("result", "failed")
+                .register(registry);
+        FunctionCounter.builder("image.jobs.completed", imageJobService, service -> service.stats().cacheHits())
+                .tag("result", "cache-hit")
+                .register(registry);
+        FunctionCounter.builder("image.jobs.deduplicated", imageJobService,
+                        service -> service.stats().deduplicated())
+                .register(registry);
+        FunctionCounter.builder("image.jobs.rejected", imageJobService, service -> service.stats().rejected())
+                .register(registry);
+        Gauge.builder("image.jobs.queued", imageJobService, service -> service.stats().queued())
+                .register(registry);
+        Gauge.builder("image.jobs.running", imageJobService, service -> service.stats().running())
+                .register(registry);
+
+        FunctionCounter.builder("image.store.requests", imageStore, store -> store.stats().hits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("image.store.requests", imageStore, store -> store.stats().misses())
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("image.store.evictions", imageStore, store -> store.stats().evictions())
+                .register(registry);
+        Gauge.builder("image.store.size", imageStore, store -> store.stats().bytes())
+                .baseUnit("bytes")
+                .register(registry);
+
+        Gauge.builder("chat.sessions.active", chatSessionStore, store -> store.stats().sessions())
+                .register(registry);
+        Gauge.builder("chat.sessions.size", chatSessionStore, store -> store.stats().memoryBytes())
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("chat.sessions.compactions", chatSessionStore, store -> store.stats().compactions())
+                .register(registry);
+        FunctionCounter.builder("chat.sessions.removals", chatSessionStore, store -> store.stats().expired())
+                .tag("reason", "idle")
+                .register(registry);
+        FunctionCounter.builder("chat.sessions.removals", chatSessionStore, store -> store.stats().evictions())
+                .tag("reason", "memory")
+                .register(registry);
+
+        if (vectorStoreRecordCollection instanceof SearchStatistics statistics) {
+            FunctionCounter.builder("vector.store.searches", statistics, SearchStatistics::searches)
+                    .tag("store", vectorStoreType)
+                    .register(registry);
+            FunctionCounter.builder("vector.store.scanned", statistics, SearchStatistics::scannedVectors)
+                    .tag("store", vectorStoreType)
+                    .baseUnit("vectors")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.epam.training.gen.ai.examples.semantic.metrics;
+
+import com.azure.ai.openai.models.CompletionsUsage;
+import com.azure.ai.openai.models.EmbeddingsUsage;
+import com.microsoft.semantickernel.orchestration.FunctionResultMetadata;
+import com.microsoft.semantickernel.services.chatcompletion.ChatMessageContent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.ContextView;
+
+import java.util.List;
+
+/**
+ * Observes model calls and vector searches and counts the tokens reported by the upstream.
+ * <p>
+ * Model calls are recorded as {@code llm.client.requests} tagged with the operation and the model, vector searches
+ * as {@code vector.search} tagged with the store type. Both measure what the caller waits for, including queueing
+ * and retries, and become spans between the controller span and the {@code llm.http.client.requests} spans of the
+ * individual HTTP attempts. Tokens are counted as {@code llm.tokens} tagged with the model and the token type.
+ */
+@Component
+public class CallObservations {
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Observes a model call.
+     *
+     * @param operation the kind of call, such as {@code chat}, {@code embedding} or {@code image}
+     * @param model     the deployment or model called
+     * @param call      the call, started on subscription
+     * @return the observed call
+     */
+    public <T> Mono<T> observeModelCall(String operation, String model, Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            Observation observation = start("llm.client.requests", operation + " " + model, context)
+                    .lowCardinalityKeyValue("operation", operation)
+                    .lowCardinalityKeyValue("model", model);
+            return call.doOnError(observation::error)
+                    .doFinally(signal -> stop(observation, signal))
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    /**
+     * Observes a streamed model call until the stream ends.
+     *
+     * @param operation the kind of call
+     * @param model     the deployment or model called
+     * @param call      the call, started on subscription
+     * @return the observed call
+     */
+    public <T> Flux<T> observeModelStream(String operation, String model, Flux<T> call) {
+        return Flux.deferContextual(context -> {
+            Observation observation = start("llm.client.requests", operation + " " + model, context)
+                    .lowCardinalityKeyValue("operation", operation)
+                    .lowCardinalityKeyValue("model", model);
+            return call.doOnError(observation::error)
+                    .doFinally(signal -> stop(observation, signal))
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    /**
+     * Observes a vector search.
+     *
+     * @param store  the vector store type
+     * @param search the search, started on subscription
+     * @return the observed search
+     */
+    public <T> Mono<T> observeSearch(String store, Mono<T> search) {
+        return Mono.deferContextual(context -> {
+            Observation observation = start("vector.search", "vector search " + store, context)
+                    .lowCardinalityKeyValue("store", store);
+            return search.doOnError(observation::error)
+                    .doFinally(signal -> stop(observation, signal))
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    /**
+     * Counts the tokens of a chat completion from the usage in the Semantic Kernel result metadata.
+     *
+     * @param model    the deployment or model called
+     * @param messages the returned messages
+     */
+    public void recordChatUsage(String model, List<? extends ChatMessageContent<?>> messages) {
+        for (ChatMessageContent<?> message : messages) {
+            FunctionResultMetadata<?> metadata = message.getMetadata();
+            if (metadata != null && metadata.getUsage() instanceof CompletionsUsage usage) {
+                recordCompletionsUsage(model, usage);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts the prompt and completion tokens of a completion.
+     *
+     * @param model the deployment or model called
+     * @param usage the usage reported by the upstream, or {@code null}
+     */
+    public void recordCompletionsUsage(String model, CompletionsUsage usage) {
+        if (usage != null) {
+            countTokens(model, "prompt", usage.getPromptTokens());
+            countTokens(model, "completion", usage.getCompletionTokens());
+        }
+    }
+
+    /**
+     * Counts the input tokens of an embeddings call.
+     *
+     * @param model the deployment or model called
+     * @param usage the usage reported by the upstream, or {@code null}
+     */
+    public void recordEmbeddingsUsage(String model, EmbeddingsUsage usage) {
+        if (usage != null) {
+            countTokens(model, "embedding", usage.getPromptTokens());
+        }
+    }
+
+    private Observation start(String name, String contextualName, ContextView context) {
+        Observation parent = context.getOrDefault(ObservationThreadLocalAccessor.KEY,
+                observationRegistry.getCurrentObservation());
+        return Observation.createNotStarted(name, observationRegistry)
+                .contextualName(contextualName)
+                .parentObservation(parent)
+                .start();
+    }
+
+    private static void stop(Observation observation, SignalType signal) {
+        observation.lowCardinalityKeyValue("outcome", switch (signal) {
+            case ON_ERROR -> "error";
+            case CANCEL -> "cancelled";
+            default -> "success";
+        });
+        observation.stop();
+    }
+
+    private void countTokens(String model, String type, long tokens) {
+        meterRegistry.counter("llm.tokens", "model", model, "type", type).increment(tokens);
+    }
+}
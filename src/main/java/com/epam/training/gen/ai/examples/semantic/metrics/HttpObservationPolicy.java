@@ -0,0 +1,60 @@
+package com.epam.training.gen.ai.examples.semantic.metrics;
+
+import com.azure.core.http.HttpPipelineCallContext;
+import com.azure.core.http.HttpPipelineNextPolicy;
+import com.azure.core.http.HttpPipelinePosition;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import io.micrometer.observation.transport.RequestReplySenderContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Azure pipeline policy that observes every HTTP attempt of the Azure clients as {@code llm.http.client.requests}.
+ * <p>
+ * The observation is a child of the observation in the Reactor context, so a trace runs from the controller
+ * through the model call down to the HTTP request, and the trace context is propagated to the upstream in the
+ * request headers.
+ */
+@Component
+public class HttpObservationPolicy implements HttpPipelinePolicy {
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    @Override
+    public Mono<HttpResponse> process(HttpPipelineCallContext context, HttpPipelineNextPolicy next) {
+        return Mono.deferContextual(reactorContext -> {
+            HttpRequest request = context.getHttpRequest();
+            var senderContext = new RequestReplySenderContext<HttpRequest, HttpResponse>(
+                    (carrier, key, value) -> carrier.setHeader(key, value));
+            senderContext.setCarrier(request);
+            senderContext.setRemoteServiceName(request.getUrl().getHost());
+            Observation observation = Observation.createNotStarted("llm.http.client.requests",
+                            () -> senderContext, observationRegistry)
+                    .contextualName("http " + request.getHttpMethod().name().toLowerCase())
+                    .lowCardinalityKeyValue("method", request.getHttpMethod().name())
+                    .lowCardinalityKeyValue("host", request.getUrl().getHost())
+                    .highCardinalityKeyValue("path", request.getUrl().getPath())
+                    .parentObservation(reactorContext.getOrDefault(ObservationThreadLocalAccessor.KEY, null))
+                    .start();
+            return next.process()
+                    .doOnNext(response -> {
+                        senderContext.setResponse(response);
+                        observation.lowCardinalityKeyValue("status", String.valueOf(response.getStatusCode()));
+                    })
+                    .doOnError(error -> observation.lowCardinalityKeyValue("status", "IO_ERROR").error(error))
+                    .doFinally(signal -> observation.stop());
+        });
+    }
+
+    @Override
+    public HttpPipelinePosition getPipelinePosition() {
+        return HttpPipelinePosition.PER_RETRY;
+    }
+}
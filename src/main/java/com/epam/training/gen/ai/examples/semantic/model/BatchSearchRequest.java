@@ -0,0 +1,13 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+import java.util.List;
+
+/**
+ * A batch of texts to search the stored embeddings for.
+ *
+ * @param inputs the search texts
+ * @param top    the documents returned per text, {@code null} for the default
+ * @param filter restricts every search to matching records, {@code null} for none
+ */
+public record BatchSearchRequest(List<String> inputs, Integer top, RecordFilter filter) {
+}
@@ -0,0 +1,10 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+/**
+ * A message sent to a chat session.
+ *
+ * @param input       the user message
+ * @param temperature the sampling temperature, {@code null} for the default
+ */
+public record ChatSessionMessage(String input, Double temperature) {
+}
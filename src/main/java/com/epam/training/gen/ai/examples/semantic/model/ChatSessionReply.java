@@ -0,0 +1,15 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+/**
+ * The answer of one turn of a chat session.
+ *
+ * @param sessionId    the session id
+ * @param input        the user message
+ * @param response     the assistant answer
+ * @param promptTokens the counted prompt tokens sent for the turn, after compaction
+ * @param turns        the messages the session keeps verbatim, this turn included
+ * @param compacted    whether older turns were trimmed or summarized before the turn
+ */
+public record ChatSessionReply(String sessionId, String input, String response, long promptTokens, int turns,
+                               boolean compacted) {
+}
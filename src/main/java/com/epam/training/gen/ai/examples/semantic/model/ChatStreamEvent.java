@@ -0,0 +1,32 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One event of a streamed chat completion: either a token as it arrived or the closing summary.
+ *
+ * @param source                 the label of the completion, e.g. the model or the temperature
+ * @param token                  the streamed text fragment, {@code null} on the closing event
+ * @param content                the full completion text, only on the closing event
+ * @param timeToFirstTokenMillis the delay until the first token, only on the closing event
+ * @param totalMillis            the duration of the whole completion, only on the closing event
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChatStreamEvent(String source, String token, String content, Long timeToFirstTokenMillis,
+                              Long totalMillis) {
+
+    public static ChatStreamEvent token(String source, String token) {
+        return new ChatStreamEvent(source, token, null, null, null);
+    }
+
+    public static ChatStreamEvent done(String source, String content, long timeToFirstTokenMillis,
+                                       long totalMillis) {
+        return new ChatStreamEvent(source, null, content, timeToFirstTokenMillis, totalMillis);
+    }
+
+    @JsonIgnore
+    public boolean isDone() {
+        return token == null;
+    }
+}
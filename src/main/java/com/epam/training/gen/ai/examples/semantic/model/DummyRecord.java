@@ -1,21 +1,93 @@
 package com.epam.training.gen.ai.examples.semantic.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.semantickernel.data.vectorstorage.annotations.VectorStoreRecordData;
 import com.microsoft.semantickernel.data.vectorstorage.annotations.VectorStoreRecordKey;
 import com.microsoft.semantickernel.data.vectorstorage.annotations.VectorStoreRecordVector;
 
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Base64;
 import java.util.List;
 
+/**
+ * A stored embedding with the payload fields searches can be filtered by.
+ * <p>
+ * The payload fields are optional. The in-process stores keep a bitmap per field value, so a filter on them
+ * restricts which vectors a search scores instead of discarding results afterwards.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class DummyRecord {
+    public static final int EMBEDDING_DIMENSIONS = 1536;
+
+    public static final String TENANT = "tenant";
+    public static final String SOURCE = "source";
+    public static final String DATE = "date";
+    public static final String TAGS = "tags";
+    public static final String DOCUMENT = "document";
+
     @VectorStoreRecordKey
     private  String id;
-    @VectorStoreRecordVector(dimensions = 1536)
+    @VectorStoreRecordVector(dimensions = EMBEDDING_DIMENSIONS)
     private  List<Float> embedding;
+    @VectorStoreRecordData(isFilterable = true)
+    private final String tenant;
+    @VectorStoreRecordData(isFilterable = true)
+    private final String source;
+    @VectorStoreRecordData(isFilterable = true)
+    private final String date;
+    @VectorStoreRecordData(isFilterable = true)
+    private final List<String> tags;
+    @VectorStoreRecordData
+    private final String document;
 
     public DummyRecord(String id, List<Float> embedding){
+        this(id, embedding, null, null, null, null, null);
+    }
+
+    /**
+     * Creates a record with payload fields that is not a chunk of a document.
+     *
+     * @param id        the record id
+     * @param embedding the embedding, may be {@code null}
+     * @param tenant    the owning tenant, may be {@code null}
+     * @param source    where the text comes from, may be {@code null}
+     * @param date      the ISO-8601 date of the text, {@code yyyy-MM-dd}, may be {@code null}
+     * @param tags      free-form labels, may be {@code null}
+     * @throws IllegalArgumentException when the date is not an ISO-8601 date
+     */
+    public DummyRecord(String id, List<Float> embedding, String tenant, String source, String date,
+                       List<String> tags) {
+        this(id, embedding, tenant, source, date, tags, null);
+    }
+
+    /**
+     * Creates a record with payload fields.
+     *
+     * @param id        the record id
+     * @param embedding the embedding, may be {@code null}
+     * @param tenant    the owning tenant, may be {@code null}
+     * @param source    where the text comes from, may be {@code null}
+     * @param date      the ISO-8601 date of the text, {@code yyyy-MM-dd}, may be {@code null}
+     * @param tags      free-form labels, may be {@code null}
+     * @param document  the id of the document this record is a chunk of, {@code null} for a whole text
+     * @throws IllegalArgumentException when the date is not an ISO-8601 date
+     */
+    @JsonCreator
+    public DummyRecord(@JsonProperty("id") String id, @JsonProperty("embedding") List<Float> embedding,
+                       @JsonProperty(TENANT) String tenant, @JsonProperty(SOURCE) String source,
+                       @JsonProperty(DATE) String date, @JsonProperty(TAGS) List<String> tags,
+                       @JsonProperty(DOCUMENT) String document) {
         this.id = id;
         this.embedding = embedding;
+        this.tenant = tenant;
+        this.source = source;
+        this.date = isoDate(date);
+        this.tags = tags == null || tags.isEmpty() ? null : List.copyOf(tags);
+        this.document = document;
     }
 
     public String getId() {
@@ -26,6 +98,94 @@ public class DummyRecord {
         return embedding;
     }
 
+    public String getTenant() {
+        return tenant;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public String getDocument() {
+        return document;
+    }
+
+    /**
+     * Returns a copy of this record carrying the given embedding.
+     *
+     * @param embedding the embedding of the copy, may be {@code null}
+     * @return the copy
+     */
+    public DummyRecord withEmbedding(List<Float> embedding) {
+        return new DummyRecord(id, embedding, tenant, source, date, tags, document);
+    }
+
+    /**
+     * Returns a copy of this record marked as a chunk of a document.
+     *
+     * @param document the id of the document, {@code null} for a whole text
+     * @return the copy
+     */
+    public DummyRecord withDocument(String document) {
+        return new DummyRecord(id, embedding, tenant, source, date, tags, document);
+    }
+
+    /**
+     * Returns a copy of this record carrying the payload fields of another one.
+     *
+     * @param payload the record whose payload fields are copied, may be {@code null} for none
+     * @return the copy
+     */
+    public DummyRecord withPayload(DummyRecord payload) {
+        return payload == null
+                ? new DummyRecord(id, embedding, null, null, null, null, document)
+                : new DummyRecord(id, embedding, payload.tenant, payload.source, payload.date, payload.tags,
+                        document);
+    }
+
+    /**
+     * Returns the values of a filterable payload field.
+     *
+     * @param field one of {@link #TENANT}, {@link #SOURCE}, {@link #DATE} or {@link #TAGS}
+     * @return the values, empty when the field is not set
+     * @throws IllegalArgumentException for any other field
+     */
+    public List<String> payloadValues(String field) {
+        return switch (field) {
+            case TENANT -> tenant == null ? List.of() : List.of(tenant);
+            case SOURCE -> source == null ? List.of() : List.of(source);
+            case DATE -> date == null ? List.of() : List.of(date);
+            case TAGS -> tags == null ? List.of() : tags;
+            default -> throw new IllegalArgumentException("Unknown payload field " + field);
+        };
+    }
+
+    /**
+     * Validates and normalizes an ISO-8601 date.
+     *
+     * @param date the date, may be {@code null}
+     * @return the date as {@code yyyy-MM-dd}, {@code null} for {@code null}
+     * @throws IllegalArgumentException when the date is not an ISO-8601 date
+     */
+    static String isoDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date.strip()).toString();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Date " + date + " is not an ISO-8601 date", e);
+        }
+    }
+
     public static String encodeId(String realId) {
         byte[] bytes = Base64.getUrlEncoder().encode(realId.getBytes(StandardCharsets.UTF_8));
         return new String(bytes, StandardCharsets.UTF_8);
@@ -0,0 +1,19 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+/**
+ * When a multi-model fan-out returns.
+ */
+public enum FanOutMode {
+    /**
+     * After every model answered or failed.
+     */
+    ALL,
+    /**
+     * After the first successful answer; the other calls are cancelled.
+     */
+    FIRST,
+    /**
+     * At the deadline with the answers received so far; the other calls are cancelled.
+     */
+    DEADLINE
+}
@@ -0,0 +1,15 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+/**
+ * How an image is generated.
+ */
+public enum ImageBackend {
+    /**
+     * The Azure OpenAI image generations API.
+     */
+    IMAGES_API,
+    /**
+     * The DALL-E deployment's chat completions endpoint, which returns the image as an attachment.
+     */
+    CHAT_COMPLETIONS
+}
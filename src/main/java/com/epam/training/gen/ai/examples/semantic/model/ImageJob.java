@@ -0,0 +1,37 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * State of an image generation job.
+ *
+ * @param id            the job id
+ * @param status        the job status
+ * @param prompt        the submitted prompt
+ * @param imageUrl      the generated image once succeeded, served by {@code /image/files/{imageId}} when it is
+ *                      stored locally, or the expiring upstream URL when the download failed
+ * @param imageId       the SHA-256 of the image when it is stored locally
+ * @param revisedPrompt the prompt the model actually used, when it reported one
+ * @param error         the failure message, once failed
+ * @param cached        whether the result came from the cache instead of a generation
+ * @param createdAt     when the job was submitted
+ * @param completedAt   when the job reached a terminal status
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImageJob(String id, ImageJobStatus status, String prompt, String imageUrl, String imageId,
+                       String revisedPrompt, String error, boolean cached, Instant createdAt, Instant completedAt) {
+
+    /**
+     * Resolves the image URL against the base URL of this application when the image is served locally.
+     *
+     * @param baseUrl the scheme, host and context path of this application
+     * @return the absolute image URL
+     */
+    @JsonIgnore
+    public String absoluteImageUrl(String baseUrl) {
+        return imageUrl != null && imageUrl.startsWith("/") ? baseUrl + imageUrl : imageUrl;
+    }
+}
@@ -0,0 +1,35 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+/**
+ * A request to generate an image.
+ *
+ * @param prompt  the image description
+ * @param size    the image size such as {@code 1024x1024}, {@code null} for the default
+ * @param quality {@code standard} or {@code hd}, {@code null} for the default
+ * @param style   {@code vivid} or {@code natural}, {@code null} for the default
+ */
+public record ImageJobRequest(String prompt, String size, String quality, String style) {
+
+    public static final String DEFAULT_SIZE = "1024x1024";
+    public static final String DEFAULT_QUALITY = "standard";
+    public static final String DEFAULT_STYLE = "vivid";
+
+    public static ImageJobRequest of(String prompt) {
+        return new ImageJobRequest(prompt, null, null, null);
+    }
+
+    /**
+     * Returns the request with its defaults filled in and its options lower-cased, so that equivalent requests are
+     * equal.
+     *
+     * @return the normalized request
+     */
+    public ImageJobRequest withDefaults() {
+        return new ImageJobRequest(prompt, option(size, DEFAULT_SIZE), option(quality, DEFAULT_QUALITY),
+                option(style, DEFAULT_STYLE));
+    }
+
+    private static String option(String value, String defaultValue) {
+        return value == null || value.isBlank() ? defaultValue : value.strip().toLowerCase();
+    }
+}
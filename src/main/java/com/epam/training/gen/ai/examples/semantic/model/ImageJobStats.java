@@ -0,0 +1,18 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+/**
+ * Counters of the image job queue.
+ *
+ * @param submitted    jobs submitted
+ * @param generated    generations that succeeded
+ * @param failed       generations that failed
+ * @param cacheHits    submissions answered from the result cache
+ * @param deduplicated submissions joined to an identical queued or running job
+ * @param rejected     submissions rejected because the queue was full
+ * @param queued       jobs waiting for a worker
+ * @param running      jobs being generated
+ * @param cachedImages results currently cached
+ */
+public record ImageJobStats(long submitted, long generated, long failed, long cacheHits, long deduplicated,
+                            long rejected, int queued, int running, int cachedImages) {
+}
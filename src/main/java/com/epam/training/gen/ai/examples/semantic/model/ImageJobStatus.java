@@ -0,0 +1,27 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+/**
+ * Lifecycle of an image generation job.
+ */
+public enum ImageJobStatus {
+    /**
+     * Waiting for a free worker.
+     */
+    QUEUED,
+    /**
+     * Being generated.
+     */
+    RUNNING,
+    /**
+     * Generated, or answered from the result cache.
+     */
+    SUCCEEDED,
+    /**
+     * Generation failed; the job is not cached and may be submitted again.
+     */
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
@@ -0,0 +1,32 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+/**
+ * Progress of a bulk ingest, streamed to the client while documents are embedded and stored.
+ *
+ * @param documents          records stored so far, one per document or per chunk of a long document
+ * @param batches            batches stored so far
+ * @param skippedLines       input lines skipped because they were malformed or had no input text
+ * @param elapsedSeconds     seconds since the ingest started
+ * @param documentsPerSecond mean records per second since the ingest started
+ * @param done               {@code true} on the final snapshot
+ */
+public record IngestProgress(long documents, long batches, long skippedLines, double elapsedSeconds,
+                             double documentsPerSecond, boolean done) {
+
+    /**
+     * Creates a snapshot relative to the start of the ingest.
+     *
+     * @param documents    records stored so far
+     * @param batches      batches stored so far
+     * @param skippedLines input lines skipped so far
+     * @param startedNanos the {@link System#nanoTime()} at which the ingest started
+     * @param done         whether this is the final snapshot
+     * @return the snapshot
+     */
+    public static IngestProgress of(long documents, long batches, long skippedLines, long startedNanos,
+                                    boolean done) {
+        double elapsedSeconds = (System.nanoTime() - startedNanos) / 1_000_000_000.0;
+        return new IngestProgress(documents, batches, skippedLines, elapsedSeconds,
+                elapsedSeconds == 0 ? 0 : documents / elapsedSeconds, done);
+    }
+}
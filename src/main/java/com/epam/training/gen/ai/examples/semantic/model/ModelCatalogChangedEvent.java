@@ -0,0 +1,18 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+import com.epam.training.gen.ai.examples.semantic.configuration.SemanticKernelConfiguration;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Published by the model catalog whenever a refresh changes the list of deployed models.
+ *
+ * @param models  the deployed models after the change, in catalog order
+ * @param added   ids of models that were not deployed before
+ * @param removed ids of models that are no longer deployed
+ * @param updated ids of models whose metadata changed, such as their lifecycle status or features
+ */
+public record ModelCatalogChangedEvent(List<SemanticKernelConfiguration.Model> models, Set<String> added,
+                                       Set<String> removed, Set<String> updated) {
+}
@@ -0,0 +1,23 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * The answer of one model in a multi-model fan-out.
+ *
+ * @param model         the model id
+ * @param messages      the returned message contents, {@code null} when the call failed
+ * @param latencyMillis the call duration
+ * @param error         the failure message, {@code null} when the call succeeded
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ModelResponse(String model, List<String> messages, long latencyMillis, String error) {
+
+    @JsonIgnore
+    public boolean isSucceeded() {
+        return error == null;
+    }
+}
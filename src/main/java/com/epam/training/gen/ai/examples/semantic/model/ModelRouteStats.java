@@ -0,0 +1,15 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+/**
+ * Routing state of one deployment as seen by the model router.
+ *
+ * @param model                the model id
+ * @param ewmaLatencyMillis    the exponentially weighted mean latency, {@code 0} before the first sample
+ * @param ewmaErrorRate        the exponentially weighted error rate between {@code 0} and {@code 1}
+ * @param inFlight             calls currently running
+ * @param requests             calls completed or failed so far
+ * @param ejectedForMillis     remaining ejection time, {@code 0} when the model is routable
+ */
+public record ModelRouteStats(String model, double ewmaLatencyMillis, double ewmaErrorRate, int inFlight,
+                              long requests, long ejectedForMillis) {
+}
@@ -0,0 +1,64 @@
+package com.epam.training.gen.ai.examples.semantic.model;
+
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchFilter;
+
+import java.util.Map;
+
+/**
+ * Restricts a search to the records whose payload fields match. Every set field must match; a {@code null} field
+ * matches any record.
+ *
+ * @param tenant the tenant the records belong to
+ * @param source the source the records come from
+ * @param date   the ISO-8601 date of the records, {@code yyyy-MM-dd}
+ * @param tag    a tag the records carry
+ */
+public record RecordFilter(String tenant, String source, String date, String tag) {
+
+    /**
+     * Reads a filter from request fields named like the {@link DummyRecord} payload fields, with {@code tag} for
+     * one of the tags.
+     *
+     * @param fields the request fields
+     * @return the filter, empty when no field is set
+     */
+    public static RecordFilter of(Map<String, String> fields) {
+        return new RecordFilter(fields.get(DummyRecord.TENANT), fields.get(DummyRecord.SOURCE),
+                fields.get(DummyRecord.DATE), fields.get("tag"));
+    }
+
+    /**
+     * Tells whether the filter matches every record.
+     *
+     * @return {@code true} when no field is set
+     */
+    public boolean isEmpty() {
+        return tenant == null && source == null && date == null && tag == null;
+    }
+
+    /**
+     * Converts the filter for the vector store.
+     *
+     * @return the store filter, {@code null} when the filter is empty
+     * @throws IllegalArgumentException when the date is not an ISO-8601 date
+     */
+    public VectorSearchFilter toVectorSearchFilter() {
+        if (isEmpty()) {
+            return null;
+        }
+        var builder = VectorSearchFilter.builder();
+        if (tenant != null) {
+            builder.equalTo(DummyRecord.TENANT, tenant);
+        }
+        if (source != null) {
+            builder.equalTo(DummyRecord.SOURCE, source);
+        }
+        if (date != null) {
+            builder.equalTo(DummyRecord.DATE, DummyRecord.isoDate(date));
+        }
+        if (tag != null) {
+            builder.anyTagEqualTo(DummyRecord.TAGS, tag);
+        }
+        return builder.build();
+    }
+}
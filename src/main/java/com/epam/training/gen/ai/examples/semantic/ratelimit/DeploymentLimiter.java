@@ -0,0 +1,266 @@
+package com.epam.training.gen.ai.examples.semantic.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for the calls to one deployment.
+ * <p>
+ * A call needs a concurrency permit and its estimated tokens from a tokens-per-minute bucket. Permits are
+ * handed out in FIFO order; the concurrency limit grows additively while calls succeed near the limit and
+ * shrinks multiplicatively when the deployment throttles (AIMD). A {@code Retry-After} pauses the whole queue.
+ * Calls beyond the queue capacity, or that wait longer than the queue timeout, are rejected.
+ */
+@Slf4j
+public class DeploymentLimiter {
+
+    private final String deployment;
+    private final LimiterSettings settings;
+    private final Scheduler timer;
+
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+    private Disposable scheduledDrain;
+
+    private long granted;
+    private long rejected;
+    private long throttled;
+    private long retries;
+
+    /**
+     * Creates a limiter.
+     *
+     * @param deployment the deployment or model id
+     * @param settings   the limits
+     * @param timer      the scheduler that wakes the queue when tokens refill or a pause ends
+     */
+    public DeploymentLimiter(String deployment, LimiterSettings settings, Scheduler timer) {
+        this.deployment = deployment;
+        this.settings = settings;
+        this.timer = timer;
+        this.limit = settings.initialLimit();
+        this.tokens = settings.tokensPerMinute();
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Waits for a permit.
+     *
+     * @param estimatedTokens the tokens the call is expected to consume
+     * @return the permit, or a {@link DeploymentOverloadedException} when the call is shed
+     */
+    public Mono<Permit> acquire(long estimatedTokens) {
+        long cost = settings.tokensPerMinute() > 0 ? Math.min(estimatedTokens, settings.tokensPerMinute()) : 0;
+        return Mono.<Permit>create(sink -> {
+                    var waiter = new Waiter(cost, sink);
+                    synchronized (this) {
+                        if (queue.size() >= settings.maxQueue()) {
+                            rejected++;
+                            sink.error(new DeploymentOverloadedException(
+                                    "Too many calls queued for deployment " + deployment));
+                            return;
+                        }
+                        queue.add(waiter);
+                    }
+                    sink.onCancel(() -> cancel(waiter));
+                    drain();
+                })
+                .timeout(settings.queueTimeout(), Mono.defer(() -> {
+                    synchronized (this) {
+                        rejected++;
+                    }
+                    return Mono.error(new DeploymentOverloadedException(
+                            "Timed out waiting for deployment " + deployment));
+                }));
+    }
+
+    /**
+     * Pauses the queue after the deployment throttled a call.
+     *
+     * @param retryAfter how long the deployment asked to wait, or {@code null} when it did not say
+     */
+    public void onThrottled(Duration retryAfter) {
+        synchronized (this) {
+            throttled++;
+            if (retryAfter != null) {
+                pausedUntil = Math.max(pausedUntil, System.nanoTime() + retryAfter.toNanos());
+            }
+        }
+    }
+
+    /**
+     * Counts a scheduled retry.
+     */
+    public synchronized void onRetry() {
+        retries++;
+    }
+
+    /**
+     * Returns a snapshot of the limiter counters.
+     *
+     * @return the limiter statistics
+     */
+    public synchronized DeploymentLimiterStats stats() {
+        long now = System.nanoTime();
+        refill(now);
+        return new DeploymentLimiterStats(deployment, limit, inFlight, queue.size(),
+                settings.tokensPerMinute() > 0 ? (long) tokens : -1,
+                Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntil - now)),
+                granted, rejected, throttled, retries);
+    }
+
+    private void release(Outcome outcome) {
+        synchronized (this) {
+            inFlight--;
+            switch (outcome) {
+                case SUCCESS -> {
+                    // only grow while the limit is actually being used
+                    if (inFlight + 1 >= limit / 2) {
+                        limit = Math.min(settings.maxLimit(), limit + 1 / limit);
+                    }
+                }
+                case OVERLOAD -> {
+                    limit = Math.max(settings.minLimit(), limit * settings.backoffRatio());
+                    log.debug("Deployment {} overloaded, concurrency limit lowered to {}", deployment, limit);
+                }
+                case IGNORE -> {
+                }
+            }
+        }
+        drain();
+    }
+
+    private void cancel(Waiter waiter) {
+        boolean removed;
+        synchronized (this) {
+            removed = queue.remove(waiter);
+        }
+        if (!removed && waiter.permit != null) {
+            // granted concurrently with the cancellation, so nobody else will release it
+            waiter.permit.release(Outcome.IGNORE);
+        }
+    }
+
+    private void drain() {
+        List<Waiter> ready = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            while (!queue.isEmpty() && inFlight < Math.max(1, (int) limit)) {
+                Waiter head = queue.peek();
+                long waitNanos = Math.max(pausedUntil - now, nanosUntilTokens(head.tokens));
+                if (waitNanos > 0) {
+                    scheduleDrain(waitNanos);
+                    break;
+                }
+                queue.poll();
+                tokens -= head.tokens;
+                inFlight++;
+                granted++;
+                head.permit = new Permit();
+                ready.add(head);
+            }
+        }
+        ready.forEach(waiter -> waiter.sink.success(waiter.permit));
+    }
+
+    private void scheduleDrain(long delayNanos) {
+        if (scheduledDrain == null) {
+            scheduledDrain = timer.schedule(() -> {
+                synchronized (this) {
+                    scheduledDrain = null;
+                }
+                drain();
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void refill(long now) {
+        if (settings.tokensPerMinute() <= 0) {
+            return;
+        }
+        double perNano = settings.tokensPerMinute() / (double) TimeUnit.MINUTES.toNanos(1);
+        tokens = Math.min(settings.tokensPerMinute(), tokens + (now - lastRefill) * perNano);
+        lastRefill = now;
+    }
+
+    private long nanosUntilTokens(long needed) {
+        if (needed <= tokens) {
+            return 0;
+        }
+        double perNano = settings.tokensPerMinute() / (double) TimeUnit.MINUTES.toNanos(1);
+        return (long) Math.ceil((needed - tokens) / perNano);
+    }
+
+    /**
+     * How a call that held a permit ended.
+     */
+    public enum Outcome {
+        /** The call succeeded. */
+        SUCCESS,
+        /** The deployment throttled or timed out the call. */
+        OVERLOAD,
+        /** The call failed for another reason or was cancelled; the limit is left alone. */
+        IGNORE
+    }
+
+    /**
+     * A concurrency permit; releasing it more than once has no effect.
+     */
+    public final class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Returns the permit and adjusts the concurrency limit.
+         *
+         * @param outcome how the call ended
+         */
+        public void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                DeploymentLimiter.this.release(outcome);
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        private final long tokens;
+        private final MonoSink<Permit> sink;
+        private volatile Permit permit;
+
+        Waiter(long tokens, MonoSink<Permit> sink) {
+            this.tokens = tokens;
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * Limits shared by every deployment.
+     *
+     * @param initialLimit    the concurrency limit of a new deployment
+     * @param minLimit        the lowest concurrency limit
+     * @param maxLimit        the highest concurrency limit
+     * @param backoffRatio    the factor applied to the limit when the deployment throttles
+     * @param maxQueue        the number of calls that may wait for a permit
+     * @param queueTimeout    how long a call may wait for a permit
+     * @param tokensPerMinute the token budget per minute, {@code 0} for none
+     */
+    public record LimiterSettings(int initialLimit, int minLimit, int maxLimit, double backoffRatio, int maxQueue,
+                                  Duration queueTimeout, long tokensPerMinute) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.epam.training.gen.ai.examples.semantic.ratelimit;
+
+/**
+ * Counters of one deployment limiter.
+ *
+ * @param deployment      the deployment or model id
+ * @param limit           the current adaptive concurrency limit
+ * @param inFlight        calls currently holding a permit
+ * @param queueDepth      calls waiting for a permit
+ * @param availableTokens tokens left in the tokens-per-minute bucket, {@code -1} when unlimited
+ * @param pausedForMillis remaining pause requested by a {@code Retry-After}, {@code 0} when not paused
+ * @param granted         permits granted so far
+ * @param rejected        calls shed because the queue was full or timed out
+ * @param throttled       calls answered with {@code 429}
+ * @param retries         retries scheduled
+ */
+public record DeploymentLimiterStats(String deployment, double limit, int inFlight, int queueDepth,
+                                     long availableTokens, long pausedForMillis, long granted, long rejected,
+                                     long throttled, long retries) {
+}
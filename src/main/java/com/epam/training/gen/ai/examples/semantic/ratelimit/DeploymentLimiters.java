@@ -0,0 +1,328 @@
+package com.epam.training.gen.ai.examples.semantic.ratelimit;
+
+import com.azure.core.exception.HttpResponseException;
+import com.epam.training.gen.ai.examples.semantic.service.ModelCatalog;
+import com.epam.training.gen.ai.examples.semantic.tokenizer.TokenCounter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Runs every upstream call through the {@link DeploymentLimiter} of its deployment and retries it when the
+ * deployment throttles or fails transiently.
+ * <p>
+ * A retry waits for the {@code Retry-After} of the response when present, otherwise for a full-jitter exponential
+ * backoff, and then queues for a new permit. The number of retries is the {@code max_retry_attempts} of the model
+ * in the {@link ModelCatalog}, or {@code limiter-max-retries} for deployments the catalog does not list. The Azure
+ * client's own retry policy is disabled so that calls are not retried twice.
+ */
+@Slf4j
+@Service
+public class DeploymentLimiters {
+
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(408, 429, 500, 502, 503, 504);
+
+    @Autowired
+    private ModelCatalog modelCatalog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TokenCounter tokenCounter;
+
+    @Value("${limiter-initial-concurrency:8}")
+    private int initialLimit;
+
+    @Value("${limiter-min-concurrency:1}")
+    private int minLimit;
+
+    @Value("${limiter-max-concurrency:64}")
+    private int maxLimit;
+
+    @Value("${limiter-backoff-ratio:0.7}")
+    private double backoffRatio;
+
+    @Value("${limiter-max-queue:256}")
+    private int maxQueue;
+
+    @Value("${limiter-queue-timeout-seconds:30}")
+    private long queueTimeoutSeconds;
+
+    @Value("${limiter-tokens-per-minute:0}")
+    private long tokensPerMinute;
+
+    @Value("${limiter-completion-token-reserve:256}")
+    private long completionTokenReserve;
+
+    @Value("${limiter-max-retries:3}")
+    private int defaultMaxRetries;
+
+    @Value("${limiter-backoff-base-millis:500}")
+    private long backoffBaseMillis;
+
+    @Value("${limiter-backoff-max-millis:30000}")
+    private long backoffMaxMillis;
+
+    private final Map<String, DeploymentLimiter> limiters = new ConcurrentHashMap<>();
+    private final Scheduler timer = Schedulers.newSingle("deployment-limiter", true);
+    private DeploymentLimiter.LimiterSettings settings;
+
+    @PostConstruct
+    void init() {
+        settings = new DeploymentLimiter.LimiterSettings(initialLimit, minLimit, maxLimit, backoffRatio, maxQueue,
+                Duration.ofSeconds(queueTimeoutSeconds), tokensPerMinute);
+    }
+
+    @PreDestroy
+    void close() {
+        timer.dispose();
+    }
+
+    /**
+     * Estimates the tokens of a text at four characters per token, for when no encoding is loaded; see
+     * {@link TokenCounter}.
+     *
+     * @param text the text
+     * @return the estimated token count
+     */
+    public static long estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    /**
+     * Estimates the tokens of a chat completion: the counted prompt tokens plus the tokens reserved for the answer.
+     *
+     * @param prompt the text of the conversation sent
+     * @return the estimated token count
+     */
+    public long estimateChatTokens(String prompt) {
+        return tokenCounter.count(prompt) + completionTokenReserve;
+    }
+
+    /**
+     * Runs a call once a permit is granted, retrying it on throttling and transient failures.
+     *
+     * @param deployment      the deployment called
+     * @param estimatedTokens the tokens the call is expected to consume
+     * @param call            creates the call; invoked once per attempt
+     * @return the result of the call
+     */
+    public <T> Mono<T> execute(String deployment, long estimatedTokens, Supplier<Mono<T>> call) {
+        DeploymentLimiter limiter = limiter(deployment);
+        return Mono.usingWhen(limiter.acquire(estimatedTokens),
+                        permit -> call.get(),
+                        permit -> Mono.fromRunnable(() -> permit.release(DeploymentLimiter.Outcome.SUCCESS)),
+                        (permit, error) -> Mono.fromRunnable(() -> permit.release(onFailure(limiter, error))),
+                        permit -> Mono.fromRunnable(() -> permit.release(DeploymentLimiter.Outcome.IGNORE)))
+                .retryWhen(retry(deployment, limiter, () -> true));
+    }
+
+    /**
+     * Runs a streamed call once a permit is granted. The permit is held until the stream ends; the call is only
+     * retried when it fails before emitting anything.
+     *
+     * @param deployment      the deployment called
+     * @param estimatedTokens the tokens the call is expected to consume
+     * @param call            creates the call; invoked once per attempt
+     * @return the elements of the call
+     */
+    public <T> Flux<T> executeMany(String deployment, long estimatedTokens, Supplier<Flux<T>> call) {
+        DeploymentLimiter limiter = limiter(deployment);
+        return Flux.defer(() -> {
+            var emitted = new AtomicBoolean();
+            return Flux.usingWhen(limiter.acquire(estimatedTokens),
+                            permit -> call.get().doOnNext(element -> emitted.set(true)),
+                            permit -> Mono.fromRunnable(() -> permit.release(DeploymentLimiter.Outcome.SUCCESS)),
+                            (permit, error) -> Mono.fromRunnable(() -> permit.release(onFailure(limiter, error))),
+                            permit -> Mono.fromRunnable(() -> permit.release(DeploymentLimiter.Outcome.IGNORE)))
+                    .retryWhen(retry(deployment, limiter, () -> !emitted.get()));
+        });
+    }
+
+    /**
+     * Returns the counters of every deployment called so far.
+     *
+     * @return the per-deployment statistics
+     */
+    public List<DeploymentLimiterStats> stats() {
+        return limiters.values().stream()
+                .map(DeploymentLimiter::stats)
+                .sorted(Comparator.comparing(DeploymentLimiterStats::deployment))
+                .toList();
+    }
+
+    private DeploymentLimiter limiter(String deployment) {
+        return limiters.computeIfAbsent(deployment, id -> {
+            var limiter = new DeploymentLimiter(id, settings, timer);
+            registerMeters(id, limiter);
+            return limiter;
+        });
+    }
+
+    private void registerMeters(String deployment, DeploymentLimiter limiter) {
+        gauge("llm.limiter.limit", deployment, limiter, stats -> stats.limit());
+        gauge("llm.limiter.in.flight", deployment, limiter, stats -> stats.inFlight());
+        gauge("llm.limiter.queue.depth", deployment, limiter, stats -> stats.queueDepth());
+        counter("llm.limiter.granted", deployment, limiter, stats -> stats.granted());
+        counter("llm.limiter.rejected", deployment, limiter, stats -> stats.rejected());
+        counter("llm.limiter.throttled", deployment, limiter, stats -> stats.throttled());
+        counter("llm.limiter.retries", deployment, limiter, stats -> stats.retries());
+    }
+
+    private void gauge(String name, String deployment, DeploymentLimiter limiter,
+                       ToDoubleFunction<DeploymentLimiterStats> value) {
+        Gauge.builder(name, limiter, it -> value.applyAsDouble(it.stats()))
+                .tag("deployment", deployment)
+                .register(meterRegistry);
+    }
+
+    private void counter(String name, String deployment, DeploymentLimiter limiter,
+                         ToDoubleFunction<DeploymentLimiterStats> value) {
+        FunctionCounter.builder(name, limiter, it -> value.applyAsDouble(it.stats()))
+                .tag("deployment", deployment)
+                .register(meterRegistry);
+    }
+
+    private DeploymentLimiter.Outcome onFailure(DeploymentLimiter limiter, Throwable error) {
+        int status = statusOf(error);
+        if (status == 429) {
+            limiter.onThrottled(retryAfter(error));
+            return DeploymentLimiter.Outcome.OVERLOAD;
+        }
+        if (status == 408 || status == 503 || hasCause(error, TimeoutException.class)) {
+            return DeploymentLimiter.Outcome.OVERLOAD;
+        }
+        return DeploymentLimiter.Outcome.IGNORE;
+    }
+
+    private Retry retry(String deployment, DeploymentLimiter limiter, Supplier<Boolean> retryable) {
+        int maxRetries = maxRetries(deployment);
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable error = signal.failure();
+            long attempt = signal.totalRetries();
+            if (attempt >= maxRetries || !retryable.get() || !isRetryable(error)) {
+                return Mono.error(error);
+            }
+            Duration retryAfter = retryAfter(error);
+            Duration delay = retryAfter != null ? retryAfter : backoff(attempt);
+            limiter.onRetry();
+            log.debug("Retrying call to {} in {} ms after attempt {} failed: {}", deployment, delay.toMillis(),
+                    attempt + 1, error.toString());
+            return Mono.delay(delay, timer);
+        }));
+    }
+
+    private int maxRetries(String deployment) {
+        return modelCatalog.models().stream()
+                .filter(model -> deployment.equals(model.getId()) && model.getMax_retry_attempts() > 0)
+                .mapToInt(model -> model.getMax_retry_attempts())
+                .findFirst()
+                .orElse(defaultMaxRetries);
+    }
+
+    private Duration backoff(long attempt) {
+        long cap = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (hasCause(error, DeploymentOverloadedException.class)) {
+            return false;
+        }
+        return RETRYABLE_STATUSES.contains(statusOf(error))
+                || hasCause(error, TimeoutException.class)
+                || hasCause(error, IOException.class);
+    }
+
+    private static int statusOf(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpResponseException response && response.getResponse() != null) {
+                return response.getResponse().getStatusCode();
+            }
+            if (cause instanceof UpstreamStatusException upstream) {
+                return upstream.getStatusCode();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads {@code retry-after-ms}, {@code x-ms-retry-after-ms} or {@code Retry-After} in seconds or as an HTTP date.
+     */
+    private static Duration retryAfter(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpResponseException response && response.getResponse() != null) {
+                var headers = response.getResponse().getHeaders();
+                for (String millisHeader : List.of("retry-after-ms", "x-ms-retry-after-ms")) {
+                    String millis = headers.getValue(millisHeader);
+                    if (millis != null) {
+                        try {
+                            return Duration.ofMillis(Long.parseLong(millis.trim()));
+                        } catch (NumberFormatException e) {
+                            log.debug("Ignoring malformed {} header {}", millisHeader, millis);
+                        }
+                    }
+                }
+                return parseRetryAfter(headers.getValue("Retry-After"));
+            }
+            if (cause instanceof UpstreamStatusException upstream) {
+                return parseRetryAfter(upstream.getRetryAfter());
+            }
+        }
+        return null;
+    }
+
+    private static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                Duration delay = Duration.between(ZonedDateTime.now(),
+                        ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static boolean hasCause(Throwable error, Class<? extends Throwable> type) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,15 @@
+package com.epam.training.gen.ai.examples.semantic.ratelimit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a call is shed because the queue of its deployment is full or it waited in the queue too long.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DeploymentOverloadedException extends RuntimeException {
+
+    public DeploymentOverloadedException(String message) {
+        super(message);
+    }
+}
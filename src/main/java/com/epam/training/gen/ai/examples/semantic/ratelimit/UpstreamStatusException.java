@@ -0,0 +1,27 @@
+package com.epam.training.gen.ai.examples.semantic.ratelimit;
+
+import lombok.Getter;
+
+/**
+ * Thrown by calls made with a plain HTTP client when the upstream answers with an error status, so that the
+ * limiter can classify them like the errors of the Azure client.
+ */
+@Getter
+public class UpstreamStatusException extends RuntimeException {
+
+    private final int statusCode;
+    private final String retryAfter;
+
+    /**
+     * Creates an exception.
+     *
+     * @param statusCode the HTTP status of the response
+     * @param retryAfter the {@code Retry-After} header of the response, or {@code null}
+     * @param message    the detail message
+     */
+    public UpstreamStatusException(int statusCode, String retryAfter, String message) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+}
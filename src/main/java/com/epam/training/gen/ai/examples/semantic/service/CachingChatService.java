@@ -0,0 +1,120 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.epam.training.gen.ai.examples.semantic.cache.SemanticChatCache;
+import com.epam.training.gen.ai.examples.semantic.cache.SemanticChatCacheStats;
+import com.epam.training.gen.ai.examples.semantic.metrics.CallObservations;
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentLimiters;
+import com.microsoft.semantickernel.Kernel;
+import com.microsoft.semantickernel.orchestration.InvocationContext;
+import com.microsoft.semantickernel.orchestration.PromptExecutionSettings;
+import com.microsoft.semantickernel.services.chatcompletion.ChatCompletionService;
+import com.microsoft.semantickernel.services.chatcompletion.ChatHistory;
+import com.microsoft.semantickernel.services.chatcompletion.ChatMessageContent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Runs chat completions on the default model, answering near-duplicate conversations from the
+ * {@link SemanticChatCache} when {@code chat-semantic-cache-enabled} is set.
+ * <p>
+ * The whole conversation is embedded, so a follow-up turn only matches conversations with the same history.
+ */
+@Service
+public class CachingChatService {
+
+    @Autowired
+    private ChatCompletionService chatCompletionService;
+
+    @Autowired
+    private Kernel kernel;
+
+    @Autowired
+    private EmbeddingService embeddingService;
+
+    @Autowired
+    private SemanticChatCache semanticChatCache;
+
+    @Autowired
+    private DeploymentLimiters deploymentLimiters;
+
+    @Autowired
+    private CallObservations callObservations;
+
+    @Value("${client-azureopenai-deployment-name}")
+    private String deploymentName;
+
+    @Value("${chat-semantic-cache-enabled:false}")
+    private boolean cacheEnabled;
+
+    /**
+     * Completes a conversation and appends the answer to it.
+     *
+     * @param history     the conversation, extended with the assistant messages
+     * @param temperature the sampling temperature
+     * @return the message contents of the answer
+     */
+    public Mono<List<String>> complete(ChatHistory history, double temperature) {
+        Mono<List<String>> answer;
+        if (!cacheEnabled) {
+            answer = callModel(history, temperature);
+        } else {
+            String partition = SemanticChatCache.partition(deploymentName, temperature);
+            answer = embeddingService.embed(conversationText(history))
+                    .flatMap(embedding -> semanticChatCache.lookup(partition, embedding)
+                            .switchIfEmpty(Mono.defer(() -> callModel(history, temperature)
+                                    .flatMap(messages -> semanticChatCache.put(partition, embedding, messages)
+                                            .thenReturn(messages)))));
+        }
+        return answer.doOnNext(messages -> messages.stream()
+                .filter(Objects::nonNull)
+                .forEach(history::addAssistantMessage));
+    }
+
+    /**
+     * Completes a conversation on the default model without consulting or filling the semantic cache, for
+     * prompts whose answer must not be shared with other conversations. The conversation is left unchanged.
+     *
+     * @param history     the conversation
+     * @param temperature the sampling temperature
+     * @return the message contents of the answer
+     */
+    public Mono<List<String>> completeUncached(ChatHistory history, double temperature) {
+        return callModel(history, temperature);
+    }
+
+    /**
+     * Returns the semantic cache counters.
+     *
+     * @return the cache statistics
+     */
+    public SemanticChatCacheStats cacheStats() {
+        return semanticChatCache.stats();
+    }
+
+    private Mono<List<String>> callModel(ChatHistory history, double temperature) {
+        return callObservations.observeModelCall("chat", deploymentName, deploymentLimiters.execute(deploymentName,
+                        deploymentLimiters.estimateChatTokens(conversationText(history)),
+                        () -> chatCompletionService.getChatMessageContentsAsync(
+                                history,
+                                kernel,
+                                InvocationContext.builder()
+                                        .withPromptExecutionSettings(PromptExecutionSettings.builder()
+                                                .withTemperature(temperature)
+                                                .build())
+                                        .build())))
+                .doOnNext(messages -> callObservations.recordChatUsage(deploymentName, messages))
+                .map(messages -> messages.stream().map(ChatMessageContent::getContent).toList());
+    }
+
+    private static String conversationText(ChatHistory history) {
+        return history.getMessages().stream()
+                .map(message -> message.getAuthorRole() + ": " + message.getContent())
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.azure.ai.openai.OpenAIAsyncClient;
+import com.epam.training.gen.ai.examples.semantic.configuration.SemanticKernelConfiguration;
+import com.epam.training.gen.ai.examples.semantic.model.ModelCatalogChangedEvent;
+import com.microsoft.semantickernel.Kernel;
+import com.microsoft.semantickernel.aiservices.openai.chatcompletion.OpenAIChatCompletion;
+import com.microsoft.semantickernel.services.chatcompletion.ChatCompletionService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds one {@link ChatCompletionService} and one {@link Kernel} per deployed model and reuses them.
+ * <p>
+ * Entries for every model in the {@link ModelCatalog} are created at startup and whenever the catalog adds a
+ * model; entries of models the catalog removes are dropped. Other model ids are built on first use and kept from
+ * then on. The services share the application's {@link OpenAIAsyncClient} and its connection pool.
+ */
+@Slf4j
+@Service
+public class ChatModelRegistry {
+
+    @Autowired
+    private OpenAIAsyncClient openAIAsyncClient;
+
+    @Autowired
+    private Kernel kernel;
+
+    @Autowired
+    private ModelCatalog modelCatalog;
+
+    private final Map<String, ChatModel> models = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        modelCatalog.models().forEach(model -> get(model.getId()));
+        log.info("Registered {} chat models", models.size());
+    }
+
+    @EventListener
+    void onCatalogChanged(ModelCatalogChangedEvent event) {
+        event.removed().forEach(models::remove);
+        event.added().forEach(this::get);
+    }
+
+    /**
+     * Returns the cached service and kernel of a model, building them on first use.
+     *
+     * @param modelId the deployment or model id
+     * @return the cached entry
+     */
+    public ChatModel get(String modelId) {
+        return models.computeIfAbsent(modelId, this::build);
+    }
+
+    /**
+     * Returns the ids of the deployed models, in catalog order.
+     *
+     * @return the model ids
+     */
+    public List<String> modelIds() {
+        return modelCatalog.models().stream().map(SemanticKernelConfiguration.Model::getId).toList();
+    }
+
+    private ChatModel build(String modelId) {
+        ChatCompletionService service = OpenAIChatCompletion.builder()
+                .withModelId(modelId)
+                .withOpenAIAsyncClient(openAIAsyncClient)
+                .build();
+        return new ChatModel(modelId, service,
+                kernel.toBuilder().withAIService(ChatCompletionService.class, service).build());
+    }
+
+    /**
+     * A reusable chat completion service and the kernel that exposes it.
+     *
+     * @param id      the deployment or model id
+     * @param service the chat completion service
+     * @param kernel  a kernel whose chat completion service is {@code service}
+     */
+    public record ChatModel(String id, ChatCompletionService service, Kernel kernel) {
+    }
+}
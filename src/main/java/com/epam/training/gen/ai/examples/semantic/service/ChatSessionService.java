@@ -0,0 +1,208 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.epam.training.gen.ai.examples.semantic.model.ChatSessionReply;
+import com.epam.training.gen.ai.examples.semantic.model.FanOutMode;
+import com.epam.training.gen.ai.examples.semantic.model.ModelResponse;
+import com.epam.training.gen.ai.examples.semantic.session.ChatSession;
+import com.epam.training.gen.ai.examples.semantic.session.ChatSessionBusyException;
+import com.epam.training.gen.ai.examples.semantic.session.ChatSessionNotFoundException;
+import com.epam.training.gen.ai.examples.semantic.session.ChatSessionStore;
+import com.epam.training.gen.ai.examples.semantic.session.ChatTurn;
+import com.epam.training.gen.ai.examples.semantic.session.CompactionMode;
+import com.epam.training.gen.ai.examples.semantic.tokenizer.TokenCounter;
+import com.microsoft.semantickernel.services.chatcompletion.ChatHistory;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Answers messages within a {@link ChatSession}, so each turn sees the conversation so far.
+ * <p>
+ * Before a turn, a conversation whose prompt would exceed {@code chat-session-max-prompt-tokens} is shortened:
+ * in {@link CompactionMode#TRIM} mode the oldest turns are dropped until it fits; in
+ * {@link CompactionMode#SUMMARIZE} mode the oldest turns are dropped down to half the budget and folded, with the
+ * previous summary, into a new summary of at most {@code chat-session-summary-max-tokens}. Summarizing costs one
+ * extra call every few turns rather than a longer prompt on every turn, so prompt tokens stay flat as the
+ * conversation grows. Summaries are always asked of the model itself, never answered by the semantic chat cache,
+ * so a session cannot pick up another session's summary.
+ */
+@Slf4j
+@Service
+public class ChatSessionService {
+
+    private static final String SUMMARY_INSTRUCTIONS = "Summarize the conversation below for the assistant that "
+            + "continues it. Keep the facts, names, decisions and open questions; leave out greetings. Answer in "
+            + "at most %d words.";
+
+    @Autowired
+    private ChatSessionStore chatSessionStore;
+
+    @Autowired
+    private CachingChatService cachingChatService;
+
+    @Autowired
+    private MultiModelChatService multiModelChatService;
+
+    @Autowired
+    private TokenCounter tokenCounter;
+
+    @Value("${chat-session-max-prompt-tokens:4000}")
+    private long maxPromptTokens;
+
+    @Value("${chat-session-compaction:trim}")
+    private String compaction;
+
+    private CompactionMode compactionMode;
+
+    @Value("${chat-session-summary-max-tokens:256}")
+    private int summaryMaxTokens;
+
+    @PostConstruct
+    void init() {
+        try {
+            compactionMode = CompactionMode.valueOf(compaction.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown chat-session-compaction " + compaction
+                    + ", expected trim or summarize", e);
+        }
+    }
+
+    /**
+     * Answers a message with the default model and records the turn in the session.
+     *
+     * @param sessionId   the session id
+     * @param input       the user message
+     * @param temperature the sampling temperature
+     * @return the answer, or a {@link ChatSessionNotFoundException} or {@link ChatSessionBusyException}
+     */
+    public Mono<ChatSessionReply> reply(String sessionId, String input, double temperature) {
+        return turn(sessionId, input, (session, compacted) -> {
+            long promptTokens = session.promptTokens(input, tokenCounter);
+            return cachingChatService.complete(session.toHistory(input), temperature)
+                    .map(messages -> {
+                        String answer = messages.stream().filter(Objects::nonNull).collect(Collectors.joining("\n"));
+                        session.append(input, answer);
+                        return new ChatSessionReply(sessionId, input, answer, promptTokens, session.turnCount(),
+                                compacted);
+                    });
+        });
+    }
+
+    /**
+     * Sends a message with the session's conversation to several models and records the turn with the first
+     * successful answer. The turn is not recorded when every model failed.
+     *
+     * @param sessionId the session id
+     * @param input     the user message
+     * @param modelIds  the models to query
+     * @param mode      when to return
+     * @param deadline  how long to wait in {@link FanOutMode#DEADLINE} mode
+     * @return the responses in completion order
+     */
+    public Mono<List<ModelResponse>> fanOut(String sessionId, String input, List<String> modelIds, FanOutMode mode,
+                                            Duration deadline) {
+        return turn(sessionId, input, (session, compacted) ->
+                multiModelChatService.fanOut(() -> session.toHistory(input), session.promptText(input), modelIds,
+                                mode, deadline)
+                        .doOnNext(responses -> responses.stream()
+                                .filter(ModelResponse::isSucceeded)
+                                .findFirst()
+                                .ifPresent(response -> session.append(input, String.join("\n",
+                                        response.messages().stream().filter(Objects::nonNull).toList())))));
+    }
+
+    /**
+     * Runs one turn: claims the session, compacts it, calls the model and saves the session. The session is
+     * released before the answer is emitted, so the client may send its next message as soon as it has the answer,
+     * and on failure or cancellation.
+     */
+    private <T> Mono<T> turn(String sessionId, String input, BiFunction<ChatSession, Boolean, Mono<T>> call) {
+        return chatSessionStore.find(sessionId)
+                .switchIfEmpty(Mono.error(() -> new ChatSessionNotFoundException(sessionId)))
+                .flatMap(session -> {
+                    if (!session.tryStart()) {
+                        return Mono.error(new ChatSessionBusyException(sessionId));
+                    }
+                    var finished = new AtomicBoolean();
+                    Runnable finish = () -> {
+                        if (finished.compareAndSet(false, true)) {
+                            session.finish();
+                        }
+                    };
+                    return compact(session, input)
+                            .flatMap(compacted -> call.apply(session, compacted))
+                            .flatMap(result -> chatSessionStore.save(session).thenReturn(result))
+                            .doOnNext(result -> finish.run())
+                            .doFinally(signal -> finish.run());
+                });
+    }
+
+    /**
+     * Shortens the conversation when the next prompt would exceed the token budget.
+     *
+     * @return whether the conversation was shortened
+     */
+    private Mono<Boolean> compact(ChatSession session, String input) {
+        long excess = session.promptTokens(input, tokenCounter) - maxPromptTokens;
+        if (excess <= 0) {
+            return Mono.just(false);
+        }
+        if (compactionMode == CompactionMode.TRIM) {
+            return Mono.just(trim(session, excess));
+        }
+        List<ChatTurn> dropped = session.oldestTurns(excess + maxPromptTokens / 2, tokenCounter);
+        if (dropped.isEmpty()) {
+            return Mono.just(false);
+        }
+        return summarize(session.getSummary(), dropped)
+                .map(summary -> {
+                    session.compact(dropped.size(), summary);
+                    chatSessionStore.recordCompaction();
+                    return true;
+                })
+                .onErrorResume(e -> {
+                    log.warn("Failed to summarize chat session {}, dropping its oldest turns", session.getId(), e);
+                    return Mono.just(trim(session, excess));
+                });
+    }
+
+    private boolean trim(ChatSession session, long excess) {
+        List<ChatTurn> dropped = session.oldestTurns(excess, tokenCounter);
+        if (dropped.isEmpty()) {
+            return false;
+        }
+        session.compact(dropped.size(), session.getSummary());
+        chatSessionStore.recordCompaction();
+        return true;
+    }
+
+    private Mono<String> summarize(String previousSummary, List<ChatTurn> dropped) {
+        var conversation = new StringBuilder();
+        if (previousSummary != null) {
+            conversation.append("Earlier summary: ").append(previousSummary).append('\n');
+        }
+        for (ChatTurn turn : dropped) {
+            conversation.append(turn.role()).append(": ").append(turn.content()).append('\n');
+        }
+        var history = new ChatHistory();
+        history.addSystemMessage(SUMMARY_INSTRUCTIONS.formatted(summaryMaxTokens * 3 / 4));
+        history.addUserMessage(conversation.toString());
+        int maxChars = summaryMaxTokens * 4;
+        return cachingChatService.completeUncached(history, 0.0)
+                .map(messages -> messages.stream().filter(Objects::nonNull).collect(Collectors.joining("\n")).strip())
+                .filter(summary -> !summary.isEmpty())
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("The model returned an empty summary")))
+                .map(summary -> summary.length() <= maxChars ? summary : summary.substring(0, maxChars));
+    }
+}
@@ -0,0 +1,104 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.azure.ai.openai.OpenAIAsyncClient;
+import com.azure.ai.openai.models.ChatChoice;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.ChatResponseMessage;
+import com.epam.training.gen.ai.examples.semantic.metrics.CallObservations;
+import com.epam.training.gen.ai.examples.semantic.model.ChatStreamEvent;
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentLimiters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relays chat completions token by token from the Azure OpenAI streaming API.
+ * <p>
+ * Each stream ends with a {@link ChatStreamEvent#isDone() closing event} carrying the full text together with
+ * the time to first token and the total latency, which are also logged. Cancelling the returned {@link Flux},
+ * as happens when the HTTP client disconnects, cancels the upstream request. Streams hold a permit of their
+ * deployment's limiter until they end.
+ */
+@Slf4j
+@Service
+public class ChatStreamingService {
+
+    @Autowired
+    private OpenAIAsyncClient openAIAsyncClient;
+
+    @Autowired
+    private DeploymentLimiters deploymentLimiters;
+
+    @Autowired
+    private CallObservations callObservations;
+
+    /**
+     * Streams one chat completion.
+     *
+     * @param deploymentName the deployment or model to call
+     * @param messages       the conversation so far
+     * @param temperature    the sampling temperature
+     * @param source         the label put on every event of this completion
+     * @return the token events followed by one closing event
+     */
+    public Flux<ChatStreamEvent> stream(String deploymentName, List<ChatRequestMessage> messages,
+                                        double temperature, String source) {
+        return Flux.defer(() -> {
+            long started = System.nanoTime();
+            var firstToken = new AtomicLong();
+            var content = new StringBuilder();
+            var options = new ChatCompletionsOptions(List.copyOf(messages)).setTemperature(temperature);
+
+            return callObservations.observeModelStream("chat-stream", deploymentName,
+                            deploymentLimiters.executeMany(deploymentName,
+                                    deploymentLimiters.estimateChatTokens(promptText(options.getMessages())),
+                                    () -> openAIAsyncClient.getChatCompletionsStream(deploymentName, options)))
+                    .doOnNext(chunk -> callObservations.recordCompletionsUsage(deploymentName, chunk.getUsage()))
+                    .concatMapIterable(chunk -> chunk.getChoices().stream()
+                            .map(ChatChoice::getDelta)
+                            .filter(Objects::nonNull)
+                            .map(ChatResponseMessage::getContent)
+                            .filter(token -> token != null && !token.isEmpty())
+                            .toList())
+                    .doOnNext(token -> {
+                        firstToken.compareAndSet(0, System.nanoTime());
+                        content.append(token);
+                    })
+                    .map(token -> ChatStreamEvent.token(source, token))
+                    .concatWith(Mono.fromSupplier(() -> {
+                        long timeToFirstToken = elapsedMillis(started, firstToken.get());
+                        long total = elapsedMillis(started, System.nanoTime());
+                        log.info("Streamed {} from {}: first token after {} ms, {} chars in {} ms",
+                                source, deploymentName, timeToFirstToken, content.length(), total);
+                        return ChatStreamEvent.done(source, content.toString(), timeToFirstToken, total);
+                    }))
+                    .doOnCancel(() -> log.info("Stream {} from {} cancelled by the client after {} ms",
+                            source, deploymentName, elapsedMillis(started, System.nanoTime())));
+        });
+    }
+
+    private static String promptText(List<ChatRequestMessage> messages) {
+        var text = new StringBuilder();
+        for (ChatRequestMessage message : messages) {
+            try {
+                text.append(message.toJsonString());
+            } catch (IOException e) {
+                log.debug("Cannot estimate the tokens of {}", message, e);
+            }
+        }
+        return text.toString();
+    }
+
+    private static long elapsedMillis(long started, long ended) {
+        return ended == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(ended - started);
+    }
+}
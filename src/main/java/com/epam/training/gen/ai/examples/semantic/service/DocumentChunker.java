@@ -0,0 +1,300 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.tokenizer.TokenCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Splits documents into overlapping chunks of at most {@code chunk-max-tokens} tokens, so that long inputs stay
+ * within the embedding model's limit and each vector describes one passage rather than a whole document.
+ * <p>
+ * Tokens are counted by the {@link TokenCounter}, with the encoding of the embedding model when it is loaded and
+ * four characters each otherwise. A chunk ends at the last paragraph break before its token limit, else at the
+ * last sentence end, else at the last whitespace, and the next chunk starts about {@code chunk-overlap-tokens}
+ * before that, at a word boundary. Documents are read through a window of one chunk, so a document of any size is
+ * split with constant memory.
+ * <p>
+ * Chunks are stored with the ids {@code <document id>#<chunk index>} and the document id in their
+ * {@link DummyRecord#DOCUMENT} field, which {@link #documentId} maps them back by; a short text saved on its own,
+ * which fits in one chunk, keeps its id and has no document. Ids are never parsed, so a plain id such as
+ * {@code "see issue #42"} is not taken for a chunk. A long text saved without an
+ * id gets the bounded one of {@link #documentIdOf}, so its chunk ids do not repeat the whole text.
+ */
+@Component
+public class DocumentChunker {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int MAX_CHARS_PER_TOKEN = 8;
+
+    @Autowired
+    private TokenCounter tokenCounter;
+
+    @Value("${chunk-max-tokens:512}")
+    private int maxTokens;
+
+    @Value("${chunk-overlap-tokens:64}")
+    private int overlapTokens;
+
+    /**
+     * Splits a document held in memory.
+     *
+     * @param text the document text
+     * @return the chunks in document order, a single one when the document fits
+     */
+    public List<String> split(String text) {
+        var window = window(new StringReader(text));
+        var chunks = new ArrayList<String>();
+        try {
+            for (String chunk = window.next(); chunk != null; chunk = window.next()) {
+                chunks.add(chunk);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunks;
+    }
+
+    /**
+     * Splits a document as it is read. The reader is read on the subscribing thread and closed at the end.
+     *
+     * @param reader the document text
+     * @return the chunks in document order
+     */
+    public Flux<String> split(Reader reader) {
+        return Flux.<String, Window>generate(() -> window(reader), (window, sink) -> {
+            try {
+                String chunk = window.next();
+                if (chunk == null) {
+                    sink.complete();
+                } else {
+                    sink.next(chunk);
+                }
+            } catch (IOException e) {
+                sink.error(new UncheckedIOException("Failed to read document", e));
+            }
+            return window;
+        }, Window::close);
+    }
+
+    /**
+     * Opens a window large enough for one chunk: counted tokens can be longer than the four characters of an
+     * estimated one, so a counting window holds more characters than it may emit.
+     */
+    private Window window(Reader reader) {
+        int tokens = Math.max(1, maxTokens);
+        int maxChars = tokens * (tokenCounter.isExact() ? MAX_CHARS_PER_TOKEN : CHARS_PER_TOKEN);
+        return new Window(reader, tokenCounter, tokens, Math.max(0, overlapTokens), maxChars);
+    }
+
+    /**
+     * Derives the id of a document saved without one from its text.
+     *
+     * @param text the document text
+     * @return the URL-safe Base64 of the first 128 bits of the SHA-256 of the text, 22 characters
+     */
+    public static String documentIdOf(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Builds the id of a chunk of a multi-chunk document.
+     *
+     * @param documentId the document id
+     * @param index      the chunk index, from {@code 0}
+     * @return the chunk record id
+     */
+    public static String chunkId(String documentId, int index) {
+        return documentId + "#" + index;
+    }
+
+    /**
+     * Maps a stored record back to the id of its document.
+     *
+     * @param record a stored record
+     * @return the document id, the record id itself for single-chunk documents
+     */
+    public static String documentId(DummyRecord record) {
+        return record.getDocument() != null ? record.getDocument() : record.getId();
+    }
+
+    /**
+     * Returns the index of a chunk within its document.
+     *
+     * @param record a stored record
+     * @return the chunk index, {@code 0} for single-chunk documents
+     */
+    public static int chunkIndex(DummyRecord record) {
+        String document = record.getDocument();
+        String id = record.getId();
+        if (document == null || id.length() <= document.length() + 1 || !id.startsWith(document + "#")) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(id.substring(document.length() + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The characters read but not yet emitted, at most one window of {@code maxChars} and one read buffer.
+     */
+    private static final class Window {
+
+        private final Reader reader;
+        private final TokenCounter tokenCounter;
+        private final int maxTokens;
+        private final int overlapTokens;
+        private final int maxChars;
+        private final StringBuilder text;
+        private final char[] buffer = new char[8192];
+        private boolean exhausted;
+
+        private Window(Reader reader, TokenCounter tokenCounter, int maxTokens, int overlapTokens, int maxChars) {
+            this.reader = reader;
+            this.tokenCounter = tokenCounter;
+            this.maxTokens = maxTokens;
+            this.overlapTokens = overlapTokens;
+            this.maxChars = maxChars;
+            this.text = new StringBuilder(maxChars + buffer.length);
+        }
+
+        /**
+         * Returns the next non-blank chunk, or {@code null} at the end of the document.
+         */
+        private String next() throws IOException {
+            while (true) {
+                fill();
+                if (text.isEmpty()) {
+                    return null;
+                }
+                boolean last = exhausted && text.length() <= maxChars && tokens(0, text.length()) <= maxTokens;
+                int end = last ? text.length() : cut();
+                String chunk = text.substring(0, end).strip();
+                text.delete(0, last ? end : restart(end));
+                if (!chunk.isEmpty()) {
+                    return chunk;
+                }
+            }
+        }
+
+        private void fill() throws IOException {
+            while (!exhausted && text.length() <= maxChars) {
+                int read = reader.read(buffer);
+                if (read < 0) {
+                    exhausted = true;
+                } else {
+                    text.append(buffer, 0, read);
+                }
+            }
+        }
+
+        /**
+         * Chooses where the chunk at the start of the window ends, preferring the latest natural break in the
+         * second half of its token limit.
+         */
+        private int cut() {
+            int limit = limit();
+            int end = naturalBreak(limit);
+            // a word cut short can take more tokens than the whole word, so the break is counted again
+            return end == limit || tokens(0, end) <= maxTokens ? end : limit;
+        }
+
+        /**
+         * Returns the longest prefix of the window within {@code maxTokens}, by binary search over its length.
+         */
+        private int limit() {
+            int high = Math.min(maxChars, text.length());
+            if (tokens(0, high) <= maxTokens) {
+                return high;
+            }
+            int low = 1;
+            high--;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (tokens(0, middle) <= maxTokens) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low > 1 && Character.isHighSurrogate(text.charAt(low - 1)) ? low - 1 : low;
+        }
+
+        private int naturalBreak(int limit) {
+            int floor = limit / 2;
+            int paragraph = text.lastIndexOf("\n\n", limit - 2);
+            if (paragraph >= floor) {
+                return paragraph + 2;
+            }
+            for (int i = limit - 1; i >= floor; i--) {
+                char c = text.charAt(i);
+                if ((c == '.' || c == '!' || c == '?' || c == '\n')
+                        && (i + 1 == text.length() || Character.isWhitespace(text.charAt(i + 1)))) {
+                    return i + 1;
+                }
+            }
+            for (int i = limit - 1; i >= floor; i--) {
+                if (Character.isWhitespace(text.charAt(i))) {
+                    return i + 1;
+                }
+            }
+            return limit;
+        }
+
+        /**
+         * Returns where the next chunk starts: the first word boundary after the earliest start whose text up to
+         * the end of the emitted chunk fits in the overlap. The overlap is at most a quarter of the chunk, so the
+         * next chunk always starts past the start of the window.
+         */
+        private int restart(int end) {
+            int low = Math.max(1, end - end / 4);
+            int high = end;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (tokens(middle, end) <= overlapTokens) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            int start = low;
+            while (start < end && !Character.isWhitespace(text.charAt(start - 1))) {
+                start++;
+            }
+            return start;
+        }
+
+        private long tokens(int start, int end) {
+            return tokenCounter.count(text.substring(start, end));
+        }
+
+        private void close() {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // nothing left to read
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.azure.ai.openai.OpenAIAsyncClient;
+import com.azure.ai.openai.models.EmbeddingItem;
+import com.azure.ai.openai.models.EmbeddingsOptions;
+import com.epam.training.gen.ai.examples.semantic.metrics.CallObservations;
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentLimiters;
+import com.epam.training.gen.ai.examples.semantic.tokenizer.TokenCounter;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.VectorMath;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent single-text embedding requests into batched {@code getEmbeddings} calls.
+ * <p>
+ * A request opens a batch window; the batch is sent when the window elapses or when it reaches the maximum
+ * size, whichever comes first. Identical texts inside one batch are sent once. Each caller receives the vector
+ * for its own text, matched by the prompt index of the response.
+ * <p>
+ * Texts are counted with the {@link TokenCounter} as they are submitted: a text over the deployment's input limit
+ * fails at once instead of failing its whole batch upstream, and a batch is admitted by the limiter with its
+ * counted tokens.
+ */
+@Slf4j
+public class EmbeddingBatcher implements AutoCloseable {
+
+    private final OpenAIAsyncClient openAIClient;
+    private final DeploymentLimiters deploymentLimiters;
+    private final CallObservations callObservations;
+    private final TokenCounter tokenCounter;
+    private final String deploymentName;
+    private final int dimensions;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final long maxInputTokens;
+    private final Scheduler scheduler = Schedulers.newSingle("embedding-batcher", true);
+
+    private final Object lock = new Object();
+    private List<PendingEmbedding> pending = new ArrayList<>();
+    private Disposable scheduledFlush;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong upstreamInputs = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    /**
+     * Creates a batcher.
+     *
+     * @param openAIClient       the client used for the batched calls
+     * @param deploymentLimiters the limiters that admit the batched calls
+     * @param callObservations   the observations recording the batched calls
+     * @param tokenCounter       counts the tokens of the texts
+     * @param deploymentName     the embedding deployment
+     * @param dimensions         the requested dimensions, {@code 0} for the model default
+     * @param window             how long a batch stays open after its first request
+     * @param maxBatchSize       the number of requests that closes a batch early
+     * @param maxInputTokens     the most tokens the deployment accepts per text, {@code 0} for no limit
+     */
+    public EmbeddingBatcher(OpenAIAsyncClient openAIClient, DeploymentLimiters deploymentLimiters,
+                            CallObservations callObservations, TokenCounter tokenCounter, String deploymentName,
+                            int dimensions, Duration window, int maxBatchSize, long maxInputTokens) {
+        this.openAIClient = openAIClient;
+        this.deploymentLimiters = deploymentLimiters;
+        this.callObservations = callObservations;
+        this.tokenCounter = tokenCounter;
+        this.deploymentName = deploymentName;
+        this.dimensions = dimensions;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.maxInputTokens = maxInputTokens;
+    }
+
+    /**
+     * Queues a text for the next batch.
+     *
+     * @param text the input text
+     * @return the embedding of the text, emitted once its batch completes, or an
+     * {@link IllegalArgumentException} when the text has more tokens than the deployment accepts, by the
+     * estimated count when no encoding is loaded
+     */
+    public Mono<float[]> submit(String text) {
+        return Mono.create(sink -> {
+            long tokens = tokenCounter.count(text);
+            if (maxInputTokens > 0 && tokens > maxInputTokens) {
+                sink.error(new IllegalArgumentException("Embedding input of " + tokens
+                        + " tokens exceeds the limit of " + maxInputTokens + " tokens of " + deploymentName));
+                return;
+            }
+            enqueue(new PendingEmbedding(text, tokens, sink));
+        });
+    }
+
+    /**
+     * Returns a snapshot of the batching counters.
+     *
+     * @return the batcher statistics
+     */
+    public EmbeddingBatcherStats stats() {
+        return new EmbeddingBatcherStats(requests.get(), batches.get(), upstreamInputs.get(), failedBatches.get());
+    }
+
+    @Override
+    public void close() {
+        flush();
+        scheduler.dispose();
+    }
+
+    private void enqueue(PendingEmbedding request) {
+        requests.incrementAndGet();
+        List<PendingEmbedding> ready = null;
+        synchronized (lock) {
+            pending.add(request);
+            if (pending.size() >= maxBatchSize) {
+                ready = takePending();
+            } else if (pending.size() == 1) {
+                scheduledFlush = scheduler.schedule(this::flushWindow, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (ready != null) {
+            send(ready);
+        }
+    }
+
+    private void flushWindow() {
+        synchronized (lock) {
+            // the running timer task must not cancel itself
+            scheduledFlush = null;
+        }
+        flush();
+    }
+
+    private void flush() {
+        List<PendingEmbedding> ready;
+        synchronized (lock) {
+            ready = takePending();
+        }
+        if (!ready.isEmpty()) {
+            send(ready);
+        }
+    }
+
+    private List<PendingEmbedding> takePending() {
+        if (scheduledFlush != null) {
+            scheduledFlush.dispose();
+            scheduledFlush = null;
+        }
+        List<PendingEmbedding> ready = pending;
+        pending = new ArrayList<>();
+        return ready;
+    }
+
+    private void send(List<PendingEmbedding> batch) {
+        Map<String, List<MonoSink<float[]>>> sinksByText = new LinkedHashMap<>();
+        long tokens = 0;
+        for (PendingEmbedding request : batch) {
+            List<MonoSink<float[]>> sinks = sinksByText.computeIfAbsent(request.text(), text -> new ArrayList<>());
+            if (sinks.isEmpty()) {
+                tokens += request.tokens();
+            }
+            sinks.add(request.sink());
+        }
+        var texts = new ArrayList<>(sinksByText.keySet());
+        var options = new EmbeddingsOptions(texts);
+        if (dimensions > 0) {
+            options.setDimensions(dimensions);
+        }
+        batches.incrementAndGet();
+        upstreamInputs.addAndGet(texts.size());
+        callObservations.observeModelCall("embedding", deploymentName, deploymentLimiters.execute(deploymentName,
+                        tokens, () -> openAIClient.getEmbeddings(deploymentName, options)))
+                .subscribe(embeddings -> {
+                    callObservations.recordEmbeddingsUsage(deploymentName, embeddings.getUsage());
+                    for (EmbeddingItem item : embeddings.getData()) {
+                        List<MonoSink<float[]>> sinks = sinksByText.remove(texts.get(item.getPromptIndex()));
+                        if (sinks != null) {
+                            float[] vector = VectorMath.toArray(item.getEmbedding());
+                            sinks.forEach(sink -> sink.success(vector));
+                        }
+                    }
+                    var missing = new IllegalStateException("Embedding response did not cover every input");
+                    sinksByText.values().forEach(sinks -> sinks.forEach(sink -> sink.error(missing)));
+                }, error -> {
+                    failedBatches.incrementAndGet();
+                    log.warn("Embedding batch of {} inputs failed", texts.size(), error);
+                    sinksByText.values().forEach(sinks -> sinks.forEach(sink -> sink.error(error)));
+                });
+    }
+
+    private record PendingEmbedding(String text, long tokens, MonoSink<float[]> sink) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+/**
+ * Snapshot of {@link EmbeddingBatcher} counters.
+ *
+ * @param requests       single-text requests submitted by callers
+ * @param batches        batched calls sent upstream
+ * @param upstreamInputs distinct inputs sent upstream across all batches
+ * @param failedBatches  batched calls that failed
+ */
+public record EmbeddingBatcherStats(long requests, long batches, long upstreamInputs, long failedBatches) {
+
+    /**
+     * Returns the mean number of caller requests served by one upstream call.
+     *
+     * @return the mean batch size, {@code 0} before the first batch
+     */
+    public double getAverageBatchSize() {
+        return batches == 0 ? 0 : (double) requests / batches;
+    }
+}
@@ -0,0 +1,80 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.epam.training.gen.ai.examples.semantic.cache.EmbeddingCache;
+import com.epam.training.gen.ai.examples.semantic.cache.EmbeddingCacheStats;
+import com.epam.training.gen.ai.examples.semantic.vectorstore.FloatListView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Single entry point for generating text embeddings.
+ * <p>
+ * Every lookup first consults the {@link EmbeddingCache}; misses are coalesced by the {@link EmbeddingBatcher}
+ * into batched calls to the Azure OpenAI embeddings API.
+ */
+@Service
+public class EmbeddingService {
+
+    @Autowired
+    private EmbeddingBatcher embeddingBatcher;
+
+    @Autowired
+    private EmbeddingCache embeddingCache;
+
+    @Value("${client-azureopenai-deployment-name}")
+    private String deploymentName;
+
+    @Value("${embedding-dimensions:0}")
+    private int dimensions;
+
+    /**
+     * Returns the embedding of a text, from the cache when possible.
+     *
+     * @param text the input text
+     * @return the embedding vector
+     */
+    public Mono<List<Float>> embed(String text) {
+        var key = EmbeddingCache.key(deploymentName, dimensions, text);
+        return embeddingCache.get(key)
+                .switchIfEmpty(Mono.defer(() -> embeddingBatcher.submit(text)
+                        .doOnNext(vector -> embeddingCache.put(key, vector))))
+                .map(FloatListView::new);
+    }
+
+    /**
+     * Returns the embeddings of several texts in input order.
+     * <p>
+     * The lookups are issued concurrently so that cache misses share upstream batches.
+     *
+     * @param texts the input texts
+     * @return the embedding vectors
+     */
+    public Mono<List<List<Float>>> embedAll(List<String> texts) {
+        return Flux.fromIterable(texts)
+                .flatMapSequential(this::embed)
+                .collectList();
+    }
+
+    /**
+     * Returns the cache statistics.
+     *
+     * @return the cache statistics
+     */
+    public EmbeddingCacheStats cacheStats() {
+        return embeddingCache.stats();
+    }
+
+    /**
+     * Returns the batching statistics.
+     *
+     * @return the batcher statistics
+     */
+    public EmbeddingBatcherStats batcherStats() {
+        return embeddingBatcher.stats();
+    }
+}
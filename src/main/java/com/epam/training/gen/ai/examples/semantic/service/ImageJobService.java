@@ -0,0 +1,508 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.azure.ai.openai.OpenAIAsyncClient;
+import com.azure.ai.openai.models.ImageGenerationData;
+import com.azure.ai.openai.models.ImageGenerationOptions;
+import com.azure.ai.openai.models.ImageGenerationQuality;
+import com.azure.ai.openai.models.ImageGenerationStyle;
+import com.azure.ai.openai.models.ImageSize;
+import com.epam.training.gen.ai.examples.semantic.cache.EmbeddingCache;
+import com.epam.training.gen.ai.examples.semantic.cache.ImageStore;
+import com.epam.training.gen.ai.examples.semantic.metrics.CallObservations;
+import com.epam.training.gen.ai.examples.semantic.model.ImageBackend;
+import com.epam.training.gen.ai.examples.semantic.model.ImageJob;
+import com.epam.training.gen.ai.examples.semantic.model.ImageJobRequest;
+import com.epam.training.gen.ai.examples.semantic.model.ImageJobStats;
+import com.epam.training.gen.ai.examples.semantic.model.ImageJobStatus;
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentLimiters;
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentOverloadedException;
+import com.epam.training.gen.ai.examples.semantic.ratelimit.UpstreamStatusException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates images in the background so that callers do not hold a request open for the whole generation.
+ * <p>
+ * A submitted job gets an id right away and waits in a bounded queue for one of {@code image-jobs-workers}
+ * workers; submissions beyond {@code image-jobs-max-queued} waiting jobs are rejected. Jobs are keyed by the
+ * backend, the deployment, the normalized prompt and the options: a submission identical to a queued or running
+ * job joins that job, and one identical to a recent success is answered from the result cache without a
+ * generation. Generated images are downloaded once into the {@link ImageStore} and served from
+ * {@value #LOCAL_URL_PREFIX}; a cached result lasts as long as its image stays in the store. When the download
+ * fails the job keeps the upstream URL, and the result expires after {@code image-cache-ttl-minutes} like that
+ * URL does. Jobs are forgotten {@code image-jobs-retention-minutes} after they end.
+ */
+@Slf4j
+@Service
+public class ImageJobService {
+
+    /**
+     * Path prefix of the images served from the {@link ImageStore}, followed by the image id.
+     */
+    public static final String LOCAL_URL_PREFIX = "/image/files/";
+
+    private static final String CHAT_API_VERSION = "2023-12-01-preview";
+
+    @Autowired
+    private OpenAIAsyncClient openAIAsyncClient;
+
+    @Autowired
+    private HttpClient httpClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeploymentLimiters deploymentLimiters;
+
+    @Autowired
+    private CallObservations callObservations;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private Scheduler blockingScheduler;
+
+    @Value("${client-azureopenai-endpoint}")
+    private String endpoint;
+
+    @Value("${client-azureopenai-key}")
+    private String apiKey;
+
+    @Value("${image-deployment-name:dall-e-3}")
+    private String deploymentName;
+
+    @Value("${image-jobs-workers:2}")
+    private int workers;
+
+    @Value("${image-jobs-max-queued:100}")
+    private int maxQueued;
+
+    @Value("${image-jobs-retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${image-cache-max-entries:1000}")
+    private int cacheMaxEntries;
+
+    @Value("${image-cache-ttl-minutes:60}")
+    private long cacheTtlMinutes;
+
+    @Value("${image-download-timeout-seconds:60}")
+    private long downloadTimeoutSeconds;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Job> pendingByKey = new HashMap<>();
+    private final LinkedHashMap<String, CachedImage> results = new LinkedHashMap<>(16, 0.75f, true);
+    private final Sinks.Many<Job> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private Disposable workerPool;
+    private Disposable sweeper;
+
+    @PostConstruct
+    void init() {
+        workerPool = queue.asFlux()
+                .flatMap(this::run, workers)
+                .subscribe();
+        sweeper = Flux.interval(Duration.ofMinutes(1))
+                .onBackpressureDrop()
+                .subscribe(tick -> sweep());
+    }
+
+    @PreDestroy
+    void close() {
+        sweeper.dispose();
+        workerPool.dispose();
+    }
+
+    /**
+     * Submits an image generation, or returns the job that already produces the same image.
+     *
+     * @param request the prompt and options
+     * @param backend how to generate the image
+     * @return the new or joined job
+     * @throws DeploymentOverloadedException when the queue is full
+     */
+    public ImageJob submit(ImageJobRequest request, ImageBackend backend) {
+        ImageJobRequest normalized = request.withDefaults();
+        String key = key(backend, deploymentName, normalized);
+        submitted.incrementAndGet();
+        synchronized (pendingByKey) {
+            CachedImage cached = cached(key);
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                var job = new Job(key, request.prompt(), normalized, backend);
+                jobs.put(job.id, job);
+                job.succeed(cached, true);
+                return job.snapshot();
+            }
+            Job pending = pendingByKey.get(key);
+            if (pending != null) {
+                deduplicated.incrementAndGet();
+                return pending.snapshot();
+            }
+            if (queued.get() >= maxQueued) {
+                rejected.incrementAndGet();
+                throw new DeploymentOverloadedException("Too many image jobs queued");
+            }
+            var job = new Job(key, request.prompt(), normalized, backend);
+            jobs.put(job.id, job);
+            pendingByKey.put(key, job);
+            queued.incrementAndGet();
+            queue.emitNext(job, Sinks.EmitFailureHandler.FAIL_FAST);
+            return job.snapshot();
+        }
+    }
+
+    /**
+     * Returns the current state of a job.
+     *
+     * @param id the job id
+     * @return the job, or {@code null} when unknown or no longer retained
+     */
+    public ImageJob get(String id) {
+        Job job = jobs.get(id);
+        return job == null ? null : job.snapshot();
+    }
+
+    /**
+     * Streams the state of a job, starting with the current one and completing after the terminal one.
+     *
+     * @param id the job id
+     * @return the job states, or an empty {@link Flux} when the job is unknown
+     */
+    public Flux<ImageJob> watch(String id) {
+        Job job = jobs.get(id);
+        return job == null ? Flux.empty() : job.updates.asFlux();
+    }
+
+    /**
+     * Waits for a job to end.
+     *
+     * @param id the job id
+     * @return the succeeded job, or the error the generation failed with
+     */
+    public Mono<ImageJob> await(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Mono.empty();
+        }
+        return job.updates.asFlux()
+                .filter(state -> state.status().isTerminal())
+                .next()
+                .flatMap(state -> state.status() == ImageJobStatus.SUCCEEDED
+                        ? Mono.just(state)
+                        : Mono.error(job.failure()));
+    }
+
+    /**
+     * Returns a snapshot of the queue counters.
+     *
+     * @return the queue statistics
+     */
+    public ImageJobStats stats() {
+        int cachedImages;
+        synchronized (results) {
+            cachedImages = results.size();
+        }
+        return new ImageJobStats(submitted.get(), generated.get(), failed.get(), cacheHits.get(),
+                deduplicated.get(), rejected.get(), queued.get(), running.get(), cachedImages);
+    }
+
+    /**
+     * Builds the key of a normalized request, shared by the pending jobs and the result cache.
+     *
+     * @param backend    how the image is generated
+     * @param deployment the image deployment
+     * @param request    the request with its defaults filled in
+     * @return the hex encoded key
+     */
+    static String key(ImageBackend backend, String deployment, ImageJobRequest request) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (String part : List.of(backend.name(), deployment, request.size(), request.quality(),
+                    request.style(), EmbeddingCache.normalize(request.prompt()))) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private Mono<Void> run(Job job) {
+        return Mono.defer(() -> {
+                    queued.decrementAndGet();
+                    running.incrementAndGet();
+                    job.start();
+                    return callObservations.observeModelCall("image", deploymentName,
+                            deploymentLimiters.execute(deploymentName, 0, () -> generate(job)));
+                })
+                .flatMap(this::storeLocally)
+                .doOnNext(image -> {
+                    synchronized (results) {
+                        results.put(job.key, image);
+                        var eldest = results.entrySet().iterator();
+                        while (results.size() > cacheMaxEntries && eldest.hasNext()) {
+                            eldest.next();
+                            eldest.remove();
+                        }
+                    }
+                    generated.incrementAndGet();
+                    job.succeed(image, false);
+                })
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("The model returned no image")))
+                .onErrorResume(e -> {
+                    log.warn("Image job {} failed", job.id, e);
+                    failed.incrementAndGet();
+                    job.fail(e);
+                    return Mono.empty();
+                })
+                .doFinally(signal -> {
+                    running.decrementAndGet();
+                    synchronized (pendingByKey) {
+                        pendingByKey.remove(job.key, job);
+                    }
+                })
+                .then();
+    }
+
+    private Mono<CachedImage> generate(Job job) {
+        return job.backend == ImageBackend.CHAT_COMPLETIONS
+                ? generateWithChatCompletions(job.request)
+                : generateWithImagesApi(job.request);
+    }
+
+    private Mono<CachedImage> generateWithImagesApi(ImageJobRequest request) {
+        var options = new ImageGenerationOptions(request.prompt())
+                .setSize(ImageSize.fromString(request.size()))
+                .setQuality(ImageGenerationQuality.fromString(request.quality()))
+                .setStyle(ImageGenerationStyle.fromString(request.style()));
+        return openAIAsyncClient.getImageGenerations(deploymentName, options)
+                .mapNotNull(generations -> {
+                    List<ImageGenerationData> data = generations.getData();
+                    return data.isEmpty() ? null : new CachedImage(data.get(0).getUrl(), null,
+                            data.get(0).getRevisedPrompt(), expiry());
+                });
+    }
+
+    /**
+     * The chat completions endpoint of a DALL-E deployment takes the prompt as a user message and returns the
+     * image as the second attachment of the answer.
+     */
+    private Mono<CachedImage> generateWithChatCompletions(ImageJobRequest request) {
+        var requestBody = new HashMap<>();
+        requestBody.put("messages", new Object[]{Map.of("role", "user", "content", request.prompt())});
+        requestBody.put("max_tokens", 1000);
+        HttpRequest httpRequest;
+        try {
+            httpRequest = HttpRequest.newBuilder()
+                    .uri(URI.create(endpoint + "/openai/deployments/" + deploymentName
+                            + "/chat/completions?api-version=" + CHAT_API_VERSION))
+                    .header("Content-Type", "application/json")
+                    .header("Api-Key", apiKey)
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        return Mono.fromFuture(() -> httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString()))
+                .handle((response, sink) -> {
+                    if (response.statusCode() != 200) {
+                        sink.error(new UpstreamStatusException(response.statusCode(),
+                                response.headers().firstValue("Retry-After").orElse(null),
+                                "Failed to generate image: " + response.body()));
+                        return;
+                    }
+                    try {
+                        JsonNode url = objectMapper.readTree(response.body())
+                                .at("/choices/0/message/custom_content/attachments/1/url");
+                        if (!url.isMissingNode() && !url.asText().isEmpty()) {
+                            sink.next(new CachedImage(url.asText(), null, null, expiry()));
+                        }
+                    } catch (JsonProcessingException e) {
+                        sink.error(e);
+                    }
+                });
+    }
+
+    /**
+     * Downloads a generated image into the store, keeping the upstream URL when that fails.
+     */
+    private Mono<CachedImage> storeLocally(CachedImage remote) {
+        return Mono.fromCallable(imageStore::createTemporaryFile)
+                .subscribeOn(blockingScheduler)
+                .flatMap(temporary -> Mono.fromFuture(() -> httpClient.sendAsync(HttpRequest.newBuilder()
+                                        .uri(URI.create(remote.url()))
+                                        .timeout(Duration.ofSeconds(downloadTimeoutSeconds))
+                                        .GET()
+                                        .build(),
+                                HttpResponse.BodyHandlers.ofFile(temporary)))
+                        .flatMap(response -> response.statusCode() == 200
+                                ? imageStore.put(temporary, mediaType(response))
+                                : Mono.error(new UpstreamStatusException(response.statusCode(), null,
+                                "Failed to download image")))
+                        .doOnError(e -> deleteQuietly(temporary)))
+                .map(stored -> new CachedImage(LOCAL_URL_PREFIX + stored.id(), stored.id(), remote.revisedPrompt(),
+                        remote.expiresAt()))
+                .onErrorResume(e -> {
+                    log.warn("Failed to download generated image, serving its upstream URL", e);
+                    return Mono.just(remote);
+                });
+    }
+
+    private static String mediaType(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Type")
+                .map(contentType -> contentType.split(";")[0].strip().toLowerCase())
+                .orElse("image/png");
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete {}", file, e);
+        }
+    }
+
+    private long expiry() {
+        return System.nanoTime() + Duration.ofMinutes(cacheTtlMinutes).toNanos();
+    }
+
+    private CachedImage cached(String key) {
+        synchronized (results) {
+            CachedImage image = results.get(key);
+            if (image != null && !isFresh(image, System.nanoTime())) {
+                results.remove(key);
+                return null;
+            }
+            return image;
+        }
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        synchronized (results) {
+            results.values().removeIf(image -> !isFresh(image, now));
+        }
+        Instant retainedSince = Instant.now().minus(Duration.ofMinutes(retentionMinutes));
+        jobs.values().removeIf(job -> job.endedBefore(retainedSince));
+    }
+
+    private boolean isFresh(CachedImage image, long now) {
+        return image.imageId() != null ? imageStore.contains(image.imageId()) : now - image.expiresAt() <= 0;
+    }
+
+    private record CachedImage(String url, String imageId, String revisedPrompt, long expiresAt) {
+    }
+
+    /**
+     * Mutable state of a job. Transitions are synchronized on the job so that watchers see them in order.
+     */
+    private static final class Job {
+
+        private final String id = UUID.randomUUID().toString();
+        private final String key;
+        private final String prompt;
+        private final ImageJobRequest request;
+        private final ImageBackend backend;
+        private final Instant createdAt = Instant.now();
+        private final Sinks.Many<ImageJob> updates = Sinks.many().replay().latest();
+
+        private ImageJobStatus status = ImageJobStatus.QUEUED;
+        private CachedImage image;
+        private Throwable failure;
+        private boolean cached;
+        private Instant completedAt;
+
+        private Job(String key, String prompt, ImageJobRequest request, ImageBackend backend) {
+            this.key = key;
+            this.prompt = prompt;
+            this.request = request;
+            this.backend = backend;
+            updates.tryEmitNext(snapshot());
+        }
+
+        synchronized ImageJob snapshot() {
+            return new ImageJob(id, status, prompt, image == null ? null : image.url(),
+                    image == null ? null : image.imageId(),
+                    image == null ? null : image.revisedPrompt(), failure == null ? null : failure.getMessage(),
+                    cached, createdAt, completedAt);
+        }
+
+        synchronized void start() {
+            status = ImageJobStatus.RUNNING;
+            updates.tryEmitNext(snapshot());
+        }
+
+        synchronized void succeed(CachedImage image, boolean cached) {
+            this.image = image;
+            this.cached = cached;
+            end(ImageJobStatus.SUCCEEDED);
+        }
+
+        synchronized void fail(Throwable failure) {
+            this.failure = failure;
+            end(ImageJobStatus.FAILED);
+        }
+
+        synchronized Throwable failure() {
+            return failure;
+        }
+
+        synchronized boolean endedBefore(Instant instant) {
+            return completedAt != null && completedAt.isBefore(instant);
+        }
+
+        private void end(ImageJobStatus terminal) {
+            status = terminal;
+            completedAt = Instant.now();
+            updates.tryEmitNext(snapshot());
+            updates.tryEmitComplete();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.model.IngestProgress;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.semantickernel.data.vectorstorage.VectorStoreRecordCollection;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams documents into the vector store, either many short ones from an NDJSON body or one long plain text.
+ * <p>
+ * Documents are read on demand and split by the {@link DocumentChunker}; the chunks are grouped into batches,
+ * embedded with one upstream call per batch and written with {@link VectorStoreRecordCollection#upsertBatchAsync}.
+ * At most {@code ingest-concurrency} batches are in flight, so the reader only pulls more text as batches
+ * complete and memory stays flat for any input size.
+ */
+@Slf4j
+@Service
+public class IngestService {
+
+    @Autowired
+    private EmbeddingService embeddingService;
+
+    @Autowired
+    private VectorStoreRecordCollection<String, DummyRecord> vectorStoreRecordCollection;
+
+    @Autowired
+    private DocumentChunker documentChunker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Scheduler blockingScheduler;
+
+    @Value("${ingest-batch-size:64}")
+    private int batchSize;
+
+    @Value("${ingest-concurrency:4}")
+    private int concurrency;
+
+    @Value("${ingest-progress-every-batches:10}")
+    private int progressEveryBatches;
+
+    @PostConstruct
+    void init() {
+        requirePositive("ingest-batch-size", batchSize);
+        requirePositive("ingest-concurrency", concurrency);
+        requirePositive("ingest-progress-every-batches", progressEveryBatches);
+    }
+
+    /**
+     * Ingests an NDJSON stream of {@code {"id": ..., "input": ...}} objects; {@code id} defaults to
+     * {@link DocumentChunker#documentIdOf the hash} of the input.
+     * The optional {@code tenant}, {@code source}, {@code date} and {@code tags} fields are stored as the payload
+     * of the record. Inputs longer than one chunk are stored as chunks of their document, each with its payload.
+     * Lines that are not valid JSON or have no input text are logged, counted in the progress and skipped.
+     *
+     * @param body the request body
+     * @return progress snapshots, the last one marked as done
+     */
+    public Flux<IngestProgress> ingest(InputStream body) {
+        long started = System.nanoTime();
+        var documents = new AtomicLong();
+        var batches = new AtomicLong();
+        var skipped = new AtomicLong();
+
+        Flux<IngestProgress> progress = Flux.using(
+                        () -> new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)),
+                        reader -> Flux.fromStream(reader.lines()),
+                        this::closeQuietly)
+                .subscribeOn(blockingScheduler)
+                .filter(line -> !line.isBlank())
+                .<IngestDocument>handle((line, sink) -> {
+                    try {
+                        sink.next(parse(line));
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Skipping ingest line {}: {}", skipped.incrementAndGet(), e.getMessage());
+                    }
+                })
+                .flatMapIterable(this::chunk)
+                .buffer(batchSize)
+                .flatMap(this::embedAndUpsert, concurrency)
+                .map(count -> {
+                    documents.addAndGet(count);
+                    return batches.incrementAndGet();
+                })
+                .filter(batch -> batch % progressEveryBatches == 0)
+                .map(batch -> IngestProgress.of(documents.get(), batch, skipped.get(), started, false));
+
+        return vectorStoreRecordCollection.createCollectionIfNotExistsAsync()
+                .thenMany(progress)
+                .concatWith(Mono.fromSupplier(() -> IngestProgress.of(documents.get(), batches.get(), skipped.get(),
+                        started, true)))
+                .doOnComplete(() -> log.info("Ingested {} records in {} batches, skipped {} lines", documents.get(),
+                        batches.get(), skipped.get()));
+    }
+
+    /**
+     * Ingests one plain-text document of any length as chunks, reading it as the chunks are embedded.
+     *
+     * @param documentId the document id, which prefixes the chunk ids
+     * @param payload    the payload fields stored with every chunk, {@code null} for none
+     * @param body       the document text, closed at the end
+     * @return the number of chunks stored
+     */
+    public Mono<Long> ingestDocument(String documentId, DummyRecord payload, Reader body) {
+        var index = new AtomicInteger();
+        return vectorStoreRecordCollection.createCollectionIfNotExistsAsync()
+                .thenMany(documentChunker.split(body)
+                        .subscribeOn(blockingScheduler)
+                        .map(chunk -> new IngestDocument(
+                                DocumentChunker.chunkId(documentId, index.getAndIncrement()), chunk, payload,
+                                documentId))
+                        .buffer(batchSize)
+                        .flatMap(this::embedAndUpsert, concurrency))
+                .reduce(0L, Long::sum)
+                .doOnNext(chunks -> log.info("Ingested document {} as {} chunks", documentId, chunks));
+    }
+
+    private List<IngestDocument> chunk(IngestDocument document) {
+        List<String> chunks = documentChunker.split(document.input());
+        if (chunks.size() <= 1) {
+            return List.of(document);
+        }
+        var parts = new ArrayList<IngestDocument>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            parts.add(new IngestDocument(DocumentChunker.chunkId(document.id(), i), chunks.get(i),
+                    document.payload(), document.id()));
+        }
+        return parts;
+    }
+
+    private Mono<Integer> embedAndUpsert(List<IngestDocument> batch) {
+        var texts = batch.stream().map(IngestDocument::input).toList();
+        return embeddingService.embedAll(texts)
+                .flatMap(vectors -> {
+                    var records = new ArrayList<DummyRecord>(batch.size());
+                    for (int i = 0; i < batch.size(); i++) {
+                        IngestDocument document = batch.get(i);
+                        records.add(new DummyRecord(document.id(), vectors.get(i))
+                                .withPayload(document.payload())
+                                .withDocument(document.document()));
+                    }
+                    return vectorStoreRecordCollection.upsertBatchAsync(records, null)
+                            .subscribeOn(blockingScheduler);
+                })
+                .map(List::size);
+    }
+
+    private IngestDocument parse(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            String input = node.path("input").asText(null);
+            if (input == null || input.isBlank()) {
+                throw new IllegalArgumentException("Input text cannot be null or empty: " + abbreviate(line));
+            }
+            String id = node.path("id").asText(null);
+            if (id == null || id.isBlank()) {
+                id = DocumentChunker.documentIdOf(input);
+            }
+            List<String> tags = new ArrayList<>();
+            node.path(DummyRecord.TAGS).forEach(tag -> tags.add(tag.asText()));
+            var payload = new DummyRecord(id, null, node.path(DummyRecord.TENANT).asText(null),
+                    node.path(DummyRecord.SOURCE).asText(null), node.path(DummyRecord.DATE).asText(null), tags);
+            return new IngestDocument(id, input, payload, null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed NDJSON line: " + abbreviate(line), e);
+        }
+    }
+
+    private static String abbreviate(String line) {
+        return line.length() <= 200 ? line : line.substring(0, 200) + "...";
+    }
+
+    private static void requirePositive(String property, int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException(property + " must be at least 1 but was " + value);
+        }
+    }
+
+    private void closeQuietly(BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (Exception e) {
+            log.debug("Failed to close ingest stream", e);
+        }
+    }
+
+    /**
+     * A text to embed, with the record holding its payload fields and the id of the document it is a chunk of.
+     */
+    private record IngestDocument(String id, String input, DummyRecord payload, String document) {
+    }
+}
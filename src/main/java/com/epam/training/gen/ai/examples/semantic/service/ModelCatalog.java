@@ -0,0 +1,242 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.epam.training.gen.ai.examples.semantic.configuration.SemanticKernelConfiguration;
+import com.epam.training.gen.ai.examples.semantic.model.ModelCatalogChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps the list of deployed models, blocking startup on the model-list endpoint only when nothing is known yet.
+ * <p>
+ * The catalog starts from the last-known-good snapshot on disk. Without one, startup waits up to
+ * {@code model-catalog-initial-fetch-timeout-seconds} for a first fetch; as long as the list stays empty, the
+ * catalog reports the configured {@code client-azureopenai-deployment-name} as its only, chat-capable, model.
+ * The list refreshes in the background every {@code model-catalog-refresh-seconds}. Refreshes are conditional on the {@code ETag} and {@code Last-Modified}
+ * of the previous response, so an unchanged list costs a {@code 304}. A failed refresh keeps the current list.
+ * Every change is written back to the snapshot and published as a {@link ModelCatalogChangedEvent}.
+ */
+@Slf4j
+@Service
+public class ModelCatalog {
+
+    @Autowired
+    private HttpClient httpClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Scheduler blockingScheduler;
+
+    @Value("${client-azureopenai-endpoint-model-list}")
+    private String modelListUrl;
+
+    @Value("${client-azureopenai-key}")
+    private String accessToken;
+
+    @Value("${model-catalog-snapshot-file:data/model-catalog.json}")
+    private String snapshotFile;
+
+    @Value("${model-catalog-refresh-seconds:300}")
+    private long refreshSeconds;
+
+    @Value("${model-catalog-request-timeout-seconds:30}")
+    private long requestTimeoutSeconds;
+
+    @Value("${model-catalog-initial-fetch-timeout-seconds:10}")
+    private long initialFetchTimeoutSeconds;
+
+    @Value("${client-azureopenai-deployment-name}")
+    private String defaultDeployment;
+
+    private volatile Snapshot current = Snapshot.EMPTY;
+    private List<SemanticKernelConfiguration.Model> fallback;
+    private Disposable refreshes;
+
+    @PostConstruct
+    void init() {
+        var deployment = new SemanticKernelConfiguration.Model();
+        deployment.setId(defaultDeployment);
+        deployment.setModel(defaultDeployment);
+        deployment.setCapabilities(Map.of(ModelRouter.CHAT_COMPLETION, true));
+        fallback = List.of(deployment);
+        current = readSnapshot();
+        log.info("Starting with {} models from the catalog snapshot", current.models().size());
+        Duration firstRefresh = Duration.ZERO;
+        if (current.models().isEmpty() && initialFetchTimeoutSeconds > 0) {
+            try {
+                refresh().block(Duration.ofSeconds(initialFetchTimeoutSeconds));
+                firstRefresh = Duration.ofSeconds(refreshSeconds);
+                log.info("Fetched {} models from the model list", current.models().size());
+            } catch (RuntimeException e) {
+                log.warn("Initial model catalog fetch failed, using deployment {} until a refresh succeeds",
+                        defaultDeployment, e);
+            }
+        }
+        refreshes = Flux.interval(firstRefresh, Duration.ofSeconds(refreshSeconds))
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh()
+                        .onErrorResume(e -> {
+                            log.warn("Model catalog refresh failed, keeping {} known models",
+                                    current.models().size(), e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void close() {
+        refreshes.dispose();
+    }
+
+    /**
+     * Returns the deployed models, in catalog order.
+     *
+     * @return the current models, or only the configured deployment while the catalog is empty
+     */
+    public List<SemanticKernelConfiguration.Model> models() {
+        List<SemanticKernelConfiguration.Model> models = current.models();
+        return models.isEmpty() ? fallback : models;
+    }
+
+    /**
+     * Fetches the model list unless it is unchanged since the previous fetch.
+     *
+     * @return {@code true} when the list changed
+     */
+    public Mono<Boolean> refresh() {
+        Snapshot previous = current;
+        var request = HttpRequest.newBuilder()
+                .uri(URI.create(modelListUrl))
+                .timeout(Duration.ofSeconds(requestTimeoutSeconds))
+                .header("Content-Type", "application/json")
+                .header("Api-Key", accessToken);
+        if (previous.etag() != null) {
+            request.header("If-None-Match", previous.etag());
+        }
+        if (previous.lastModified() != null) {
+            request.header("If-Modified-Since", previous.lastModified());
+        }
+        return Mono.fromFuture(() -> httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString()))
+                .flatMap(response -> {
+                    if (response.statusCode() == 304) {
+                        return Mono.just(false);
+                    }
+                    if (response.statusCode() != 200) {
+                        return Mono.error(new IllegalStateException(
+                                "Model list returned " + response.statusCode() + ": " + response.body()));
+                    }
+                    return Mono.fromCallable(() -> apply(new Snapshot(
+                                    response.headers().firstValue("ETag").orElse(null),
+                                    response.headers().firstValue("Last-Modified").orElse(null),
+                                    Objects.requireNonNullElse(objectMapper.readValue(response.body(),
+                                            SemanticKernelConfiguration.ModelListResponse.class).getData(),
+                                            List.of()))))
+                            .subscribeOn(blockingScheduler);
+                });
+    }
+
+    /**
+     * Serialized so that overlapping refreshes publish their changes and write their snapshots in order.
+     */
+    private synchronized boolean apply(Snapshot fetched) {
+        ModelCatalogChangedEvent change = diff(current.models(), fetched.models());
+        current = fetched;
+        writeSnapshot(fetched);
+        if (change == null) {
+            return false;
+        }
+        log.info("Model catalog changed: {} added, {} removed, {} updated",
+                change.added(), change.removed(), change.updated());
+        eventPublisher.publishEvent(change);
+        return true;
+    }
+
+    private static ModelCatalogChangedEvent diff(List<SemanticKernelConfiguration.Model> before,
+                                                 List<SemanticKernelConfiguration.Model> after) {
+        Map<String, SemanticKernelConfiguration.Model> previous = new LinkedHashMap<>();
+        before.forEach(model -> previous.put(model.getId(), model));
+        Set<String> added = new HashSet<>();
+        Set<String> updated = new HashSet<>();
+        for (SemanticKernelConfiguration.Model model : after) {
+            SemanticKernelConfiguration.Model old = previous.remove(model.getId());
+            if (old == null) {
+                added.add(model.getId());
+            } else if (!Objects.equals(old, model)) {
+                updated.add(model.getId());
+            }
+        }
+        Set<String> removed = previous.keySet();
+        if (added.isEmpty() && removed.isEmpty() && updated.isEmpty()) {
+            return null;
+        }
+        return new ModelCatalogChangedEvent(after, Set.copyOf(added), Set.copyOf(removed), Set.copyOf(updated));
+    }
+
+    private Snapshot readSnapshot() {
+        Path path = Path.of(snapshotFile);
+        if (!Files.exists(path)) {
+            return Snapshot.EMPTY;
+        }
+        try {
+            Snapshot snapshot = objectMapper.readValue(path.toFile(), Snapshot.class);
+            return snapshot.models() == null ? Snapshot.EMPTY : snapshot;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable model catalog snapshot {}", path, e);
+            return Snapshot.EMPTY;
+        }
+    }
+
+    private void writeSnapshot(Snapshot snapshot) {
+        Path target = Path.of(snapshotFile).toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temporary = Files.createTempFile(target.getParent(), "model-catalog", ".tmp");
+            objectMapper.writeValue(temporary.toFile(), snapshot);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Cannot write model catalog snapshot {}", target, e);
+        }
+    }
+
+    /**
+     * A fetched model list together with the validators of the response it came from.
+     *
+     * @param etag         the {@code ETag} of the response, or {@code null}
+     * @param lastModified the {@code Last-Modified} of the response, or {@code null}
+     * @param models       the deployed models
+     */
+    record Snapshot(String etag, String lastModified, List<SemanticKernelConfiguration.Model> models) {
+
+        static final Snapshot EMPTY = new Snapshot(null, null, List.of());
+    }
+}
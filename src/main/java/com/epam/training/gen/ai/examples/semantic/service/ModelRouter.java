@@ -0,0 +1,251 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.epam.training.gen.ai.examples.semantic.configuration.SemanticKernelConfiguration;
+import com.epam.training.gen.ai.examples.semantic.model.ModelCatalogChangedEvent;
+import com.epam.training.gen.ai.examples.semantic.model.ModelRouteStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses deployments by observed latency and health instead of uniformly at random.
+ * <p>
+ * Every tracked call updates an EWMA of the latency and of the error rate of its model and counts the calls in
+ * flight. A choice samples two routable models and keeps the cheaper one, the cost being the EWMA latency
+ * scaled by the calls in flight and inflated by the error rate (power of two choices). Models that fail
+ * {@code model-router-ejection-failures} times in a row are ejected for {@code model-router-ejection-seconds},
+ * doubling on every repeated ejection. Models whose {@code lifecycle_status} is excluded or that lack a
+ * required feature or capability are never chosen; when every candidate is ejected the router fails open. The candidates are
+ * read from the {@link ModelCatalog} on every choice, so catalog refreshes apply without a restart.
+ */
+@Slf4j
+@Service
+public class ModelRouter {
+
+    /**
+     * The capability of the deployments that answer chat completion requests.
+     */
+    public static final String CHAT_COMPLETION = "chat_completion";
+
+    private static final int MAX_EJECTION_DOUBLINGS = 4;
+
+    @Autowired
+    private ModelCatalog modelCatalog;
+
+    @Value("${model-router-ewma-alpha:0.3}")
+    private double alpha;
+
+    @Value("${model-router-ejection-failures:3}")
+    private int ejectionFailures;
+
+    @Value("${model-router-ejection-seconds:30}")
+    private long ejectionSeconds;
+
+    @Value("${model-router-excluded-lifecycle-statuses:deprecated,retired}")
+    private Set<String> excludedLifecycleStatuses;
+
+    private final Map<String, ModelState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Chooses one model.
+     *
+     * @param requiredFeatures features or capabilities the model must report as enabled
+     * @return the chosen model id
+     * @throws IllegalStateException when no deployed model qualifies
+     */
+    public String choose(Set<String> requiredFeatures) {
+        return choose(1, requiredFeatures).get(0);
+    }
+
+    /**
+     * Chooses up to {@code count} distinct models, each by power of two choices among those not yet chosen.
+     *
+     * @param count            the number of models wanted
+     * @param requiredFeatures features or capabilities the models must report as enabled
+     * @return the chosen model ids, best first
+     * @throws IllegalStateException when no deployed model qualifies
+     */
+    public List<String> choose(int count, Set<String> requiredFeatures) {
+        List<String> eligible = modelCatalog.models().stream()
+                .filter(model -> isEligible(model, requiredFeatures))
+                .map(SemanticKernelConfiguration.Model::getId)
+                .toList();
+        if (eligible.isEmpty()) {
+            throw new IllegalStateException("No deployed model supports " + requiredFeatures);
+        }
+        long now = System.nanoTime();
+        List<String> candidates = new ArrayList<>(eligible.stream().filter(id -> !state(id).isEjected(now)).toList());
+        if (candidates.isEmpty()) {
+            log.warn("All {} eligible models are ejected, routing to them anyway", eligible.size());
+            candidates.addAll(eligible);
+        }
+        var chosen = new ArrayList<String>(Math.min(count, candidates.size()));
+        while (chosen.size() < count && !candidates.isEmpty()) {
+            String pick = powerOfTwoChoices(candidates);
+            candidates.remove(pick);
+            chosen.add(pick);
+        }
+        return chosen;
+    }
+
+    /**
+     * Records the latency and outcome of a call to a model. Cancelled calls only release their in-flight slot.
+     *
+     * @param modelId the model called
+     * @param call    the call, started on subscription
+     * @return the tracked call
+     */
+    public <T> Mono<T> track(String modelId, Mono<T> call) {
+        return Mono.defer(() -> {
+            ModelState state = state(modelId);
+            long started = state.begin();
+            return call.doFinally(signal -> state.end(signal, started));
+        });
+    }
+
+    /**
+     * Records the latency and outcome of a streamed call to a model.
+     *
+     * @param modelId the model called
+     * @param call    the call, started on subscription
+     * @return the tracked call
+     */
+    public <T> Flux<T> track(String modelId, Flux<T> call) {
+        return Flux.defer(() -> {
+            ModelState state = state(modelId);
+            long started = state.begin();
+            return call.doFinally(signal -> state.end(signal, started));
+        });
+    }
+
+    /**
+     * Forgets the routing state of models that are no longer deployed.
+     *
+     * @param event the catalog change
+     */
+    @EventListener
+    void onCatalogChanged(ModelCatalogChangedEvent event) {
+        event.removed().forEach(states::remove);
+    }
+
+    /**
+     * Returns the routing state of every model that was chosen or tracked.
+     *
+     * @return the per-model statistics
+     */
+    public List<ModelRouteStats> stats() {
+        long now = System.nanoTime();
+        return states.values().stream()
+                .map(state -> state.snapshot(now))
+                .toList();
+    }
+
+    private boolean isEligible(SemanticKernelConfiguration.Model model, Collection<String> requiredFeatures) {
+        if (model.getLifecycle_status() != null && excludedLifecycleStatuses.contains(model.getLifecycle_status())) {
+            return false;
+        }
+        Map<String, Boolean> features = model.getFeatures();
+        Map<String, Object> capabilities = model.getCapabilities();
+        return requiredFeatures.stream()
+                .allMatch(feature -> features != null && Boolean.TRUE.equals(features.get(feature))
+                        || capabilities != null && Boolean.TRUE.equals(capabilities.get(feature)));
+    }
+
+    private String powerOfTwoChoices(List<String> candidates) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        var random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        String a = candidates.get(first);
+        String b = candidates.get(second);
+        return state(a).cost() <= state(b).cost() ? a : b;
+    }
+
+    private ModelState state(String modelId) {
+        return states.computeIfAbsent(modelId, ModelState::new);
+    }
+
+    private final class ModelState {
+
+        private final String modelId;
+        private double ewmaLatencyMillis;
+        private double ewmaErrorRate;
+        private int inFlight;
+        private long requests;
+        private int consecutiveFailures;
+        private int ejections;
+        private long ejectedUntil;
+
+        ModelState(String modelId) {
+            this.modelId = modelId;
+        }
+
+        synchronized long begin() {
+            inFlight++;
+            return System.nanoTime();
+        }
+
+        synchronized void end(SignalType signal, long started) {
+            inFlight--;
+            if (signal == SignalType.CANCEL) {
+                return;
+            }
+            boolean failed = signal == SignalType.ON_ERROR;
+            double latencyMillis = (System.nanoTime() - started) / 1_000_000.0;
+            ewmaLatencyMillis = requests == 0 ? latencyMillis : alpha * latencyMillis + (1 - alpha) * ewmaLatencyMillis;
+            ewmaErrorRate = alpha * (failed ? 1 : 0) + (1 - alpha) * ewmaErrorRate;
+            requests++;
+            if (!failed) {
+                consecutiveFailures = 0;
+                ejections = 0;
+                return;
+            }
+            if (++consecutiveFailures >= ejectionFailures) {
+                long seconds = ejectionSeconds << Math.min(ejections, MAX_EJECTION_DOUBLINGS);
+                ejections++;
+                consecutiveFailures = 0;
+                ejectedUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+                log.warn("Ejecting model {} for {} s after {} consecutive failures", modelId, seconds,
+                        ejectionFailures);
+            }
+        }
+
+        synchronized boolean isEjected(long now) {
+            return ejectedUntil - now > 0;
+        }
+
+        /**
+         * Unsampled models cost only their calls in flight so that every model gets explored early.
+         */
+        synchronized double cost() {
+            if (requests == 0) {
+                return inFlight;
+            }
+            return ewmaLatencyMillis * (inFlight + 1) / Math.max(0.05, 1 - ewmaErrorRate);
+        }
+
+        synchronized ModelRouteStats snapshot(long now) {
+            return new ModelRouteStats(modelId, ewmaLatencyMillis, ewmaErrorRate, inFlight, requests,
+                    Math.max(0, TimeUnit.NANOSECONDS.toMillis(ejectedUntil - now)));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.epam.training.gen.ai.examples.semantic.service;
+
+import com.epam.training.gen.ai.examples.semantic.metrics.CallObservations;
+import com.epam.training.gen.ai.examples.semantic.model.FanOutMode;
+import com.epam.training.gen.ai.examples.semantic.model.ModelResponse;
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentLimiters;
+import com.microsoft.semantickernel.orchestration.InvocationContext;
+import com.microsoft.semantickernel.services.chatcompletion.ChatHistory;
+import com.microsoft.semantickernel.services.chatcompletion.ChatMessageContent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Sends one prompt to several models concurrently, so the latency is that of the slowest model waited for
+ * rather than the sum of all of them.
+ */
+@Slf4j
+@Service
+public class MultiModelChatService {
+
+    @Autowired
+    private ChatModelRegistry chatModelRegistry;
+
+    @Autowired
+    private InvocationContext invocationContext;
+
+    @Autowired
+    private ModelRouter modelRouter;
+
+    @Autowired
+    private DeploymentLimiters deploymentLimiters;
+
+    @Autowired
+    private CallObservations callObservations;
+
+    /**
+     * Queries the given models concurrently.
+     *
+     * @param input    the user message
+     * @param modelIds the models to query
+     * @param mode     when to return
+     * @param deadline how long to wait in {@link FanOutMode#DEADLINE} mode
+     * @return the responses in completion order; failures are reported per model
+     */
+    public Mono<List<ModelResponse>> fanOut(String input, List<String> modelIds, FanOutMode mode,
+                                            Duration deadline) {
+        return fanOut(() -> new ChatHistory().addUserMessage(input), input, modelIds, mode, deadline);
+    }
+
+    /**
+     * Queries the given models concurrently with a whole conversation.
+     *
+     * @param history    builds the conversation, once per model
+     * @param promptText the conversation text, to estimate its tokens
+     * @param modelIds   the models to query
+     * @param mode       when to return
+     * @param deadline   how long to wait in {@link FanOutMode#DEADLINE} mode
+     * @return the responses in completion order; failures are reported per model
+     */
+    public Mono<List<ModelResponse>> fanOut(Supplier<ChatHistory> history, String promptText, List<String> modelIds,
+                                            FanOutMode mode, Duration deadline) {
+        Flux<ModelResponse> responses = Flux.merge(modelIds.stream()
+                .map(modelId -> ask(modelId, history, promptText))
+                .toList());
+        return switch (mode) {
+            case ALL -> responses.collectList();
+            case FIRST -> responses.takeUntil(ModelResponse::isSucceeded)
+                    .collectList()
+                    .map(received -> received.stream().anyMatch(ModelResponse::isSucceeded)
+                            ? received.subList(received.size() - 1, received.size())
+                            : received);
+            case DEADLINE -> responses.take(deadline).collectList();
+        };
+    }
+
+    private Mono<ModelResponse> ask(String modelId, Supplier<ChatHistory> history, String promptText) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            var model = chatModelRegistry.get(modelId);
+            return modelRouter.track(modelId, callObservations.observeModelCall("chat", modelId,
+                            deploymentLimiters.execute(modelId, deploymentLimiters.estimateChatTokens(promptText),
+                                    () -> model.service().getChatMessageContentsAsync(history.get(), model.kernel(),
+                                            invocationContext))))
+                    .doOnNext(messages -> callObservations.recordChatUsage(modelId, messages))
+                    .map(messages -> new ModelResponse(modelId,
+                            messages.stream().map(ChatMessageContent::getContent).toList(),
+                            elapsedMillis(started), null))
+                    .onErrorResume(error -> {
+                        log.warn("Model {} failed", modelId, error);
+                        return Mono.just(new ModelResponse(modelId, null, elapsedMillis(started),
+                                error.getMessage()));
+                    });
+        });
+    }
+
+    private static long elapsedMillis(long started) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+}
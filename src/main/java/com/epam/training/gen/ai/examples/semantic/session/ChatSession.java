@@ -0,0 +1,213 @@
+package com.epam.training.gen.ai.examples.semantic.session;
+
+import com.epam.training.gen.ai.examples.semantic.tokenizer.TokenCounter;
+import com.microsoft.semantickernel.services.chatcompletion.ChatHistory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A conversation kept between requests: the recent turns verbatim and, once older turns were compacted, a
+ * summary of them.
+ * <p>
+ * One turn runs at a time per session; {@link #tryStart()} claims the session for it. All state is guarded by
+ * the session's monitor.
+ */
+public class ChatSession {
+
+    private static final long TURN_OVERHEAD_BYTES = 64;
+    private static final long SESSION_OVERHEAD_BYTES = 256;
+
+    private final String id;
+    private final List<ChatTurn> turns;
+    private String summary;
+    private long compactions;
+    private Instant lastActive;
+    private boolean busy;
+
+    ChatSession(String id) {
+        this(new State(id, null, List.of(), 0, Instant.now()));
+    }
+
+    ChatSession(State state) {
+        this.id = state.id();
+        this.summary = state.summary();
+        this.turns = new ArrayList<>(state.turns());
+        this.compactions = state.compactions();
+        this.lastActive = state.lastActive();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Claims the session for one turn.
+     *
+     * @return {@code false} when another turn is in progress
+     */
+    public synchronized boolean tryStart() {
+        if (busy) {
+            return false;
+        }
+        busy = true;
+        lastActive = Instant.now();
+        return true;
+    }
+
+    /**
+     * Releases the session after a turn, whether it succeeded or not.
+     */
+    public synchronized void finish() {
+        busy = false;
+        lastActive = Instant.now();
+    }
+
+    /**
+     * Counts the prompt tokens of the conversation followed by a new user message.
+     *
+     * @param input        the new user message
+     * @param tokenCounter counts the tokens of each message
+     * @return the prompt tokens
+     */
+    public synchronized long promptTokens(String input, TokenCounter tokenCounter) {
+        long tokens = ChatTurn.user(input).tokens(tokenCounter);
+        if (summary != null) {
+            tokens += tokenCounter.count(summary) + ChatTurn.MESSAGE_OVERHEAD_TOKENS;
+        }
+        for (ChatTurn turn : turns) {
+            tokens += turn.tokens(tokenCounter);
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the oldest turns whose removal frees at least the given tokens, always whole user and assistant
+     * pairs.
+     *
+     * @param tokens       the tokens to free
+     * @param tokenCounter counts the tokens of each message
+     * @return the oldest turns, possibly all of them
+     */
+    public synchronized List<ChatTurn> oldestTurns(long tokens, TokenCounter tokenCounter) {
+        int count = 0;
+        long freed = 0;
+        while (count < turns.size() && (freed < tokens || count % 2 != 0)) {
+            freed += turns.get(count++).tokens(tokenCounter);
+        }
+        return List.copyOf(turns.subList(0, count));
+    }
+
+    /**
+     * Drops the oldest turns and replaces the summary.
+     *
+     * @param dropped    the number of oldest turns to drop
+     * @param newSummary the summary of everything before the remaining turns, {@code null} to keep none
+     */
+    public synchronized void compact(int dropped, String newSummary) {
+        turns.subList(0, Math.min(dropped, turns.size())).clear();
+        summary = newSummary;
+        compactions++;
+    }
+
+    /**
+     * Builds the prompt of the next turn: the summary as a system message, the kept turns and the new input.
+     *
+     * @param input the new user message
+     * @return a new chat history
+     */
+    public synchronized ChatHistory toHistory(String input) {
+        var history = new ChatHistory();
+        if (summary != null) {
+            history.addSystemMessage("Summary of the earlier conversation: " + summary);
+        }
+        for (ChatTurn turn : turns) {
+            if (ChatTurn.USER.equals(turn.role())) {
+                history.addUserMessage(turn.content());
+            } else {
+                history.addAssistantMessage(turn.content());
+            }
+        }
+        history.addUserMessage(input);
+        return history;
+    }
+
+    /**
+     * Joins the prompt of the next turn into one text, as the rate limiters count it.
+     *
+     * @param input the new user message
+     * @return the prompt text
+     */
+    public synchronized String promptText(String input) {
+        var text = new StringBuilder();
+        if (summary != null) {
+            text.append(summary).append('\n');
+        }
+        for (ChatTurn turn : turns) {
+            text.append(turn.role()).append(": ").append(turn.content()).append('\n');
+        }
+        return text.append(ChatTurn.USER).append(": ").append(input).toString();
+    }
+
+    /**
+     * Records a completed turn.
+     *
+     * @param input  the user message
+     * @param answer the assistant answer
+     */
+    public synchronized void append(String input, String answer) {
+        turns.add(ChatTurn.user(input));
+        turns.add(ChatTurn.assistant(answer));
+    }
+
+    public synchronized int turnCount() {
+        return turns.size();
+    }
+
+    public synchronized String getSummary() {
+        return summary;
+    }
+
+    synchronized boolean isBusy() {
+        return busy;
+    }
+
+    synchronized Instant getLastActive() {
+        return lastActive;
+    }
+
+    /**
+     * Approximates the heap held by the session, two bytes per character plus fixed overheads.
+     *
+     * @return the approximate bytes
+     */
+    synchronized long memoryBytes() {
+        long bytes = SESSION_OVERHEAD_BYTES + (summary == null ? 0 : 2L * summary.length());
+        for (ChatTurn turn : turns) {
+            bytes += TURN_OVERHEAD_BYTES + 2L * turn.content().length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns a copy of the session state, as persisted and reported.
+     *
+     * @return the state
+     */
+    public synchronized State state() {
+        return new State(id, summary, List.copyOf(turns), compactions, lastActive);
+    }
+
+    /**
+     * Persistent state of a session.
+     *
+     * @param id          the session id
+     * @param summary     the summary of the compacted turns, {@code null} when none were summarized
+     * @param turns       the kept turns, oldest first
+     * @param compactions how many times the conversation was shortened
+     * @param lastActive  when the last turn started or ended
+     */
+    public record State(String id, String summary, List<ChatTurn> turns, long compactions, Instant lastActive) {
+    }
+}
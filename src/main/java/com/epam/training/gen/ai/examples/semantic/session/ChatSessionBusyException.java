@@ -0,0 +1,15 @@
+package com.epam.training.gen.ai.examples.semantic.session;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a message is sent to a session that is still answering the previous one.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ChatSessionBusyException extends RuntimeException {
+
+    public ChatSessionBusyException(String sessionId) {
+        super("Chat session " + sessionId + " is answering another message");
+    }
+}
@@ -0,0 +1,15 @@
+package com.epam.training.gen.ai.examples.semantic.session;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown for a session id that was never created, was deleted or expired.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ChatSessionNotFoundException extends RuntimeException {
+
+    public ChatSessionNotFoundException(String sessionId) {
+        super("Unknown chat session " + sessionId);
+    }
+}
@@ -0,0 +1,16 @@
+package com.epam.training.gen.ai.examples.semantic.session;
+
+/**
+ * Snapshot of {@link ChatSessionStore} counters.
+ *
+ * @param created     sessions created
+ * @param loaded      sessions read back from disk after leaving memory
+ * @param expired     sessions dropped after their idle timeout
+ * @param evictions   sessions dropped from memory to stay within the memory budget
+ * @param compactions turns shortened to stay within the token budget
+ * @param sessions    sessions currently in memory
+ * @param memoryBytes approximate bytes held by the sessions in memory
+ */
+public record ChatSessionStats(long created, long loaded, long expired, long evictions, long compactions,
+                               int sessions, long memoryBytes) {
+}
@@ -0,0 +1,332 @@
+package com.epam.training.gen.ai.examples.semantic.session;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Keeps chat sessions between requests.
+ * <p>
+ * Sessions live in memory, bounded by {@code chat-session-max-memory-bytes}, and are dropped after
+ * {@code chat-session-idle-minutes} without a turn. When {@code chat-session-directory} is set, every session is
+ * also written there as JSON after each turn, so a session evicted from memory or kept across a restart is read
+ * back on its next turn; only the idle timeout removes it for good. Disk reads and writes run on the blocking
+ * scheduler.
+ */
+@Slf4j
+@Component
+public class ChatSessionStore {
+
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Scheduler blockingScheduler;
+
+    @Value("${chat-session-directory:}")
+    private String directoryName;
+
+    @Value("${chat-session-idle-minutes:30}")
+    private long idleMinutes;
+
+    @Value("${chat-session-max-memory-bytes:67108864}")
+    private long maxMemoryBytes;
+
+    private final LinkedHashMap<String, Entry> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private Path directory;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong loaded = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    private Disposable sweeper;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!directoryName.isBlank()) {
+            directory = Files.createDirectories(Path.of(directoryName));
+            log.info("Chat sessions are persisted in {}", directory);
+        }
+        sweeper = Flux.interval(Duration.ofMinutes(1))
+                .onBackpressureDrop()
+                .concatMap(tick -> sweep().onErrorResume(e -> {
+                    log.warn("Failed to expire idle chat sessions", e);
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void close() {
+        sweeper.dispose();
+    }
+
+    /**
+     * Starts a new, empty session.
+     *
+     * @return the session
+     */
+    public ChatSession create() {
+        var session = new ChatSession(UUID.randomUUID().toString());
+        long bytes = session.memoryBytes();
+        synchronized (sessions) {
+            sessions.put(session.getId(), new Entry(session, bytes));
+            memoryBytes += bytes;
+        }
+        created.incrementAndGet();
+        return session;
+    }
+
+    /**
+     * Looks a session up in memory, then on disk.
+     *
+     * @param id the session id
+     * @return the session, or empty when it is unknown or expired
+     */
+    public Mono<ChatSession> find(String id) {
+        if (!SESSION_ID.matcher(id).matches()) {
+            return Mono.empty();
+        }
+        synchronized (sessions) {
+            Entry entry = sessions.get(id);
+            if (entry != null) {
+                return Mono.just(entry.session);
+            }
+        }
+        if (directory == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> read(id))
+                .subscribeOn(blockingScheduler)
+                .map(session -> {
+                    synchronized (sessions) {
+                        Entry entry = sessions.get(id);
+                        if (entry != null) {
+                            return entry.session;
+                        }
+                        long bytes = session.memoryBytes();
+                        sessions.put(id, new Entry(session, bytes));
+                        memoryBytes += bytes;
+                    }
+                    loaded.incrementAndGet();
+                    return session;
+                });
+    }
+
+    /**
+     * Records the new state of a session after a turn: writes it to disk when persistence is enabled and evicts
+     * the least recently used idle sessions beyond the memory budget.
+     *
+     * @param session the changed session
+     * @return completes once the session is written
+     */
+    public Mono<Void> save(ChatSession session) {
+        if (!isCurrent(session)) {
+            return Mono.empty();
+        }
+        Mono<Void> write = directory == null
+                ? Mono.empty()
+                : Mono.<Void>fromRunnable(() -> write(session.state())).subscribeOn(blockingScheduler);
+        return write.then(Mono.fromRunnable(() -> {
+            synchronized (sessions) {
+                Entry entry = sessions.get(session.getId());
+                if (entry == null || entry.session != session) {
+                    return;
+                }
+                long bytes = session.memoryBytes();
+                memoryBytes += bytes - entry.bytes;
+                entry.bytes = bytes;
+                evict(session);
+            }
+        }));
+    }
+
+    /**
+     * Deletes a session from memory and disk.
+     *
+     * @param id the session id
+     * @return whether the session existed
+     */
+    public Mono<Boolean> delete(String id) {
+        if (!SESSION_ID.matcher(id).matches()) {
+            return Mono.just(false);
+        }
+        boolean inMemory;
+        synchronized (sessions) {
+            Entry entry = sessions.remove(id);
+            inMemory = entry != null;
+            if (inMemory) {
+                memoryBytes -= entry.bytes;
+            }
+        }
+        if (directory == null) {
+            return Mono.just(inMemory);
+        }
+        return Mono.fromCallable(() -> Files.deleteIfExists(file(id)) || inMemory)
+                .subscribeOn(blockingScheduler);
+    }
+
+    /**
+     * Counts a conversation shortened to fit the token budget.
+     */
+    public void recordCompaction() {
+        compactions.incrementAndGet();
+    }
+
+    /**
+     * Returns a snapshot of the store counters.
+     *
+     * @return the session statistics
+     */
+    public ChatSessionStats stats() {
+        synchronized (sessions) {
+            return new ChatSessionStats(created.get(), loaded.get(), expired.get(), evictions.get(),
+                    compactions.get(), sessions.size(), memoryBytes);
+        }
+    }
+
+    /**
+     * Drops the least recently used sessions beyond the memory budget, skipping the ones answering a message and
+     * the one just saved. Must hold the sessions lock.
+     */
+    private void evict(ChatSession saved) {
+        var eldest = sessions.values().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            if (entry.session == saved || entry.session.isBusy()) {
+                continue;
+            }
+            eldest.remove();
+            memoryBytes -= entry.bytes;
+            evictions.incrementAndGet();
+        }
+    }
+
+    private Mono<Void> sweep() {
+        Instant idleSince = Instant.now().minus(Duration.ofMinutes(idleMinutes));
+        List<String> idle = new ArrayList<>();
+        synchronized (sessions) {
+            var entries = sessions.values().iterator();
+            while (entries.hasNext()) {
+                Entry entry = entries.next();
+                if (!entry.session.isBusy() && entry.session.getLastActive().isBefore(idleSince)) {
+                    entries.remove();
+                    memoryBytes -= entry.bytes;
+                    idle.add(entry.session.getId());
+                }
+            }
+        }
+        expired.addAndGet(idle.size());
+        if (directory == null) {
+            return Mono.empty();
+        }
+        return Mono.<Void>fromRunnable(() -> {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.filter(file -> file.toString().endsWith(".json")).toList()) {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(idleSince) && !isInMemory(file)) {
+                        if (Files.deleteIfExists(file) && !idle.contains(idOf(file))) {
+                            expired.incrementAndGet();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).subscribeOn(blockingScheduler);
+    }
+
+    /**
+     * Tells whether the session is still the stored one, that is it was not deleted during its turn.
+     */
+    private boolean isCurrent(ChatSession session) {
+        synchronized (sessions) {
+            Entry entry = sessions.get(session.getId());
+            return entry != null && entry.session == session;
+        }
+    }
+
+    private boolean isInMemory(Path file) {
+        synchronized (sessions) {
+            return sessions.containsKey(idOf(file));
+        }
+    }
+
+    private ChatSession read(String id) throws IOException {
+        Path file = file(id);
+        try {
+            if (Files.getLastModifiedTime(file).toInstant()
+                    .isBefore(Instant.now().minus(Duration.ofMinutes(idleMinutes)))) {
+                Files.deleteIfExists(file);
+                expired.incrementAndGet();
+                return null;
+            }
+            return new ChatSession(objectMapper.readValue(file.toFile(), ChatSession.State.class));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void write(ChatSession.State state) {
+        Path file = file(state.id());
+        try {
+            Path temporary = Files.createTempFile(directory, state.id(), ".tmp");
+            try {
+                objectMapper.writeValue(temporary.toFile(), state);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write chat session " + state.id(), e);
+        }
+    }
+
+    private Path file(String id) {
+        return directory.resolve(id + ".json");
+    }
+
+    private static String idOf(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - ".json".length());
+    }
+
+    private static final class Entry {
+
+        private final ChatSession session;
+        private long bytes;
+
+        private Entry(ChatSession session, long bytes) {
+            this.session = session;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.epam.training.gen.ai.examples.semantic.session;
+
+import com.epam.training.gen.ai.examples.semantic.tokenizer.TokenCounter;
+
+/**
+ * One message of a conversation kept in a {@link ChatSession}.
+ *
+ * @param role    {@code user} or {@code assistant}
+ * @param content the message text
+ */
+public record ChatTurn(String role, String content) {
+
+    public static final String USER = "user";
+    public static final String ASSISTANT = "assistant";
+
+    /**
+     * Tokens a message costs in a prompt beyond its content, for the role and the message delimiters.
+     */
+    public static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    public static ChatTurn user(String content) {
+        return new ChatTurn(USER, content);
+    }
+
+    public static ChatTurn assistant(String content) {
+        return new ChatTurn(ASSISTANT, content);
+    }
+
+    /**
+     * Counts the prompt tokens of this message.
+     *
+     * @param tokenCounter counts the tokens of the content
+     * @return the tokens
+     */
+    public long tokens(TokenCounter tokenCounter) {
+        return tokenCounter.count(content) + MESSAGE_OVERHEAD_TOKENS;
+    }
+}
@@ -0,0 +1,15 @@
+package com.epam.training.gen.ai.examples.semantic.session;
+
+/**
+ * How a conversation over its token budget is shortened.
+ */
+public enum CompactionMode {
+    /**
+     * Drop the oldest turns.
+     */
+    TRIM,
+    /**
+     * Replace the oldest turns by a model-written summary, falling back to {@link #TRIM} when the summary fails.
+     */
+    SUMMARIZE
+}
@@ -0,0 +1,220 @@
+package com.epam.training.gen.ai.examples.semantic.tokenizer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Byte pair encoder producing the same tokens as tiktoken for an {@link Encoding}, special tokens aside.
+ * <p>
+ * The text is split into pieces by the encoding's pre-tokenizer; each piece is encoded to UTF-8 and, unless it is
+ * a token as a whole, its bytes are merged pairwise in rank order until no adjacent pair is a token. The pieces,
+ * the bytes and the merge state live in per-thread scratch arrays that grow to the longest piece seen, so
+ * counting the tokens of a text allocates one cursor and nothing per piece or token. Instances are thread-safe.
+ */
+public final class BpeTokenizer {
+
+    private static final int NO_RANK = Integer.MAX_VALUE;
+
+    private final Encoding encoding;
+    private final RankTable ranks;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private BpeTokenizer(Encoding encoding, RankTable ranks) {
+        this.encoding = encoding;
+        this.ranks = ranks;
+    }
+
+    /**
+     * Creates a tokenizer from a tiktoken rank file, such as {@code cl100k_base.tiktoken}.
+     *
+     * @param encoding the encoding the file belongs to
+     * @param rankFile the rank file contents, not closed
+     * @return the tokenizer
+     * @throws IOException when the file cannot be read or is malformed
+     */
+    public static BpeTokenizer load(Encoding encoding, InputStream rankFile) throws IOException {
+        return new BpeTokenizer(encoding, RankTable.read(rankFile));
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    /**
+     * Returns the number of tokens in the vocabulary.
+     *
+     * @return the vocabulary size
+     */
+    public int vocabularySize() {
+        return ranks.size();
+    }
+
+    /**
+     * Counts the tokens of a text.
+     *
+     * @param text the text
+     * @return the token count
+     */
+    public int count(CharSequence text) {
+        Scratch state = scratch.get();
+        Pieces pieces = encoding.pieces(text);
+        int count = 0;
+        while (pieces.next()) {
+            count += encodePiece(text, pieces.start(), pieces.end(), state, false);
+        }
+        return count;
+    }
+
+    /**
+     * Encodes a text into token ids.
+     *
+     * @param text the text
+     * @return the token ids, in text order
+     */
+    public int[] encode(CharSequence text) {
+        Scratch state = scratch.get();
+        state.tokenCount = 0;
+        Pieces pieces = encoding.pieces(text);
+        while (pieces.next()) {
+            encodePiece(text, pieces.start(), pieces.end(), state, true);
+        }
+        return Arrays.copyOf(state.tokens, state.tokenCount);
+    }
+
+    /**
+     * Encodes one piece, appending its tokens to the scratch tokens when asked.
+     *
+     * @return the number of tokens of the piece
+     */
+    private int encodePiece(CharSequence text, int start, int end, Scratch state, boolean collect) {
+        int length = state.utf8(text, start, end);
+        byte[] bytes = state.bytes;
+        int whole = ranks.get(bytes, 0, length);
+        if (whole >= 0) {
+            if (collect) {
+                state.addToken(whole);
+            }
+            return 1;
+        }
+
+        // boundaries[i] starts part i; pairRanks[i] is the rank of parts i and i + 1 merged
+        int parts = length + 1;
+        state.ensureParts(parts);
+        int[] boundaries = state.boundaries;
+        int[] pairRanks = state.pairRanks;
+        for (int i = 0; i < parts; i++) {
+            boundaries[i] = i;
+        }
+        for (int i = 0; i < parts - 1; i++) {
+            pairRanks[i] = rank(bytes, boundaries, parts, i, 2);
+        }
+        while (true) {
+            int best = -1;
+            int bestRank = NO_RANK;
+            for (int i = 0; i < parts - 2; i++) {
+                if (pairRanks[i] < bestRank) {
+                    bestRank = pairRanks[i];
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            if (best > 0) {
+                pairRanks[best - 1] = rank(bytes, boundaries, parts, best - 1, 3);
+            }
+            pairRanks[best] = rank(bytes, boundaries, parts, best, 3);
+            System.arraycopy(boundaries, best + 2, boundaries, best + 1, parts - best - 2);
+            System.arraycopy(pairRanks, best + 2, pairRanks, best + 1, parts - best - 2);
+            parts--;
+        }
+        if (collect) {
+            for (int i = 0; i < parts - 1; i++) {
+                int token = ranks.get(bytes, boundaries[i], boundaries[i + 1]);
+                if (token < 0) {
+                    throw new IllegalStateException("Byte " + (bytes[boundaries[i]] & 0xFF) + " is not a token of "
+                            + encoding.encodingName());
+                }
+                state.addToken(token);
+            }
+        }
+        return parts - 1;
+    }
+
+    /**
+     * Returns the rank of the bytes from part {@code i} to the boundary {@code span} parts later, or
+     * {@link #NO_RANK} when there is no such boundary or the bytes are not a token.
+     */
+    private int rank(byte[] bytes, int[] boundaries, int parts, int i, int span) {
+        if (i + span >= parts) {
+            return NO_RANK;
+        }
+        int rank = ranks.get(bytes, boundaries[i], boundaries[i + span]);
+        return rank < 0 ? NO_RANK : rank;
+    }
+
+    /**
+     * Per-thread buffers reused across calls.
+     */
+    private static final class Scratch {
+
+        private byte[] bytes = new byte[256];
+        private int[] boundaries = new int[257];
+        private int[] pairRanks = new int[257];
+        private int[] tokens = new int[1024];
+        private int tokenCount;
+
+        /**
+         * Encodes a range of a text to UTF-8 into {@link #bytes}, with {@code ?} for unpaired surrogates like
+         * {@link String#getBytes}.
+         *
+         * @return the number of bytes
+         */
+        private int utf8(CharSequence text, int start, int end) {
+            int maxBytes = (end - start) * 3;
+            if (bytes.length < maxBytes) {
+                bytes = new byte[Math.max(maxBytes, bytes.length * 2)];
+            }
+            byte[] out = bytes;
+            int n = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    out[n++] = (byte) c;
+                } else if (c < 0x800) {
+                    out[n++] = (byte) (0xC0 | c >> 6);
+                    out[n++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    out[n++] = (byte) (0xF0 | cp >> 18);
+                    out[n++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    out[n++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    out[n++] = (byte) (0x80 | cp & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    out[n++] = '?';
+                } else {
+                    out[n++] = (byte) (0xE0 | c >> 12);
+                    out[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    out[n++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            return n;
+        }
+
+        private void ensureParts(int parts) {
+            if (boundaries.length < parts) {
+                int size = Math.max(parts, boundaries.length * 2);
+                boundaries = new int[size];
+                pairRanks = new int[size];
+            }
+        }
+
+        private void addToken(int token) {
+            if (tokenCount == tokens.length) {
+                tokens = Arrays.copyOf(tokens, tokens.length * 2);
+            }
+            tokens[tokenCount++] = token;
+        }
+    }
+}
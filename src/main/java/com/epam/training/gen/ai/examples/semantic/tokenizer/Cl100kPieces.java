@@ -0,0 +1,154 @@
+package com.epam.training.gen.ai.examples.semantic.tokenizer;
+
+/**
+ * Splits a text like the pre-tokenization pattern of {@link Encoding#CL100K_BASE},
+ * <pre>
+ * (?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\r\n\p{L}\p{N}]?\p{L}+|\p{N}{1,3}| ?[^\s\p{L}\p{N}]+[\r\n]*|\s*[\r\n]+|\s+(?!\S)|\s+
+ * </pre>
+ * with one hand-written pass over the characters instead of a backtracking regex. The alternatives are tried in
+ * order at each position, as the regex does.
+ */
+final class Cl100kPieces implements Pieces {
+
+    private final CharSequence text;
+    private final int length;
+    private int start;
+    private int end;
+
+    Cl100kPieces(CharSequence text) {
+        this.text = text;
+        this.length = text.length();
+    }
+
+    @Override
+    public boolean next() {
+        start = end;
+        if (start >= length) {
+            return false;
+        }
+        end = pieceEnd(start);
+        return true;
+    }
+
+    @Override
+    public int start() {
+        return start;
+    }
+
+    @Override
+    public int end() {
+        return end;
+    }
+
+    private int pieceEnd(int i) {
+        int c = Character.codePointAt(text, i);
+        int next = i + Character.charCount(c);
+
+        // (?i:'s|'t|'re|'ve|'m|'ll|'d)
+        if (c == '\'' && next < length) {
+            int contraction = contractionEnd(next);
+            if (contraction > 0) {
+                return contraction;
+            }
+        }
+
+        // [^\r\n\p{L}\p{N}]?\p{L}+
+        if (isLetter(c)) {
+            return letters(next);
+        }
+        if (c != '\r' && c != '\n' && !isNumber(c) && next < length && isLetter(Character.codePointAt(text, next))) {
+            return letters(next);
+        }
+
+        // \p{N}{1,3}
+        if (isNumber(c)) {
+            int j = next;
+            for (int digits = 1; digits < 3 && j < length; digits++) {
+                int d = Character.codePointAt(text, j);
+                if (!isNumber(d)) {
+                    break;
+                }
+                j += Character.charCount(d);
+            }
+            return j;
+        }
+
+        // ' ?[^\s\p{L}\p{N}]+[\r\n]*'
+        int j = c == ' ' ? next : i;
+        if (j < length && isSymbol(Character.codePointAt(text, j))) {
+            do {
+                j += Character.charCount(Character.codePointAt(text, j));
+            } while (j < length && isSymbol(Character.codePointAt(text, j)));
+            while (j < length && (text.charAt(j) == '\r' || text.charAt(j) == '\n')) {
+                j++;
+            }
+            return j;
+        }
+
+        // \s*[\r\n]+, \s+(?!\S) and \s+ on the whitespace run from i, which only holds BMP characters
+        int runEnd = i;
+        int lastNewline = -1;
+        while (runEnd < length && isWhitespace(text.charAt(runEnd))) {
+            if (text.charAt(runEnd) == '\r' || text.charAt(runEnd) == '\n') {
+                lastNewline = runEnd;
+            }
+            runEnd++;
+        }
+        if (lastNewline >= 0) {
+            return lastNewline + 1;
+        }
+        if (runEnd == length || runEnd - i < 2) {
+            return runEnd;
+        }
+        return runEnd - 1;
+    }
+
+    /**
+     * Returns the end of a contraction whose letters start at the given index, or {@code -1}.
+     */
+    private int contractionEnd(int i) {
+        char first = Character.toLowerCase(text.charAt(i));
+        if (first == 's' || first == 'ſ' || first == 't' || first == 'm' || first == 'd') {
+            return i + 1;
+        }
+        if (i + 1 < length) {
+            char second = Character.toLowerCase(text.charAt(i + 1));
+            if ((first == 'r' || first == 'v') && second == 'e' || first == 'l' && second == 'l') {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    private int letters(int i) {
+        while (i < length) {
+            int c = Character.codePointAt(text, i);
+            if (!isLetter(c)) {
+                break;
+            }
+            i += Character.charCount(c);
+        }
+        return i;
+    }
+
+    private static boolean isLetter(int c) {
+        return Character.isLetter(c);
+    }
+
+    private static boolean isNumber(int c) {
+        int type = Character.getType(c);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER
+                || type == Character.OTHER_NUMBER;
+    }
+
+    /**
+     * Tells whether a character is in the Unicode {@code White_Space} property, which {@code \s} matches.
+     */
+    private static boolean isWhitespace(int c) {
+        return c >= '\t' && c <= '\r' || c == '\u0085' || Character.isSpaceChar(c);
+    }
+
+    private static boolean isSymbol(int c) {
+        return !isWhitespace(c) && !isLetter(c) && !isNumber(c);
+    }
+}
@@ -0,0 +1,64 @@
+package com.epam.training.gen.ai.examples.semantic.tokenizer;
+
+import java.util.Locale;
+
+/**
+ * The tiktoken encodings of the OpenAI models: how a text is split into pieces before byte pair merging, and the
+ * file holding the merge ranks.
+ * <p>
+ * {@link #CL100K_BASE} is used by {@code gpt-35-turbo}, {@code gpt-4} and the {@code text-embedding-ada-002} and
+ * {@code text-embedding-3} models, {@link #O200K_BASE} by {@code gpt-4o} and later models.
+ */
+public enum Encoding {
+
+    CL100K_BASE {
+        @Override
+        Pieces pieces(CharSequence text) {
+            return new Cl100kPieces(text);
+        }
+    },
+
+    O200K_BASE {
+        @Override
+        Pieces pieces(CharSequence text) {
+            return new RegexPieces(RegexPieces.O200K.matcher(text));
+        }
+    };
+
+    /**
+     * Returns the encoding of a name such as {@code cl100k_base}.
+     *
+     * @param name the encoding name, in any case
+     * @return the encoding
+     * @throws IllegalArgumentException when the encoding is unknown
+     */
+    public static Encoding of(String name) {
+        return valueOf(name.strip().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the name of the encoding, as tiktoken calls it.
+     *
+     * @return the name, such as {@code cl100k_base}
+     */
+    public String encodingName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the name of the file holding the merge ranks, as published with tiktoken.
+     *
+     * @return the file name, such as {@code cl100k_base.tiktoken}
+     */
+    public String fileName() {
+        return encodingName() + ".tiktoken";
+    }
+
+    /**
+     * Splits a text into the pieces that are encoded independently.
+     *
+     * @param text the text
+     * @return a cursor over the pieces, in text order
+     */
+    abstract Pieces pieces(CharSequence text);
+}
@@ -0,0 +1,29 @@
+package com.epam.training.gen.ai.examples.semantic.tokenizer;
+
+/**
+ * Cursor over the pieces a text is split into before byte pair merging. A piece is reported as a range of the
+ * text, so walking the pieces allocates nothing.
+ */
+interface Pieces {
+
+    /**
+     * Moves to the next piece.
+     *
+     * @return {@code false} at the end of the text
+     */
+    boolean next();
+
+    /**
+     * Returns the index of the first character of the current piece.
+     *
+     * @return the start index
+     */
+    int start();
+
+    /**
+     * Returns the index after the last character of the current piece.
+     *
+     * @return the end index
+     */
+    int end();
+}
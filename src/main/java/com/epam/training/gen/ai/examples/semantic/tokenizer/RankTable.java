@@ -0,0 +1,125 @@
+package com.epam.training.gen.ai.examples.semantic.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * The merge ranks of an encoding: the rank of every token, keyed by its bytes.
+ * <p>
+ * The token bytes are packed into one array and found through an open addressing table of primitive slots, so a
+ * lookup takes a range of a byte array and allocates nothing, unlike a {@code Map} keyed by byte strings.
+ */
+final class RankTable {
+
+    private final byte[] bytes;
+    private final int[] offsets;
+    private final int[] ranks;
+    private final int size;
+    private final int[] slots;
+    private final int[] slotHashes;
+    private final int mask;
+
+    private RankTable(byte[] bytes, int[] offsets, int[] ranks, int size) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.ranks = ranks;
+        this.size = size;
+        int capacity = Integer.highestOneBit(Math.max(16, size * 2 - 1)) << 1;
+        this.slots = new int[capacity];
+        this.slotHashes = new int[capacity];
+        this.mask = capacity - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int hash = hash(bytes, offsets[entry], offsets[entry + 1]);
+            int slot = hash & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry + 1;
+            slotHashes[slot] = hash;
+        }
+    }
+
+    /**
+     * Reads a tiktoken rank file: one line per token with its base64 bytes and its rank, separated by a space.
+     *
+     * @param in the file contents, not closed
+     * @return the table
+     * @throws IOException when the file cannot be read or is malformed
+     */
+    static RankTable read(InputStream in) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        var bytes = new ByteArrayOutputStream(1 << 20);
+        int[] offsets = new int[1 << 17];
+        int[] ranks = new int[1 << 17];
+        int size = 0;
+        Base64.Decoder decoder = Base64.getDecoder();
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int separator = line.indexOf(' ');
+            if (separator <= 0) {
+                throw new IOException("Malformed rank line " + (size + 1) + ": " + line);
+            }
+            if (size + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                ranks = Arrays.copyOf(ranks, ranks.length * 2);
+            }
+            try {
+                byte[] token = decoder.decode(line.substring(0, separator));
+                ranks[size] = Integer.parseInt(line.substring(separator + 1).strip());
+                offsets[size] = bytes.size();
+                bytes.write(token);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed rank line " + (size + 1) + ": " + line, e);
+            }
+            size++;
+        }
+        offsets[size] = bytes.size();
+        return new RankTable(bytes.toByteArray(), offsets, ranks, size);
+    }
+
+    /**
+     * Looks up the rank of a byte sequence.
+     *
+     * @param data the array holding the sequence
+     * @param from the index of the first byte
+     * @param to   the index after the last byte
+     * @return the rank, or {@code -1} when the sequence is not a token
+     */
+    int get(byte[] data, int from, int to) {
+        int hash = hash(data, from, to);
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (slotHashes[slot] == hash) {
+                int entry = slots[slot] - 1;
+                if (Arrays.equals(bytes, offsets[entry], offsets[entry + 1], data, from, to)) {
+                    return ranks[entry];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of tokens.
+     *
+     * @return the token count
+     */
+    int size() {
+        return size;
+    }
+
+    private static int hash(byte[] data, int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ (data[i] & 0xFF)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,45 @@
+package com.epam.training.gen.ai.examples.semantic.tokenizer;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a text with the pre-tokenization pattern of an encoding.
+ */
+final class RegexPieces implements Pieces {
+
+    /**
+     * The pre-tokenization pattern of {@link Encoding#O200K_BASE}.
+     */
+    static final Pattern O200K = Pattern.compile(String.join("|",
+            "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+"
+                    + "(?i:'s|'t|'re|'ve|'m|'ll|'d)?",
+            "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*"
+                    + "(?i:'s|'t|'re|'ve|'m|'ll|'d)?",
+            "\\p{N}{1,3}",
+            " ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*",
+            "\\s*[\\r\\n]+",
+            "\\s+(?!\\S)",
+            "\\s+"), Pattern.UNICODE_CHARACTER_CLASS);
+
+    private final Matcher matcher;
+
+    RegexPieces(Matcher matcher) {
+        this.matcher = matcher;
+    }
+
+    @Override
+    public boolean next() {
+        return matcher.find();
+    }
+
+    @Override
+    public int start() {
+        return matcher.start();
+    }
+
+    @Override
+    public int end() {
+        return matcher.end();
+    }
+}
@@ -0,0 +1,11 @@
+package com.epam.training.gen.ai.examples.semantic.tokenizer;
+
+/**
+ * The tokens of a text.
+ *
+ * @param tokens   the token count
+ * @param encoding the encoding the text was counted with, such as {@code cl100k_base}
+ * @param exact    {@code false} when the count is the four characters per token estimate
+ */
+public record TokenCount(long tokens, String encoding, boolean exact) {
+}
@@ -0,0 +1,90 @@
+package com.epam.training.gen.ai.examples.semantic.tokenizer;
+
+import com.epam.training.gen.ai.examples.semantic.ratelimit.DeploymentLimiters;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the tokens of prompts and embedding inputs locally, so requests can be sized and budgeted before they
+ * are sent.
+ * <p>
+ * The merge ranks of {@code tokenizer-encoding} are read at startup from {@code tokenizer-encoding-file}, by
+ * default {@code classpath:tokenizer/<encoding>.tiktoken}, which the build downloads. When the file is missing the
+ * counter falls back to {@link DeploymentLimiters#estimateTokens}, four characters per token, and reports its
+ * counts as inexact.
+ */
+@Slf4j
+@Component
+public class TokenCounter {
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${tokenizer-encoding:cl100k_base}")
+    private String encodingName;
+
+    @Value("${tokenizer-encoding-file:}")
+    private String encodingFile;
+
+    private Encoding encoding;
+    private BpeTokenizer tokenizer;
+
+    @PostConstruct
+    void init() {
+        encoding = Encoding.of(encodingName);
+        String location = encodingFile.isBlank() ? "classpath:tokenizer/" + encoding.fileName() : encodingFile;
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            log.warn("Token encoding file {} not found, estimating four characters per token", location);
+            return;
+        }
+        long started = System.nanoTime();
+        try (InputStream in = resource.getInputStream()) {
+            tokenizer = BpeTokenizer.load(encoding, in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read token encoding file " + location, e);
+        }
+        log.info("Loaded {} tokens of encoding {} in {} ms", tokenizer.vocabularySize(), encoding.encodingName(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Counts the tokens of a text.
+     *
+     * @param text the text, may be {@code null}
+     * @return the token count, estimated when no encoding is loaded
+     */
+    public long count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return tokenizer == null ? DeploymentLimiters.estimateTokens(text) : tokenizer.count(text);
+    }
+
+    /**
+     * Counts the tokens of a text and reports how they were counted.
+     *
+     * @param text the text, may be {@code null}
+     * @return the count with the encoding used
+     */
+    public TokenCount measure(String text) {
+        return new TokenCount(count(text), encoding.encodingName(), isExact());
+    }
+
+    /**
+     * Tells whether counts come from the encoding rather than the character estimate.
+     *
+     * @return {@code true} when the encoding is loaded
+     */
+    public boolean isExact() {
+        return tokenizer != null;
+    }
+}
@@ -0,0 +1,149 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Scores a batch of queries against every live vector of an in-process store in one blocked pass.
+ * <p>
+ * The ordinal space is split into one range per worker. Each worker walks its range in blocks of vectors small
+ * enough to stay in the core's cache and scores every tile of {@link #QUERY_TILE} queries against a block before
+ * moving to the next one. A stored vector is thus read from memory once per batch instead of once per query, and
+ * the queries of a tile score it, four at a time with {@link VectorMath#dot4}, while it is in the L1 cache. Each
+ * worker keeps one {@link TopK} per query; they are merged at the end.
+ */
+final class BatchScan {
+
+    /**
+     * Number of queries scored against a stored vector while it is loaded.
+     */
+    static final int QUERY_TILE = 8;
+
+    private static final int BLOCK_BYTES = 256 * 1024;
+    private static final int MIN_BLOCK_SIZE = 64;
+
+    private BatchScan() {
+    }
+
+    /**
+     * Scores the live ordinals of a block against a tile of queries.
+     */
+    @FunctionalInterface
+    interface BlockScorer {
+
+        /**
+         * Offers the score of every live ordinal in {@code [from, to)} against every query in
+         * {@code [queryFrom, queryTo)} to the heap of that query.
+         *
+         * @param from      the first ordinal of the block
+         * @param to        the ordinal after the block
+         * @param queryFrom the first query of the tile
+         * @param queryTo   the query after the tile
+         * @param heaps     the heaps of the worker, one per query
+         * @param dots      scratch space of {@link #QUERY_TILE} scores for {@link #dots}
+         */
+        void score(int from, int to, int queryFrom, int queryTo, TopK[] heaps, float[] dots);
+    }
+
+    /**
+     * Runs the blocked pass.
+     *
+     * @param queries      the number of queries
+     * @param limit        the candidates to keep per query
+     * @param ordinalBound the exclusive upper bound of allocated ordinals
+     * @param dimensions   the vector dimensions, to size the blocks
+     * @param scorer       scores one block against one tile
+     * @return the best candidates of each query
+     */
+    static TopK[] scan(int queries, int limit, int ordinalBound, int dimensions, BlockScorer scorer) {
+        int blockSize = Math.max(MIN_BLOCK_SIZE, BLOCK_BYTES / (Math.max(1, dimensions) * Float.BYTES));
+        int blocks = (ordinalBound + blockSize - 1) / blockSize;
+        int workers = Math.max(1, Math.min(blocks, 2 * ForkJoinPool.getCommonPoolParallelism()));
+        int rangeSize = (blocks + workers - 1) / workers * blockSize;
+        IntStream workerStream = IntStream.range(0, workers);
+        if (workers > 1) {
+            workerStream = workerStream.parallel();
+        }
+        return workerStream
+                .mapToObj(worker -> {
+                    TopK[] heaps = heaps(queries, limit);
+                    float[] dots = new float[QUERY_TILE];
+                    int to = (int) Math.min(ordinalBound, (long) (worker + 1) * rangeSize);
+                    for (int from = worker * rangeSize; from < to; from += blockSize) {
+                        int blockTo = Math.min(to, from + blockSize);
+                        for (int query = 0; query < queries; query += QUERY_TILE) {
+                            scorer.score(from, blockTo, query, Math.min(queries, query + QUERY_TILE), heaps, dots);
+                        }
+                    }
+                    return heaps;
+                })
+                .reduce(BatchScan::merge)
+                .orElseGet(() -> heaps(queries, limit));
+    }
+
+    /**
+     * Computes the dot products of a tile of queries with one stored vector, four queries at a time.
+     *
+     * @param queries   the query vectors
+     * @param queryFrom the first query of the tile
+     * @param queryTo   the query after the tile
+     * @param data      the backing array holding the stored vector
+     * @param offset    the index of the first component of the stored vector
+     * @param dots      receives the dot product of query {@code queryFrom + i} at index {@code i}
+     */
+    static void dots(float[][] queries, int queryFrom, int queryTo, float[] data, int offset, float[] dots) {
+        int query = queryFrom;
+        for (; query + 4 <= queryTo; query += 4) {
+            VectorMath.dot4(queries[query], queries[query + 1], queries[query + 2], queries[query + 3],
+                    data, offset, dots, query - queryFrom);
+        }
+        for (; query < queryTo; query++) {
+            dots[query - queryFrom] = VectorMath.dot(queries[query], data, offset);
+        }
+    }
+
+    /**
+     * Copies boxed query vectors into primitive arrays.
+     *
+     * @param queries the query vectors
+     * @return the primitive copies, in query order
+     */
+    static float[][] toArrays(List<List<Float>> queries) {
+        float[][] arrays = new float[queries.size()][];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = VectorMath.toArray(queries.get(i));
+        }
+        return arrays;
+    }
+
+    /**
+     * Computes the inverse norm of each query, {@code 0} for a zero vector.
+     *
+     * @param queries the query vectors
+     * @return the inverse norms, in query order
+     */
+    static float[] inverseNorms(float[][] queries) {
+        float[] inverseNorms = new float[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            float norm = VectorMath.norm(queries[i]);
+            inverseNorms[i] = norm == 0f ? 0f : 1f / norm;
+        }
+        return inverseNorms;
+    }
+
+    private static TopK[] heaps(int queries, int limit) {
+        TopK[] heaps = new TopK[queries];
+        for (int i = 0; i < queries; i++) {
+            heaps[i] = new TopK(limit);
+        }
+        return heaps;
+    }
+
+    private static TopK[] merge(TopK[] first, TopK[] second) {
+        for (int i = 0; i < first.length; i++) {
+            first[i].merge(second[i]);
+        }
+        return first;
+    }
+}
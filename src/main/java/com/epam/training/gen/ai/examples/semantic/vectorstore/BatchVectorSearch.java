@@ -0,0 +1,24 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResults;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Vector store that answers many queries with one pass over its vectors, rather than one scan per query.
+ */
+public interface BatchVectorSearch {
+
+    /**
+     * Searches the best matches of every query, exhaustively.
+     *
+     * @param queries the query vectors
+     * @param options the search options, applied to every query
+     * @return the best matches of each query, best first, in query order
+     */
+    Mono<List<VectorSearchResults<DummyRecord>>> searchBatchAsync(List<List<Float>> queries,
+                                                                  VectorSearchOptions options);
+}
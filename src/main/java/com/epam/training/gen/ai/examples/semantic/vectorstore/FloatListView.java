@@ -0,0 +1,39 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Read-only {@link java.util.List} view over a primitive {@code float[]}.
+ * <p>
+ * Lets records keep the {@code List<Float>} shape expected by Semantic Kernel
+ * while the values stay packed; elements are boxed only when read.
+ */
+public final class FloatListView extends AbstractList<Float> implements RandomAccess {
+
+    private final float[] values;
+
+    public FloatListView(float[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public Float get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns a copy of the underlying values.
+     *
+     * @return the values as a new primitive array
+     */
+    public float[] toFloatArray() {
+        return Arrays.copyOf(values, values.length);
+    }
+}
@@ -0,0 +1,156 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import java.util.Arrays;
+
+/**
+ * Append-friendly storage of fixed-dimension vectors in contiguous primitive pages.
+ * <p>
+ * Each page is a single {@code float[]} holding {@value #PAGE_SIZE} vectors back to back,
+ * so growing the store never copies existing vectors and a scan walks memory linearly.
+ * The inverse norm of every vector is cached to turn cosine similarity into one multiply.
+ * Callers are responsible for synchronization.
+ */
+public final class FloatVectorPages {
+
+    static final int PAGE_SHIFT = 10;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final int dimensions;
+    private float[][] pages = new float[4][];
+    private float[] inverseNorms = new float[PAGE_SIZE];
+
+    public FloatVectorPages(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Stores a vector at the given ordinal, allocating pages as needed.
+     *
+     * @param ordinal the slot to write
+     * @param vector  the vector, must have {@link #dimensions()} components
+     */
+    public void set(int ordinal, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected a vector of " + dimensions
+                    + " dimensions but got " + vector.length);
+        }
+        float[] page = ensurePage(ordinal);
+        System.arraycopy(vector, 0, page, offset(ordinal), dimensions);
+        float norm = VectorMath.norm(vector);
+        inverseNorms[ordinal] = norm == 0f ? 0f : 1f / norm;
+    }
+
+    /**
+     * Returns a copy of the vector stored at the given ordinal.
+     *
+     * @param ordinal the slot to read
+     * @return the vector
+     */
+    public float[] get(int ordinal) {
+        int offset = offset(ordinal);
+        return Arrays.copyOfRange(page(ordinal), offset, offset + dimensions);
+    }
+
+    /**
+     * Returns the page backing the given ordinal; the vector starts at {@link #offset(int)}.
+     *
+     * @param ordinal the slot
+     * @return the backing page
+     */
+    public float[] page(int ordinal) {
+        return pages[ordinal >>> PAGE_SHIFT];
+    }
+
+    /**
+     * Returns the position of the given ordinal's first component within its page.
+     *
+     * @param ordinal the slot
+     * @return the offset inside {@link #page(int)}
+     */
+    public int offset(int ordinal) {
+        return (ordinal & PAGE_MASK) * dimensions;
+    }
+
+    public float inverseNorm(int ordinal) {
+        return inverseNorms[ordinal];
+    }
+
+    /**
+     * Scores a query against a stored vector.
+     *
+     * @param query              the query vector
+     * @param queryInverseNorm   the inverse norm of the query, used for cosine similarity
+     * @param ordinal            the stored vector
+     * @param similarityFunction how to score the pair
+     * @return the similarity score, higher is closer
+     */
+    public float score(float[] query, float queryInverseNorm, int ordinal, SimilarityFunction similarityFunction) {
+        float dot = VectorMath.dot(query, page(ordinal), offset(ordinal));
+        return similarityFunction == SimilarityFunction.COSINE
+                ? dot * queryInverseNorm * inverseNorms[ordinal]
+                : dot;
+    }
+
+    /**
+     * Scores two stored vectors against each other.
+     *
+     * @param first              the first stored vector
+     * @param second             the second stored vector
+     * @param similarityFunction how to score the pair
+     * @return the similarity score, higher is closer
+     */
+    public float score(int first, int second, SimilarityFunction similarityFunction) {
+        float dot = VectorMath.dot(page(first), offset(first), page(second), offset(second), dimensions);
+        return similarityFunction == SimilarityFunction.COSINE
+                ? dot * inverseNorms[first] * inverseNorms[second]
+                : dot;
+    }
+
+    /**
+     * Releases the pages holding no ordinal below {@code size}.
+     *
+     * @param size the number of leading ordinals to keep
+     */
+    public void truncate(int size) {
+        int keptPages = (size + PAGE_SIZE - 1) >>> PAGE_SHIFT;
+        Arrays.fill(pages, Math.min(keptPages, pages.length), pages.length, null);
+        int keptNorms = Math.max(PAGE_SIZE, size);
+        if (inverseNorms.length > keptNorms) {
+            inverseNorms = Arrays.copyOf(inverseNorms, keptNorms);
+        }
+    }
+
+    /**
+     * Returns the number of heap bytes held by the pages and norm cache.
+     *
+     * @return the allocated size in bytes
+     */
+    public long allocatedBytes() {
+        long bytes = (long) inverseNorms.length * Float.BYTES;
+        for (float[] page : pages) {
+            if (page != null) {
+                bytes += (long) page.length * Float.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    private float[] ensurePage(int ordinal) {
+        int pageIndex = ordinal >>> PAGE_SHIFT;
+        if (pageIndex >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(pages.length * 2, pageIndex + 1));
+        }
+        if (pages[pageIndex] == null) {
+            pages[pageIndex] = new float[PAGE_SIZE * dimensions];
+        }
+        if (ordinal >= inverseNorms.length) {
+            inverseNorms = Arrays.copyOf(inverseNorms, Math.max(inverseNorms.length * 2, ordinal + 1));
+        }
+        return pages[pageIndex];
+    }
+}
@@ -0,0 +1,605 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link PrimitiveVectorStoreRecordCollection} that answers searches from an HNSW graph instead of a full scan.
+ * <p>
+ * Nodes are linked as records are upserted, so the index grows incrementally. Deleted or replaced records stay
+ * in the graph as routing nodes and are only filtered out of the results. Once they outnumber
+ * {@code rebuildDeadRatio} of the nodes, a new graph is built on the rebuild scheduler from a copy of the live
+ * vectors, without holding any lock, so searches and writes go on against the old graph meanwhile. The write lock
+ * is then taken briefly to move the records to the dense ordinals of the new graph, link the records written
+ * during the rebuild into it and swap it in, so memory and search cost follow the corpus rather than the update
+ * churn. Level-0 adjacency is one flat {@code int[]}, upper levels are small per-node arrays, and every traversal
+ * reuses thread-local buffers.
+ *
+ * @see <a href="https://arxiv.org/abs/1603.09320">Malkov and Yashunin, HNSW</a>
+ */
+@Slf4j
+public class HnswVectorStoreRecordCollection extends PrimitiveVectorStoreRecordCollection {
+
+    private static final int MAX_LEVEL = 16;
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final double rebuildDeadRatio;
+    private final Scheduler rebuildScheduler;
+    private final ThreadLocal<SearchContext> searchContexts = ThreadLocal.withInitial(SearchContext::new);
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile int efSearch;
+
+    private Graph graph;
+    private int deadNodes;
+    private long rebuilds;
+    private long clears;
+
+    /**
+     * Creates an HNSW-indexed collection.
+     *
+     * @param collectionName     the collection name
+     * @param dimensions         the vector dimensions
+     * @param similarityFunction how vectors are compared
+     * @param m                  the number of links per node on upper levels, twice that on level 0
+     * @param efConstruction     the candidate list size used while linking new nodes
+     * @param efSearch           the default candidate list size used while searching
+     * @param rebuildDeadRatio   the share of deleted or replaced nodes that triggers a rebuild, {@code 0} to never
+     *                           rebuild
+     * @param rebuildScheduler   the scheduler the replacement graph is built on
+     */
+    public HnswVectorStoreRecordCollection(String collectionName, int dimensions, SimilarityFunction similarityFunction,
+                                           int m, int efConstruction, int efSearch, double rebuildDeadRatio,
+                                           Scheduler rebuildScheduler) {
+        super(collectionName, dimensions, similarityFunction);
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW M must be at least 2 but was " + m);
+        }
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.rebuildDeadRatio = rebuildDeadRatio;
+        this.rebuildScheduler = rebuildScheduler;
+        this.graph = new Graph(vectors);
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * Changes the candidate list size used by subsequent searches; larger values trade latency for recall.
+     *
+     * @param efSearch the new candidate list size
+     */
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * Returns the number of deleted or replaced records still linked into the graph as routing nodes.
+     *
+     * @return the dead node count
+     */
+    public int deadNodes() {
+        lock.readLock().lock();
+        try {
+            return deadNodes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns how many times the graph was rebuilt to drop its dead nodes.
+     *
+     * @return the rebuild count
+     */
+    public long rebuilds() {
+        lock.readLock().lock();
+        try {
+            return rebuilds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Measures recall@k and latency of the graph search for several {@code efSearch} values against the exact scan.
+     * <p>
+     * Queries are midpoints of random pairs of stored vectors, so they are close to the data without being
+     * exact copies of a stored record.
+     *
+     * @param queryCount the number of sampled queries
+     * @param k          the result count to compare
+     * @param efValues   the {@code efSearch} values to measure
+     * @return one entry for the exact scan followed by one entry per {@code efSearch} value
+     * @throws IllegalArgumentException when the query count, {@code k} or an {@code efSearch} value is not positive
+     */
+    public List<RecallReportEntry> recallReport(int queryCount, int k, int[] efValues) {
+        if (queryCount < 1 || k < 1 || Arrays.stream(efValues).anyMatch(ef -> ef < 1)) {
+            throw new IllegalArgumentException("queries, k and efSearch must be positive");
+        }
+        lock.readLock().lock();
+        try {
+            int[] liveOrdinals = liveOrdinals();
+            if (liveOrdinals.length < 2) {
+                return List.of();
+            }
+            var sampler = new SplittableRandom(7);
+            float[][] queries = new float[queryCount][];
+            for (int i = 0; i < queryCount; i++) {
+                float[] first = vectors.get(liveOrdinals[sampler.nextInt(liveOrdinals.length)]);
+                float[] second = vectors.get(liveOrdinals[sampler.nextInt(liveOrdinals.length)]);
+                for (int d = 0; d < first.length; d++) {
+                    first[d] = (first[d] + second[d]) * 0.5f;
+                }
+                queries[i] = first;
+            }
+
+            int[][] exact = new int[queryCount][];
+            long[] exactNanos = new long[queryCount];
+            for (int i = 0; i < queryCount; i++) {
+                long start = System.nanoTime();
+                exact[i] = ordinals(super.searchOrdinals(queries[i], inverseNorm(queries[i]), k));
+                exactNanos[i] = System.nanoTime() - start;
+            }
+            var report = new ArrayList<RecallReportEntry>();
+            report.add(entry("exact", 1.0, exactNanos));
+
+            for (int ef : efValues) {
+                long[] nanos = new long[queryCount];
+                long hits = 0;
+                for (int i = 0; i < queryCount; i++) {
+                    long start = System.nanoTime();
+                    int[] approximate = ordinals(graph.search(queries[i], inverseNorm(queries[i]), k, ef));
+                    nanos[i] = System.nanoTime() - start;
+                    hits += intersectionSize(exact[i], approximate);
+                }
+                long expected = Arrays.stream(exact).mapToLong(result -> result.length).sum();
+                report.add(entry("efSearch=" + ef, expected == 0 ? 1.0 : (double) hits / expected, nanos));
+            }
+            return report;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected TopK searchOrdinals(float[] query, float queryInverseNorm, int limit) {
+        return graph.search(query, queryInverseNorm, limit, efSearch);
+    }
+
+    /**
+     * Counts the nodes visited on the base layer; the few hops of the upper layers are left out.
+     */
+    @Override
+    protected long scannedBySearch() {
+        return graph.entryPoint < 0 ? 0 : searchContexts.get().visitedCount;
+    }
+
+    @Override
+    protected boolean updatesInPlace() {
+        return false;
+    }
+
+    @Override
+    protected void onInserted(int ordinal) {
+        graph.insert(ordinal);
+    }
+
+    @Override
+    protected void onReleased(int ordinal) {
+        deadNodes++;
+    }
+
+    @Override
+    protected void onCleared() {
+        graph = new Graph(vectors);
+        deadNodes = 0;
+        clears++;
+    }
+
+    @Override
+    protected void afterWrite() {
+        if (rebuildDeadRatio > 0 && deadNodes > 0 && deadNodes >= rebuildDeadRatio * ordinalBound()
+                && rebuilding.compareAndSet(false, true)) {
+            long clearsAtStart = clears;
+            rebuildScheduler.schedule(() -> rebuild(clearsAtStart));
+        }
+    }
+
+    /**
+     * Builds a graph over a copy of the live vectors without holding a lock, then swaps it in under the write lock.
+     * The records written meanwhile have ordinals past the copied ones, since replaced and deleted ordinals are
+     * never reused, and are linked into the new graph before the swap; copied records deleted meanwhile stay in it
+     * as dead nodes. The rebuild is dropped when the collection is emptied while it runs.
+     */
+    private void rebuild(long clearsAtStart) {
+        try {
+            long started = System.nanoTime();
+            int[] copied;
+            int copiedBound;
+            var copy = new FloatVectorPages(vectors.dimensions());
+            lock.readLock().lock();
+            try {
+                if (clears != clearsAtStart) {
+                    return;
+                }
+                copied = liveOrdinals();
+                copiedBound = ordinalBound();
+                for (int i = 0; i < copied.length; i++) {
+                    copy.set(i, vectors.get(copied[i]));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            var rebuilt = new Graph(copy);
+            for (int ordinal = 0; ordinal < copied.length; ordinal++) {
+                rebuilt.insert(ordinal);
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (clears != clearsAtStart) {
+                    return;
+                }
+                int before = ordinalBound();
+                int[] order = Arrays.copyOf(copied, copied.length + before - copiedBound);
+                int count = copied.length;
+                for (int ordinal = copiedBound; ordinal < before; ordinal++) {
+                    if (isLive(ordinal)) {
+                        order[count++] = ordinal;
+                    }
+                }
+                order = Arrays.copyOf(order, count);
+                int dead = moveOrdinals(order);
+                rebuilt.vectors = vectors;
+                for (int ordinal = copied.length; ordinal < order.length; ordinal++) {
+                    rebuilt.insert(ordinal);
+                }
+                graph = rebuilt;
+                deadNodes = dead;
+                rebuilds++;
+                log.info("Rebuilt HNSW graph from {} to {} nodes, {} written during the rebuild, in {} ms", before,
+                        order.length, order.length - copied.length, (System.nanoTime() - started) / 1_000_000);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            log.error("HNSW graph rebuild failed", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private int[] liveOrdinals() {
+        int bound = ordinalBound();
+        int[] result = new int[bound];
+        int count = 0;
+        for (int ordinal = 0; ordinal < bound; ordinal++) {
+            if (isLive(ordinal)) {
+                result[count++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static float inverseNorm(float[] vector) {
+        float norm = VectorMath.norm(vector);
+        return norm == 0f ? 0f : 1f / norm;
+    }
+
+    private static int[] ordinals(TopK topK) {
+        int[] ordinals = new int[topK.size()];
+        topK.drainDescending(ordinals, new float[topK.size()]);
+        return ordinals;
+    }
+
+    private static int intersectionSize(int[] expected, int[] actual) {
+        int hits = 0;
+        for (int ordinal : actual) {
+            for (int candidate : expected) {
+                if (candidate == ordinal) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static RecallReportEntry entry(String configuration, double recall, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1_000.0;
+        double p95 = sorted.length == 0 ? 0 : sorted[(int) Math.ceil(sorted.length * 0.95) - 1] / 1_000.0;
+        return new RecallReportEntry(configuration, recall, mean, p95);
+    }
+
+    private static void sortDescending(int[] nodes, float[] scores) {
+        for (int i = 1; i < nodes.length; i++) {
+            int node = nodes[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                nodes[j + 1] = nodes[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * The layered graph over the ordinals of one vector array. A rebuild fills a new one over a dense copy of the
+     * live vectors, then points it at the collection's vectors once the records have been moved to match.
+     */
+    private final class Graph {
+        private final SplittableRandom random = new SplittableRandom(42);
+        private FloatVectorPages vectors;
+        private int[] layer0 = new int[FloatVectorPages.PAGE_SIZE * (maxM0 + 1)];
+        private int[][] upperLayers = new int[FloatVectorPages.PAGE_SIZE][];
+        private int entryPoint = -1;
+        private int maxLevel = -1;
+        private int nodes;
+
+        Graph(FloatVectorPages vectors) {
+            this.vectors = vectors;
+        }
+
+        TopK search(float[] query, float queryInverseNorm, int limit, int ef) {
+            var topK = new TopK(limit);
+            if (entryPoint < 0) {
+                return topK;
+            }
+            int current = entryPoint;
+            for (int layer = maxLevel; layer > 0; layer--) {
+                current = greedyClosest(query, queryInverseNorm, current, layer);
+            }
+            NodeHeap found = searchLayer(searchContexts.get(), query, queryInverseNorm, current,
+                    Math.max(ef, limit), 0);
+            while (!found.isEmpty()) {
+                float score = found.peekScore();
+                int node = found.pop();
+                if (isLive(node)) {
+                    topK.offer(node, score);
+                }
+            }
+            return topK;
+        }
+
+        void insert(int ordinal) {
+            nodes = Math.max(nodes, ordinal + 1);
+            int level = randomLevel();
+            ensureCapacity(ordinal);
+            layer0[ordinal * (maxM0 + 1)] = 0;
+            upperLayers[ordinal] = level == 0 ? null : new int[level * (m + 1)];
+
+            if (entryPoint < 0) {
+                entryPoint = ordinal;
+                maxLevel = level;
+                return;
+            }
+
+            float[] query = vectors.get(ordinal);
+            float queryInverseNorm = vectors.inverseNorm(ordinal);
+            var context = searchContexts.get();
+            int current = entryPoint;
+            for (int layer = maxLevel; layer > level; layer--) {
+                current = greedyClosest(query, queryInverseNorm, current, layer);
+            }
+            for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+                NodeHeap found = searchLayer(context, query, queryInverseNorm, current, efConstruction, layer);
+                int count = found.size();
+                int[] candidates = new int[count];
+                float[] scores = new float[count];
+                for (int i = count - 1; i >= 0; i--) {
+                    scores[i] = found.peekScore();
+                    candidates[i] = found.pop();
+                }
+                current = candidates[0];
+                int[] neighbors = selectNeighbors(candidates, scores, count, maxLinks(layer));
+                setNeighbors(ordinal, layer, neighbors, neighbors.length);
+                for (int neighbor : neighbors) {
+                    link(neighbor, ordinal, layer);
+                }
+            }
+            if (level > maxLevel) {
+                entryPoint = ordinal;
+                maxLevel = level;
+            }
+        }
+
+        private int greedyClosest(float[] query, float queryInverseNorm, int entry, int layer) {
+            int current = entry;
+            float currentScore = vectors.score(query, queryInverseNorm, current, similarityFunction());
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                int[] adjacency = adjacency(current, layer);
+                int base = adjacencyOffset(current, layer);
+                for (int i = 1, count = adjacency[base]; i <= count; i++) {
+                    int neighbor = adjacency[base + i];
+                    float neighborScore = vectors.score(query, queryInverseNorm, neighbor, similarityFunction());
+                    if (neighborScore > currentScore) {
+                        current = neighbor;
+                        currentScore = neighborScore;
+                        improved = true;
+                    }
+                }
+            }
+            return current;
+        }
+
+        /**
+         * Best-first search of one layer, returning at most {@code ef} nodes in a min-heap owned by the context.
+         */
+        private NodeHeap searchLayer(SearchContext context, float[] query, float queryInverseNorm,
+                                     int entry, int ef, int layer) {
+            context.reset(nodes);
+            NodeHeap candidates = context.candidates;
+            NodeHeap results = context.results;
+            float entryScore = vectors.score(query, queryInverseNorm, entry, similarityFunction());
+            context.visit(entry);
+            candidates.push(entry, entryScore);
+            results.push(entry, entryScore);
+
+            while (!candidates.isEmpty()) {
+                if (results.size() >= ef && candidates.peekScore() < results.peekScore()) {
+                    break;
+                }
+                int node = candidates.pop();
+                int[] adjacency = adjacency(node, layer);
+                int base = adjacencyOffset(node, layer);
+                for (int i = 1, count = adjacency[base]; i <= count; i++) {
+                    int neighbor = adjacency[base + i];
+                    if (!context.visit(neighbor)) {
+                        continue;
+                    }
+                    float neighborScore = vectors.score(query, queryInverseNorm, neighbor, similarityFunction());
+                    if (results.size() < ef || neighborScore > results.peekScore()) {
+                        candidates.push(neighbor, neighborScore);
+                        results.push(neighbor, neighborScore);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Neighbour selection heuristic: a candidate is kept only if it is closer to the base than to any neighbour
+         * already kept, which spreads links in different directions. Pruned candidates fill any remaining slots.
+         */
+        private int[] selectNeighbors(int[] candidates, float[] scores, int count, int maxLinks) {
+            if (count <= maxLinks) {
+                return Arrays.copyOf(candidates, count);
+            }
+            int[] selected = new int[maxLinks];
+            boolean[] taken = new boolean[count];
+            int selectedCount = 0;
+            for (int i = 0; i < count && selectedCount < maxLinks; i++) {
+                boolean diverse = true;
+                for (int j = 0; j < selectedCount; j++) {
+                    if (vectors.score(candidates[i], selected[j], similarityFunction()) > scores[i]) {
+                        diverse = false;
+                        break;
+                    }
+                }
+                if (diverse) {
+                    selected[selectedCount++] = candidates[i];
+                    taken[i] = true;
+                }
+            }
+            for (int i = 0; i < count && selectedCount < maxLinks; i++) {
+                if (!taken[i]) {
+                    selected[selectedCount++] = candidates[i];
+                }
+            }
+            return selected;
+        }
+
+        private void link(int node, int newNeighbor, int layer) {
+            int[] adjacency = adjacency(node, layer);
+            int base = adjacencyOffset(node, layer);
+            int count = adjacency[base];
+            int maxLinks = maxLinks(layer);
+            if (count < maxLinks) {
+                adjacency[base + count + 1] = newNeighbor;
+                adjacency[base]++;
+                return;
+            }
+            int[] candidates = new int[count + 1];
+            float[] scores = new float[count + 1];
+            System.arraycopy(adjacency, base + 1, candidates, 0, count);
+            candidates[count] = newNeighbor;
+            for (int i = 0; i <= count; i++) {
+                scores[i] = vectors.score(node, candidates[i], similarityFunction());
+            }
+            sortDescending(candidates, scores);
+            int[] kept = selectNeighbors(candidates, scores, candidates.length, maxLinks);
+            setNeighbors(node, layer, kept, kept.length);
+        }
+
+        private void setNeighbors(int node, int layer, int[] neighbors, int count) {
+            int[] adjacency = adjacency(node, layer);
+            int base = adjacencyOffset(node, layer);
+            adjacency[base] = count;
+            System.arraycopy(neighbors, 0, adjacency, base + 1, count);
+        }
+
+        private int[] adjacency(int node, int layer) {
+            return layer == 0 ? layer0 : upperLayers[node];
+        }
+
+        private int adjacencyOffset(int node, int layer) {
+            return layer == 0 ? node * (maxM0 + 1) : (layer - 1) * (m + 1);
+        }
+
+        private int maxLinks(int layer) {
+            return layer == 0 ? maxM0 : m;
+        }
+
+        private int randomLevel() {
+            double uniform = 1.0 - random.nextDouble();
+            return Math.min(MAX_LEVEL, (int) Math.floor(-Math.log(uniform) * levelMultiplier));
+        }
+
+        private void ensureCapacity(int ordinal) {
+            if (ordinal >= upperLayers.length) {
+                int capacity = Math.max(upperLayers.length * 2, ordinal + 1);
+                upperLayers = Arrays.copyOf(upperLayers, capacity);
+                layer0 = Arrays.copyOf(layer0, capacity * (maxM0 + 1));
+            }
+        }
+    }
+
+    /**
+     * Per-thread traversal buffers; the visited marks are generation stamped so they never need clearing.
+     */
+    private static final class SearchContext {
+        private final NodeHeap candidates = new NodeHeap(true, 64);
+        private final NodeHeap results = new NodeHeap(false, 64);
+        private int[] visited = new int[0];
+        private int generation;
+        private int visitedCount;
+
+        void reset(int bound) {
+            visitedCount = 0;
+            candidates.clear();
+            results.clear();
+            if (visited.length < bound) {
+                visited = new int[Math.max(bound, visited.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                generation = 1;
+            }
+        }
+
+        boolean visit(int node) {
+            if (visited[node] == generation) {
+                return false;
+            }
+            visited[node] = generation;
+            visitedCount++;
+            return true;
+        }
+    }
+}
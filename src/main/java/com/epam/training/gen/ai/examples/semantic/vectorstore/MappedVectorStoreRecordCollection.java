@@ -0,0 +1,906 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchFilter;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResult;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResults;
+import com.microsoft.semantickernel.data.vectorstorage.VectorStoreRecordCollection;
+import com.microsoft.semantickernel.data.vectorstorage.options.DeleteRecordOptions;
+import com.microsoft.semantickernel.data.vectorstorage.options.GetRecordOptions;
+import com.microsoft.semantickernel.data.vectorstorage.options.UpsertRecordOptions;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Durable {@link VectorStoreRecordCollection} backed by a memory-mapped vector segment and an append-only record log.
+ * <p>
+ * Every generation of the store consists of three files in the collection directory:
+ * <ul>
+ *     <li>{@code vectors-<gen>.seg} holds fixed-size slots of little-endian floats, one per ordinal, each followed
+ *     by the inverse norm of the vector, and is mapped in chunks rather than read;</li>
+ *     <li>{@code records-<gen>.snapshot} holds one {@code U} line per live record at the last snapshot;</li>
+ *     <li>{@code records-<gen>.log} holds the {@code U}/{@code D} lines written since that snapshot.</li>
+ * </ul>
+ * The {@code CURRENT} file names the live generation. Startup replays only the small record files, so the store
+ * is searchable as soon as the segment is mapped. A periodic maintenance task folds the log into a new snapshot,
+ * and rewrites the segment densely into a new generation once too many slots are free. The snapshot is written
+ * from a copy of the records taken under the read lock, so writes only wait for the log prefix to be dropped.
+ * <p>
+ * Writes reach the log file on every call; a group commit forces the log and the segment chunks written since
+ * the previous commit to disk every {@code logSyncInterval}, or on every call when the interval is zero. A write
+ * never overwrites a slot that the durable log still points at: a replaced record moves to another slot, and the
+ * slots freed by replacements and deletes are only reused once the log lines freeing them are forced. After a
+ * crash the segment therefore agrees with whatever prefix of the log survived; a torn last line is cut off the log
+ * at startup, before any new line is appended.
+ * <p>
+ * The record payloads are logged with the records and indexed in memory by a {@link PayloadIndex}, rebuilt by the
+ * replay, so a filtered search reads only the slots of matching records.
+ */
+@Slf4j
+public class MappedVectorStoreRecordCollection implements VectorStoreRecordCollection<String, DummyRecord>,
+        SearchStatistics, BatchVectorSearch, AutoCloseable {
+
+    private static final int CHUNK_VECTORS = 8192;
+    private static final int SCAN_BLOCK_SIZE = 4096;
+    private static final double COMPACTION_FREE_RATIO = 0.25;
+    private static final String CURRENT_FILE = "CURRENT";
+    private static final String UPSERT = "U";
+    private static final String DELETE = "D";
+
+    private final String collectionName;
+    private final int dimensions;
+    private final int slotFloats;
+    private final SimilarityFunction similarityFunction;
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<float[]> scratch;
+
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private final List<DummyRecord> records = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final PayloadIndex payloadIndex = new PayloadIndex();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final List<Integer> unsyncedFreeOrdinals = new ArrayList<>();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder scannedVectors = new LongAdder();
+    private final List<MappedByteBuffer> mappedChunks = new ArrayList<>();
+    private final List<FloatBuffer> chunks = new ArrayList<>();
+    private final BitSet dirtyChunks = new BitSet();
+    private final Object maintenanceLock = new Object();
+
+    private final Scheduler maintenanceScheduler = Schedulers.newSingle("vector-store-maintenance", true);
+    private final Disposable maintenance;
+    private final Disposable logSync;
+    private final boolean syncEveryWrite;
+
+    private long generation;
+    private FileChannel segment;
+    private FileChannel logChannel;
+    private BufferedWriter logWriter;
+    private long logEntries;
+    private long logWrites;
+    private long syncedLogWrites;
+    private volatile boolean created;
+
+    /**
+     * Opens or creates a store and replays its record files.
+     *
+     * @param collectionName     the collection name, also the subdirectory holding its files
+     * @param dimensions         the vector dimensions
+     * @param similarityFunction how vectors are compared
+     * @param baseDirectory      the directory holding all collections
+     * @param snapshotInterval   how often the log is folded into a snapshot
+     * @param logSyncInterval    how often written records are forced to disk, zero to force on every write
+     * @param objectMapper       the mapper used for record payloads
+     */
+    public MappedVectorStoreRecordCollection(String collectionName, int dimensions,
+                                             SimilarityFunction similarityFunction, Path baseDirectory,
+                                             Duration snapshotInterval, Duration logSyncInterval,
+                                             ObjectMapper objectMapper) {
+        this.collectionName = collectionName;
+        this.dimensions = dimensions;
+        this.slotFloats = dimensions + 1;
+        this.similarityFunction = similarityFunction;
+        this.directory = baseDirectory.resolve(collectionName);
+        this.objectMapper = objectMapper;
+        this.scratch = ThreadLocal.withInitial(() -> new float[slotFloats]);
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            Path current = directory.resolve(CURRENT_FILE);
+            if (Files.exists(current)) {
+                generation = Long.parseLong(Files.readString(current).strip());
+                created = true;
+            } else {
+                writeCurrent(0);
+            }
+            openGeneration(generation);
+            replay(snapshotFile(generation));
+            long logLength = replay(logFile(generation));
+            for (int ordinal = records.size() - 1; ordinal >= 0; ordinal--) {
+                if (!live.get(ordinal)) {
+                    freeOrdinals.push(ordinal);
+                }
+            }
+            long discarded = Files.exists(logFile(generation)) ? Files.size(logFile(generation)) - logLength : 0;
+            if (discarded > 0) {
+                log.warn("Discarding {} bytes after the last complete line of {}", discarded, logFile(generation));
+            }
+            openLog(generation, logLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open vector store " + directory, e);
+        }
+        log.info("Opened vector store {} generation {} with {} records in {} ms", directory, generation,
+                ordinalsById.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        long intervalMillis = snapshotInterval.toMillis();
+        this.maintenance = maintenanceScheduler.schedulePeriodically(this::maintain,
+                intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        long syncMillis = logSyncInterval.toMillis();
+        this.syncEveryWrite = syncMillis <= 0;
+        this.logSync = syncEveryWrite ? null : maintenanceScheduler.schedulePeriodically(this::syncLog,
+                syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    @Override
+    public Mono<Boolean> collectionExistsAsync() {
+        return Mono.fromSupplier(() -> created);
+    }
+
+    @Override
+    public Mono<VectorStoreRecordCollection<String, DummyRecord>> createCollectionAsync() {
+        return Mono.fromSupplier(() -> {
+            created = true;
+            return this;
+        });
+    }
+
+    @Override
+    public Mono<VectorStoreRecordCollection<String, DummyRecord>> createCollectionIfNotExistsAsync() {
+        return createCollectionAsync();
+    }
+
+    @Override
+    public Mono<Void> deleteCollectionAsync() {
+        return Mono.fromRunnable(() -> {
+            synchronized (maintenanceLock) {
+                lock.writeLock().lock();
+                try {
+                    ordinalsById.clear();
+                    records.clear();
+                    live.clear();
+                    payloadIndex.clear();
+                    freeOrdinals.clear();
+                    unsyncedFreeOrdinals.clear();
+                    rewriteGeneration();
+                    created = false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        });
+    }
+
+    @Override
+    public Mono<DummyRecord> getAsync(String key, GetRecordOptions options) {
+        return getBatchAsync(List.of(key), options)
+                .flatMap(found -> found.isEmpty() ? Mono.empty() : Mono.just(found.get(0)));
+    }
+
+    @Override
+    public Mono<List<DummyRecord>> getBatchAsync(List<String> keys, GetRecordOptions options) {
+        return Mono.fromCallable(() -> {
+            lock.readLock().lock();
+            try {
+                var result = new ArrayList<DummyRecord>(keys.size());
+                for (String key : keys) {
+                    Integer ordinal = ordinalsById.get(key);
+                    if (ordinal != null) {
+                        result.add(toRecord(ordinal, options == null || options.isIncludeVectors()));
+                    }
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<String> upsertAsync(DummyRecord data, UpsertRecordOptions options) {
+        return upsertBatchAsync(List.of(data), options).map(keys -> keys.get(0));
+    }
+
+    @Override
+    public Mono<List<String>> upsertBatchAsync(List<DummyRecord> data, UpsertRecordOptions options) {
+        return Mono.fromCallable(() -> {
+            lock.writeLock().lock();
+            try {
+                var keys = new ArrayList<String>(data.size());
+                for (DummyRecord record : data) {
+                    keys.add(upsert(record));
+                }
+                commitLog();
+                return keys;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> deleteAsync(String key, DeleteRecordOptions options) {
+        return deleteBatchAsync(List.of(key), options);
+    }
+
+    @Override
+    public Mono<Void> deleteBatchAsync(List<String> keys, DeleteRecordOptions options) {
+        return Mono.fromRunnable(() -> {
+            lock.writeLock().lock();
+            try {
+                for (String key : keys) {
+                    Integer ordinal = ordinalsById.get(key);
+                    if (ordinal != null) {
+                        appendLog(DELETE + "\t" + ordinal);
+                        applyDelete(ordinal);
+                        unsyncedFreeOrdinals.add(ordinal);
+                    }
+                }
+                commitLog();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<VectorSearchResults<DummyRecord>> searchAsync(List<Float> vector, VectorSearchOptions options) {
+        return Mono.fromCallable(() -> {
+            VectorSearchFilter filter = options == null ? null : options.getVectorSearchFilter();
+            int top = options == null || options.getTop() <= 0
+                    ? PrimitiveVectorStoreRecordCollection.DEFAULT_TOP
+                    : options.getTop();
+            int skip = options == null ? 0 : Math.max(0, options.getSkip());
+            boolean includeVectors = options != null && options.isIncludeVectors();
+            VectorMath.checkDimensions(vector, dimensions);
+            float[] query = VectorMath.toArray(vector);
+            float queryNorm = VectorMath.norm(query);
+            float queryInverseNorm = queryNorm == 0f ? 0f : 1f / queryNorm;
+
+            lock.readLock().lock();
+            try {
+                searches.increment();
+                BitSet candidates = PayloadIndex.isFiltered(filter) ? payloadIndex.matching(filter, live) : live;
+                int count = candidates.cardinality();
+                scannedVectors.add(count);
+                int upperBound = Math.min(records.size(), candidates.length());
+                int blocks = (upperBound + SCAN_BLOCK_SIZE - 1) / SCAN_BLOCK_SIZE;
+                IntStream blockStream = IntStream.range(0, blocks);
+                if (blocks > 1 && count > SCAN_BLOCK_SIZE) {
+                    blockStream = blockStream.parallel();
+                }
+                TopK topK = blockStream
+                        .mapToObj(block -> scanBlock(candidates, query, queryInverseNorm, top + skip,
+                                block * SCAN_BLOCK_SIZE,
+                                Math.min(upperBound, (block + 1) * SCAN_BLOCK_SIZE)))
+                        .reduce(TopK::merge)
+                        .orElseGet(() -> new TopK(top + skip));
+                return toResults(topK, skip, includeVectors);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each slot is copied out of the mapping once per tile of queries instead of once per query.
+     */
+    @Override
+    public Mono<List<VectorSearchResults<DummyRecord>>> searchBatchAsync(List<List<Float>> queries,
+                                                                         VectorSearchOptions options) {
+        return Mono.fromCallable(() -> {
+            VectorSearchFilter filter = options == null ? null : options.getVectorSearchFilter();
+            int top = options == null || options.getTop() <= 0
+                    ? PrimitiveVectorStoreRecordCollection.DEFAULT_TOP
+                    : options.getTop();
+            int skip = options == null ? 0 : Math.max(0, options.getSkip());
+            boolean includeVectors = options != null && options.isIncludeVectors();
+            queries.forEach(query -> VectorMath.checkDimensions(query, dimensions));
+            float[][] batch = BatchScan.toArrays(queries);
+            float[] inverseNorms = BatchScan.inverseNorms(batch);
+
+            lock.readLock().lock();
+            try {
+                searches.add(queries.size());
+                BitSet candidates = PayloadIndex.isFiltered(filter) ? payloadIndex.matching(filter, live) : live;
+                scannedVectors.add((long) candidates.cardinality() * queries.size());
+                TopK[] heaps = BatchScan.scan(batch.length, top + skip, records.size(), dimensions,
+                        (from, to, queryFrom, queryTo, tileHeaps, dots) -> {
+                            float[] slot = scratch.get();
+                            for (int ordinal = candidates.nextSetBit(from); ordinal >= 0 && ordinal < to;
+                                 ordinal = candidates.nextSetBit(ordinal + 1)) {
+                                readSlot(ordinal, slot);
+                                BatchScan.dots(batch, queryFrom, queryTo, slot, 0, dots);
+                                for (int query = queryFrom; query < queryTo; query++) {
+                                    float dot = dots[query - queryFrom];
+                                    tileHeaps[query].offer(ordinal, similarityFunction == SimilarityFunction.COSINE
+                                            ? dot * inverseNorms[query] * slot[dimensions]
+                                            : dot);
+                                }
+                            }
+                        });
+                var results = new ArrayList<VectorSearchResults<DummyRecord>>(heaps.length);
+                for (TopK heap : heaps) {
+                    results.add(toResults(heap, skip, includeVectors));
+                }
+                return results;
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Passes every live record, without its embedding, and a copy of its vector to the consumer, in ordinal order.
+     *
+     * @param consumer receives the record and vector of each record
+     */
+    public void forEachVector(BiConsumer<DummyRecord, float[]> consumer) {
+        lock.readLock().lock();
+        try {
+            for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+                float[] vector = new float[dimensions];
+                chunks.get(ordinal / CHUNK_VECTORS).get(slotOffset(ordinal), vector, 0, dimensions);
+                consumer.accept(records.get(ordinal), vector);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the segment to disk and folds the record log into a new snapshot.
+     * <p>
+     * The live records and the log length are copied under the read lock; the snapshot is then written without
+     * any lock, and the write lock is only taken to move the log lines written meanwhile into a fresh log.
+     */
+    public void snapshot() {
+        synchronized (maintenanceLock) {
+            int[] ordinals;
+            DummyRecord[] snapshotRecords;
+            List<MappedByteBuffer> segmentChunks;
+            long logOffset;
+            long copiedEntries;
+            lock.readLock().lock();
+            try {
+                ordinals = live.stream().toArray();
+                snapshotRecords = new DummyRecord[ordinals.length];
+                for (int i = 0; i < ordinals.length; i++) {
+                    snapshotRecords[i] = records.get(ordinals[i]);
+                }
+                segmentChunks = List.copyOf(mappedChunks);
+                logOffset = logChannel.size();
+                copiedEntries = logEntries;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot snapshot vector store " + directory, e);
+            } finally {
+                lock.readLock().unlock();
+            }
+            try {
+                for (MappedByteBuffer chunk : segmentChunks) {
+                    chunk.force();
+                }
+                writeSnapshot(snapshotFile(generation), ordinals, snapshotRecords);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot snapshot vector store " + directory, e);
+            }
+            lock.writeLock().lock();
+            try {
+                truncateLog(logOffset);
+                logEntries -= copiedEntries;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot snapshot vector store " + directory, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Rewrites live vectors densely into a new generation, dropping free slots.
+     */
+    public void compact() {
+        synchronized (maintenanceLock) {
+            lock.writeLock().lock();
+            try {
+                long started = System.nanoTime();
+                int before = records.size();
+                rewriteGeneration();
+                log.info("Compacted vector store {} from {} to {} slots in {} ms", directory, before,
+                        records.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot compact vector store " + directory, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public long searches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long scannedVectors() {
+        return scannedVectors.sum();
+    }
+
+    @Override
+    public void close() {
+        maintenance.dispose();
+        if (logSync != null) {
+            logSync.dispose();
+        }
+        maintenanceScheduler.dispose();
+        snapshot();
+        lock.writeLock().lock();
+        try {
+            logWriter.close();
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Failed to close vector store {}", directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void maintain() {
+        try {
+            boolean fragmented;
+            boolean dirty;
+            lock.readLock().lock();
+            try {
+                fragmented = !records.isEmpty() && freeOrdinals.size() + unsyncedFreeOrdinals.size()
+                        > records.size() * COMPACTION_FREE_RATIO;
+                dirty = logEntries > 0;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (fragmented) {
+                compact();
+            } else if (dirty) {
+                snapshot();
+            }
+        } catch (RuntimeException e) {
+            log.error("Vector store maintenance failed for {}", directory, e);
+        }
+    }
+
+    /**
+     * Forces the log and the segment chunks written since the last commit to disk, then makes the slots freed by
+     * the forced lines reusable. Runs on the maintenance scheduler; the write lock is only held to take the dirty
+     * chunks and to release the slots, so writers do not wait for the disk.
+     */
+    private void syncLog() {
+        synchronized (maintenanceLock) {
+            var dirty = new ArrayList<MappedByteBuffer>();
+            List<Integer> freed;
+            FileChannel channel;
+            long written;
+            lock.writeLock().lock();
+            try {
+                written = logWrites;
+                if (written == syncedLogWrites) {
+                    return;
+                }
+                takeDirtyChunks(dirty);
+                freed = new ArrayList<>(unsyncedFreeOrdinals);
+                unsyncedFreeOrdinals.clear();
+                channel = logChannel;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            boolean synced = false;
+            try {
+                for (MappedByteBuffer chunk : dirty) {
+                    chunk.force();
+                }
+                channel.force(false);
+                syncedLogWrites = written;
+                synced = true;
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to sync vector store log {}", directory, e);
+            }
+            lock.writeLock().lock();
+            try {
+                if (synced) {
+                    freed.forEach(freeOrdinals::push);
+                } else {
+                    unsyncedFreeOrdinals.addAll(freed);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Hands the flushed log lines of a write call to the file, and forces them to disk when every write is
+     * synced. Called with the write lock held.
+     */
+    private void commitLog() throws IOException {
+        logWriter.flush();
+        if (syncEveryWrite) {
+            var dirty = new ArrayList<MappedByteBuffer>();
+            takeDirtyChunks(dirty);
+            for (MappedByteBuffer chunk : dirty) {
+                chunk.force();
+            }
+            logChannel.force(false);
+            unsyncedFreeOrdinals.forEach(freeOrdinals::push);
+            unsyncedFreeOrdinals.clear();
+        }
+    }
+
+    private void takeDirtyChunks(List<MappedByteBuffer> target) {
+        for (int chunk = dirtyChunks.nextSetBit(0); chunk >= 0; chunk = dirtyChunks.nextSetBit(chunk + 1)) {
+            target.add(mappedChunks.get(chunk));
+        }
+        dirtyChunks.clear();
+    }
+
+    private String upsert(DummyRecord data) throws IOException {
+        if (data.getEmbedding() == null) {
+            throw new IllegalArgumentException("Record " + data.getId() + " has no embedding");
+        }
+        float[] vector = VectorMath.toArray(data.getEmbedding());
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected a vector of " + dimensions
+                    + " dimensions but got " + vector.length);
+        }
+        // a replaced record moves to another slot, so its old vector stays intact until the new line is durable
+        Integer existing = ordinalsById.get(data.getId());
+        int ordinal = !freeOrdinals.isEmpty() ? freeOrdinals.pop() : records.size();
+        if (existing != null) {
+            unsyncedFreeOrdinals.add(existing);
+        }
+        writeVector(ordinal, vector);
+        DummyRecord payload = data.withEmbedding(null);
+        appendLog(UPSERT + "\t" + ordinal + "\t" + objectMapper.writeValueAsString(payload));
+        applyUpsert(ordinal, payload);
+        return data.getId();
+    }
+
+    private void applyUpsert(int ordinal, DummyRecord payload) {
+        while (records.size() <= ordinal) {
+            records.add(null);
+        }
+        DummyRecord previous = records.get(ordinal);
+        if (previous != null) {
+            ordinalsById.remove(previous.getId());
+            payloadIndex.remove(ordinal, previous);
+        }
+        Integer moved = ordinalsById.put(payload.getId(), ordinal);
+        if (moved != null && moved != ordinal) {
+            payloadIndex.remove(moved, records.get(moved));
+            records.set(moved, null);
+            live.clear(moved);
+        }
+        records.set(ordinal, payload);
+        live.set(ordinal);
+        payloadIndex.add(ordinal, payload);
+    }
+
+    private void applyDelete(int ordinal) {
+        if (ordinal >= records.size()) {
+            return;
+        }
+        DummyRecord previous = records.get(ordinal);
+        if (previous != null) {
+            ordinalsById.remove(previous.getId());
+            payloadIndex.remove(ordinal, previous);
+        }
+        records.set(ordinal, null);
+        live.clear(ordinal);
+    }
+
+    /**
+     * Applies the lines of a record file.
+     *
+     * @return the length in bytes of the replayed prefix, which ends after the last complete line that parsed
+     */
+    private long replay(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long replayed = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            var line = new ByteArrayOutputStream();
+            long position = 0;
+            int lineNumber = 0;
+            for (int b = in.read(); b >= 0; b = in.read()) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                lineNumber++;
+                String text = line.toString(StandardCharsets.UTF_8);
+                line.reset();
+                try {
+                    String[] parts = (text.endsWith("\r") ? text.substring(0, text.length() - 1) : text)
+                            .split("\t", 3);
+                    int ordinal = Integer.parseInt(parts[1]);
+                    if (UPSERT.equals(parts[0])) {
+                        applyUpsert(ordinal, objectMapper.readValue(parts[2], DummyRecord.class));
+                    } else if (DELETE.equals(parts[0])) {
+                        applyDelete(ordinal);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // a torn last line is expected after a crash; everything after it is unreliable
+                    log.warn("Stopped replaying {} at line {}: {}", file, lineNumber, e.getMessage());
+                    return replayed;
+                }
+                replayed = position;
+            }
+            if (line.size() > 0) {
+                log.warn("Stopped replaying {} at unterminated line {}", file, lineNumber + 1);
+            }
+        }
+        return replayed;
+    }
+
+    private void appendLog(String line) throws IOException {
+        logWriter.write(line);
+        logWriter.newLine();
+        logEntries++;
+        logWrites++;
+    }
+
+    /**
+     * Opens the log of a generation for appending after its first {@code length} bytes, cutting off anything
+     * beyond them. The channel is also readable so that {@link #truncateLog} can copy its tail.
+     */
+    private void openLog(long target, long length) throws IOException {
+        logChannel = FileChannel.open(logFile(target), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (logChannel.size() > length) {
+            logChannel.truncate(length);
+            logChannel.force(false);
+        }
+        logChannel.position(logChannel.size());
+        logWriter = new BufferedWriter(Channels.newWriter(logChannel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Replaces the log with the lines written after {@code offset}. Called with the write lock held.
+     */
+    private void truncateLog(long offset) throws IOException {
+        logWriter.flush();
+        Path current = logFile(generation);
+        Path temporary = current.resolveSibling(current.getFileName() + ".tmp");
+        try (FileChannel target = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = logChannel.size();
+            for (long position = offset; position < size; ) {
+                position += logChannel.transferTo(position, size - position, target);
+            }
+            target.force(false);
+        }
+        logWriter.close();
+        Files.move(temporary, current, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openLog(generation, Files.size(current));
+    }
+
+    private void writeSnapshot(Path target, int[] ordinals, DummyRecord[] snapshotRecords) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+            for (int i = 0; i < ordinals.length; i++) {
+                writer.write(UPSERT + "\t" + ordinals[i] + "\t"
+                        + objectMapper.writeValueAsString(snapshotRecords[i]));
+                writer.newLine();
+            }
+            writer.flush();
+            channel.force(false);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Copies live records densely into the next generation and switches to it. Called with the write lock held.
+     */
+    private void rewriteGeneration() throws IOException {
+        long nextGeneration = generation + 1;
+        var liveRecords = new ArrayList<DummyRecord>(ordinalsById.size());
+        var liveVectors = new ArrayList<float[]>(ordinalsById.size());
+        for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+            liveRecords.add(records.get(ordinal));
+            liveVectors.add(readSlot(ordinal, new float[slotFloats]));
+        }
+        for (MappedByteBuffer chunk : mappedChunks) {
+            chunk.force();
+        }
+        logWriter.close();
+        segment.close();
+        long previousGeneration = generation;
+
+        openGeneration(nextGeneration);
+        ordinalsById.clear();
+        records.clear();
+        live.clear();
+        payloadIndex.clear();
+        freeOrdinals.clear();
+        unsyncedFreeOrdinals.clear();
+        for (int ordinal = 0; ordinal < liveRecords.size(); ordinal++) {
+            chunkFor(ordinal).put(slotOffset(ordinal), liveVectors.get(ordinal), 0, slotFloats);
+            applyUpsert(ordinal, liveRecords.get(ordinal));
+        }
+        for (MappedByteBuffer chunk : mappedChunks) {
+            chunk.force();
+        }
+        dirtyChunks.clear();
+        writeSnapshot(snapshotFile(nextGeneration), IntStream.range(0, liveRecords.size()).toArray(),
+                liveRecords.toArray(DummyRecord[]::new));
+        openLog(nextGeneration, 0);
+        logEntries = 0;
+        writeCurrent(nextGeneration);
+        generation = nextGeneration;
+
+        Files.deleteIfExists(segmentFile(previousGeneration));
+        Files.deleteIfExists(snapshotFile(previousGeneration));
+        Files.deleteIfExists(logFile(previousGeneration));
+    }
+
+    private void openGeneration(long target) throws IOException {
+        segment = FileChannel.open(segmentFile(target), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        mappedChunks.clear();
+        chunks.clear();
+        long chunkBytes = chunkBytes();
+        long existingChunks = (segment.size() + chunkBytes - 1) / chunkBytes;
+        for (int i = 0; i < existingChunks; i++) {
+            mapChunk(i);
+        }
+    }
+
+    private FloatBuffer chunkFor(int ordinal) throws IOException {
+        int chunkIndex = ordinal / CHUNK_VECTORS;
+        while (chunks.size() <= chunkIndex) {
+            mapChunk(chunks.size());
+        }
+        return chunks.get(chunkIndex);
+    }
+
+    private void mapChunk(int index) throws IOException {
+        long chunkBytes = chunkBytes();
+        MappedByteBuffer mapped = segment.map(FileChannel.MapMode.READ_WRITE, index * chunkBytes, chunkBytes);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        mappedChunks.add(mapped);
+        chunks.add(mapped.asFloatBuffer());
+    }
+
+    private void writeVector(int ordinal, float[] vector) throws IOException {
+        FloatBuffer chunk = chunkFor(ordinal);
+        dirtyChunks.set(ordinal / CHUNK_VECTORS);
+        int offset = slotOffset(ordinal);
+        chunk.put(offset, vector, 0, dimensions);
+        float norm = VectorMath.norm(vector);
+        chunk.put(offset + dimensions, norm == 0f ? 0f : 1f / norm);
+    }
+
+    private float[] readSlot(int ordinal, float[] target) {
+        chunks.get(ordinal / CHUNK_VECTORS).get(slotOffset(ordinal), target, 0, slotFloats);
+        return target;
+    }
+
+    private TopK scanBlock(BitSet ordinals, float[] query, float queryInverseNorm, int limit, int from, int to) {
+        var topK = new TopK(limit);
+        float[] slot = scratch.get();
+        for (int ordinal = ordinals.nextSetBit(from); ordinal >= 0 && ordinal < to;
+             ordinal = ordinals.nextSetBit(ordinal + 1)) {
+            readSlot(ordinal, slot);
+            float dot = VectorMath.dot(query, slot, 0);
+            topK.offer(ordinal, similarityFunction == SimilarityFunction.COSINE
+                    ? dot * queryInverseNorm * slot[dimensions]
+                    : dot);
+        }
+        return topK;
+    }
+
+    private VectorSearchResults<DummyRecord> toResults(TopK topK, int skip, boolean includeVectors) {
+        int[] ordinals = new int[topK.size()];
+        float[] scores = new float[topK.size()];
+        int count = topK.drainDescending(ordinals, scores);
+        var results = new ArrayList<VectorSearchResult<DummyRecord>>(Math.max(0, count - skip));
+        for (int i = skip; i < count; i++) {
+            results.add(new VectorSearchResult<>(toRecord(ordinals[i], includeVectors), scores[i]));
+        }
+        return new VectorSearchResults<>(results);
+    }
+
+    private DummyRecord toRecord(int ordinal, boolean includeVectors) {
+        DummyRecord record = records.get(ordinal);
+        if (!includeVectors) {
+            return record;
+        }
+        float[] vector = new float[dimensions];
+        chunks.get(ordinal / CHUNK_VECTORS).get(slotOffset(ordinal), vector, 0, dimensions);
+        return record.withEmbedding(new FloatListView(vector));
+    }
+
+    private int slotOffset(int ordinal) {
+        return (ordinal % CHUNK_VECTORS) * slotFloats;
+    }
+
+    private long chunkBytes() {
+        return (long) CHUNK_VECTORS * slotFloats * Float.BYTES;
+    }
+
+    private void writeCurrent(long target) throws IOException {
+        Path temporary = directory.resolve(CURRENT_FILE + ".tmp");
+        Files.writeString(temporary, Long.toString(target));
+        Files.move(temporary, directory.resolve(CURRENT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentFile(long target) {
+        return directory.resolve("vectors-" + target + ".seg");
+    }
+
+    private Path snapshotFile(long target) {
+        return directory.resolve("records-" + target + ".snapshot");
+    }
+
+    private Path logFile(long target) {
+        return directory.resolve("records-" + target + ".log");
+    }
+}
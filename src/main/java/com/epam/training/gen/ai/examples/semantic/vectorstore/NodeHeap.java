@@ -0,0 +1,92 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import java.util.Arrays;
+
+/**
+ * Growable binary heap of (node, score) pairs backed by primitive arrays, used by graph traversal.
+ */
+final class NodeHeap {
+
+    private final boolean maxHeap;
+    private float[] scores;
+    private int[] nodes;
+    private int size;
+
+    NodeHeap(boolean maxHeap, int initialCapacity) {
+        this.maxHeap = maxHeap;
+        this.scores = new float[Math.max(1, initialCapacity)];
+        this.nodes = new int[Math.max(1, initialCapacity)];
+    }
+
+    void push(int node, float score) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        nodes[size] = node;
+        scores[size] = score;
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(index, parent)) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    int pop() {
+        int top = nodes[0];
+        size--;
+        nodes[0] = nodes[size];
+        scores[0] = scores[size];
+        int index = 0;
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                break;
+            }
+            int child = left + 1 < size && before(left + 1, left) ? left + 1 : left;
+            if (!before(child, index)) {
+                break;
+            }
+            swap(index, child);
+            index = child;
+        }
+        return top;
+    }
+
+    int peekNode() {
+        return nodes[0];
+    }
+
+    float peekScore() {
+        return scores[0];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    private boolean before(int i, int j) {
+        return maxHeap ? scores[i] > scores[j] : scores[i] < scores[j];
+    }
+
+    private void swap(int i, int j) {
+        float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        int node = nodes[i];
+        nodes[i] = nodes[j];
+        nodes[j] = node;
+    }
+}
@@ -0,0 +1,121 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchFilter;
+import com.microsoft.semantickernel.data.vectorsearch.filterclauses.AnyTagEqualToFilterClause;
+import com.microsoft.semantickernel.data.vectorsearch.filterclauses.EqualToFilterClause;
+import com.microsoft.semantickernel.data.vectorsearch.filterclauses.FilterClause;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bitmap index over the payload fields of the records of an in-process store.
+ * <p>
+ * Each value of each filterable field maps to the set of ordinals holding it. A filter is answered by intersecting
+ * the bitmaps of its clauses with the live ordinals, before any vector is scored, so a search only reads the
+ * vectors of matching records and always finds its {@code top} results among them. Not thread-safe; the store
+ * guards it with its own lock.
+ */
+final class PayloadIndex {
+
+    private static final List<String> FIELDS = List.of(DummyRecord.TENANT, DummyRecord.SOURCE, DummyRecord.DATE,
+            DummyRecord.TAGS);
+
+    private final Map<String, Map<String, BitSet>> bitmaps = new HashMap<>();
+
+    /**
+     * Indexes the payload of a record.
+     *
+     * @param ordinal the ordinal of the record
+     * @param record  the record
+     */
+    void add(int ordinal, DummyRecord record) {
+        for (String field : FIELDS) {
+            for (String value : record.payloadValues(field)) {
+                bitmaps.computeIfAbsent(field, f -> new HashMap<>())
+                        .computeIfAbsent(value, v -> new BitSet())
+                        .set(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Removes the payload of a record from the index.
+     *
+     * @param ordinal the ordinal of the record
+     * @param record  the record, as it was indexed
+     */
+    void remove(int ordinal, DummyRecord record) {
+        for (String field : FIELDS) {
+            Map<String, BitSet> values = bitmaps.get(field);
+            if (values == null) {
+                continue;
+            }
+            for (String value : record.payloadValues(field)) {
+                BitSet ordinals = values.get(value);
+                if (ordinals != null) {
+                    ordinals.clear(ordinal);
+                    if (ordinals.isEmpty()) {
+                        values.remove(value);
+                    }
+                }
+            }
+        }
+    }
+
+    void clear() {
+        bitmaps.clear();
+    }
+
+    /**
+     * Computes the live ordinals matching every clause of a filter.
+     *
+     * @param filter the filter
+     * @param live   the live ordinals
+     * @return a new set of the matching ordinals
+     * @throws IllegalArgumentException when a clause is not on a filterable field or of an unsupported kind
+     */
+    BitSet matching(VectorSearchFilter filter, BitSet live) {
+        var candidates = (BitSet) live.clone();
+        for (FilterClause clause : filter.getFilterClauses()) {
+            if (candidates.isEmpty()) {
+                break;
+            }
+            candidates.and(bitmap(clause));
+        }
+        return candidates;
+    }
+
+    /**
+     * Tells whether a search must be filtered.
+     *
+     * @param filter the search filter, may be {@code null}
+     * @return {@code true} when the filter has clauses
+     */
+    static boolean isFiltered(VectorSearchFilter filter) {
+        return filter != null && filter.getFilterClauses() != null && !filter.getFilterClauses().isEmpty();
+    }
+
+    private BitSet bitmap(FilterClause clause) {
+        String field;
+        Object value;
+        if (clause instanceof EqualToFilterClause equalTo && !DummyRecord.TAGS.equals(equalTo.getFieldName())) {
+            field = equalTo.getFieldName();
+            value = equalTo.getValue();
+        } else if (clause instanceof AnyTagEqualToFilterClause anyTag && DummyRecord.TAGS.equals(anyTag.getFieldName())) {
+            field = anyTag.getFieldName();
+            value = anyTag.getValue();
+        } else {
+            throw new IllegalArgumentException("Unsupported filter clause " + clause.getClass().getSimpleName()
+                    + (clause instanceof EqualToFilterClause ? " on field " + DummyRecord.TAGS : ""));
+        }
+        if (!FIELDS.contains(field)) {
+            throw new IllegalArgumentException("Field " + field + " is not filterable");
+        }
+        BitSet ordinals = bitmaps.getOrDefault(field, Map.of()).get(String.valueOf(value));
+        return ordinals == null ? new BitSet() : ordinals;
+    }
+}
@@ -0,0 +1,538 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchFilter;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResult;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResults;
+import com.microsoft.semantickernel.data.vectorstorage.VectorStoreRecordCollection;
+import com.microsoft.semantickernel.data.vectorstorage.options.DeleteRecordOptions;
+import com.microsoft.semantickernel.data.vectorstorage.options.GetRecordOptions;
+import com.microsoft.semantickernel.data.vectorstorage.options.UpsertRecordOptions;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * In-process {@link VectorStoreRecordCollection} that keeps embeddings in packed {@code float[]} pages.
+ * <p>
+ * Compared to {@code VolatileVectorStore}, which keeps every embedding as a boxed {@code List<Float>},
+ * vectors here cost four bytes per dimension and a search is an exhaustive, multi-threaded scan over
+ * contiguous memory that keeps the best candidates in a primitive {@link TopK} heap per worker. A batch of
+ * queries is scored in one {@link BatchScan blocked pass} over the vectors.
+ * <p>
+ * The payload fields of the records are kept in a {@link PayloadIndex}. A filtered search scores only the vectors
+ * of the records the index selects, exhaustively, so it returns {@code top} results whenever that many records
+ * match, however selective the filter is. * <p>
+ * The returned {@link Mono}s do their work on the subscribing thread, so callers on an event loop subscribe to
+ * them on a blocking scheduler.
+ */
+public class PrimitiveVectorStoreRecordCollection implements VectorStoreRecordCollection<String, DummyRecord>,
+        SearchStatistics, BatchVectorSearch {
+
+    /**
+     * Number of results returned when the search options do not specify {@code top}.
+     */
+    public static final int DEFAULT_TOP = 3;
+
+    private static final int SCAN_BLOCK_SIZE = 4 * FloatVectorPages.PAGE_SIZE;
+
+    private final String collectionName;
+    private final SimilarityFunction similarityFunction;
+    protected final FloatVectorPages vectors;
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private final List<DummyRecord> records = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final PayloadIndex payloadIndex = new PayloadIndex();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private volatile boolean created;
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder scannedVectors = new LongAdder();
+
+    public PrimitiveVectorStoreRecordCollection(String collectionName, int dimensions,
+                                                SimilarityFunction similarityFunction) {
+        this.collectionName = collectionName;
+        this.similarityFunction = similarityFunction;
+        this.vectors = new FloatVectorPages(dimensions);
+    }
+
+    @Override
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    @Override
+    public Mono<Boolean> collectionExistsAsync() {
+        return Mono.fromSupplier(() -> created);
+    }
+
+    @Override
+    public Mono<VectorStoreRecordCollection<String, DummyRecord>> createCollectionAsync() {
+        return Mono.fromSupplier(() -> {
+            created = true;
+            return this;
+        });
+    }
+
+    @Override
+    public Mono<VectorStoreRecordCollection<String, DummyRecord>> createCollectionIfNotExistsAsync() {
+        return createCollectionAsync();
+    }
+
+    @Override
+    public Mono<Void> deleteCollectionAsync() {
+        return Mono.fromRunnable(() -> {
+            lock.writeLock().lock();
+            try {
+                ordinalsById.clear();
+                records.clear();
+                live.clear();
+                payloadIndex.clear();
+                freeOrdinals.clear();
+                onCleared();
+                created = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<DummyRecord> getAsync(String key, GetRecordOptions options) {
+        return Mono.fromCallable(() -> {
+            lock.readLock().lock();
+            try {
+                Integer ordinal = ordinalsById.get(key);
+                return ordinal == null ? null : toRecord(ordinal, options == null || options.isIncludeVectors());
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<List<DummyRecord>> getBatchAsync(List<String> keys, GetRecordOptions options) {
+        return Mono.fromCallable(() -> {
+            lock.readLock().lock();
+            try {
+                var result = new ArrayList<DummyRecord>(keys.size());
+                for (String key : keys) {
+                    Integer ordinal = ordinalsById.get(key);
+                    if (ordinal != null) {
+                        result.add(toRecord(ordinal, options == null || options.isIncludeVectors()));
+                    }
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<String> upsertAsync(DummyRecord data, UpsertRecordOptions options) {
+        return Mono.fromCallable(() -> {
+            lock.writeLock().lock();
+            try {
+                String key = upsert(data);
+                afterWrite();
+                return key;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<List<String>> upsertBatchAsync(List<DummyRecord> data, UpsertRecordOptions options) {
+        return Mono.fromCallable(() -> {
+            lock.writeLock().lock();
+            try {
+                var keys = new ArrayList<String>(data.size());
+                for (DummyRecord record : data) {
+                    keys.add(upsert(record));
+                }
+                afterWrite();
+                return keys;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> deleteAsync(String key, DeleteRecordOptions options) {
+        return deleteBatchAsync(List.of(key), options);
+    }
+
+    @Override
+    public Mono<Void> deleteBatchAsync(List<String> keys, DeleteRecordOptions options) {
+        return Mono.fromRunnable(() -> {
+            lock.writeLock().lock();
+            try {
+                for (String key : keys) {
+                    Integer ordinal = ordinalsById.remove(key);
+                    if (ordinal != null) {
+                        release(ordinal);
+                    }
+                }
+                afterWrite();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<VectorSearchResults<DummyRecord>> searchAsync(List<Float> vector, VectorSearchOptions options) {
+        return Mono.fromCallable(() -> {
+            VectorSearchFilter filter = options == null ? null : options.getVectorSearchFilter();
+            int top = options == null || options.getTop() <= 0 ? DEFAULT_TOP : options.getTop();
+            int skip = options == null ? 0 : Math.max(0, options.getSkip());
+            boolean includeVectors = options != null && options.isIncludeVectors();
+            VectorMath.checkDimensions(vector, vectors.dimensions());
+
+            float[] query = VectorMath.toArray(vector);
+            float queryNorm = VectorMath.norm(query);
+            float queryInverseNorm = queryNorm == 0f ? 0f : 1f / queryNorm;
+
+            searches.increment();
+            lock.readLock().lock();
+            try {
+                TopK topK;
+                if (PayloadIndex.isFiltered(filter)) {
+                    BitSet candidates = payloadIndex.matching(filter, live);
+                    topK = scan(candidates, query, queryInverseNorm, top + skip);
+                    scannedVectors.add(candidates.cardinality());
+                } else {
+                    topK = searchOrdinals(query, queryInverseNorm, top + skip);
+                    scannedVectors.add(scannedBySearch());
+                }
+                return toResults(topK, skip, includeVectors);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The queries are scored exactly against the full-precision vectors, also when a subclass answers single
+     * searches from an index. A filter is applied to every query.
+     */
+    @Override
+    public Mono<List<VectorSearchResults<DummyRecord>>> searchBatchAsync(List<List<Float>> queries,
+                                                                         VectorSearchOptions options) {
+        return Mono.fromCallable(() -> {
+            VectorSearchFilter filter = options == null ? null : options.getVectorSearchFilter();
+            int top = options == null || options.getTop() <= 0 ? DEFAULT_TOP : options.getTop();
+            int skip = options == null ? 0 : Math.max(0, options.getSkip());
+            boolean includeVectors = options != null && options.isIncludeVectors();
+            queries.forEach(query -> VectorMath.checkDimensions(query, vectors.dimensions()));
+
+            float[][] batch = BatchScan.toArrays(queries);
+            float[] inverseNorms = BatchScan.inverseNorms(batch);
+            boolean cosine = similarityFunction == SimilarityFunction.COSINE;
+
+            searches.add(queries.size());
+            lock.readLock().lock();
+            try {
+                BitSet candidates = PayloadIndex.isFiltered(filter) ? payloadIndex.matching(filter, live) : live;
+                TopK[] heaps = BatchScan.scan(batch.length, top + skip, records.size(), vectors.dimensions(),
+                        (from, to, queryFrom, queryTo, tileHeaps, dots) -> {
+                            for (int ordinal = candidates.nextSetBit(from); ordinal >= 0 && ordinal < to;
+                                 ordinal = candidates.nextSetBit(ordinal + 1)) {
+                                BatchScan.dots(batch, queryFrom, queryTo, vectors.page(ordinal),
+                                        vectors.offset(ordinal), dots);
+                                for (int query = queryFrom; query < queryTo; query++) {
+                                    float dot = dots[query - queryFrom];
+                                    tileHeaps[query].offer(ordinal, cosine
+                                            ? dot * inverseNorms[query] * vectors.inverseNorm(ordinal)
+                                            : dot);
+                                }
+                            }
+                        });
+                scannedVectors.add((long) candidates.cardinality() * queries.size());
+                var results = new ArrayList<VectorSearchResults<DummyRecord>>(heaps.length);
+                for (TopK heap : heaps) {
+                    results.add(toResults(heap, skip, includeVectors));
+                }
+                return results;
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of live records.
+     *
+     * @return the record count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the heap bytes allocated for the vector pages, including the slots of deleted records.
+     *
+     * @return the allocated bytes
+     */
+    public long vectorBytes() {
+        lock.readLock().lock();
+        try {
+            return vectors.allocatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long searches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long scannedVectors() {
+        return scannedVectors.sum();
+    }
+
+    /**
+     * Returns the number of vectors the {@link #searchOrdinals} call that just returned on this thread scored.
+     * Called with the read lock held.
+     *
+     * @return the scored vector count; every live record for the exhaustive scan
+     */
+    protected long scannedBySearch() {
+        return ordinalsById.size();
+    }
+
+    /**
+     * Finds the {@code limit} best scoring live ordinals. Called with the read lock held.
+     * <p>
+     * The ordinal space is split into blocks that are scanned in parallel, each into its own heap,
+     * and the per-block heaps are merged at the end.
+     *
+     * @param query            the query vector
+     * @param queryInverseNorm the inverse norm of the query
+     * @param limit            the number of candidates to keep
+     * @return the best candidates
+     */
+    protected TopK searchOrdinals(float[] query, float queryInverseNorm, int limit) {
+        return scan(live, query, queryInverseNorm, limit);
+    }
+
+    /**
+     * Scores a query against the given ordinals, in parallel blocks when there are many of them. Called with the
+     * read lock held.
+     */
+    private TopK scan(BitSet ordinals, float[] query, float queryInverseNorm, int limit) {
+        int upperBound = Math.min(records.size(), ordinals.length());
+        int blocks = (upperBound + SCAN_BLOCK_SIZE - 1) / SCAN_BLOCK_SIZE;
+        IntStream blockStream = IntStream.range(0, blocks);
+        if (blocks > 1 && ordinals.cardinality() > SCAN_BLOCK_SIZE) {
+            blockStream = blockStream.parallel();
+        }
+        return blockStream
+                .mapToObj(block -> scanBlock(ordinals, query, queryInverseNorm, limit, block * SCAN_BLOCK_SIZE,
+                        Math.min(upperBound, (block + 1) * SCAN_BLOCK_SIZE)))
+                .reduce(TopK::merge)
+                .orElseGet(() -> new TopK(limit));
+    }
+
+    /**
+     * Scores a query against a stored vector. Called with the read lock held.
+     *
+     * @param query            the query vector
+     * @param queryInverseNorm the inverse norm of the query
+     * @param ordinal          the stored vector
+     * @return the similarity score
+     */
+    protected float score(float[] query, float queryInverseNorm, int ordinal) {
+        return vectors.score(query, queryInverseNorm, ordinal, similarityFunction);
+    }
+
+    protected SimilarityFunction similarityFunction() {
+        return similarityFunction;
+    }
+
+    /**
+     * Tells whether the ordinal holds a live record. Called with a lock held.
+     *
+     * @param ordinal the ordinal
+     * @return {@code true} when the ordinal is live
+     */
+    protected boolean isLive(int ordinal) {
+        return live.get(ordinal);
+    }
+
+    /**
+     * Returns the exclusive upper bound of allocated ordinals. Called with a lock held.
+     *
+     * @return the ordinal bound
+     */
+    protected int ordinalBound() {
+        return records.size();
+    }
+
+    /**
+     * Tells whether an upsert of an existing key may overwrite its vector in place.
+     * Index structures that link ordinals together return {@code false} so that the key moves to a fresh ordinal.
+     *
+     * @return {@code true} to overwrite in place
+     */
+    protected boolean updatesInPlace() {
+        return true;
+    }
+
+    /**
+     * Called with the write lock held after a vector was written to a fresh ordinal.
+     *
+     * @param ordinal the written ordinal
+     */
+    protected void onInserted(int ordinal) {
+    }
+
+    /**
+     * Called with the write lock held after an ordinal stopped being live.
+     *
+     * @param ordinal the released ordinal
+     */
+    protected void onReleased(int ordinal) {
+    }
+
+    /**
+     * Called with the write lock held after the collection was emptied.
+     */
+    protected void onCleared() {
+    }
+
+    /**
+     * Called with the write lock held at the end of every upsert or delete call.
+     */
+    protected void afterWrite() {
+    }
+
+    /**
+     * Moves the given ordinals to ordinals {@code 0..order.length - 1}, in that order, and releases the storage
+     * past them. A moved ordinal that is no longer live keeps its vector but no record, so an index structure built
+     * over the new ordinals may still route through it. Called with the write lock held; no callback is invoked.
+     *
+     * @param order the ordinals to keep, ascending
+     * @return the number of kept ordinals that are not live
+     */
+    protected int moveOrdinals(int[] order) {
+        var moved = new BitSet();
+        int dead = 0;
+        for (int next = 0; next < order.length; next++) {
+            int ordinal = order[next];
+            DummyRecord record = live.get(ordinal) ? records.get(ordinal) : null;
+            if (ordinal != next) {
+                vectors.set(next, vectors.get(ordinal));
+            }
+            records.set(next, record);
+            if (record == null) {
+                dead++;
+            } else {
+                ordinalsById.put(record.getId(), next);
+                moved.set(next);
+            }
+        }
+        records.subList(order.length, records.size()).clear();
+        live.clear();
+        live.or(moved);
+        payloadIndex.clear();
+        for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+            payloadIndex.add(ordinal, records.get(ordinal));
+        }
+        freeOrdinals.clear();
+        vectors.truncate(order.length);
+        return dead;
+    }
+
+    private TopK scanBlock(BitSet ordinals, float[] query, float queryInverseNorm, int limit, int from, int to) {
+        var topK = new TopK(limit);
+        for (int ordinal = ordinals.nextSetBit(from); ordinal >= 0 && ordinal < to;
+             ordinal = ordinals.nextSetBit(ordinal + 1)) {
+            topK.offer(ordinal, score(query, queryInverseNorm, ordinal));
+        }
+        return topK;
+    }
+
+    private String upsert(DummyRecord data) {
+        if (data.getEmbedding() == null) {
+            throw new IllegalArgumentException("Record " + data.getId() + " has no embedding");
+        }
+        float[] vector = VectorMath.toArray(data.getEmbedding());
+        Integer existing = ordinalsById.get(data.getId());
+        if (existing != null && updatesInPlace()) {
+            vectors.set(existing, vector);
+            payloadIndex.remove(existing, records.get(existing));
+            records.set(existing, data.withEmbedding(null));
+            payloadIndex.add(existing, data);
+            return data.getId();
+        }
+        if (existing != null) {
+            release(existing);
+        }
+        int ordinal = allocateOrdinal();
+        vectors.set(ordinal, vector);
+        records.set(ordinal, data.withEmbedding(null));
+        payloadIndex.add(ordinal, data);
+        live.set(ordinal);
+        ordinalsById.put(data.getId(), ordinal);
+        onInserted(ordinal);
+        return data.getId();
+    }
+
+    private int allocateOrdinal() {
+        if (updatesInPlace() && !freeOrdinals.isEmpty()) {
+            return freeOrdinals.pop();
+        }
+        records.add(null);
+        return records.size() - 1;
+    }
+
+    private void release(int ordinal) {
+        live.clear(ordinal);
+        payloadIndex.remove(ordinal, records.get(ordinal));
+        records.set(ordinal, null);
+        if (updatesInPlace()) {
+            freeOrdinals.push(ordinal);
+        }
+        onReleased(ordinal);
+    }
+
+    private VectorSearchResults<DummyRecord> toResults(TopK topK, int skip, boolean includeVectors) {
+        int[] ordinals = new int[topK.size()];
+        float[] scores = new float[topK.size()];
+        int count = topK.drainDescending(ordinals, scores);
+        var results = new ArrayList<VectorSearchResult<DummyRecord>>(Math.max(0, count - skip));
+        for (int i = skip; i < count; i++) {
+            results.add(new VectorSearchResult<>(toRecord(ordinals[i], includeVectors), scores[i]));
+        }
+        return new VectorSearchResults<>(results);
+    }
+
+    private DummyRecord toRecord(int ordinal, boolean includeVectors) {
+        DummyRecord record = records.get(ordinal);
+        return includeVectors ? record.withEmbedding(new FloatListView(vectors.get(ordinal))) : record;
+    }
+}
@@ -0,0 +1,400 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchFilter;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResult;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResults;
+import com.microsoft.semantickernel.data.vectorsearch.filterclauses.AnyTagEqualToFilterClause;
+import com.microsoft.semantickernel.data.vectorsearch.filterclauses.EqualToFilterClause;
+import com.microsoft.semantickernel.data.vectorsearch.filterclauses.FilterClause;
+import com.microsoft.semantickernel.data.vectorstorage.VectorStoreRecordCollection;
+import com.microsoft.semantickernel.data.vectorstorage.options.DeleteRecordOptions;
+import com.microsoft.semantickernel.data.vectorstorage.options.GetRecordOptions;
+import com.microsoft.semantickernel.data.vectorstorage.options.UpsertRecordOptions;
+import io.qdrant.client.ConditionFactory;
+import io.qdrant.client.PointIdFactory;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.ValueFactory;
+import io.qdrant.client.VectorsFactory;
+import io.qdrant.client.WithPayloadSelectorFactory;
+import io.qdrant.client.WithVectorsSelectorFactory;
+import io.qdrant.client.grpc.Collections.BinaryQuantization;
+import io.qdrant.client.grpc.Collections.CreateCollection;
+import io.qdrant.client.grpc.Collections.Distance;
+import io.qdrant.client.grpc.Collections.HnswConfigDiff;
+import io.qdrant.client.grpc.Collections.PayloadSchemaType;
+import io.qdrant.client.grpc.Collections.QuantizationConfig;
+import io.qdrant.client.grpc.Collections.ScalarQuantization;
+import io.qdrant.client.grpc.Collections.VectorParams;
+import io.qdrant.client.grpc.Collections.VectorsConfig;
+import io.qdrant.client.grpc.JsonWithInt.Value;
+import io.qdrant.client.grpc.Points.Filter;
+import io.qdrant.client.grpc.Points.PointId;
+import io.qdrant.client.grpc.Points.PointStruct;
+import io.qdrant.client.grpc.Points.QuantizationSearchParams;
+import io.qdrant.client.grpc.Points.SearchParams;
+import io.qdrant.client.grpc.Points.SearchPoints;
+import io.qdrant.client.grpc.Points.UpsertPoints;
+import io.qdrant.client.grpc.Points.Vectors;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * {@link VectorStoreRecordCollection} stored in a Qdrant collection over the gRPC client.
+ * <p>
+ * Record keys are mapped to name-based UUID point ids and kept in the payload together with the other record
+ * fields. One {@link QdrantClient}, and so one gRPC channel, serves every call. Upserts are split into batches
+ * sent with bounded concurrency, and the collection is created with the configured HNSW and quantization
+ * settings. Every call is asynchronous; the gRPC futures are adapted to {@link Mono} and cancelled with it.
+ * <p>
+ * The filterable payload fields get keyword indexes when the collection is created, or when an existing collection
+ * is opened without them, and a search filter is sent as Qdrant {@code must} conditions, so Qdrant applies it
+ * while it walks the HNSW graph.
+ */
+@Slf4j
+public class QdrantVectorStoreRecordCollection implements VectorStoreRecordCollection<String, DummyRecord>,
+        AutoCloseable {
+
+    private static final String KEY_FIELD = "id";
+    private static final List<String> FILTERABLE_FIELDS = List.of(DummyRecord.TENANT, DummyRecord.SOURCE,
+            DummyRecord.DATE, DummyRecord.TAGS);
+    private static final int UPSERT_CONCURRENCY = 4;
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {
+    };
+
+    private final QdrantClient client;
+    private final String collectionName;
+    private final int dimensions;
+    private final ObjectMapper objectMapper;
+    private final QdrantSettings settings;
+    private volatile boolean payloadIndexed;
+
+    /**
+     * Creates a collection view; the Qdrant collection itself is created by {@link #createCollectionAsync()}.
+     *
+     * @param client         the shared client, closed together with this collection
+     * @param collectionName the Qdrant collection name
+     * @param dimensions     the vector dimensions
+     * @param objectMapper   the mapper used for record payloads
+     * @param settings       the index, quantization and batching settings
+     */
+    public QdrantVectorStoreRecordCollection(QdrantClient client, String collectionName, int dimensions,
+                                             ObjectMapper objectMapper, QdrantSettings settings) {
+        this.client = client;
+        this.collectionName = collectionName;
+        this.dimensions = dimensions;
+        this.objectMapper = objectMapper;
+        this.settings = settings;
+    }
+
+    @Override
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    @Override
+    public Mono<Boolean> collectionExistsAsync() {
+        return toMono(() -> client.collectionExistsAsync(collectionName));
+    }
+
+    @Override
+    public Mono<VectorStoreRecordCollection<String, DummyRecord>> createCollectionAsync() {
+        var vectorParams = VectorParams.newBuilder()
+                .setSize(dimensions)
+                .setDistance(Distance.Cosine);
+        var quantization = quantizationConfig();
+        if (quantization != null) {
+            vectorParams.setQuantizationConfig(quantization);
+        }
+        var request = CreateCollection.newBuilder()
+                .setCollectionName(collectionName)
+                .setVectorsConfig(VectorsConfig.newBuilder().setParams(vectorParams))
+                .setHnswConfig(HnswConfigDiff.newBuilder()
+                        .setM(settings.hnswM())
+                        .setEfConstruct(settings.hnswEfConstruction()))
+                .build();
+        return toMono(() -> client.createCollectionAsync(request))
+                .doOnNext(response -> log.info("Created Qdrant collection {}", collectionName))
+                .then(createPayloadIndexes())
+                .then(Mono.just(this));
+    }
+
+    @Override
+    public Mono<VectorStoreRecordCollection<String, DummyRecord>> createCollectionIfNotExistsAsync() {
+        return collectionExistsAsync()
+                .flatMap(exists -> exists
+                        ? (payloadIndexed ? Mono.<Void>empty() : createPayloadIndexes()).then(Mono.just(this))
+                        : createCollectionAsync());
+    }
+
+    @Override
+    public Mono<Void> deleteCollectionAsync() {
+        return toMono(() -> client.deleteCollectionAsync(collectionName))
+                .doOnNext(deleted -> payloadIndexed = false)
+                .then();
+    }
+
+    @Override
+    public Mono<DummyRecord> getAsync(String key, GetRecordOptions options) {
+        return getBatchAsync(List.of(key), options)
+                .flatMap(found -> found.isEmpty() ? Mono.empty() : Mono.just(found.get(0)));
+    }
+
+    @Override
+    public Mono<List<DummyRecord>> getBatchAsync(List<String> keys, GetRecordOptions options) {
+        boolean includeVectors = options != null && options.isIncludeVectors();
+        var ids = keys.stream().map(QdrantVectorStoreRecordCollection::pointId).toList();
+        return toMono(() -> client.retrieveAsync(collectionName, ids, WithPayloadSelectorFactory.enable(true),
+                WithVectorsSelectorFactory.enable(includeVectors), null))
+                .map(points -> points.stream()
+                        .map(point -> toRecord(point.getPayloadMap(), includeVectors ? point.getVectors() : null))
+                        .toList());
+    }
+
+    @Override
+    public Mono<String> upsertAsync(DummyRecord data, UpsertRecordOptions options) {
+        return upsertBatchAsync(List.of(data), options).map(keys -> keys.get(0));
+    }
+
+    @Override
+    public Mono<List<String>> upsertBatchAsync(List<DummyRecord> data, UpsertRecordOptions options) {
+        return Flux.fromIterable(data)
+                .buffer(settings.upsertBatchSize())
+                .flatMap(batch -> {
+                    var request = UpsertPoints.newBuilder()
+                            .setCollectionName(collectionName)
+                            .setWait(true)
+                            .addAllPoints(batch.stream().map(this::toPoint).toList())
+                            .build();
+                    return toMono(() -> client.upsertAsync(request));
+                }, UPSERT_CONCURRENCY)
+                .then(Mono.fromSupplier(() -> data.stream().map(DummyRecord::getId).toList()));
+    }
+
+    @Override
+    public Mono<Void> deleteAsync(String key, DeleteRecordOptions options) {
+        return deleteBatchAsync(List.of(key), options);
+    }
+
+    @Override
+    public Mono<Void> deleteBatchAsync(List<String> keys, DeleteRecordOptions options) {
+        var ids = keys.stream().map(QdrantVectorStoreRecordCollection::pointId).toList();
+        return toMono(() -> client.deleteAsync(collectionName, ids)).then();
+    }
+
+    @Override
+    public Mono<VectorSearchResults<DummyRecord>> searchAsync(List<Float> vector, VectorSearchOptions options) {
+        Filter filter;
+        try {
+            VectorMath.checkDimensions(vector, dimensions);
+            filter = options == null ? null : toFilter(options.getVectorSearchFilter());
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        int top = options == null || options.getTop() <= 0
+                ? PrimitiveVectorStoreRecordCollection.DEFAULT_TOP
+                : options.getTop();
+        int skip = options == null ? 0 : Math.max(0, options.getSkip());
+        boolean includeVectors = options != null && options.isIncludeVectors();
+        var params = SearchParams.newBuilder().setHnswEf(settings.hnswEfSearch());
+        if (!"none".equals(settings.quantization())) {
+            params.setQuantization(QuantizationSearchParams.newBuilder()
+                    .setRescore(settings.rerankFactor() > 0)
+                    .setOversampling(Math.max(1, settings.rerankFactor())));
+        }
+        var request = SearchPoints.newBuilder()
+                .setCollectionName(collectionName)
+                .addAllVector(vector)
+                .setLimit(top)
+                .setOffset(skip)
+                .setParams(params)
+                .setWithPayload(WithPayloadSelectorFactory.enable(true))
+                .setWithVectors(WithVectorsSelectorFactory.enable(includeVectors));
+        if (filter != null) {
+            request.setFilter(filter);
+        }
+        return toMono(() -> client.searchAsync(request.build()))
+                .map(points -> {
+                    var results = new ArrayList<VectorSearchResult<DummyRecord>>(points.size());
+                    for (var point : points) {
+                        results.add(new VectorSearchResult<>(
+                                toRecord(point.getPayloadMap(), includeVectors ? point.getVectors() : null),
+                                point.getScore()));
+                    }
+                    return new VectorSearchResults<>(results);
+                });
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    /**
+     * Creates the keyword indexes of the filterable fields that the collection does not index yet.
+     */
+    private Mono<Void> createPayloadIndexes() {
+        return toMono(() -> client.getCollectionInfoAsync(collectionName))
+                .flatMapMany(info -> Flux.fromIterable(FILTERABLE_FIELDS)
+                        .filter(field -> !info.containsPayloadSchema(field)))
+                .concatMap(field -> toMono(() -> client.createPayloadIndexAsync(collectionName, field,
+                        PayloadSchemaType.Keyword, null, true, null, null))
+                        .doOnNext(result -> log.info("Created Qdrant payload index {} on {}", field, collectionName)))
+                .then(Mono.fromRunnable(() -> payloadIndexed = true));
+    }
+
+    private QuantizationConfig quantizationConfig() {
+        return switch (settings.quantization()) {
+            case "none" -> null;
+            case "int8" -> QuantizationConfig.newBuilder()
+                    .setScalar(ScalarQuantization.newBuilder()
+                            .setType(io.qdrant.client.grpc.Collections.QuantizationType.Int8)
+                            .setAlwaysRam(true))
+                    .build();
+            case "binary" -> QuantizationConfig.newBuilder()
+                    .setBinary(BinaryQuantization.newBuilder().setAlwaysRam(true))
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown quantization: " + settings.quantization());
+        };
+    }
+
+    /**
+     * Translates a search filter into Qdrant keyword conditions that must all match. On an array field such as
+     * the tags, a keyword condition matches when any element equals it.
+     */
+    private static Filter toFilter(VectorSearchFilter searchFilter) {
+        if (searchFilter == null || searchFilter.getFilterClauses() == null
+                || searchFilter.getFilterClauses().isEmpty()) {
+            return null;
+        }
+        var filter = Filter.newBuilder();
+        for (FilterClause clause : searchFilter.getFilterClauses()) {
+            String field;
+            Object value;
+            if (clause instanceof EqualToFilterClause equalTo) {
+                field = equalTo.getFieldName();
+                value = equalTo.getValue();
+            } else if (clause instanceof AnyTagEqualToFilterClause anyTag) {
+                field = anyTag.getFieldName();
+                value = anyTag.getValue();
+            } else {
+                throw new IllegalArgumentException("Unsupported filter clause " + clause.getClass().getSimpleName());
+            }
+            if (!FILTERABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Field " + field + " is not filterable");
+            }
+            filter.addMust(ConditionFactory.matchKeyword(field, String.valueOf(value)));
+        }
+        return filter.build();
+    }
+
+    private PointStruct toPoint(DummyRecord record) {
+        Map<String, Value> payload = new LinkedHashMap<>();
+        objectMapper.convertValue(record.withEmbedding(null), PAYLOAD_TYPE)
+                .forEach((field, value) -> payload.put(field, toValue(value)));
+        return PointStruct.newBuilder()
+                .setId(pointId(record.getId()))
+                .setVectors(VectorsFactory.vectors(record.getEmbedding()))
+                .putAllPayload(payload)
+                .build();
+    }
+
+    private DummyRecord toRecord(Map<String, Value> payload, Vectors vectors) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        payload.forEach((field, value) -> fields.put(field, fromValue(value)));
+        DummyRecord record = objectMapper.convertValue(fields, DummyRecord.class);
+        return vectors == null ? record : record.withEmbedding(vectors.getVector().getDataList());
+    }
+
+    private static PointId pointId(String key) {
+        return PointIdFactory.id(UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Value toValue(Object value) {
+        if (value == null) {
+            return ValueFactory.nullValue();
+        } else if (value instanceof Boolean flag) {
+            return ValueFactory.value(flag);
+        } else if (value instanceof Integer || value instanceof Long) {
+            return ValueFactory.value(((Number) value).longValue());
+        } else if (value instanceof Number number) {
+            return ValueFactory.value(number.doubleValue());
+        } else if (value instanceof List<?> list) {
+            return ValueFactory.list(list.stream().map(QdrantVectorStoreRecordCollection::toValue).toList());
+        } else if (value instanceof Map<?, ?> map) {
+            Map<String, Value> struct = new LinkedHashMap<>();
+            map.forEach((field, nested) -> struct.put(String.valueOf(field), toValue(nested)));
+            return ValueFactory.value(struct);
+        }
+        return ValueFactory.value(value.toString());
+    }
+
+    private static Object fromValue(Value value) {
+        return switch (value.getKindCase()) {
+            case BOOL_VALUE -> value.getBoolValue();
+            case INTEGER_VALUE -> value.getIntegerValue();
+            case DOUBLE_VALUE -> value.getDoubleValue();
+            case STRING_VALUE -> value.getStringValue();
+            case LIST_VALUE -> value.getListValue().getValuesList().stream()
+                    .map(QdrantVectorStoreRecordCollection::fromValue)
+                    .toList();
+            case STRUCT_VALUE -> {
+                Map<String, Object> struct = new LinkedHashMap<>();
+                value.getStructValue().getFieldsMap().forEach((field, nested) -> struct.put(field, fromValue(nested)));
+                yield struct;
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * Adapts a gRPC future to a {@link Mono}; the call starts on subscription and is cancelled with it.
+     */
+    private static <T> Mono<T> toMono(Supplier<ListenableFuture<T>> call) {
+        return Mono.create(sink -> {
+            ListenableFuture<T> future = call.get();
+            sink.onCancel(() -> future.cancel(true));
+            Futures.addCallback(future, new FutureCallback<>() {
+                @Override
+                public void onSuccess(T result) {
+                    sink.success(result);
+                }
+
+                @Override
+                public void onFailure(Throwable error) {
+                    sink.error(error);
+                }
+            }, MoreExecutors.directExecutor());
+        });
+    }
+
+    /**
+     * Qdrant collection and client-side batching settings.
+     *
+     * @param hnswM              the HNSW links per node
+     * @param hnswEfConstruction the HNSW candidate list size while indexing
+     * @param hnswEfSearch       the HNSW candidate list size while searching
+     * @param quantization       {@code none}, {@code int8} or {@code binary}
+     * @param rerankFactor       the oversampling of quantized candidates rescored at full precision
+     * @param upsertBatchSize    the number of points sent per upsert call
+     */
+    public record QdrantSettings(int hnswM, int hnswEfConstruction, int hnswEfSearch, String quantization,
+                                 int rerankFactor, int upsertBatchSize) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import java.util.List;
+
+/**
+ * Memory footprint and recall of a {@link QuantizedVectorStoreRecordCollection}.
+ * <p>
+ * The compression ratio compares the codes with the full-precision vectors. Heap is only saved when the wrapped
+ * store keeps those vectors off the heap; otherwise {@link #getHeapBytes()} shows what the codes add.
+ *
+ * @param type               the quantization in use
+ * @param vectors            the number of stored vectors
+ * @param fullPrecisionBytes the bytes the same vectors take as {@code float[]}
+ * @param quantizedBytes     the heap bytes held by the quantized codes
+ * @param delegateHeapBytes  the heap bytes the wrapped store holds for its full-precision vectors, {@code 0} when
+ *                           they are memory-mapped and {@code -1} when the store does not report them
+ * @param entries            recall and latency per rerank factor, {@code 0} meaning no rerank
+ */
+public record QuantizationReport(QuantizationType type, int vectors, long fullPrecisionBytes, long quantizedBytes,
+                                 long delegateHeapBytes, List<RecallReportEntry> entries) {
+
+    /**
+     * Returns the heap bytes taken by the vectors, the codes included. Over an in-heap store the codes come on
+     * top of the full-precision vectors, so this exceeds what the store alone would take.
+     *
+     * @return the heap bytes, or {@code -1} when the wrapped store does not report its own
+     */
+    public long getHeapBytes() {
+        return delegateHeapBytes < 0 ? -1 : delegateHeapBytes + quantizedBytes;
+    }
+
+    /**
+     * Returns how many times smaller the codes are than the full-precision vectors.
+     *
+     * @return the compression ratio, {@code 0} when nothing is stored
+     */
+    public double getCompressionRatio() {
+        return quantizedBytes == 0 ? 0 : (double) fullPrecisionBytes / quantizedBytes;
+    }
+}
@@ -0,0 +1,15 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+/**
+ * Encodings used by {@link QuantizedVectorPages} for the in-memory candidate pass.
+ */
+public enum QuantizationType {
+    /**
+     * One signed byte per component with a per-vector scale, four times smaller than {@code float}.
+     */
+    INT8,
+    /**
+     * One sign bit per component, thirty-two times smaller than {@code float}.
+     */
+    BINARY
+}
@@ -0,0 +1,175 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import java.util.Arrays;
+
+/**
+ * Paged storage of quantized vectors for a fast approximate candidate pass.
+ * <p>
+ * {@link QuantizationType#INT8} keeps one byte per component scaled by the largest magnitude of the vector and
+ * scores asymmetrically, the full-precision query against the codes. {@link QuantizationType#BINARY} keeps the
+ * sign bits packed into {@code long} words and scores by Hamming distance. Vectors are expected to be unit length,
+ * so both scores approximate cosine similarity. Callers are responsible for synchronization.
+ */
+public final class QuantizedVectorPages {
+
+    private static final int PAGE_SHIFT = FloatVectorPages.PAGE_SHIFT;
+    private static final int PAGE_SIZE = FloatVectorPages.PAGE_SIZE;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final int dimensions;
+    private final QuantizationType type;
+    private final int words;
+    private byte[][] bytePages = new byte[4][];
+    private long[][] bitPages = new long[4][];
+    private float[] inverseScales = new float[PAGE_SIZE];
+
+    public QuantizedVectorPages(int dimensions, QuantizationType type) {
+        this.dimensions = dimensions;
+        this.type = type;
+        this.words = (dimensions + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    public QuantizationType type() {
+        return type;
+    }
+
+    /**
+     * Encodes and stores a unit-length vector at the given ordinal, allocating pages as needed.
+     *
+     * @param ordinal the slot to write
+     * @param vector  the vector to encode
+     */
+    public void set(int ordinal, float[] vector) {
+        int pageIndex = ordinal >>> PAGE_SHIFT;
+        if (type == QuantizationType.BINARY) {
+            long[] page = ensureBitPage(pageIndex);
+            int offset = (ordinal & PAGE_MASK) * words;
+            Arrays.fill(page, offset, offset + words, 0L);
+            for (int i = 0; i < dimensions; i++) {
+                if (vector[i] > 0f) {
+                    page[offset + (i >>> 6)] |= 1L << i;
+                }
+            }
+            return;
+        }
+        byte[] page = ensureBytePage(pageIndex);
+        int offset = (ordinal & PAGE_MASK) * dimensions;
+        float maxAbs = 0f;
+        for (float component : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(component));
+        }
+        float scale = maxAbs == 0f ? 0f : 127f / maxAbs;
+        for (int i = 0; i < dimensions; i++) {
+            page[offset + i] = (byte) Math.round(vector[i] * scale);
+        }
+        if (ordinal >= inverseScales.length) {
+            inverseScales = Arrays.copyOf(inverseScales, Math.max(inverseScales.length * 2, ordinal + 1));
+        }
+        inverseScales[ordinal] = scale == 0f ? 0f : 1f / scale;
+    }
+
+    /**
+     * Packs the sign bits of a query for {@link QuantizationType#BINARY} scoring.
+     *
+     * @param query the query vector
+     * @return the packed bits, or {@code null} for other encodings
+     */
+    public long[] encodeQuery(float[] query) {
+        if (type != QuantizationType.BINARY) {
+            return null;
+        }
+        long[] bits = new long[words];
+        for (int i = 0; i < dimensions; i++) {
+            if (query[i] > 0f) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Approximates the cosine similarity between a unit-length query and a stored vector.
+     *
+     * @param query     the unit-length query
+     * @param queryBits the result of {@link #encodeQuery(float[])}
+     * @param ordinal   the stored vector
+     * @return the approximate score, higher is closer
+     */
+    public float score(float[] query, long[] queryBits, int ordinal) {
+        if (type == QuantizationType.BINARY) {
+            long[] page = bitPages[ordinal >>> PAGE_SHIFT];
+            int offset = (ordinal & PAGE_MASK) * words;
+            int differing = 0;
+            for (int i = 0; i < words; i++) {
+                differing += Long.bitCount(page[offset + i] ^ queryBits[i]);
+            }
+            return 1f - 2f * differing / dimensions;
+        }
+        byte[] page = bytePages[ordinal >>> PAGE_SHIFT];
+        int offset = (ordinal & PAGE_MASK) * dimensions;
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int i = 0;
+        for (int bound = dimensions & ~3; i < bound; i += 4) {
+            s0 += query[i] * page[offset + i];
+            s1 += query[i + 1] * page[offset + i + 1];
+            s2 += query[i + 2] * page[offset + i + 2];
+            s3 += query[i + 3] * page[offset + i + 3];
+        }
+        for (; i < dimensions; i++) {
+            s0 += query[i] * page[offset + i];
+        }
+        return (s0 + s1 + s2 + s3) * inverseScales[ordinal];
+    }
+
+    /**
+     * Returns the number of heap bytes held by the codes and scales.
+     *
+     * @return the allocated size in bytes
+     */
+    public long allocatedBytes() {
+        long bytes = 0;
+        for (byte[] page : bytePages) {
+            if (page != null) {
+                bytes += page.length;
+            }
+        }
+        for (long[] page : bitPages) {
+            if (page != null) {
+                bytes += (long) page.length * Long.BYTES;
+            }
+        }
+        return type == QuantizationType.INT8 ? bytes + (long) inverseScales.length * Float.BYTES : bytes;
+    }
+
+    /**
+     * Drops all pages.
+     */
+    public void clear() {
+        bytePages = new byte[4][];
+        bitPages = new long[4][];
+        inverseScales = new float[PAGE_SIZE];
+    }
+
+    private byte[] ensureBytePage(int pageIndex) {
+        if (pageIndex >= bytePages.length) {
+            bytePages = Arrays.copyOf(bytePages, Math.max(bytePages.length * 2, pageIndex + 1));
+        }
+        if (bytePages[pageIndex] == null) {
+            bytePages[pageIndex] = new byte[PAGE_SIZE * dimensions];
+        }
+        return bytePages[pageIndex];
+    }
+
+    private long[] ensureBitPage(int pageIndex) {
+        if (pageIndex >= bitPages.length) {
+            bitPages = Arrays.copyOf(bitPages, Math.max(bitPages.length * 2, pageIndex + 1));
+        }
+        if (bitPages[pageIndex] == null) {
+            bitPages[pageIndex] = new long[PAGE_SIZE * words];
+        }
+        return bitPages[pageIndex];
+    }
+}
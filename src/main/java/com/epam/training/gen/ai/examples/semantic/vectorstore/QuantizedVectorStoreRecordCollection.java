@@ -0,0 +1,543 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchFilter;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResult;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResults;
+import com.microsoft.semantickernel.data.vectorstorage.VectorStoreRecordCollection;
+import com.microsoft.semantickernel.data.vectorstorage.options.DeleteRecordOptions;
+import com.microsoft.semantickernel.data.vectorstorage.options.GetRecordOptions;
+import com.microsoft.semantickernel.data.vectorstorage.options.UpsertRecordOptions;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Decorator that keeps quantized copies of the vectors of another collection in memory.
+ * <p>
+ * Searches scan the quantized codes for {@code (top + skip) * rerankFactor} candidates, fetch their
+ * full-precision vectors from the delegate and rerank them exactly. The delegate may keep its vectors on disk,
+ * as {@link MappedVectorStoreRecordCollection} does, in which case only the codes stay on the heap. Over an
+ * in-heap delegate such as {@link PrimitiveVectorStoreRecordCollection} the codes add to the heap the
+ * full-precision vectors already take; quantization then only buys a faster scan.
+ * Reads and writes go through the delegate; a rerank factor of {@code 0} returns the approximate order as is.
+ * <p>
+ * The payload fields of the records are kept in a {@link PayloadIndex}, so a filtered search only scans the codes
+ * of matching records. A batch search scans the codes once for all its queries and fetches the candidates of every
+ * query from the delegate in one call.
+ */
+@Slf4j
+public class QuantizedVectorStoreRecordCollection implements VectorStoreRecordCollection<String, DummyRecord>,
+        SearchStatistics, BatchVectorSearch, AutoCloseable {
+
+    private static final int SCAN_BLOCK_SIZE = 4 * FloatVectorPages.PAGE_SIZE;
+    private static final GetRecordOptions WITH_VECTORS = GetRecordOptions.builder().includeVectors(true).build();
+
+    private final VectorStoreRecordCollection<String, DummyRecord> delegate;
+    private final int dimensions;
+    private final QuantizedVectorPages codes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private final List<DummyRecord> records = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final PayloadIndex payloadIndex = new PayloadIndex();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder scannedVectors = new LongAdder();
+
+    private volatile int rerankFactor;
+
+    /**
+     * Wraps a collection, encoding the vectors it already holds when it can enumerate them.
+     *
+     * @param delegate     the full-precision collection
+     * @param dimensions   the vector dimensions
+     * @param type         the encoding of the in-memory codes
+     * @param rerankFactor how many candidates per requested result are reranked exactly
+     */
+    public QuantizedVectorStoreRecordCollection(VectorStoreRecordCollection<String, DummyRecord> delegate,
+                                                int dimensions, QuantizationType type, int rerankFactor) {
+        this.delegate = delegate;
+        this.dimensions = dimensions;
+        this.codes = new QuantizedVectorPages(dimensions, type);
+        this.rerankFactor = rerankFactor;
+        if (delegate instanceof MappedVectorStoreRecordCollection mapped) {
+            lock.writeLock().lock();
+            try {
+                mapped.forEachVector(this::index);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Encoded {} stored vectors as {}", ordinalsById.size(), type);
+        }
+    }
+
+    public int getRerankFactor() {
+        return rerankFactor;
+    }
+
+    /**
+     * Sets the default number of candidates reranked per requested result; higher trades latency for recall.
+     *
+     * @param rerankFactor the new factor, {@code 0} to skip the rerank
+     */
+    public void setRerankFactor(int rerankFactor) {
+        if (rerankFactor < 0) {
+            throw new IllegalArgumentException("rerankFactor must not be negative");
+        }
+        this.rerankFactor = rerankFactor;
+    }
+
+    @Override
+    public String getCollectionName() {
+        return delegate.getCollectionName();
+    }
+
+    @Override
+    public Mono<Boolean> collectionExistsAsync() {
+        return delegate.collectionExistsAsync();
+    }
+
+    @Override
+    public Mono<VectorStoreRecordCollection<String, DummyRecord>> createCollectionAsync() {
+        return delegate.createCollectionAsync().thenReturn(this);
+    }
+
+    @Override
+    public Mono<VectorStoreRecordCollection<String, DummyRecord>> createCollectionIfNotExistsAsync() {
+        return delegate.createCollectionIfNotExistsAsync().thenReturn(this);
+    }
+
+    @Override
+    public Mono<Void> deleteCollectionAsync() {
+        return delegate.deleteCollectionAsync().then(Mono.fromRunnable(() -> {
+            lock.writeLock().lock();
+            try {
+                ordinalsById.clear();
+                records.clear();
+                live.clear();
+                payloadIndex.clear();
+                freeOrdinals.clear();
+                codes.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }));
+    }
+
+    @Override
+    public Mono<DummyRecord> getAsync(String key, GetRecordOptions options) {
+        return delegate.getAsync(key, options);
+    }
+
+    @Override
+    public Mono<List<DummyRecord>> getBatchAsync(List<String> keys, GetRecordOptions options) {
+        return delegate.getBatchAsync(keys, options);
+    }
+
+    @Override
+    public Mono<String> upsertAsync(DummyRecord data, UpsertRecordOptions options) {
+        return upsertBatchAsync(List.of(data), options).map(keys -> keys.get(0));
+    }
+
+    @Override
+    public Mono<List<String>> upsertBatchAsync(List<DummyRecord> data, UpsertRecordOptions options) {
+        return delegate.upsertBatchAsync(data, options)
+                .doOnNext(keys -> {
+                    lock.writeLock().lock();
+                    try {
+                        for (DummyRecord record : data) {
+                            index(record.withEmbedding(null), VectorMath.toArray(record.getEmbedding()));
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                });
+    }
+
+    @Override
+    public Mono<Void> deleteAsync(String key, DeleteRecordOptions options) {
+        return deleteBatchAsync(List.of(key), options);
+    }
+
+    @Override
+    public Mono<Void> deleteBatchAsync(List<String> keys, DeleteRecordOptions options) {
+        return delegate.deleteBatchAsync(keys, options).then(Mono.fromRunnable(() -> {
+            lock.writeLock().lock();
+            try {
+                for (String key : keys) {
+                    Integer ordinal = ordinalsById.remove(key);
+                    if (ordinal != null) {
+                        payloadIndex.remove(ordinal, records.get(ordinal));
+                        records.set(ordinal, null);
+                        live.clear(ordinal);
+                        freeOrdinals.push(ordinal);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }));
+    }
+
+    @Override
+    public Mono<VectorSearchResults<DummyRecord>> searchAsync(List<Float> vector, VectorSearchOptions options) {
+        return searchAsync(vector, options, rerankFactor);
+    }
+
+    /**
+     * Counts the quantized codes scanned; the reranked candidates are not included.
+     */
+    @Override
+    public long scannedVectors() {
+        return scannedVectors.sum();
+    }
+
+    @Override
+    public long searches() {
+        return searches.sum();
+    }
+
+    /**
+     * Searches with an explicit rerank factor instead of the collection default.
+     *
+     * @param vector       the query vector
+     * @param options      the search options
+     * @param rerankFactor how many candidates per requested result are reranked exactly, {@code 0} for none
+     * @return the best matches, best first
+     */
+    public Mono<VectorSearchResults<DummyRecord>> searchAsync(List<Float> vector, VectorSearchOptions options,
+                                                              int rerankFactor) {
+        try {
+            VectorMath.checkDimensions(vector, dimensions);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        VectorSearchFilter filter = options == null ? null : options.getVectorSearchFilter();
+        int top = options == null || options.getTop() <= 0
+                ? PrimitiveVectorStoreRecordCollection.DEFAULT_TOP
+                : options.getTop();
+        int skip = options == null ? 0 : Math.max(0, options.getSkip());
+        boolean includeVectors = options != null && options.isIncludeVectors();
+        float[] query = unit(VectorMath.toArray(vector));
+
+        return Mono.fromCallable(() -> candidates(query, (top + skip) * Math.max(1, rerankFactor), filter))
+                .flatMap(candidates -> delegate.getBatchAsync(candidates.ids(),
+                                rerankFactor > 0 || includeVectors ? WITH_VECTORS : null)
+                        .map(fetched -> rerank(query, candidates, byId(fetched), top, skip, rerankFactor,
+                                includeVectors)));
+    }
+
+    /**
+     * Scans the codes once for every query, then fetches the candidates of all queries from the delegate in one
+     * call and reranks each query's candidates with the collection's rerank factor.
+     */
+    @Override
+    public Mono<List<VectorSearchResults<DummyRecord>>> searchBatchAsync(List<List<Float>> queries,
+                                                                         VectorSearchOptions options) {
+        try {
+            queries.forEach(query -> VectorMath.checkDimensions(query, dimensions));
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        VectorSearchFilter filter = options == null ? null : options.getVectorSearchFilter();
+        int top = options == null || options.getTop() <= 0
+                ? PrimitiveVectorStoreRecordCollection.DEFAULT_TOP
+                : options.getTop();
+        int skip = options == null ? 0 : Math.max(0, options.getSkip());
+        boolean includeVectors = options != null && options.isIncludeVectors();
+        int rerankFactor = this.rerankFactor;
+        float[][] batch = new float[queries.size()][];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = unit(VectorMath.toArray(queries.get(i)));
+        }
+
+        return Mono.fromCallable(() -> batchCandidates(batch, (top + skip) * Math.max(1, rerankFactor), filter))
+                .flatMap(candidates -> {
+                    var candidateIds = new LinkedHashSet<String>();
+                    candidates.forEach(query -> candidateIds.addAll(query.ids()));
+                    return delegate.getBatchAsync(new ArrayList<>(candidateIds),
+                                    rerankFactor > 0 || includeVectors ? WITH_VECTORS : null)
+                            .map(fetched -> {
+                                Map<String, DummyRecord> byId = byId(fetched);
+                                var results = new ArrayList<VectorSearchResults<DummyRecord>>(batch.length);
+                                for (int i = 0; i < batch.length; i++) {
+                                    results.add(rerank(batch[i], candidates.get(i), byId, top, skip, rerankFactor,
+                                            includeVectors));
+                                }
+                                return results;
+                            });
+                });
+    }
+
+    /**
+     * Measures the heap held by the codes and the delegate and the recall@k of several rerank factors against
+     * the delegate.
+     * <p>
+     * Queries are midpoints between random pairs of stored vectors, so they have close but not identical
+     * neighbours. The delegate search is taken as ground truth, which is exact for the scanning stores.
+     *
+     * @param queryCount    the number of sampled queries
+     * @param k             the result count to compare
+     * @param rerankFactors the rerank factors to measure, {@code 0} for the raw quantized order
+     * @return the report
+     * @throws IllegalArgumentException when the query count, {@code k} or a rerank factor is out of range
+     */
+    public QuantizationReport quantizationReport(int queryCount, int k, int[] rerankFactors) {
+        if (queryCount < 1 || k < 1 || Arrays.stream(rerankFactors).anyMatch(factor -> factor < 0)) {
+            throw new IllegalArgumentException("queries and k must be positive and rerank factors not negative");
+        }
+        long delegateHeapBytes = delegateHeapBytes();
+        List<String> sample;
+        int vectorCount;
+        long quantizedBytes;
+        lock.readLock().lock();
+        try {
+            vectorCount = ordinalsById.size();
+            quantizedBytes = codes.allocatedBytes();
+            var random = new Random(42);
+            var liveIds = new ArrayList<String>(ordinalsById.keySet());
+            sample = vectorCount < 2 ? List.of() : IntStream.range(0, queryCount * 2)
+                    .mapToObj(i -> liveIds.get(random.nextInt(liveIds.size())))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        long fullPrecisionBytes = (long) vectorCount * dimensions * Float.BYTES;
+        if (sample.isEmpty()) {
+            return new QuantizationReport(codes.type(), vectorCount, fullPrecisionBytes, quantizedBytes,
+                    delegateHeapBytes, List.of());
+        }
+
+        Map<String, float[]> vectorsById = new HashMap<>();
+        delegate.getBatchAsync(new ArrayList<>(new HashSet<>(sample)), WITH_VECTORS).blockOptional()
+                .orElse(List.of())
+                .forEach(record -> vectorsById.put(record.getId(), VectorMath.toArray(record.getEmbedding())));
+        var queries = new ArrayList<List<Float>>(queryCount);
+        for (int i = 0; i + 1 < sample.size(); i += 2) {
+            float[] first = vectorsById.get(sample.get(i));
+            float[] second = vectorsById.get(sample.get(i + 1));
+            if (first == null || second == null) {
+                continue;
+            }
+            float[] midpoint = new float[dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                midpoint[d] = (first[d] + second[d]) / 2f;
+            }
+            queries.add(new FloatListView(midpoint));
+        }
+
+        var options = VectorSearchOptions.builder().withTop(k).build();
+        var truth = queries.stream()
+                .map(query -> resultIds(delegate.searchAsync(query, options).block()))
+                .toList();
+        var entries = new ArrayList<RecallReportEntry>(rerankFactors.length);
+        for (int factor : rerankFactors) {
+            long[] latencies = new long[queries.size()];
+            double recall = 0;
+            for (int q = 0; q < queries.size(); q++) {
+                long started = System.nanoTime();
+                var found = resultIds(searchAsync(queries.get(q), options, factor).block());
+                latencies[q] = System.nanoTime() - started;
+                var expected = truth.get(q);
+                recall += expected.isEmpty() ? 1 : (double) found.stream().filter(expected::contains).count()
+                        / expected.size();
+            }
+            Arrays.sort(latencies);
+            entries.add(new RecallReportEntry("rerankFactor=" + factor, recall / queries.size(),
+                    Arrays.stream(latencies).average().orElse(0) / 1_000,
+                    latencies[(int) Math.min(latencies.length - 1, Math.ceil(latencies.length * 0.95) - 1)] / 1_000.0));
+        }
+        return new QuantizationReport(codes.type(), vectorCount, fullPrecisionBytes, quantizedBytes,
+                delegateHeapBytes, entries);
+    }
+
+    private long delegateHeapBytes() {
+        if (delegate instanceof PrimitiveVectorStoreRecordCollection primitive) {
+            return primitive.vectorBytes();
+        }
+        return delegate instanceof MappedVectorStoreRecordCollection ? 0 : -1;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * Encodes the vector of a record and indexes its payload. Called with the write lock held.
+     *
+     * @param record the record without its embedding
+     * @param vector the vector of the record
+     */
+    private void index(DummyRecord record, float[] vector) {
+        String id = record.getId();
+        Integer ordinal = ordinalsById.get(id);
+        if (ordinal == null) {
+            ordinal = freeOrdinals.isEmpty() ? records.size() : freeOrdinals.pop();
+            if (ordinal == records.size()) {
+                records.add(null);
+            }
+            ordinalsById.put(id, ordinal);
+        } else {
+            payloadIndex.remove(ordinal, records.get(ordinal));
+        }
+        records.set(ordinal, record);
+        payloadIndex.add(ordinal, record);
+        codes.set(ordinal, unit(vector));
+        live.set(ordinal);
+    }
+
+    private Candidates candidates(float[] query, int limit, VectorSearchFilter filter) {
+        lock.readLock().lock();
+        try {
+            BitSet candidates = PayloadIndex.isFiltered(filter) ? payloadIndex.matching(filter, live) : live;
+            searches.increment();
+            scannedVectors.add(candidates.cardinality());
+            long[] queryBits = codes.encodeQuery(query);
+            int upperBound = records.size();
+            int blocks = (upperBound + SCAN_BLOCK_SIZE - 1) / SCAN_BLOCK_SIZE;
+            IntStream blockStream = IntStream.range(0, blocks);
+            if (blocks > 1) {
+                blockStream = blockStream.parallel();
+            }
+            TopK topK = blockStream
+                    .mapToObj(block -> {
+                        var blockTop = new TopK(limit);
+                        int to = Math.min(upperBound, (block + 1) * SCAN_BLOCK_SIZE);
+                        for (int ordinal = candidates.nextSetBit(block * SCAN_BLOCK_SIZE);
+                             ordinal >= 0 && ordinal < to; ordinal = candidates.nextSetBit(ordinal + 1)) {
+                            blockTop.offer(ordinal, codes.score(query, queryBits, ordinal));
+                        }
+                        return blockTop;
+                    })
+                    .reduce(TopK::merge)
+                    .orElseGet(() -> new TopK(limit));
+            int[] ordinals = new int[topK.size()];
+            float[] scores = new float[topK.size()];
+            int count = topK.drainDescending(ordinals, scores);
+            return toCandidates(ordinals, scores, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Candidates> batchCandidates(float[][] queries, int limit, VectorSearchFilter filter) {
+        long[][] queryBits = new long[queries.length][];
+        for (int i = 0; i < queries.length; i++) {
+            queryBits[i] = codes.encodeQuery(queries[i]);
+        }
+        lock.readLock().lock();
+        try {
+            BitSet candidates = PayloadIndex.isFiltered(filter) ? payloadIndex.matching(filter, live) : live;
+            searches.add(queries.length);
+            scannedVectors.add((long) candidates.cardinality() * queries.length);
+            TopK[] heaps = BatchScan.scan(queries.length, limit, records.size(), dimensions,
+                    (from, to, queryFrom, queryTo, tileHeaps, dots) -> {
+                        for (int ordinal = candidates.nextSetBit(from); ordinal >= 0 && ordinal < to;
+                             ordinal = candidates.nextSetBit(ordinal + 1)) {
+                            for (int query = queryFrom; query < queryTo; query++) {
+                                tileHeaps[query].offer(ordinal, codes.score(queries[query], queryBits[query],
+                                        ordinal));
+                            }
+                        }
+                    });
+            var results = new ArrayList<Candidates>(heaps.length);
+            for (TopK heap : heaps) {
+                int[] ordinals = new int[heap.size()];
+                float[] scores = new float[heap.size()];
+                results.add(toCandidates(ordinals, scores, heap.drainDescending(ordinals, scores)));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Maps drained ordinals to record ids. Called with the read lock held.
+     */
+    private Candidates toCandidates(int[] ordinals, float[] scores, int count) {
+        var candidateIds = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            candidateIds.add(records.get(ordinals[i]).getId());
+        }
+        return new Candidates(candidateIds, scores);
+    }
+
+    /**
+     * Scores the fetched candidates of one query exactly, or keeps their approximate order when the rerank
+     * factor is {@code 0}, and returns the requested page.
+     */
+    private VectorSearchResults<DummyRecord> rerank(float[] query, Candidates candidates,
+                                                    Map<String, DummyRecord> byId, int top, int skip,
+                                                    int rerankFactor, boolean includeVectors) {
+        var scored = new ArrayList<VectorSearchResult<DummyRecord>>(candidates.ids().size());
+        for (int i = 0; i < candidates.ids().size(); i++) {
+            DummyRecord record = byId.get(candidates.ids().get(i));
+            if (record == null) {
+                continue;
+            }
+            float score = rerankFactor > 0
+                    ? exactScore(query, record)
+                    : candidates.scores()[i];
+            scored.add(new VectorSearchResult<>(includeVectors ? record : record.withEmbedding(null), score));
+        }
+        if (rerankFactor > 0) {
+            scored.sort(Comparator.comparingDouble(VectorSearchResult<DummyRecord>::getScore).reversed());
+        }
+        var page = scored.subList(Math.min(skip, scored.size()), Math.min(skip + top, scored.size()));
+        return new VectorSearchResults<>(new ArrayList<>(page));
+    }
+
+    private static Map<String, DummyRecord> byId(List<DummyRecord> records) {
+        Map<String, DummyRecord> byId = new HashMap<>();
+        records.forEach(record -> byId.put(record.getId(), record));
+        return byId;
+    }
+
+    private static float[] unit(float[] vector) {
+        float norm = VectorMath.norm(vector);
+        float[] unit = new float[vector.length];
+        if (norm > 0f) {
+            for (int i = 0; i < vector.length; i++) {
+                unit[i] = vector[i] / norm;
+            }
+        }
+        return unit;
+    }
+
+    private float exactScore(float[] unitQuery, DummyRecord record) {
+        float[] vector = VectorMath.toArray(record.getEmbedding());
+        float norm = VectorMath.norm(vector);
+        return norm == 0f ? 0f : VectorMath.dot(unitQuery, vector) / norm;
+    }
+
+    private static List<String> resultIds(VectorSearchResults<DummyRecord> results) {
+        return results == null ? List.of() : results.getResults().stream()
+                .map(result -> result.getRecord().getId())
+                .toList();
+    }
+
+    private record Candidates(List<String> ids, float[] scores) {
+    }
+}
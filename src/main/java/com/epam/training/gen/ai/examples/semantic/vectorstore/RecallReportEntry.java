@@ -0,0 +1,13 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+/**
+ * One row of a recall-versus-latency report comparing an approximate search setting with the exact scan.
+ *
+ * @param configuration     the search setting that was measured
+ * @param recall            the fraction of the exact top-k that the setting returned
+ * @param meanLatencyMicros the mean search latency in microseconds
+ * @param p95LatencyMicros  the 95th percentile search latency in microseconds
+ */
+public record RecallReportEntry(String configuration, double recall, double meanLatencyMicros,
+                                double p95LatencyMicros) {
+}
@@ -0,0 +1,22 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+/**
+ * Search counters of an in-process vector store, exported as metrics.
+ */
+public interface SearchStatistics {
+
+    /**
+     * Returns the number of searches run so far.
+     *
+     * @return the search count
+     */
+    long searches();
+
+    /**
+     * Returns the number of stored vectors scored by all searches so far, which divided by {@link #searches()}
+     * gives the work an average search does.
+     *
+     * @return the scored vector count
+     */
+    long scannedVectors();
+}
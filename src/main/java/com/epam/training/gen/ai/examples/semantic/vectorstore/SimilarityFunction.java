@@ -0,0 +1,9 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+/**
+ * Similarity functions supported by the in-process vector stores. Higher scores are always closer.
+ */
+public enum SimilarityFunction {
+    COSINE,
+    DOT_PRODUCT
+}
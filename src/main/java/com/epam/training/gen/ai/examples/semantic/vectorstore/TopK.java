@@ -0,0 +1,120 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+/**
+ * Bounded min-heap that keeps the {@code k} highest scoring ordinals.
+ * <p>
+ * Scores and ordinals are held in parallel primitive arrays so that offering a
+ * candidate never allocates.
+ */
+public final class TopK {
+
+    private final int capacity;
+    private final float[] scores;
+    private final int[] ordinals;
+    private int size;
+
+    public TopK(int capacity) {
+        this.capacity = capacity;
+        this.scores = new float[capacity];
+        this.ordinals = new int[capacity];
+    }
+
+    /**
+     * Offers a candidate, keeping it only if it beats the current minimum.
+     *
+     * @param ordinal the candidate ordinal
+     * @param score   the candidate score
+     */
+    public void offer(int ordinal, float score) {
+        if (size < capacity) {
+            scores[size] = score;
+            ordinals[size] = ordinal;
+            siftUp(size++);
+        } else if (capacity > 0 && score > scores[0]) {
+            scores[0] = score;
+            ordinals[0] = ordinal;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns the lowest score that is still kept, or negative infinity while the heap is not full.
+     *
+     * @return the admission threshold
+     */
+    public float threshold() {
+        return size < capacity ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * Merges all candidates of another heap into this one.
+     *
+     * @param other the heap to merge
+     * @return this heap
+     */
+    public TopK merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ordinals[i], other.scores[i]);
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Drains the heap into ordinals and scores sorted by descending score.
+     *
+     * @param outOrdinals receives the ordinals, must hold at least {@link #size()} elements
+     * @param outScores   receives the scores, must hold at least {@link #size()} elements
+     * @return the number of drained candidates
+     */
+    public int drainDescending(int[] outOrdinals, float[] outScores) {
+        int count = size;
+        for (int i = count - 1; i >= 0; i--) {
+            outOrdinals[i] = ordinals[0];
+            outScores[i] = scores[0];
+            size--;
+            scores[0] = scores[size];
+            ordinals[0] = ordinals[size];
+            siftDown(0);
+        }
+        return count;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[index] <= scores[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        int ordinal = ordinals[i];
+        ordinals[i] = ordinals[j];
+        ordinals[j] = ordinal;
+    }
+}
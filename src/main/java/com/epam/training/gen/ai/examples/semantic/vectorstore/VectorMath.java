@@ -0,0 +1,160 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import java.util.List;
+
+/**
+ * Primitive vector kernels shared by the in-process vector stores.
+ * <p>
+ * The loops are written with independent accumulators and no branches so that
+ * the JIT can auto-vectorize them into SIMD instructions.
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    /**
+     * Computes the dot product of {@code query} and the vector stored at {@code offset} in {@code data}.
+     *
+     * @param query  the query vector
+     * @param data   the backing array holding the stored vector
+     * @param offset the index of the first component of the stored vector
+     * @return the dot product
+     */
+    public static float dot(float[] query, float[] data, int offset) {
+        return dot(query, 0, data, offset, query.length);
+    }
+
+    /**
+     * Computes the dot product of two vectors stored inside larger arrays.
+     *
+     * @param a       the array holding the first vector
+     * @param aOffset the index of the first component of the first vector
+     * @param b       the array holding the second vector
+     * @param bOffset the index of the first component of the second vector
+     * @param length  the number of components
+     * @return the dot product
+     */
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int i = 0;
+        for (int bound = length & ~3; i < bound; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Computes the dot products of four queries with the vector stored at {@code offset} in {@code data}.
+     * <p>
+     * Every stored component is loaded once for the four queries, which halves the loads per multiply-add of
+     * four {@link #dot} calls and gives the CPU eight independent sums to overlap.
+     *
+     * @param q0        the first query
+     * @param q1        the second query
+     * @param q2        the third query
+     * @param q3        the fourth query
+     * @param data      the backing array holding the stored vector
+     * @param offset    the index of the first component of the stored vector
+     * @param out       receives the four dot products from {@code outOffset}
+     * @param outOffset the index of the first dot product in {@code out}
+     */
+    public static void dot4(float[] q0, float[] q1, float[] q2, float[] q3, float[] data, int offset,
+                            float[] out, int outOffset) {
+        int length = q0.length;
+        float a0 = 0f;
+        float a1 = 0f;
+        float a2 = 0f;
+        float a3 = 0f;
+        float b0 = 0f;
+        float b1 = 0f;
+        float b2 = 0f;
+        float b3 = 0f;
+        int i = 0;
+        for (int bound = length & ~1; i < bound; i += 2) {
+            float v = data[offset + i];
+            float w = data[offset + i + 1];
+            a0 += q0[i] * v;
+            a1 += q1[i] * v;
+            a2 += q2[i] * v;
+            a3 += q3[i] * v;
+            b0 += q0[i + 1] * w;
+            b1 += q1[i + 1] * w;
+            b2 += q2[i + 1] * w;
+            b3 += q3[i + 1] * w;
+        }
+        for (; i < length; i++) {
+            float v = data[offset + i];
+            a0 += q0[i] * v;
+            a1 += q1[i] * v;
+            a2 += q2[i] * v;
+            a3 += q3[i] * v;
+        }
+        out[outOffset] = a0 + b0;
+        out[outOffset + 1] = a1 + b1;
+        out[outOffset + 2] = a2 + b2;
+        out[outOffset + 3] = a3 + b3;
+    }
+
+    /**
+     * Computes the dot product of two vectors of equal length.
+     *
+     * @param a the first vector
+     * @param b the second vector
+     * @return the dot product
+     */
+    public static float dot(float[] a, float[] b) {
+        return dot(a, b, 0);
+    }
+
+    /**
+     * Computes the Euclidean norm of a vector.
+     *
+     * @param vector the vector
+     * @return the norm
+     */
+    public static float norm(float[] vector) {
+        return (float) Math.sqrt(dot(vector, vector));
+    }
+
+    /**
+     * Checks that a query vector has the dimensions of the stored vectors, so it is rejected instead of being
+     * scored against a prefix of them.
+     *
+     * @param vector     the query vector
+     * @param dimensions the dimensions of the stored vectors
+     * @throws IllegalArgumentException when the dimensions differ
+     */
+    public static void checkDimensions(List<Float> vector, int dimensions) {
+        if (vector == null || vector.size() != dimensions) {
+            throw new IllegalArgumentException("Expected a query of " + dimensions + " dimensions but got "
+                    + (vector == null ? 0 : vector.size()));
+        }
+    }
+
+    /**
+     * Copies a boxed vector into a new primitive array.
+     *
+     * @param vector the boxed vector
+     * @return the primitive copy
+     */
+    public static float[] toArray(List<Float> vector) {
+        if (vector instanceof FloatListView view) {
+            return view.toFloatArray();
+        }
+        float[] result = new float[vector.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = vector.get(i);
+        }
+        return result;
+    }
+}
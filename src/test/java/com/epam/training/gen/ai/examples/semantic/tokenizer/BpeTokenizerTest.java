@@ -0,0 +1,98 @@
+package com.epam.training.gen.ai.examples.semantic.tokenizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks {@link BpeTokenizer} against token ids produced by tiktoken, and {@link Cl100kPieces} against the
+ * cl100k_base pre-tokenization pattern it replaces. The token ids are only checked when the build has downloaded
+ * the encoding file.
+ */
+class BpeTokenizerTest {
+
+    private static final Pattern CL100K = Pattern.compile(
+            "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*"
+                    + "|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+",
+            Pattern.UNICODE_CHARACTER_CLASS);
+
+    private static final List<String> TEXTS = List.of(
+            "hello world",
+            "Hello, world!",
+            "tiktoken is great!",
+            "2 + 2 = 4",
+            "antidisestablishmentarianism",
+            "お誕生日おめでとう",
+            "I'm sure they'll say it's THEY'RE, not 'theyre'.",
+            "12345678 apples\tand pears 3.14159",
+            "line one\r\n\r\n  line two  \n\n\n",
+            "    indented(code) { return x->y; }\n",
+            "emoji 👍🏽 and accents: crème brûlée, naïve café",
+            "'' ' 's 'S 'LL 'x",
+            "trailing spaces   ",
+            "mixed123numbers456and789more0",
+            " unicode separators\u000b\u000c",
+            "");
+
+    @Test
+    void splitsLikeTheCl100kPattern() {
+        for (String text : TEXTS) {
+            assertThat(pieces(new Cl100kPieces(text), text)).as(text).isEqualTo(regexPieces(text));
+        }
+    }
+
+    @Test
+    void encodesLikeTiktokenCl100k() throws IOException {
+        BpeTokenizer tokenizer = load(Encoding.CL100K_BASE);
+
+        assertThat(tokenizer.encode("hello world")).containsExactly(15339, 1917);
+        assertThat(tokenizer.encode("tiktoken is great!")).containsExactly(83, 1609, 5963, 374, 2294, 0);
+        assertThat(tokenizer.encode("2 + 2 = 4")).containsExactly(17, 489, 220, 17, 284, 220, 19);
+        assertThat(tokenizer.encode("antidisestablishmentarianism"))
+                .containsExactly(519, 85342, 34500, 479, 8997, 2191);
+        assertThat(tokenizer.encode("お誕生日おめでとう"))
+                .containsExactly(33334, 45918, 243, 21990, 9080, 33334, 62004, 16556, 78699);
+    }
+
+    @Test
+    void countsTheEncodedTokens() throws IOException {
+        BpeTokenizer tokenizer = load(Encoding.CL100K_BASE);
+
+        for (String text : TEXTS) {
+            assertThat(tokenizer.count(text)).as(text).isEqualTo(tokenizer.encode(text).length);
+        }
+    }
+
+    private static BpeTokenizer load(Encoding encoding) throws IOException {
+        InputStream in = BpeTokenizerTest.class.getResourceAsStream("/tokenizer/" + encoding.fileName());
+        assumeTrue(in != null, "Encoding file " + encoding.fileName() + " is not on the classpath");
+        try (in) {
+            return BpeTokenizer.load(encoding, in);
+        }
+    }
+
+    private static List<String> pieces(Pieces pieces, String text) {
+        var result = new ArrayList<String>();
+        while (pieces.next()) {
+            result.add(text.substring(pieces.start(), pieces.end()));
+        }
+        return result;
+    }
+
+    private static List<String> regexPieces(String text) {
+        var result = new ArrayList<String>();
+        Matcher matcher = CL100K.matcher(text);
+        while (matcher.find()) {
+            result.add(matcher.group());
+        }
+        return result;
+    }
+}
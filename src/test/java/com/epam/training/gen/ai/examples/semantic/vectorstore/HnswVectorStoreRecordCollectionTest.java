@@ -0,0 +1,146 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.model.RecordFilter;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResult;
+import com.microsoft.semantickernel.data.vectorstorage.options.GetRecordOptions;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Checks the result order, deletes, payload filters, recall and graph rebuilds of
+ * {@link HnswVectorStoreRecordCollection}. Rebuilds run on the calling thread, so they have finished when the
+ * write that triggered them returns.
+ */
+class HnswVectorStoreRecordCollectionTest {
+
+    private static final int DIMENSIONS = 8;
+    private static final GetRecordOptions WITH_VECTORS = GetRecordOptions.builder().includeVectors(true).build();
+
+    private final HnswVectorStoreRecordCollection store = new HnswVectorStoreRecordCollection("test", DIMENSIONS,
+            SimilarityFunction.COSINE, 8, 100, 64, 0.25, Schedulers.immediate());
+
+    @Test
+    void returnsTheClosestRecordsBestFirst() {
+        store.upsertBatchAsync(List.of(
+                record("north", 1f, 0f),
+                record("north-east", 1f, 1f),
+                record("east", 0f, 1f),
+                record("south", -1f, 0f)), null).block();
+
+        var results = search(3, null, vector(1f, 0.2f));
+
+        assertThat(ids(results)).containsExactly("north", "north-east", "east");
+        assertThat(results.get(0).getScore()).isGreaterThan(results.get(1).getScore());
+    }
+
+    @Test
+    void skipsDeletedNodes() {
+        store.upsertBatchAsync(List.of(
+                record("north", 1f, 0f),
+                record("east", 0f, 1f),
+                record("south", -1f, 0f)), null).block();
+        store.deleteAsync("north", null).block();
+
+        assertThat(store.getAsync("north", null).block()).isNull();
+        assertThat(ids(search(3, null, vector(1f, 0f)))).containsExactly("east", "south");
+    }
+
+    @Test
+    void filtersOnPayloadFields() {
+        store.upsertBatchAsync(List.of(
+                new DummyRecord("acme-north", vector(1f, 0f), "acme", null, null, List.of("maps")),
+                new DummyRecord("globex-north", vector(1f, 0.1f), "globex", null, null, List.of("maps")),
+                new DummyRecord("acme-east", vector(0f, 1f), "acme", null, null, null)), null).block();
+
+        var results = search(5, new RecordFilter("acme", null, null, null), vector(1f, 0f));
+
+        assertThat(ids(results)).containsExactly("acme-north", "acme-east");
+    }
+
+    @Test
+    void findsTheExactNeighboursOfARandomCorpus() {
+        var random = new SplittableRandom(11);
+        var records = new ArrayList<DummyRecord>();
+        for (int i = 0; i < 2000; i++) {
+            records.add(new DummyRecord("record-" + i, randomVector(random)));
+        }
+        store.upsertBatchAsync(records, null).block();
+
+        var report = store.recallReport(50, 10, new int[]{64});
+
+        assertThat(report).hasSize(2);
+        assertThat(report.get(1).recall()).isGreaterThan(0.9);
+    }
+
+    @Test
+    void rebuildsTheGraphWithoutLosingRecords() {
+        var random = new SplittableRandom(5);
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 300; i++) {
+                store.upsertAsync(new DummyRecord("record-" + i, randomVector(random)), null).block();
+            }
+        }
+        store.deleteBatchAsync(List.of("record-0", "record-1", "record-2"), null).block();
+
+        assertThat(store.rebuilds()).isPositive();
+        assertThat(store.size()).isEqualTo(297);
+        assertThat(store.deadNodes()).isLessThan(300);
+        for (int i = 3; i < 300; i++) {
+            var stored = store.getAsync("record-" + i, WITH_VECTORS).block();
+            assertThat(ids(search(1, null, stored.getEmbedding()))).containsExactly("record-" + i);
+        }
+    }
+
+    @Test
+    void rejectsInvalidReportArguments() {
+        assertThatIllegalArgumentException().isThrownBy(() -> store.recallReport(0, 10, new int[]{64}));
+        assertThatIllegalArgumentException().isThrownBy(() -> store.recallReport(10, 0, new int[]{64}));
+        assertThatIllegalArgumentException().isThrownBy(() -> store.recallReport(10, 10, new int[]{0}));
+    }
+
+    private List<VectorSearchResult<DummyRecord>> search(int top, RecordFilter filter, List<Float> query) {
+        var options = VectorSearchOptions.builder()
+                .withTop(top)
+                .withVectorSearchFilter(filter == null ? null : filter.toVectorSearchFilter())
+                .build();
+        return store.searchAsync(query, options).block().getResults();
+    }
+
+    private static DummyRecord record(String id, float x, float y) {
+        return new DummyRecord(id, vector(x, y));
+    }
+
+    /**
+     * Returns a vector with the given first two components and zeros after them.
+     */
+    private static List<Float> vector(float x, float y) {
+        var vector = new ArrayList<Float>(DIMENSIONS);
+        vector.add(x);
+        vector.add(y);
+        while (vector.size() < DIMENSIONS) {
+            vector.add(0f);
+        }
+        return vector;
+    }
+
+    private static List<Float> randomVector(SplittableRandom random) {
+        var vector = new ArrayList<Float>(DIMENSIONS);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector.add((float) random.nextGaussian());
+        }
+        return vector;
+    }
+
+    private static List<String> ids(List<VectorSearchResult<DummyRecord>> results) {
+        return results.stream().map(result -> result.getRecord().getId()).toList();
+    }
+}
@@ -0,0 +1,163 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.model.RecordFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResult;
+import com.microsoft.semantickernel.data.vectorstorage.options.GetRecordOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that {@link MappedVectorStoreRecordCollection} recovers its records from its files after a clean close,
+ * a crash and a torn log line, and across snapshots and compactions.
+ */
+class MappedVectorStoreRecordCollectionTest {
+
+    private static final String COLLECTION = "test";
+    private static final int DIMENSIONS = 4;
+    private static final GetRecordOptions WITH_VECTORS = GetRecordOptions.builder().includeVectors(true).build();
+
+    @TempDir
+    Path directory;
+
+    private final List<MappedVectorStoreRecordCollection> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() {
+        opened.forEach(MappedVectorStoreRecordCollection::close);
+    }
+
+    @Test
+    void reopensWithTheRecordsOfTheLog() {
+        var store = open();
+        store.upsertBatchAsync(List.of(
+                record("north", 1f, 0f, 0f, 0f),
+                record("east", 0f, 1f, 0f, 0f),
+                record("south", 0f, 0f, 1f, 0f)), null).block();
+        store.upsertAsync(record("east", 0f, 0f, 0f, 1f), null).block();
+        store.deleteAsync("south", null).block();
+
+        // the first store is not closed, as after a crash
+        var reopened = open();
+
+        assertThat(ids(reopened.getBatchAsync(List.of("north", "east", "south"), null).block()))
+                .containsExactly("north", "east");
+        assertThat(reopened.getAsync("east", WITH_VECTORS).block().getEmbedding())
+                .containsExactly(0f, 0f, 0f, 1f);
+        assertThat(topId(reopened, 0f, 0f, 0f, 1f)).isEqualTo("east");
+    }
+
+    @Test
+    void cutsATornLogLineBeforeAppending() throws IOException {
+        var store = open();
+        store.upsertAsync(record("north", 1f, 0f, 0f, 0f), null).block();
+        Path logFile = directory.resolve(COLLECTION).resolve("records-0.log");
+        Files.writeString(logFile, "U\t1\t{\"id\":\"tor", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        var recovered = open();
+        assertThat(ids(recovered.getBatchAsync(List.of("north"), null).block())).containsExactly("north");
+        recovered.upsertAsync(record("east", 0f, 1f, 0f, 0f), null).block();
+
+        var reopened = open();
+        assertThat(ids(reopened.getBatchAsync(List.of("north", "east"), null).block()))
+                .containsExactly("north", "east");
+        assertThat(Files.readString(logFile)).doesNotContain("tor");
+    }
+
+    @Test
+    void reopensFromASnapshot() throws IOException {
+        var store = open();
+        store.upsertBatchAsync(List.of(
+                record("north", 1f, 0f, 0f, 0f),
+                record("east", 0f, 1f, 0f, 0f)), null).block();
+        store.deleteAsync("north", null).block();
+        store.snapshot();
+
+        assertThat(Files.size(directory.resolve(COLLECTION).resolve("records-0.log"))).isZero();
+        var reopened = open();
+        assertThat(ids(reopened.getBatchAsync(List.of("north", "east"), null).block())).containsExactly("east");
+        assertThat(topId(reopened, 0f, 1f, 0f, 0f)).isEqualTo("east");
+    }
+
+    @Test
+    void compactsIntoANewGeneration() {
+        var store = open();
+        for (int i = 0; i < 8; i++) {
+            float[] vector = new float[DIMENSIONS];
+            vector[i % DIMENSIONS] = i + 1;
+            store.upsertAsync(record("record-" + i, vector), null).block();
+        }
+        store.deleteBatchAsync(List.of("record-0", "record-1", "record-2", "record-5"), null).block();
+        store.compact();
+
+        assertThat(directory.resolve(COLLECTION).resolve("vectors-1.seg")).exists();
+        assertThat(directory.resolve(COLLECTION).resolve("vectors-0.seg")).doesNotExist();
+        var reopened = open();
+        assertThat(ids(reopened.getBatchAsync(
+                List.of("record-0", "record-3", "record-4", "record-5", "record-6", "record-7"), null).block()))
+                .containsExactly("record-3", "record-4", "record-6", "record-7");
+        assertThat(reopened.getAsync("record-6", WITH_VECTORS).block().getEmbedding())
+                .containsExactly(0f, 0f, 7f, 0f);
+    }
+
+    @Test
+    void filtersOnPayloadFields() {
+        var store = open();
+        store.upsertBatchAsync(List.of(
+                new DummyRecord("acme-north", List.of(1f, 0f, 0f, 0f), "acme", null, null, List.of("maps")),
+                new DummyRecord("globex-north", List.of(1f, 0.1f, 0f, 0f), "globex", null, null, null),
+                new DummyRecord("acme-east", List.of(0f, 1f, 0f, 0f), "acme", null, null, null)), null).block();
+        var options = VectorSearchOptions.builder()
+                .withTop(5)
+                .withVectorSearchFilter(new RecordFilter("acme", null, null, null).toVectorSearchFilter())
+                .build();
+
+        var results = store.searchAsync(List.of(1f, 0f, 0f, 0f), options).block().getResults();
+
+        assertThat(results).extracting(result -> result.getRecord().getId())
+                .containsExactly("acme-north", "acme-east");
+    }
+
+    private MappedVectorStoreRecordCollection open() {
+        var store = new MappedVectorStoreRecordCollection(COLLECTION, DIMENSIONS, SimilarityFunction.COSINE,
+                directory, Duration.ofHours(1), Duration.ZERO, new ObjectMapper());
+        opened.add(store);
+        return store;
+    }
+
+    private static String topId(MappedVectorStoreRecordCollection store, float... query) {
+        List<VectorSearchResult<DummyRecord>> results = store.searchAsync(toList(query),
+                VectorSearchOptions.builder().withTop(1).build()).block().getResults();
+        return results.get(0).getRecord().getId();
+    }
+
+    private static DummyRecord record(String id, float... vector) {
+        return new DummyRecord(id, toList(vector));
+    }
+
+    private static List<Float> toList(float[] vector) {
+        var list = new ArrayList<Float>(vector.length);
+        for (float value : vector) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static List<String> ids(List<DummyRecord> records) {
+        return records.stream().map(DummyRecord::getId).toList();
+    }
+}
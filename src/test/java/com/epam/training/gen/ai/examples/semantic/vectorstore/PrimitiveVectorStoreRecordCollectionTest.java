@@ -0,0 +1,133 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.model.RecordFilter;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResult;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResults;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the result order, deletes, payload filters and batch search of {@link PrimitiveVectorStoreRecordCollection}.
+ */
+class PrimitiveVectorStoreRecordCollectionTest {
+
+    private static final int DIMENSIONS = 4;
+
+    private PrimitiveVectorStoreRecordCollection store;
+
+    @BeforeEach
+    void createStore() {
+        store = new PrimitiveVectorStoreRecordCollection("test", DIMENSIONS, SimilarityFunction.COSINE);
+        store.createCollectionIfNotExistsAsync().block();
+    }
+
+    @Test
+    void returnsTheClosestRecordsBestFirst() {
+        store.upsertBatchAsync(List.of(
+                record("north", 1f, 0f, 0f, 0f),
+                record("north-east", 1f, 1f, 0f, 0f),
+                record("east", 0f, 1f, 0f, 0f),
+                record("south", -1f, 0f, 0f, 0f)), null).block();
+
+        var results = search(top(3), 1f, 0.2f, 0f, 0f);
+
+        assertThat(ids(results)).containsExactly("north", "north-east", "east");
+        assertThat(results.get(0).getScore()).isGreaterThan(results.get(1).getScore());
+        assertThat(results.get(1).getScore()).isGreaterThan(results.get(2).getScore());
+    }
+
+    @Test
+    void forgetsDeletedAndReplacedVectors() {
+        store.upsertBatchAsync(List.of(
+                record("north", 1f, 0f, 0f, 0f),
+                record("east", 0f, 1f, 0f, 0f),
+                record("south", -1f, 0f, 0f, 0f)), null).block();
+        store.deleteAsync("north", null).block();
+        store.upsertAsync(record("east", 0f, 0f, 1f, 0f), null).block();
+
+        assertThat(store.getAsync("north", null).block()).isNull();
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(ids(search(top(3), 1f, 0f, 0f, 0f))).doesNotContain("north");
+        assertThat(ids(search(top(1), 0f, 0f, 1f, 0f))).containsExactly("east");
+        assertThat(ids(search(top(1), 0f, 1f, 0f, 0f))).containsExactly("east");
+    }
+
+    @Test
+    void filtersOnPayloadFields() {
+        store.upsertBatchAsync(List.of(
+                new DummyRecord("acme-north", List.of(1f, 0f, 0f, 0f), "acme", null, null, List.of("maps")),
+                new DummyRecord("globex-north", List.of(1f, 0.1f, 0f, 0f), "globex", null, null, List.of("maps")),
+                new DummyRecord("acme-east", List.of(0f, 1f, 0f, 0f), "acme", null, null, null),
+                new DummyRecord("acme-south", List.of(-1f, 0f, 0f, 0f), "acme", null, null, List.of("maps"))),
+                null).block();
+
+        var byTenant = search(filtered(new RecordFilter("acme", null, null, null)), 1f, 0f, 0f, 0f);
+        var byTenantAndTag = search(filtered(new RecordFilter("acme", null, null, "maps")), 1f, 0f, 0f, 0f);
+
+        assertThat(ids(byTenant)).containsExactly("acme-north", "acme-east", "acme-south");
+        assertThat(ids(byTenantAndTag)).containsExactly("acme-north", "acme-south");
+    }
+
+    @Test
+    void searchesABatchLikeSingleQueries() {
+        var random = new SplittableRandom(7);
+        var records = new ArrayList<DummyRecord>();
+        for (int i = 0; i < 500; i++) {
+            records.add(new DummyRecord("record-" + i, randomVector(random), i % 2 == 0 ? "even" : "odd",
+                    null, null, null));
+        }
+        store.upsertBatchAsync(records, null).block();
+        var queries = new ArrayList<List<Float>>();
+        for (int i = 0; i < 8; i++) {
+            queries.add(randomVector(random));
+        }
+        var options = VectorSearchOptions.builder()
+                .withTop(5)
+                .withVectorSearchFilter(new RecordFilter("even", null, null, null).toVectorSearchFilter())
+                .build();
+
+        List<VectorSearchResults<DummyRecord>> batch = store.searchBatchAsync(queries, options).block();
+
+        assertThat(batch).hasSize(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            assertThat(ids(batch.get(i).getResults()))
+                    .containsExactlyElementsOf(ids(store.searchAsync(queries.get(i), options).block().getResults()));
+        }
+    }
+
+    private List<VectorSearchResult<DummyRecord>> search(VectorSearchOptions options, Float... query) {
+        return store.searchAsync(List.of(query), options).block().getResults();
+    }
+
+    private static VectorSearchOptions top(int top) {
+        return VectorSearchOptions.builder().withTop(top).build();
+    }
+
+    private static VectorSearchOptions filtered(RecordFilter filter) {
+        return VectorSearchOptions.builder().withTop(5).withVectorSearchFilter(filter.toVectorSearchFilter()).build();
+    }
+
+    private static DummyRecord record(String id, Float... vector) {
+        return new DummyRecord(id, List.of(vector));
+    }
+
+    private static List<Float> randomVector(SplittableRandom random) {
+        var vector = new ArrayList<Float>(DIMENSIONS);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector.add((float) random.nextDouble(-1, 1));
+        }
+        return vector;
+    }
+
+    private static List<String> ids(List<VectorSearchResult<DummyRecord>> results) {
+        return results.stream().map(result -> result.getRecord().getId()).toList();
+    }
+}
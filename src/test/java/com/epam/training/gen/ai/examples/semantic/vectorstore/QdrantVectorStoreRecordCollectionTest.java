@@ -0,0 +1,146 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchFilter;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResult;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.QdrantGrpcClient;
+import io.qdrant.client.grpc.Collections.CollectionInfo;
+import io.qdrant.client.grpc.Collections.Distance;
+import io.qdrant.client.grpc.Collections.VectorParams;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link QdrantVectorStoreRecordCollection} against a Qdrant container; skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class QdrantVectorStoreRecordCollectionTest {
+
+    private static final int GRPC_PORT = 6334;
+    private static final int DIMENSIONS = 4;
+
+    @Container
+    private static final GenericContainer<?> QDRANT = new GenericContainer<>("qdrant/qdrant:v1.11.0")
+            .withExposedPorts(6333, GRPC_PORT)
+            .waitingFor(Wait.forHttp("/readyz").forPort(6333));
+
+    private String collectionName;
+    private QdrantVectorStoreRecordCollection collection;
+
+    @BeforeEach
+    void createCollection() {
+        collectionName = "test-" + UUID.randomUUID();
+        collection = new QdrantVectorStoreRecordCollection(newClient(), collectionName, DIMENSIONS,
+                new ObjectMapper(), new QdrantVectorStoreRecordCollection.QdrantSettings(16, 100, 64, "none", 0, 2));
+    }
+
+    @AfterEach
+    void deleteCollection() {
+        collection.deleteCollectionAsync().onErrorComplete().block();
+        collection.close();
+    }
+
+    @Test
+    void upsertsAndSearchesRecords() {
+        collection.createCollectionIfNotExistsAsync().block();
+        collection.upsertBatchAsync(List.of(
+                record("north", List.of(1f, 0f, 0f, 0f), "acme", List.of("maps")),
+                record("east", List.of(0f, 1f, 0f, 0f), "acme", List.of("maps", "weather")),
+                record("south", List.of(-1f, 0f, 0f, 0f), "globex", null)), null).block();
+
+        var results = collection.searchAsync(List.of(0.9f, 0.1f, 0f, 0f), VectorSearchOptions.builder()
+                .withTop(2)
+                .build()).block();
+
+        assertThat(results.getResults()).extracting(result -> result.getRecord().getId())
+                .containsExactly("north", "east");
+        assertThat(results.getResults().get(0).getScore()).isGreaterThan(results.getResults().get(1).getScore());
+        DummyRecord stored = collection.getAsync("east", null).block();
+        assertThat(stored.getTenant()).isEqualTo("acme");
+        assertThat(stored.getTags()).containsExactly("maps", "weather");
+    }
+
+    @Test
+    void appliesPayloadFilters() {
+        collection.createCollectionIfNotExistsAsync().block();
+        collection.upsertBatchAsync(List.of(
+                record("north", List.of(1f, 0f, 0f, 0f), "acme", List.of("maps")),
+                record("east", List.of(0f, 1f, 0f, 0f), "acme", List.of("weather")),
+                record("south", List.of(-1f, 0f, 0f, 0f), "globex", List.of("maps"))), null).block();
+
+        assertThat(search(VectorSearchFilter.builder().equalTo(DummyRecord.TENANT, "globex").build()))
+                .containsExactly("south");
+        assertThat(search(VectorSearchFilter.builder().anyTagEqualTo(DummyRecord.TAGS, "maps").build()))
+                .containsExactly("north", "south");
+        assertThat(search(VectorSearchFilter.builder()
+                .equalTo(DummyRecord.TENANT, "acme")
+                .anyTagEqualTo(DummyRecord.TAGS, "weather")
+                .build()))
+                .containsExactly("east");
+    }
+
+    @Test
+    void deletesRecords() {
+        collection.createCollectionIfNotExistsAsync().block();
+        collection.upsertBatchAsync(List.of(
+                record("north", List.of(1f, 0f, 0f, 0f), null, null),
+                record("east", List.of(0f, 1f, 0f, 0f), null, null)), null).block();
+
+        collection.deleteAsync("north", null).block();
+
+        assertThat(collection.getAsync("north", null).block()).isNull();
+        assertThat(search(null)).containsExactly("east");
+    }
+
+    @Test
+    void indexesPayloadFieldsOfExistingCollections() throws Exception {
+        try (QdrantClient client = newClient()) {
+            client.createCollectionAsync(collectionName, VectorParams.newBuilder()
+                    .setSize(DIMENSIONS)
+                    .setDistance(Distance.Cosine)
+                    .build()).get();
+
+            collection.createCollectionIfNotExistsAsync().block();
+            collection.createCollectionIfNotExistsAsync().block();
+
+            CollectionInfo info = client.getCollectionInfoAsync(collectionName).get();
+            assertThat(info.getPayloadSchemaMap()).containsKeys(DummyRecord.TENANT, DummyRecord.SOURCE,
+                    DummyRecord.DATE, DummyRecord.TAGS);
+        }
+    }
+
+    private List<String> search(VectorSearchFilter filter) {
+        return collection.searchAsync(List.of(1f, 0.5f, 0f, 0f), VectorSearchOptions.builder()
+                        .withTop(10)
+                        .withVectorSearchFilter(filter)
+                        .build())
+                .block()
+                .getResults()
+                .stream()
+                .map(VectorSearchResult::getRecord)
+                .map(DummyRecord::getId)
+                .toList();
+    }
+
+    private static DummyRecord record(String id, List<Float> embedding, String tenant, List<String> tags) {
+        return new DummyRecord(id, embedding, tenant, null, null, tags);
+    }
+
+    private static QdrantClient newClient() {
+        return new QdrantClient(QdrantGrpcClient.newBuilder(QDRANT.getHost(), QDRANT.getMappedPort(GRPC_PORT), false)
+                .build());
+    }
+}
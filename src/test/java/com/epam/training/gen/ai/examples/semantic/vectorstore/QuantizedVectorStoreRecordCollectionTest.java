@@ -0,0 +1,153 @@
+package com.epam.training.gen.ai.examples.semantic.vectorstore;
+
+import com.epam.training.gen.ai.examples.semantic.model.DummyRecord;
+import com.epam.training.gen.ai.examples.semantic.model.RecordFilter;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchOptions;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResult;
+import com.microsoft.semantickernel.data.vectorsearch.VectorSearchResults;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that {@link QuantizedVectorStoreRecordCollection} returns the exact order of its full-precision delegate
+ * once candidates are reranked, and that it follows deletes, payload filters and batch searches.
+ */
+class QuantizedVectorStoreRecordCollectionTest {
+
+    private static final int DIMENSIONS = 16;
+
+    private final PrimitiveVectorStoreRecordCollection delegate =
+            new PrimitiveVectorStoreRecordCollection("test", DIMENSIONS, SimilarityFunction.COSINE);
+
+    @Test
+    void reranksToTheExactOrder() {
+        var store = quantized(QuantizationType.BINARY);
+        var random = new SplittableRandom(3);
+        var records = new ArrayList<DummyRecord>();
+        for (int i = 0; i < 500; i++) {
+            records.add(new DummyRecord("record-" + i, randomVector(random)));
+        }
+        store.upsertBatchAsync(records, null).block();
+        var options = VectorSearchOptions.builder().withTop(5).build();
+
+        for (int q = 0; q < 10; q++) {
+            List<Float> query = randomVector(random);
+            var results = store.searchAsync(query, options, 100).block().getResults();
+
+            assertThat(ids(results)).containsExactlyElementsOf(ids(delegate.searchAsync(query, options).block()
+                    .getResults()));
+            assertThat(results).extracting(VectorSearchResult::getScore)
+                    .isSortedAccordingTo((a, b) -> Double.compare(b, a));
+        }
+    }
+
+    @Test
+    void forgetsDeletedRecords() {
+        var store = quantized(QuantizationType.INT8);
+        store.upsertBatchAsync(List.of(
+                record("north", 0, 1f),
+                record("east", 1, 1f),
+                record("south", 0, -1f)), null).block();
+        store.deleteAsync("north", null).block();
+
+        var results = store.searchAsync(record("query", 0, 1f).getEmbedding(),
+                VectorSearchOptions.builder().withTop(3).build()).block().getResults();
+
+        assertThat(ids(results)).containsExactly("east", "south");
+        assertThat(store.getAsync("north", null).block()).isNull();
+    }
+
+    @Test
+    void filtersOnPayloadFields() {
+        var store = quantized(QuantizationType.INT8);
+        store.upsertBatchAsync(List.of(
+                record("acme-north", 0, 1f).withPayload(payload("acme", "maps")),
+                record("globex-north", 0, 1f).withPayload(payload("globex", "maps")),
+                record("acme-east", 1, 1f).withPayload(payload("acme", null))), null).block();
+        var options = VectorSearchOptions.builder()
+                .withTop(5)
+                .withVectorSearchFilter(new RecordFilter("acme", null, null, "maps").toVectorSearchFilter())
+                .build();
+
+        var results = store.searchAsync(record("query", 0, 1f).getEmbedding(), options).block().getResults();
+
+        assertThat(ids(results)).containsExactly("acme-north");
+    }
+
+    @Test
+    void searchesABatchLikeSingleQueries() {
+        var store = quantized(QuantizationType.INT8);
+        var random = new SplittableRandom(9);
+        var records = new ArrayList<DummyRecord>();
+        for (int i = 0; i < 300; i++) {
+            records.add(new DummyRecord("record-" + i, randomVector(random), i % 3 == 0 ? "acme" : "globex",
+                    null, null, null));
+        }
+        store.upsertBatchAsync(records, null).block();
+        var queries = List.of(randomVector(random), randomVector(random), randomVector(random));
+        var options = VectorSearchOptions.builder()
+                .withTop(4)
+                .withVectorSearchFilter(new RecordFilter("acme", null, null, null).toVectorSearchFilter())
+                .build();
+
+        List<VectorSearchResults<DummyRecord>> batch = store.searchBatchAsync(queries, options).block();
+
+        assertThat(batch).hasSize(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            assertThat(ids(batch.get(i).getResults()))
+                    .containsExactlyElementsOf(ids(store.searchAsync(queries.get(i), options).block().getResults()));
+        }
+    }
+
+    @Test
+    void reportsTheHeapOfAnInHeapDelegate() {
+        var store = quantized(QuantizationType.INT8);
+        var random = new SplittableRandom(1);
+        for (int i = 0; i < 100; i++) {
+            store.upsertAsync(new DummyRecord("record-" + i, randomVector(random)), null).block();
+        }
+
+        var report = store.quantizationReport(10, 5, new int[]{4});
+
+        assertThat(report.delegateHeapBytes()).isEqualTo(delegate.vectorBytes()).isPositive();
+        assertThat(report.getHeapBytes()).isEqualTo(report.delegateHeapBytes() + report.quantizedBytes());
+    }
+
+    private QuantizedVectorStoreRecordCollection quantized(QuantizationType type) {
+        var store = new QuantizedVectorStoreRecordCollection(delegate, DIMENSIONS, type, 4);
+        store.createCollectionIfNotExistsAsync().block();
+        return store;
+    }
+
+    /**
+     * Returns a record whose vector has {@code value} in dimension {@code axis} and zeros elsewhere.
+     */
+    private static DummyRecord record(String id, int axis, float value) {
+        var vector = new ArrayList<Float>(DIMENSIONS);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector.add(d == axis ? value : 0f);
+        }
+        return new DummyRecord(id, vector);
+    }
+
+    private static DummyRecord payload(String tenant, String tag) {
+        return new DummyRecord(null, null, tenant, null, null, tag == null ? null : List.of(tag));
+    }
+
+    private static List<Float> randomVector(SplittableRandom random) {
+        var vector = new ArrayList<Float>(DIMENSIONS);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector.add((float) random.nextGaussian());
+        }
+        return vector;
+    }
+
+    private static List<String> ids(List<VectorSearchResult<DummyRecord>> results) {
+        return results.stream().map(result -> result.getRecord().getId()).toList();
+    }
+}